@@ -0,0 +1,343 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.benchmarks;
+
+import es.csic.iiia.bms.CommunicationAdapter;
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.MaxOperator;
+import es.csic.iiia.bms.Maximize;
+import es.csic.iiia.bms.factors.AllActiveIncentiveFactor;
+import es.csic.iiia.bms.factors.AtMostOneFactor;
+import es.csic.iiia.bms.factors.CardinalityFactor;
+import es.csic.iiia.bms.factors.CardinalityFactor.CardinalityFunction;
+import es.csic.iiia.bms.factors.ConditionedSelectorFactor;
+import es.csic.iiia.bms.factors.IndependentFactor;
+import es.csic.iiia.bms.factors.SaturationFactor;
+import es.csic.iiia.bms.factors.SaturationKFactor;
+import es.csic.iiia.bms.factors.SelectorFactor;
+import es.csic.iiia.bms.factors.TwoSidedEqualityFactor;
+import es.csic.iiia.bms.factors.TwoSidedReserveFactor;
+import es.csic.iiia.bms.factors.VariableFactor;
+import es.csic.iiia.bms.factors.WeightingFactor;
+import es.csic.iiia.bms.factors.indexed.IndexedAtMostOneFactor;
+import es.csic.iiia.bms.factors.indexed.IndexedCardinalityFactor;
+import es.csic.iiia.bms.factors.indexed.IndexedSelectorFactor;
+import es.csic.iiia.bms.factors.indexed.IndexedVariableFactor;
+import es.csic.iiia.bms.factors.indexed.IndexedWeightingFactor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the throughput of running (computing and sending the messages of)
+ * each factor type, for a range of neighbor counts.
+ * <p/>
+ * Run it with the <em>gc</em> profiler (<code>-prof gc</code>) to also get the
+ * number of bytes allocated per run (<em>gc.alloc.rate.norm</em>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactorBenchmark {
+
+    /** Seed used to generate the incoming messages and potentials */
+    private static final long SEED = 1234567L;
+
+    @Param({"4", "16", "64", "256", "1024", "4096"})
+    public int nNeighbors;
+
+    @Param({
+        "CARDINALITY", "SELECTOR", "AT_MOST_ONE", "VARIABLE", "WEIGHTING",
+        "SATURATION", "SATURATION_K", "TWO_SIDED_RESERVE", "TWO_SIDED_EQUALITY",
+        "CONDITIONED_SELECTOR", "ALL_ACTIVE_INCENTIVE",
+        "INDEXED_CARDINALITY", "INDEXED_SELECTOR", "INDEXED_AT_MOST_ONE",
+        "INDEXED_VARIABLE", "INDEXED_WEIGHTING",
+    })
+    public FactorType factorType;
+
+    private Factor<Integer> factor;
+    private SinkAdapter adapter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(SEED);
+        final MaxOperator op = new Maximize();
+
+        factor = factorType.build(nNeighbors, op, random);
+        adapter = new SinkAdapter();
+        factor.setIdentity(-1);
+        factor.setMaxOperator(op);
+        factor.setCommunicationAdapter(adapter);
+
+        for (int i=0; i<nNeighbors; i++) {
+            factor.receive(random.nextDouble() - 0.5, i);
+        }
+    }
+
+    @Benchmark
+    public long run(Blackhole bh) {
+        final long constraintChecks = factor.run();
+        bh.consume(adapter.sink);
+        return constraintChecks;
+    }
+
+    /**
+     * Communication adapter that just accumulates the outgoing messages, so
+     * that their computation can not be optimized away.
+     */
+    private static class SinkAdapter implements CommunicationAdapter<Integer> {
+        double sink;
+
+        @Override
+        public void send(double message, Integer sender, Integer recipient) {
+            sink += message;
+        }
+    }
+
+    /**
+     * Factor types that can be benchmarked.
+     * <p/>
+     * The standard (tabular) factor is not included because its size grows
+     * exponentially with the number of neighbors.
+     */
+    public enum FactorType {
+        CARDINALITY {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                CardinalityFactor<Integer> f = new CardinalityFactor<Integer>();
+                f.setFunction(randomCardinality(n, random));
+                return f;
+            }
+        },
+        SELECTOR {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new SelectorFactor<Integer>();
+            }
+        },
+        AT_MOST_ONE {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new AtMostOneFactor<Integer>();
+            }
+        },
+        VARIABLE {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new VariableFactor<Integer>();
+            }
+        },
+        WEIGHTING {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new WeightingFactor<Integer>(new SelectorFactor<Integer>());
+            }
+
+            @Override
+            void link(Factor<Integer> factor, int n, Random random) {
+                super.link(factor, n, random);
+                WeightingFactor<Integer> f = (WeightingFactor<Integer>)factor;
+                for (int i=0; i<n; i++) {
+                    f.setPotential(i, random.nextDouble() - 0.5);
+                }
+            }
+        },
+        SATURATION {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new SaturationFactor<Integer>();
+            }
+
+            @Override
+            void link(Factor<Integer> factor, int n, Random random) {
+                linkIndependent((IndependentFactor<Integer>)factor, n, random);
+            }
+        },
+        SATURATION_K {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new SaturationKFactor<Integer>(Math.max(1, n / 4));
+            }
+
+            @Override
+            void link(Factor<Integer> factor, int n, Random random) {
+                linkIndependent((IndependentFactor<Integer>)factor, n, random);
+            }
+        },
+        TWO_SIDED_RESERVE {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                TwoSidedReserveFactor<Integer> f = new TwoSidedReserveFactor<Integer>();
+                f.setNElementsA(n / 2);
+                return f;
+            }
+        },
+        TWO_SIDED_EQUALITY {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                TwoSidedEqualityFactor<Integer> f = new TwoSidedEqualityFactor<Integer>();
+                f.setNElementsA(n / 2);
+                return f;
+            }
+        },
+        CONDITIONED_SELECTOR {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                ConditionedSelectorFactor<Integer> f = new ConditionedSelectorFactor<Integer>();
+                f.setConditionNeighbor(0);
+                return f;
+            }
+        },
+        ALL_ACTIVE_INCENTIVE {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                AllActiveIncentiveFactor<Integer> f = new AllActiveIncentiveFactor<Integer>();
+                f.setIncentive(random.nextDouble());
+                return f;
+            }
+        },
+        INDEXED_CARDINALITY {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                IndexedCardinalityFactor<Integer> f = new IndexedCardinalityFactor<Integer>();
+                f.setFunction(randomCardinality(n, random));
+                return f;
+            }
+        },
+        INDEXED_SELECTOR {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new IndexedSelectorFactor<Integer>();
+            }
+        },
+        INDEXED_AT_MOST_ONE {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new IndexedAtMostOneFactor<Integer>();
+            }
+        },
+        INDEXED_VARIABLE {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new IndexedVariableFactor<Integer>();
+            }
+        },
+        INDEXED_WEIGHTING {
+            @Override
+            Factor<Integer> create(int n, MaxOperator op, Random random) {
+                return new IndexedWeightingFactor<Integer>(new IndexedSelectorFactor<Integer>());
+            }
+
+            @Override
+            void link(Factor<Integer> factor, int n, Random random) {
+                super.link(factor, n, random);
+                IndexedWeightingFactor<Integer> f = (IndexedWeightingFactor<Integer>)factor;
+                for (int i=0; i<n; i++) {
+                    f.setPotential(i, random.nextDouble() - 0.5);
+                }
+            }
+        };
+
+        /**
+         * Build an unlinked factor of this type.
+         */
+        abstract Factor<Integer> create(int n, MaxOperator op, Random random);
+
+        /**
+         * Add the neighbors <em>0, ..., n-1</em> to the given factor.
+         */
+        void link(Factor<Integer> factor, int n, Random random) {
+            for (int i=0; i<n; i++) {
+                factor.addNeighbor(i);
+            }
+        }
+
+        /**
+         * Build a factor of this type, linked to the neighbors
+         * <em>0, ..., n-1</em>.
+         *
+         * @param n number of neighbors.
+         * @param op maximization operator to use.
+         * @param random source of random values for potentials.
+         * @return new factor.
+         */
+        public Factor<Integer> build(int n, MaxOperator op, Random random) {
+            Factor<Integer> factor = create(n, op, random);
+            factor.setMaxOperator(op);
+            link(factor, n, random);
+            return factor;
+        }
+
+        private static void linkIndependent(IndependentFactor<Integer> factor, int n, Random random) {
+            for (int i=0; i<n; i++) {
+                factor.addNeighbor(i);
+                factor.setPotential(i, random.nextDouble() - 0.5);
+            }
+        }
+
+        private static CardinalityFunction randomCardinality(int n, Random random) {
+            final double[] values = new double[n+1];
+            for (int i=0; i<=n; i++) {
+                values[i] = random.nextDouble() - 0.5;
+            }
+            return new CardinalityFunction() {
+                @Override
+                public double getCost(int nActiveVariables) {
+                    return values[nActiveVariables];
+                }
+            };
+        }
+    }
+
+}
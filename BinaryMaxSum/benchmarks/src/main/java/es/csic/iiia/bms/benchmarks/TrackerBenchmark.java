@@ -0,0 +1,144 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.benchmarks;
+
+import es.csic.iiia.bms.MaxOperator;
+import es.csic.iiia.bms.Maximize;
+import es.csic.iiia.bms.util.BestKValuesTracker;
+import es.csic.iiia.bms.util.BoundedTreeSet;
+import es.csic.iiia.bms.util.NeighborComparator;
+import es.csic.iiia.bms.util.NeighborValue;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the utilities used by the higher-order factors
+ * to track the best <em>k</em> values among their neighbors' messages.
+ * <p/>
+ * Each benchmark invocation tracks all the values from scratch, as a factor
+ * does on every run. Use the <em>gc</em> profiler (<code>-prof gc</code>) to
+ * get the allocations per invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackerBenchmark {
+
+    /** Seed used to generate the tracked values */
+    private static final long SEED = 1234567L;
+
+    @Param({"4", "16", "64", "256", "1024", "4096"})
+    public int nElements;
+
+    @Param({"1", "16"})
+    public int k;
+
+    private final MaxOperator operator = new Maximize();
+    private Integer[] elements;
+    private double[] values;
+    private NeighborValue<Integer>[] pairs;
+    private Comparator<NeighborValue<Integer>> comparator;
+    private BestKValuesTracker<Integer> tracker;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        final Random random = new Random(SEED);
+        elements = new Integer[nElements];
+        values = new double[nElements];
+        pairs = new NeighborValue[nElements];
+        for (int i=0; i<nElements; i++) {
+            elements[i] = i;
+            values[i] = random.nextDouble() - 0.5;
+            pairs[i] = new NeighborValue<Integer>(elements[i], values[i]);
+        }
+
+        comparator = Collections.reverseOrder(new NeighborComparator<Integer>(operator));
+        tracker = new BestKValuesTracker<Integer>(operator, k);
+    }
+
+    /**
+     * Track all values and compute the complementary sum of each of them,
+     * which is what a k-saturation factor does on every run.
+     */
+    @Benchmark
+    public double bestKValuesTracker() {
+        tracker.reset();
+        for (int i=0; i<nElements; i++) {
+            tracker.track(elements[i], values[i]);
+        }
+
+        double result = tracker.sum();
+        for (int i=0; i<nElements; i++) {
+            result += tracker.sumComplementaries(elements[i], values[i], null);
+        }
+        return result;
+    }
+
+    /**
+     * Fill a bounded set of capacity <em>k+1</em> with all the values.
+     */
+    @Benchmark
+    public int boundedTreeSet() {
+        BoundedTreeSet<NeighborValue<Integer>> set =
+                new BoundedTreeSet<NeighborValue<Integer>>(k+1, comparator);
+        for (int i=0; i<nElements; i++) {
+            set.add(pairs[i]);
+        }
+        return set.size();
+    }
+
+}
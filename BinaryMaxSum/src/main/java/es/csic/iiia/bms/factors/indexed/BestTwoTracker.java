@@ -0,0 +1,107 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.MaxOperator;
+
+/**
+ * Tracks the two best values of an array of messages, along with the index
+ * of the best one.
+ * <p/>
+ * This is the index-based counterpart of
+ * {@link es.csic.iiia.bms.util.BestValuesTracker}, and resolves ties the same
+ * way (the last of the tied values wins).
+ */
+class BestTwoTracker {
+
+    private double best;
+    private double second;
+    private int bestIndex = -1;
+
+    /**
+     * Track the first <em>n</em> values of the given array, discarding any
+     * previously tracked ones.
+     *
+     * @param operator maximization operator to use.
+     * @param values values to track.
+     * @param n number of values to track.
+     */
+    public void track(MaxOperator operator, double[] values, int n) {
+        best = second = operator.getWorstValue();
+        bestIndex = -1;
+
+        for (int i=0; i<n; i++) {
+            final double value = values[i];
+            if (operator.max(value, best) == value) {
+                second = best;
+                best = value;
+                bestIndex = i;
+            } else if (operator.max(value, second) == value) {
+                second = value;
+            }
+        }
+    }
+
+    /**
+     * Get the best value among tracked elements which are *not* the given one.
+     *
+     * @param index index of the element to exclude from the maximization.
+     * @return value of the best element which is *not* the given one.
+     */
+    public double getComplementary(int index) {
+        return index != bestIndex ? best : second;
+    }
+
+    /**
+     * Get the index of the element with the best value.
+     *
+     * @return index of the best element, or -1 if nothing was tracked.
+     */
+    public int getBest() {
+        return bestIndex;
+    }
+
+    /**
+     * Get the best value between all tracked ones.
+     *
+     * @return best value.
+     */
+    public double getBestValue() {
+        return best;
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.MaxOperator;
+import es.csic.iiia.bms.factors.CardinalityFactor.CardinalityFunction;
+
+/**
+ * Indexed cardinality factor.
+ * <p/>
+ * Outgoing messages are computed in <em>O(n*log(n))</em> time, where <em>n</em>
+ * is the number of variables connected to this factor. All the buffers used
+ * to sort the incoming messages and to accumulate the partial sums and maxes
+ * are kept between runs, and only grow when neighbors are added.
+ *
+ * @see es.csic.iiia.bms.factors.CardinalityFactor
+ * @param <T> Type of the factor's identity.
+ */
+public class IndexedCardinalityFactor<T> extends IndexedFactor<T> {
+
+    private CardinalityFunction function;
+
+    // Neighbor indices sorted from best to worst message, and sort buffer
+    private int[] order = new int[0];
+    private int[] sortBuffer = new int[0];
+
+    // Sorted messages and cumulative sums/maxes
+    private double[] sorted = new double[0];
+    private double[] cum_ws = new double[0];
+    private double[] m_1 = new double[0];
+    private double[] m0R = new double[0];
+    private double[] m0L = new double[0];
+    private double[] m1  = new double[0];
+
+    private long constraintChecks;
+
+    /**
+     * Set the cardinality function f that returns the cost depending on the
+     * number of active variables.
+     *
+     * @param f function to use
+     */
+    public void setFunction(CardinalityFunction f) {
+        function = f;
+    }
+
+    /**
+     * Get the cardinality function f that returns the cost depending on the
+     * number of active variables.
+     *
+     * @return cardinality function in use
+     */
+    public CardinalityFunction getFunction() {
+        return function;
+    }
+
+    @Override
+    protected double eval(boolean[] values, int nNeighbors) {
+        int nActive = 0;
+        for (int i=0; i<nNeighbors; i++) {
+            if (values[i]) {
+                nActive++;
+            }
+        }
+        return function.getCost(nActive);
+    }
+
+    @Override
+    protected long compute(double[] incoming, double[] outgoing, int size) {
+        constraintChecks = 0;
+        final MaxOperator operator = getMaxOperator();
+        final double worst = operator.getWorstValue();
+        ensureBuffers(size);
+
+        // Sort the neighbors from best to worst message
+        for (int i=0; i<size; i++) {
+            order[i] = i;
+        }
+        constraintChecks += size;
+        sort(operator, incoming, size);
+        for (int i=0; i<size; i++) {
+            sorted[i] = incoming[order[i]];
+        }
+
+        // Cumulative sums
+        cum_ws[0] = 0;
+        for (int i=1; i<=size; i++) {
+            cum_ws[i] = sorted[i-1] + cum_ws[i-1];
+        }
+        constraintChecks += size*4;
+
+        // Cumulative maxes (left to right for m1 and m0L, right to left for
+        // m0R and m_1)
+        m1[0]     = size > 0 ? cum_ws[0] + function.getCost(1) : worst;
+        m0L[0]    = cum_ws[0] + function.getCost(0);
+        m0R[size] = cum_ws[size] + function.getCost(size);
+        m_1[size] = size > 0 ? cum_ws[size] + function.getCost(size-1) : worst;
+        for (int i=1; i<=size; i++) {
+            final int j = size - i;
+            final double w_s1  = i < size ? cum_ws[i] + function.getCost(i+1) : worst;
+            final double w_s_1 = j > 0 ? cum_ws[j] + function.getCost(j-1) : worst;
+            m1[i]  = operator.max(w_s1, m1[i-1]);
+            m0L[i] = operator.max(cum_ws[i] + function.getCost(i), m0L[i-1]);
+            m0R[j] = operator.max(cum_ws[j] + function.getCost(j), m0R[j+1]);
+            m_1[j] = operator.max(w_s_1, m_1[j+1]);
+        }
+        constraintChecks += size*4;
+
+        for (int pos=0; pos<size; pos++) {
+            double msg0 = worst;
+            double msg1 = worst;
+
+            if (pos > 0) {
+                msg0 = operator.max(msg0, m0L[pos-1]);
+                msg1 = operator.max(msg1, m1[pos-1]);
+            }
+
+            msg0 = operator.max(msg0, m_1[pos+1] - sorted[pos]);
+            msg1 = operator.max(msg1, m0R[pos+1] - sorted[pos]);
+
+            outgoing[order[pos]] = msg1 - msg0;
+        }
+        constraintChecks += size*3;
+
+        return constraintChecks;
+    }
+
+    /**
+     * Stable merge sort of the first <em>size</em> entries of {@link #order},
+     * from best to worst according to their incoming message.
+     */
+    private void sort(MaxOperator operator, double[] incoming, int size) {
+        int[] src = order;
+        int[] dst = sortBuffer;
+
+        for (int width=1; width<size; width*=2) {
+            for (int lo=0; lo<size; lo+=2*width) {
+                final int mid = Math.min(lo + width, size);
+                final int hi  = Math.min(lo + 2*width, size);
+                int l = lo, r = mid, k = lo;
+                while (l < mid && r < hi) {
+                    constraintChecks++;
+                    if (operator.compare(incoming[src[l]], incoming[src[r]]) >= 0) {
+                        dst[k++] = src[l++];
+                    } else {
+                        dst[k++] = src[r++];
+                    }
+                }
+                while (l < mid) {
+                    dst[k++] = src[l++];
+                }
+                while (r < hi) {
+                    dst[k++] = src[r++];
+                }
+            }
+            int[] tmp = src; src = dst; dst = tmp;
+        }
+
+        if (src != order) {
+            System.arraycopy(src, 0, order, 0, size);
+        }
+    }
+
+    private void ensureBuffers(int size) {
+        if (order.length >= size && cum_ws.length > size) {
+            return;
+        }
+
+        final int capacity = Math.max(size, getCapacity());
+        order      = new int[capacity];
+        sortBuffer = new int[capacity];
+        sorted     = new double[capacity];
+        cum_ws     = new double[capacity+1];
+        m_1        = new double[capacity+1];
+        m0R        = new double[capacity+1];
+        m0L        = new double[capacity+1];
+        m1         = new double[capacity+1];
+    }
+
+}
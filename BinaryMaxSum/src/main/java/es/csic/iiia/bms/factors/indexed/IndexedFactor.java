@@ -0,0 +1,354 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.CommunicationAdapter;
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.MaxOperator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Skeletal implementation of a Max-Sum factor that keeps its neighbors as
+ * dense integer indices.
+ * <p/>
+ * Each neighbor is assigned the index corresponding to its position in the
+ * list of neighbors, and the messages exchanged with it are stored in
+ * primitive <em>double</em> buffers at that index. These buffers are reused
+ * across runs, so running an indexed factor does not allocate any objects.
+ * <p/>
+ * Messages can still be received and sent through the regular {@link Factor}
+ * interface, but callers that know the index of each neighbor can bypass the
+ * identity lookup with {@link #setIncoming(int, double)} and
+ * {@link #getOutgoing(int)}.
+ * <p/>
+ * Unlike {@link es.csic.iiia.bms.factors.AbstractFactor}, adding an existing
+ * neighbor again has no effect.
+ *
+ * @param <T> Type of the factor's identity.
+ */
+public abstract class IndexedFactor<T> implements Factor<T> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final List<T> neighbors = new ArrayList<T>();
+    private final List<T> neighborsView = Collections.unmodifiableList(neighbors);
+    private final Map<T, Integer> indices = new HashMap<T, Integer>();
+    private double[] inbox = new double[INITIAL_CAPACITY];
+    private double[] outbox = new double[INITIAL_CAPACITY];
+    private boolean[] assignment = new boolean[INITIAL_CAPACITY];
+    private MaxOperator maxOperator;
+    private T identity;
+    private CommunicationAdapter<T> communicationAdapter;
+
+    @Override
+    public MaxOperator getMaxOperator() {
+        return maxOperator;
+    }
+
+    @Override
+    public void setMaxOperator(MaxOperator maxOperator) {
+        this.maxOperator = maxOperator;
+    }
+
+    @Override
+    public T getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public void setIdentity(T identity) {
+        this.identity = identity;
+    }
+
+    @Override
+    public CommunicationAdapter<T> getCommunicationAdapter() {
+        return communicationAdapter;
+    }
+
+    @Override
+    public void setCommunicationAdapter(CommunicationAdapter<T> communicationAdapter) {
+        this.communicationAdapter = communicationAdapter;
+    }
+
+    @Override
+    public void addNeighbor(T factor) {
+        if (indices.containsKey(factor)) {
+            return;
+        }
+
+        final int index = neighbors.size();
+        ensureCapacity(index + 1);
+        indices.put(factor, index);
+        neighbors.add(factor);
+        inbox[index] = 0;
+        outbox[index] = 0;
+        neighborAdded(index);
+    }
+
+    @Override
+    public boolean removeNeighbor(T factor) {
+        final Integer index = indices.remove(factor);
+        if (index == null) {
+            return false;
+        }
+
+        // Shift the following neighbors one position to the left
+        final int nNeighbors = neighbors.size();
+        final int nMoved = nNeighbors - index - 1;
+        neighbors.remove(index.intValue());
+        System.arraycopy(inbox, index + 1, inbox, index, nMoved);
+        System.arraycopy(outbox, index + 1, outbox, index, nMoved);
+        for (int i = index; i < nNeighbors - 1; i++) {
+            indices.put(neighbors.get(i), i);
+        }
+        neighborRemoved(index, nNeighbors - 1);
+        return true;
+    }
+
+    /**
+     * Get the neighbors of this factor.
+     * <p/>
+     * The returned list can not be modified directly. Use
+     * {@link #addNeighbor(java.lang.Object)} and
+     * {@link #removeNeighbor(java.lang.Object)} instead.
+     *
+     * @return neighbors of this factor, ordered by index.
+     */
+    @Override
+    public List<T> getNeighbors() {
+        return neighborsView;
+    }
+
+    @Override
+    public void clearNeighbors() {
+        neighbors.clear();
+        indices.clear();
+        neighborsCleared();
+    }
+
+    /**
+     * Get the number of neighbors of this factor.
+     *
+     * @return number of neighbors.
+     */
+    public int getNeighborCount() {
+        return neighbors.size();
+    }
+
+    /**
+     * Get the index assigned to the given neighbor.
+     *
+     * @param neighbor neighbor whose index to get.
+     * @return index of that neighbor, or -1 if it is not a neighbor of this
+     * factor.
+     */
+    public int getNeighborIndex(T neighbor) {
+        final Integer index = indices.get(neighbor);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public double getMessage(T neighbor) {
+        final Integer index = indices.get(neighbor);
+        if (index == null) {
+            throw new IllegalArgumentException("Requested message from the non-neighbor " + neighbor);
+        }
+        return getIncoming(index);
+    }
+
+    /**
+     * Get the last message received from the neighbor at the given index.
+     *
+     * @param index index of the neighbor.
+     * @return message received from that neighbor.
+     */
+    public double getIncoming(int index) {
+        return inbox[index];
+    }
+
+    /**
+     * Receive a message from the neighbor at the given index.
+     *
+     * @param index index of the sender.
+     * @param message message to receive.
+     */
+    public void setIncoming(int index, double message) {
+        inbox[index] = message;
+    }
+
+    /**
+     * Get the last message computed for the neighbor at the given index.
+     *
+     * @param index index of the recipient.
+     * @return message computed for that neighbor in the last run.
+     */
+    public double getOutgoing(int index) {
+        return outbox[index];
+    }
+
+    @Override
+    public void receive(double message, T sender) {
+        final Integer index = indices.get(sender);
+        if (index == null) {
+            throw new RuntimeException("I (" + getClass().getName() + ", " + getIdentity()
+                    + ") received message " + message + " from the non-neighbor sender " + sender);
+        }
+        setIncoming(index, message);
+    }
+
+    @Override
+    public void send(double message, T recipient) {
+        getCommunicationAdapter().send(message, getIdentity(), recipient);
+    }
+
+    @Override
+    public double evaluate(Map<T, Boolean> values) {
+        final int nNeighbors = neighbors.size();
+        for (int i = 0; i < nNeighbors; i++) {
+            final Boolean value = values.get(neighbors.get(i));
+            if (value == null) {
+                throw new IllegalArgumentException("Missing assignment for neighbor " + neighbors.get(i));
+            }
+            assignment[i] = value;
+        }
+        return eval(assignment, nNeighbors);
+    }
+
+    /**
+     * Evaluate this factor given the neighbor's values.
+     *
+     * @param values array of values, indexed by neighbor.
+     * @return cost/utility of this factor given the neighbor's values.
+     */
+    public double evaluate(boolean[] values) {
+        final int nNeighbors = neighbors.size();
+        if (values.length < nNeighbors) {
+            throw new IllegalArgumentException("Expected " + nNeighbors + " values, but got " + values.length);
+        }
+        return eval(values, nNeighbors);
+    }
+
+    /**
+     * Computes the outgoing messages of this factor and sends them to the
+     * neighbors through the communication adapter (if there is one).
+     *
+     * @return number of Constraint Checks performed by this node.
+     */
+    @Override
+    public long run() {
+        final int nNeighbors = neighbors.size();
+        final long constraintChecks = compute(inbox, outbox, nNeighbors);
+
+        if (communicationAdapter != null) {
+            for (int i = 0; i < nNeighbors; i++) {
+                send(outbox[i], neighbors.get(i));
+            }
+        }
+
+        return constraintChecks;
+    }
+
+    /**
+     * Evaluate this factor given the neighbor's values.
+     *
+     * @param values array of values, indexed by neighbor.
+     * @param nNeighbors number of neighbors of this factor.
+     * @return cost/utility of this factor given the neighbor's values.
+     */
+    protected abstract double eval(boolean[] values, int nNeighbors);
+
+    /**
+     * Compute the outgoing messages of this factor.
+     * <p/>
+     * Implementations must not allocate per-run buffers. Any scratch space
+     * they need should be kept in fields and reused across runs.
+     *
+     * @param incoming incoming messages, indexed by neighbor.
+     * @param outgoing buffer where to store the outgoing messages.
+     * @param nNeighbors number of neighbors of this factor.
+     * @return number of Constraint Checks performed.
+     */
+    protected abstract long compute(double[] incoming, double[] outgoing, int nNeighbors);
+
+    /**
+     * Called after a new neighbor has been assigned the given index.
+     *
+     * @param index index of the new neighbor.
+     */
+    protected void neighborAdded(int index) {}
+
+    /**
+     * Called after the neighbor at the given index has been removed, and the
+     * following neighbors shifted one position to the left.
+     *
+     * @param index index of the removed neighbor.
+     * @param nNeighbors number of remaining neighbors.
+     */
+    protected void neighborRemoved(int index, int nNeighbors) {}
+
+    /**
+     * Called after all neighbors have been removed.
+     */
+    protected void neighborsCleared() {}
+
+    /**
+     * Get the capacity of the message buffers of this factor.
+     *
+     * @return number of neighbors that fit in the current buffers.
+     */
+    protected int getCapacity() {
+        return inbox.length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= inbox.length) {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, inbox.length * 2);
+        inbox = Arrays.copyOf(inbox, newCapacity);
+        outbox = Arrays.copyOf(outbox, newCapacity);
+        assignment = new boolean[newCapacity];
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+/**
+ * Indexed max-sum selector factor.
+ * <p/>
+ * Outgoing messages are computed in <em>O(n)</em> time, where <em>n</em> is the
+ * total number of variables connected to this factor.
+ *
+ * @see es.csic.iiia.bms.factors.SelectorFactor
+ * @param <T> Type of the factor's identity.
+ */
+public class IndexedSelectorFactor<T> extends IndexedFactor<T> {
+
+    private final BestTwoTracker tracker = new BestTwoTracker();
+
+    @Override
+    protected double eval(boolean[] values, int nNeighbors) {
+        int nActive = 0;
+        for (int i=0; i<nNeighbors; i++) {
+            if (values[i]) {
+                nActive++;
+            }
+        }
+        return (nActive == 1) ? 0 : getMaxOperator().getWorstValue();
+    }
+
+    @Override
+    protected long compute(double[] incoming, double[] outgoing, int nNeighbors) {
+        tracker.track(getMaxOperator(), incoming, nNeighbors);
+
+        for (int i=0; i<nNeighbors; i++) {
+            outgoing[i] = - tracker.getComplementary(i);
+        }
+
+        return nNeighbors*2;
+    }
+
+    /**
+     * Pick the "winning" neighboring factor.
+     *
+     * @return the best fitting neighbor factor.
+     */
+    public T select() {
+        final int best = tracker.getBest();
+        return best < 0 ? null : getNeighbors().get(best);
+    }
+
+}
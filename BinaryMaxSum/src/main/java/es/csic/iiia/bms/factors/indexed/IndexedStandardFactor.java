@@ -0,0 +1,139 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.MaxOperator;
+
+/**
+ * Indexed implementation of a standard (binary) max-sum factor.
+ * <p/>
+ * The potential is represented in the same way as in
+ * {@link es.csic.iiia.bms.factors.StandardFactor}: an array with a
+ * cost/utility for each combination of values of the neighbors, where the
+ * first neighbor corresponds to the most significant bit of the index.
+ * <p/>
+ * Instead of summing the incoming messages from scratch for every
+ * combination, the sums are built incrementally from the combination with
+ * one less active variable, so that outgoing messages are computed in
+ * <em>O(n*2^n)</em> time without allocating any iterators.
+ *
+ * @see es.csic.iiia.bms.factors.StandardFactor
+ * @param <T> Type of the factor's identity.
+ */
+public class IndexedStandardFactor<T> extends IndexedFactor<T> {
+
+    private double[] potential;
+    private double[] sums = new double[0];
+
+    /**
+     * Get the potential of this factor.
+     *
+     * @see IndexedStandardFactor
+     * @return array of cost/utilities that define the potential
+     */
+    public double[] getPotential() {
+        return potential;
+    }
+
+    /**
+     * Set the potential of this factor.
+     *
+     * @see IndexedStandardFactor
+     * @param values array of cost/utilities that define the potential
+     */
+    public void setPotential(double[] values) {
+        final int nNeighbors = getNeighborCount();
+        final int size = 1 << nNeighbors;
+        if (size != values.length) {
+            throw new IllegalArgumentException("Expected 2^" + nNeighbors + " values (" +
+                    size + "), but the values array contains " + values.length + " values.");
+        }
+
+        potential = values;
+        if (sums.length < size) {
+            sums = new double[size];
+        }
+    }
+
+    @Override
+    protected double eval(boolean[] values, int nNeighbors) {
+        int index = 0;
+        for (int i=0; i<nNeighbors; i++) {
+            if (values[i]) {
+                index |= 1 << (nNeighbors-i-1);
+            }
+        }
+
+        return potential[index];
+    }
+
+    @Override
+    protected long compute(double[] incoming, double[] outgoing, int nNeighbors) {
+        final MaxOperator operator = getMaxOperator();
+        final int size = 1 << nNeighbors;
+
+        for (int n=0; n<nNeighbors; n++) {
+            final int bit = 1 << (nNeighbors-n-1);
+
+            // sums[idx] holds the sum of the messages from all the active
+            // variables in idx except n.
+            double m_0 = operator.getWorstValue();
+            double m_1 = operator.getWorstValue();
+            sums[0] = 0;
+            for (int idx=1; idx<size; idx++) {
+                final int lowest = idx & -idx;
+                final double message = lowest == bit ? 0
+                        : incoming[nNeighbors - 1 - Integer.numberOfTrailingZeros(idx)];
+                sums[idx] = sums[idx ^ lowest] + message;
+            }
+
+            for (int idx=0; idx<size; idx++) {
+                final double util = potential[idx] + sums[idx];
+                if ((idx & bit) == 0) {
+                    m_0 = operator.max(util, m_0);
+                } else {
+                    m_1 = operator.max(util, m_1);
+                }
+            }
+
+            outgoing[n] = m_1 - m_0;
+        }
+
+        return nNeighbors*nNeighbors;
+    }
+
+}
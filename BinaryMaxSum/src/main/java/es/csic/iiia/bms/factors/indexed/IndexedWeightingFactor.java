@@ -0,0 +1,225 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.MaxOperator;
+
+import java.util.Arrays;
+
+/**
+ * Indexed factor that composes (sums) an independent cost/utility for each
+ * neighbor with some other <em>inner</em> (non-independent) indexed factor.
+ * <p/>
+ * The inner factor shares the neighbors of this one, and is run directly on
+ * the message buffers of this factor shifted by the potentials. Therefore,
+ * no messages flow through the inner factor's communication adapter.
+ * <p/>
+ * The resulting complexity is the same as that of the inner factor.
+ *
+ * @see es.csic.iiia.bms.factors.WeightingFactor
+ * @param <T> Type of the factor's identity.
+ */
+public class IndexedWeightingFactor<T> extends IndexedFactor<T> {
+
+    private final IndexedFactor<T> innerFactor;
+    private double[] potential = new double[0];
+    private double[] shifted = new double[0];
+
+    /**
+     * Build a new weighting factor with the specified inner factor.
+     *
+     * @param innerFactor inner factor to compose (sum) with the per-neighbor weights.
+     */
+    public IndexedWeightingFactor(IndexedFactor<T> innerFactor) {
+        this.innerFactor = innerFactor;
+        for (T neighbor : innerFactor.getNeighbors()) {
+            addNeighbor(neighbor);
+        }
+    }
+
+    /**
+     * Get the internal factor we are composing with.
+     *
+     * @return the inner factor.
+     */
+    public IndexedFactor<T> getInnerFactor() {
+        return innerFactor;
+    }
+
+    @Override
+    public MaxOperator getMaxOperator() {
+        return innerFactor.getMaxOperator();
+    }
+
+    @Override
+    public void setMaxOperator(MaxOperator maxOperator) {
+        innerFactor.setMaxOperator(maxOperator);
+    }
+
+    @Override
+    public void addNeighbor(T factor) {
+        super.addNeighbor(factor);
+        innerFactor.addNeighbor(factor);
+    }
+
+    @Override
+    public boolean removeNeighbor(T factor) {
+        innerFactor.removeNeighbor(factor);
+        return super.removeNeighbor(factor);
+    }
+
+    @Override
+    public void clearNeighbors() {
+        innerFactor.clearNeighbors();
+        super.clearNeighbors();
+    }
+
+    @Override
+    protected void neighborAdded(int index) {
+        if (potential.length <= index) {
+            final int capacity = getCapacity();
+            potential = Arrays.copyOf(potential, capacity);
+            shifted = new double[capacity];
+        }
+        potential[index] = 0;
+    }
+
+    @Override
+    protected void neighborRemoved(int index, int nNeighbors) {
+        System.arraycopy(potential, index + 1, potential, index, nNeighbors - index);
+    }
+
+    /**
+     * Reset all potential costs to zero.
+     */
+    public void clearPotentials() {
+        Arrays.fill(potential, 0);
+    }
+
+    /**
+     * Get the cost/utility of activating the variable shared with the given
+     * neighbor.
+     *
+     * @param neighbor neighbor to consider
+     * @return cost of activating the given neighbor
+     */
+    public double getPotential(T neighbor) {
+        return potential[indexOf(neighbor)];
+    }
+
+    /**
+     * Get the cost/utility of activating the variable shared with the
+     * neighbor at the given index.
+     *
+     * @param index index of the neighbor to consider
+     * @return cost of activating that neighbor
+     */
+    public double getPotential(int index) {
+        return potential[index];
+    }
+
+    /**
+     * Reset the cost associated to activating the given factor to zero.
+     *
+     * @param neighbor factor to consider
+     * @return previous cost of activating the given factor
+     */
+    public double removePotential(T neighbor) {
+        final int index = indexOf(neighbor);
+        final double previous = potential[index];
+        potential[index] = 0;
+        return previous;
+    }
+
+    /**
+     * Set the independent cost of activating the variable that corresponds to
+     * the given neighbor.
+     * <p/>
+     * The last message received from that neighbor is kept unchanged.
+     *
+     * @param neighbor neighbor whose cost/utility to set
+     * @param value cost/utility of activating this neighbor
+     */
+    public void setPotential(T neighbor, double value) {
+        potential[indexOf(neighbor)] = value;
+    }
+
+    /**
+     * Set the independent cost of activating the variable that corresponds to
+     * the neighbor at the given index.
+     *
+     * @param index index of the neighbor whose cost/utility to set
+     * @param value cost/utility of activating this neighbor
+     */
+    public void setPotential(int index, double value) {
+        potential[index] = value;
+    }
+
+    @Override
+    protected double eval(boolean[] values, int nNeighbors) {
+        double value = innerFactor.eval(values, nNeighbors);
+        for (int i=0; i<nNeighbors; i++) {
+            if (values[i]) {
+                value += potential[i];
+            }
+        }
+        return value;
+    }
+
+    @Override
+    protected long compute(double[] incoming, double[] outgoing, int nNeighbors) {
+        for (int i=0; i<nNeighbors; i++) {
+            shifted[i] = incoming[i] + potential[i];
+        }
+
+        final long constraintChecks = innerFactor.compute(shifted, outgoing, nNeighbors);
+
+        for (int i=0; i<nNeighbors; i++) {
+            outgoing[i] += potential[i];
+        }
+        return constraintChecks;
+    }
+
+    private int indexOf(T neighbor) {
+        final int index = getNeighborIndex(neighbor);
+        if (index < 0) {
+            throw new IllegalArgumentException("Requested potential for a non-existent neighbor");
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.CommunicationAdapter;
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.MaxOperator;
+import es.csic.iiia.bms.Maximize;
+import es.csic.iiia.bms.Minimize;
+import es.csic.iiia.bms.factors.AtMostOneFactor;
+import es.csic.iiia.bms.factors.CrossFactorTestAbstract;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the {@link IndexedAtMostOneFactor} class against the
+ * {@link AtMostOneFactor} class.
+ */
+@SuppressWarnings({"unchecked","rawtypes"})
+public class IndexedAtMostOneFactorTest extends CrossFactorTestAbstract {
+
+    @Test
+    public void testSelectMatchesReference() {
+        for (int run=0; run<100; run++) {
+            final int nNeighbors = getRandomIntValue(10) + 1;
+            Factor[] neighbors = new Factor[nNeighbors];
+            for (int i=0; i<nNeighbors; i++) {
+                neighbors[i] = mock(Factor.class);
+            }
+
+            for (MaxOperator op : new MaxOperator[]{new Maximize(), new Minimize()}) {
+                Factor[] fs = buildFactors(op, neighbors);
+                IndexedAtMostOneFactor indexed = (IndexedAtMostOneFactor)fs[0];
+                AtMostOneFactor reference = (AtMostOneFactor)fs[1];
+                indexed.setCommunicationAdapter(mock(CommunicationAdapter.class));
+                reference.setCommunicationAdapter(mock(CommunicationAdapter.class));
+
+                for (int i=0; i<nNeighbors; i++) {
+                    final double value = getRandomValue();
+                    indexed.receive(value, neighbors[i]);
+                    reference.receive(value, neighbors[i]);
+                }
+                indexed.run();
+                reference.run();
+
+                assertSame(reference.select(), indexed.select());
+            }
+        }
+    }
+
+    @Override
+    public Factor[] buildFactors(MaxOperator op, Factor[] neighbors) {
+        IndexedAtMostOneFactor indexed = new IndexedAtMostOneFactor();
+        indexed.setMaxOperator(op);
+        link(indexed, neighbors);
+
+        AtMostOneFactor reference = new AtMostOneFactor();
+        reference.setMaxOperator(op);
+        link(reference, neighbors);
+
+        return new Factor[]{indexed, reference};
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.MaxOperator;
+import es.csic.iiia.bms.factors.CardinalityFactor;
+import es.csic.iiia.bms.factors.CardinalityFactor.CardinalityFunction;
+import es.csic.iiia.bms.factors.CrossFactorTestAbstract;
+
+/**
+ * Tests the {@link IndexedCardinalityFactor} class against the
+ * {@link CardinalityFactor} class.
+ */
+@SuppressWarnings({"unchecked","rawtypes"})
+public class IndexedCardinalityFactorTest extends CrossFactorTestAbstract {
+
+    @Override
+    public Factor[] buildFactors(MaxOperator op, Factor[] neighbors) {
+        CardinalityFunction function = new RandomCardinalityFunction(neighbors.length);
+
+        IndexedCardinalityFactor indexed = new IndexedCardinalityFactor();
+        indexed.setMaxOperator(op);
+        link(indexed, neighbors);
+        indexed.setFunction(function);
+
+        CardinalityFactor reference = new CardinalityFactor();
+        reference.setMaxOperator(op);
+        link(reference, neighbors);
+        reference.setFunction(function);
+
+        return new Factor[]{indexed, reference};
+    }
+
+    /**
+     * Cardinality function that returns some (fixed) random number for every different number
+     * of active neighbors.
+     */
+    private class RandomCardinalityFunction implements CardinalityFunction {
+        private double[] values;
+
+        public RandomCardinalityFunction(int nNeighbors) {
+            values = new double[nNeighbors+1];
+            for (int i=0; i<nNeighbors+1; i++) {
+                values[i] = getRandomValue();
+            }
+        }
+
+        @Override
+        public double getCost(int nActiveVariables) {
+            return values[nActiveVariables];
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.Factor;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static es.csic.iiia.bms.factors.Constants.DELTA;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the neighbor bookkeeping of the {@link IndexedFactor} class.
+ */
+@SuppressWarnings({"unchecked","rawtypes"})
+public class IndexedFactorTest {
+
+    private IndexedFactor buildFactor(Factor[] neighbors) {
+        IndexedFactor factor = new IndexedVariableFactor();
+        for (Factor neighbor : neighbors) {
+            factor.addNeighbor(neighbor);
+        }
+        return factor;
+    }
+
+    private Factor[] buildNeighbors(int n) {
+        Factor[] neighbors = new Factor[n];
+        for (int i=0; i<n; i++) {
+            neighbors[i] = mock(Factor.class);
+        }
+        return neighbors;
+    }
+
+    @Test
+    public void testIndicesFollowInsertionOrder() {
+        Factor[] neighbors = buildNeighbors(20);
+        IndexedFactor factor = buildFactor(neighbors);
+
+        assertEquals(neighbors.length, factor.getNeighborCount());
+        assertEquals(Arrays.asList(neighbors), factor.getNeighbors());
+        for (int i=0; i<neighbors.length; i++) {
+            assertEquals(i, factor.getNeighborIndex(neighbors[i]));
+        }
+        assertEquals(-1, factor.getNeighborIndex(mock(Factor.class)));
+    }
+
+    @Test
+    public void testAddExistingNeighborIsIgnored() {
+        Factor[] neighbors = buildNeighbors(2);
+        IndexedFactor factor = buildFactor(neighbors);
+        factor.receive(3d, neighbors[0]);
+
+        factor.addNeighbor(neighbors[0]);
+        assertEquals(2, factor.getNeighborCount());
+        assertEquals(3d, factor.getMessage(neighbors[0]), DELTA);
+    }
+
+    @Test
+    public void testRemoveShiftsMessages() {
+        Factor[] neighbors = buildNeighbors(4);
+        IndexedFactor factor = buildFactor(neighbors);
+        for (int i=0; i<neighbors.length; i++) {
+            factor.receive(i, neighbors[i]);
+        }
+
+        assertTrue(factor.removeNeighbor(neighbors[1]));
+        assertFalse(factor.removeNeighbor(neighbors[1]));
+        assertEquals(3, factor.getNeighborCount());
+        assertEquals(1, factor.getNeighborIndex(neighbors[2]));
+        assertEquals(2, factor.getNeighborIndex(neighbors[3]));
+        assertEquals(0d, factor.getIncoming(0), DELTA);
+        assertEquals(2d, factor.getIncoming(1), DELTA);
+        assertEquals(3d, factor.getIncoming(2), DELTA);
+    }
+
+    @Test
+    public void testRunWithoutAdapter() {
+        Factor[] neighbors = buildNeighbors(3);
+        IndexedFactor factor = buildFactor(neighbors);
+        factor.setIncoming(0, 1);
+        factor.setIncoming(1, 2);
+        factor.setIncoming(2, 3);
+        factor.run();
+
+        assertEquals(5d, factor.getOutgoing(0), DELTA);
+        assertEquals(4d, factor.getOutgoing(1), DELTA);
+        assertEquals(3d, factor.getOutgoing(2), DELTA);
+    }
+
+    @Test(expected=RuntimeException.class)
+    public void testReceiveFromNonNeighbor() {
+        IndexedFactor factor = buildFactor(buildNeighbors(2));
+        factor.receive(1d, mock(Factor.class));
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testNeighborsAreReadOnly() {
+        IndexedFactor factor = buildFactor(buildNeighbors(2));
+        factor.getNeighbors().clear();
+    }
+
+}
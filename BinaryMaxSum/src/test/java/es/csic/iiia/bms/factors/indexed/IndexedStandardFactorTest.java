@@ -0,0 +1,82 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.MaxOperator;
+import es.csic.iiia.bms.factors.CrossFactorTestAbstract;
+import es.csic.iiia.bms.factors.StandardFactor;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the {@link IndexedStandardFactor} class against the
+ * {@link StandardFactor} class.
+ */
+@SuppressWarnings({"unchecked","rawtypes"})
+public class IndexedStandardFactorTest extends CrossFactorTestAbstract {
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidPotentialSize() {
+        IndexedStandardFactor factor = new IndexedStandardFactor();
+        factor.addNeighbor(mock(Factor.class));
+        factor.addNeighbor(mock(Factor.class));
+        factor.setPotential(new double[]{0, 1, 2});
+    }
+
+    @Override
+    public Factor[] buildFactors(MaxOperator op, Factor[] neighbors) {
+        double[] potential = new double[1 << neighbors.length];
+        for (int i=0; i<potential.length; i++) {
+            potential[i] = getRandomValue();
+        }
+
+        IndexedStandardFactor indexed = new IndexedStandardFactor();
+        indexed.setMaxOperator(op);
+        link(indexed, neighbors);
+        indexed.setPotential(potential);
+
+        StandardFactor reference = new StandardFactor();
+        reference.setMaxOperator(op);
+        link(reference, neighbors);
+        reference.setPotential(potential);
+
+        return new Factor[]{indexed, reference};
+    }
+
+}
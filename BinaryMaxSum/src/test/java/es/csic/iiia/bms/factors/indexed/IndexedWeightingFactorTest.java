@@ -0,0 +1,108 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.bms.factors.indexed;
+
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.MaxOperator;
+import es.csic.iiia.bms.factors.CrossFactorTestAbstract;
+import es.csic.iiia.bms.factors.SelectorFactor;
+import es.csic.iiia.bms.factors.WeightingFactor;
+import org.junit.Test;
+
+import static es.csic.iiia.bms.factors.Constants.DELTA;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the {@link IndexedWeightingFactor} class against the
+ * {@link WeightingFactor} class.
+ */
+@SuppressWarnings({"unchecked","rawtypes"})
+public class IndexedWeightingFactorTest extends CrossFactorTestAbstract {
+
+    @Test
+    public void testMessagesMaintainedWhenPotentialChanges() {
+        IndexedWeightingFactor tested = new IndexedWeightingFactor(new IndexedSelectorFactor());
+        Factor neighbor = mock(Factor.class);
+        tested.addNeighbor(neighbor);
+
+        assertEquals(tested.getMessage(neighbor), 0, DELTA);
+        tested.setPotential(neighbor, 1d);
+        assertEquals(tested.getMessage(neighbor), 0, DELTA);
+        tested.receive(1d, neighbor);
+        assertEquals(tested.getMessage(neighbor), 1, DELTA);
+        tested.setPotential(neighbor, 0);
+        assertEquals(tested.getMessage(neighbor), 1, DELTA);
+    }
+
+    @Test
+    public void testPotentialsFollowRemovedNeighbors() {
+        IndexedWeightingFactor tested = new IndexedWeightingFactor(new IndexedSelectorFactor());
+        Factor[] neighbors = new Factor[]{
+            mock(Factor.class), mock(Factor.class), mock(Factor.class),
+        };
+        link(tested, neighbors);
+        for (int i=0; i<neighbors.length; i++) {
+            tested.setPotential(neighbors[i], i);
+        }
+
+        tested.removeNeighbor(neighbors[0]);
+        assertEquals(2, tested.getInnerFactor().getNeighborCount());
+        assertEquals(1, tested.getPotential(neighbors[1]), DELTA);
+        assertEquals(2, tested.getPotential(neighbors[2]), DELTA);
+    }
+
+    @Override
+    public Factor[] buildFactors(MaxOperator op, Factor[] neighbors) {
+        IndexedWeightingFactor indexed = new IndexedWeightingFactor(new IndexedSelectorFactor());
+        indexed.setMaxOperator(op);
+        link(indexed, neighbors);
+
+        WeightingFactor reference = new WeightingFactor(new SelectorFactor());
+        reference.setMaxOperator(op);
+        link(reference, neighbors);
+
+        for (int i=0; i<neighbors.length; i++) {
+            final double potential = getRandomValue();
+            indexed.setPotential(neighbors[i], potential);
+            reference.setPotential(neighbors[i], potential);
+        }
+
+        return new Factor[]{indexed, reference};
+    }
+
+}
@@ -52,6 +52,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
 
@@ -512,6 +513,16 @@ public abstract class AbstractCostFunction<T> implements CostFunction {
         }
     }
 
+    @Override
+    public TLongIterator iterator() {
+        return new DefaultIterator();
+    }
+
+    @Override
+    public MasterIterator masterIterator() {
+        return new DefaultMasterIterator();
+    }
+
     @Override
     public ConditionedIterator conditionedIterator(CostFunction f) {
         return new DefaultConditionedIterator(f);
@@ -786,6 +797,100 @@ public abstract class AbstractCostFunction<T> implements CostFunction {
         return hash;
     }
 
+    /**
+     * Implements the Iterator interface for the whole hypercube of a function,
+     * skipping its nogood elements.
+     */
+    protected class DefaultIterator implements TLongIterator {
+        private long idx;
+        private double ng = getFactory().getSummarizeOperation().getNoGood();
+
+        public DefaultIterator() {
+            idx = -1;
+            findNextGood();
+        }
+
+        private void findNextGood() {
+            idx++;
+            while (idx < size && getValue(idx) == ng) {
+                idx++;
+            }
+            if (idx == size) {
+                idx = -1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return idx >= 0 && idx < size;
+        }
+
+        @Override
+        public long next() {
+            if (idx < 0) {
+                throw new NoSuchElementException();
+            }
+
+            final long res = idx;
+            findNextGood();
+            return res;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("You can not remove elements from an hypercube.");
+        }
+
+    }
+
+    /**
+     * Implements the Iterator interface for the whole hypercube of a function,
+     * keeping track of the value of each variable.
+     */
+    protected class DefaultMasterIterator implements MasterIterator {
+        private final int[] subidx = new int[variables.length];
+        private long idx;
+
+        public DefaultMasterIterator() {
+            idx = -1;
+            if (variables.length > 0) {
+                subidx[variables.length-1] = -1;
+            }
+        }
+
+        private void incIdx() {
+            idx++;
+            for (int i=variables.length-1; i>=0; i--) {
+                if (++subidx[i] != variables[i].getDomain()) {
+                    break;
+                } else {
+                    subidx[i] = 0;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return idx >= -1 && idx < size-1;
+        }
+
+        @Override
+        public long next() {
+            incIdx();
+            return idx;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("You can not remove elements from an hypercube.");
+        }
+
+        @Override
+        public int[] getIndices() {
+            return subidx;
+        }
+    }
+
     protected class DefaultConditionedIterator implements ConditionedIterator {
         private int[] referenceIdxs;
         private int[] idxsToReference;
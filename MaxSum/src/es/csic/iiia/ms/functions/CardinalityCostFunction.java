@@ -0,0 +1,436 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2014 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.ms.functions;
+
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.VariableAssignment;
+import es.csic.iiia.ms.op.Combine;
+import es.csic.iiia.ms.op.Summarize;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cost Function whose value only depends on how many of its variables take
+ * their <em>active</em> value, possibly combined with unary functions over
+ * its variables.
+ * <p/>
+ * This represents functions such as the penalty of having <em>k</em> agents
+ * assigned to the same task, which only need <em>n+1</em> values instead of
+ * the whole hypercube over the agents' variables. Combining with unary (or
+ * constant) functions keeps this compact representation, and summarizing into
+ * a single variable is done in <em>O(n log n)</em> time when maximizing or
+ * minimizing a sum of values. Other operations fall back to the generic
+ * (hypercube-sized) implementations.
+ */
+public final class CardinalityCostFunction extends AbstractCostFunction<Double> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Active value of each variable.
+     */
+    private final int[] activeValues;
+
+    /**
+     * Value of the function when exactly <em>k</em> variables are active.
+     */
+    private final double[] countValues;
+
+    /**
+     * Unary values combined into this function, for each variable and value
+     * (<em>null</em> if there are none).
+     */
+    private final double[][] unaryValues;
+
+    /**
+     * Creates a new cardinality CostFunction.
+     *
+     * @param variables involved in this factor.
+     * @param activeValues active value of each variable.
+     * @param countValues value of the function when exactly <em>k</em>
+     * variables take their active value, for <em>k</em> between 0 and the
+     * number of variables.
+     */
+    protected CardinalityCostFunction(Variable[] variables, int[] activeValues,
+            double[] countValues) {
+        this(variables, activeValues, countValues, null);
+    }
+
+    private CardinalityCostFunction(Variable[] variables, int[] activeValues,
+            double[] countValues, double[][] unaryValues) {
+        super(variables);
+        if (activeValues.length != variables.length) {
+            throw new IllegalArgumentException("There must be one active value per variable");
+        }
+        if (countValues.length != variables.length + 1) {
+            throw new IllegalArgumentException("There must be one value per number of active variables");
+        }
+        this.activeValues = activeValues;
+        this.countValues = countValues;
+        this.unaryValues = unaryValues;
+    }
+
+    /**
+     * Get the active value of each variable.
+     *
+     * @return active values, in the same order as the variables.
+     */
+    public int[] getActiveValues() {
+        return activeValues;
+    }
+
+    /**
+     * Get the value of this function (without combined unary functions) for
+     * each number of active variables.
+     *
+     * @return values by number of active variables.
+     */
+    public double[] getCountValues() {
+        return countValues;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double[] getValues() {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("Unable to list the values of a function "
+                    + "with more than " + Integer.MAX_VALUE + " elements.");
+        }
+        double[] result = new double[(int)size];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getValue(i);
+        }
+        return result;
+    }
+
+    @Override
+    public double getValue(long index) {
+        final int len = variables.length;
+        final int[] subidx = indexToSubindex(index);
+        int count = 0;
+        for (int i = 0; i < len; i++) {
+            if (subidx[i] == activeValues[i]) {
+                count++;
+            }
+        }
+
+        double value = countValues[count];
+        if (unaryValues != null) {
+            final Combine operation = getFactory().getCombineOperation();
+            for (int i = 0; i < len; i++) {
+                if (unaryValues[i] != null) {
+                    value = operation.eval(value, unaryValues[i][subidx[i]]);
+                }
+            }
+        }
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setValues(double[] values) {
+        throw new UnsupportedOperationException("Cardinality cost functions can not be modified.");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setValue(long index, double value) {
+        throw new UnsupportedOperationException("Cardinality cost functions can not be modified.");
+    }
+
+    @Override
+    public CostFunction combine(CostFunction factor) {
+        if (factor == null || factor.getSize() == 0 || getSize() == 0) {
+            return super.combine(factor);
+        }
+
+        CostFunction result = combineUnary(Collections.singletonList(factor));
+        return result != null ? result : super.combine(factor);
+    }
+
+    @Override
+    public CostFunction combine(Collection<CostFunction> functions) {
+        List<CostFunction> fs = new ArrayList<>(functions);
+        fs.removeAll(Collections.singleton(null));
+        if (fs.size() <= 1) {
+            return super.combine(fs);
+        }
+
+        CostFunction result = combineUnary(fs);
+        return result != null ? result : super.combine(fs);
+    }
+
+    /**
+     * Combine this function with the given constant or unary functions,
+     * keeping the cardinality representation.
+     *
+     * @param fs functions to combine with.
+     * @return the combination, or <em>null</em> if some function is neither
+     * constant nor unary over a variable of this one.
+     */
+    private CostFunction combineUnary(List<CostFunction> fs) {
+        final List<Variable> vars = Arrays.asList(variables);
+        for (CostFunction f : fs) {
+            final int nVars = f.getVariableSet().size();
+            if (nVars > 1 || nVars == 1 && !vars.contains(f.getVariableSet().iterator().next())) {
+                return null;
+            }
+        }
+
+        final Combine operation = getFactory().getCombineOperation();
+        final double[] newCounts = countValues.clone();
+        final double[][] newUnaries = new double[variables.length][];
+        if (unaryValues != null) {
+            for (int i = 0; i < variables.length; i++) {
+                if (unaryValues[i] != null) {
+                    newUnaries[i] = unaryValues[i].clone();
+                }
+            }
+        }
+
+        for (CostFunction f : fs) {
+            if (f.getVariableSet().isEmpty()) {
+                final double constant = f.getValue(0);
+                for (int k = 0; k < newCounts.length; k++) {
+                    newCounts[k] = check(operation.eval(newCounts[k], constant));
+                }
+                continue;
+            }
+
+            final int i = vars.indexOf(f.getVariableSet().iterator().next());
+            final int domain = variables[i].getDomain();
+            if (newUnaries[i] == null) {
+                newUnaries[i] = new double[domain];
+                Arrays.fill(newUnaries[i], operation.getNeutralValue());
+            }
+            for (int v = 0; v < domain; v++) {
+                newUnaries[i][v] = check(operation.eval(newUnaries[i][v], f.getValue(v)));
+            }
+        }
+
+        CardinalityCostFunction result = new CardinalityCostFunction(variables, activeValues,
+                newCounts, newUnaries);
+        result.setFactory(getFactory());
+        return result;
+    }
+
+    private static double check(double value) {
+        if (Double.isNaN(value)) {
+            throw new RuntimeException("Combination generated a NaN value. Halting.");
+        }
+        return value;
+    }
+
+    @Override
+    public CostFunction summarize(Variable[] vars) {
+        final Summarize summarize = getFactory().getSummarizeOperation();
+        final int target = vars.length == 1 ? Arrays.asList(variables).indexOf(vars[0]) : -1;
+        if (getFactory().getCombineOperation() != Combine.SUM
+                || summarize == Summarize.SUM
+                || vars.length > 1 || vars.length == 1 && target < 0) {
+            return super.summarize(vars);
+        }
+
+        // Work with maximization, flipping the signs when minimizing
+        final double sign = summarize == Summarize.MAX ? 1 : -1;
+
+        // Each variable other than the target contributes its best active and
+        // inactive values. Those that can choose add the difference between
+        // both if they become active, so the best way to get k active
+        // variables is to activate the k with the largest differences.
+        double base = 0;
+        int nForced = 0;
+        final double[] differences = new double[variables.length];
+        int nFree = 0;
+        for (int j = 0; j < variables.length; j++) {
+            if (j == target) {
+                continue;
+            }
+            double active = Double.NEGATIVE_INFINITY;
+            double inactive = Double.NEGATIVE_INFINITY;
+            for (int v = 0; v < variables[j].getDomain(); v++) {
+                final double value = sign * getUnaryValue(j, v);
+                if (v == activeValues[j]) {
+                    active = value;
+                } else {
+                    inactive = Math.max(inactive, value);
+                }
+            }
+
+            if (active == Double.NEGATIVE_INFINITY) {
+                base += inactive;
+            } else if (inactive == Double.NEGATIVE_INFINITY) {
+                base += active;
+                nForced++;
+            } else {
+                base += inactive;
+                differences[nFree++] = active - inactive;
+            }
+        }
+
+        // Largest differences first
+        Arrays.sort(differences, 0, nFree);
+        final double[] best = new double[2];
+        for (int offset = 0; offset < 2; offset++) {
+            best[offset] = Double.NEGATIVE_INFINITY;
+            double gain = 0;
+            for (int k = 0; k <= nFree; k++) {
+                if (k > 0) {
+                    gain += differences[nFree - k];
+                }
+                final int count = offset + nForced + k;
+                if (count < countValues.length) {
+                    best[offset] = Math.max(best[offset], sign * countValues[count] + gain);
+                }
+            }
+        }
+
+        final CostFunction result = getFactory().buildCostFunction(vars, summarize.getNoGood());
+        if (target < 0) {
+            result.setValue(0, check(sign * (base + best[0])));
+            return result;
+        }
+        for (int v = 0; v < variables[target].getDomain(); v++) {
+            final int offset = v == activeValues[target] ? 1 : 0;
+            result.setValue(v, check(sign * (sign * getUnaryValue(target, v) + base + best[offset])));
+        }
+        return result;
+    }
+
+    /**
+     * Get the unary value combined into this function for the given variable
+     * and value.
+     */
+    private double getUnaryValue(int variable, int value) {
+        if (unaryValues == null || unaryValues[variable] == null) {
+            return getFactory().getCombineOperation().getNeutralValue();
+        }
+        return unaryValues[variable][value];
+    }
+
+    @Override
+    public CostFunction reduce(VariableAssignment mapping) {
+        if (mapping == null || mapping.isEmpty()) {
+            return this;
+        }
+
+        final int len = variables.length;
+        int nRemaining = 0;
+        for (Variable variable : variables) {
+            if (!mapping.containsKey(variable)) {
+                nRemaining++;
+            }
+        }
+        if (nRemaining == len) {
+            return this;
+        }
+        if (nRemaining == 0) {
+            return super.reduce(mapping);
+        }
+
+        // Fixed variables shift the count and add their unary values
+        final Combine operation = getFactory().getCombineOperation();
+        final Variable[] newVariables = new Variable[nRemaining];
+        final int[] newActiveValues = new int[nRemaining];
+        final double[][] newUnaries = unaryValues == null ? null : new double[nRemaining][];
+        double constant = operation.getNeutralValue();
+        int nActive = 0;
+        for (int i = 0, j = 0; i < len; i++) {
+            final Integer value = mapping.get(variables[i]);
+            if (value == null) {
+                newVariables[j] = variables[i];
+                newActiveValues[j] = activeValues[i];
+                if (newUnaries != null) {
+                    newUnaries[j] = unaryValues[i];
+                }
+                j++;
+                continue;
+            }
+
+            if (value == activeValues[i]) {
+                nActive++;
+            }
+            if (unaryValues != null && unaryValues[i] != null) {
+                constant = operation.eval(constant, unaryValues[i][value]);
+            }
+        }
+
+        final double[] newCounts = new double[nRemaining + 1];
+        for (int k = 0; k <= nRemaining; k++) {
+            newCounts[k] = operation.eval(countValues[k + nActive], constant);
+        }
+        CardinalityCostFunction result = new CardinalityCostFunction(newVariables,
+                newActiveValues, newCounts, newUnaries);
+        result.setFactory(getFactory());
+        return result;
+    }
+
+    @Override
+    public CostFunction negate() {
+        final Combine operation = getFactory().getCombineOperation();
+        if (operation != Combine.SUM) {
+            return super.negate();
+        }
+
+        final double[] newCounts = new double[countValues.length];
+        for (int k = 0; k < countValues.length; k++) {
+            newCounts[k] = operation.negate(countValues[k]);
+        }
+        double[][] newUnaries = null;
+        if (unaryValues != null) {
+            newUnaries = new double[variables.length][];
+            for (int i = 0; i < variables.length; i++) {
+                if (unaryValues[i] != null) {
+                    newUnaries[i] = new double[unaryValues[i].length];
+                    for (int v = 0; v < unaryValues[i].length; v++) {
+                        newUnaries[i][v] = operation.negate(unaryValues[i][v]);
+                    }
+                }
+            }
+        }
+
+        CardinalityCostFunction result = new CardinalityCostFunction(variables, activeValues,
+                newCounts, newUnaries);
+        result.setFactory(getFactory());
+        return result;
+    }
+
+}
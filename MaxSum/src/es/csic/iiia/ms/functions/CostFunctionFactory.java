@@ -81,6 +81,39 @@ public class CostFunctionFactory {
         return c;
     }
 
+    /**
+     * Build a sparse cost function, where all configurations have the given
+     * default value until set otherwise.
+     *
+     * @param variables variables of the function.
+     * @param defaultValue value of the configurations that are not set.
+     * @return the new cost function.
+     * @see SparseCostFunction
+     */
+    public CostFunction buildSparseCostFunction(Variable[] variables, double defaultValue) {
+        SparseCostFunction c = new SparseCostFunction(variables, defaultValue);
+        c.setFactory(this);
+        return c;
+    }
+
+    /**
+     * Build a cost function whose value only depends on the number of
+     * variables that take their active value.
+     *
+     * @param variables variables of the function.
+     * @param activeValues active value of each variable.
+     * @param countValues value of the function for each number of active
+     * variables, from 0 to the number of variables.
+     * @return the new cost function.
+     * @see CardinalityCostFunction
+     */
+    public CostFunction buildCardinalityCostFunction(Variable[] variables, int[] activeValues,
+            double[] countValues) {
+        CardinalityCostFunction c = new CardinalityCostFunction(variables, activeValues, countValues);
+        c.setFactory(this);
+        return c;
+    }
+
     public void setMode(Summarize summarizeOperation,
             Combine combineOperation,
             Normalize normalizationType) {
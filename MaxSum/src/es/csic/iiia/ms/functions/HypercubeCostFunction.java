@@ -39,10 +39,8 @@
 package es.csic.iiia.ms.functions;
 
 import es.csic.iiia.ms.Variable;
-import gnu.trove.iterator.TLongIterator;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.NoSuchElementException;
 
 /**
  * Cost Function implementation that stores the whole hypercube of values in
@@ -97,15 +95,6 @@ public final class HypercubeCostFunction extends AbstractCostFunction implements
         this.values = Arrays.copyOf(values, values.length);
     }
 
-    /** {@inheritDoc} */
-    @Override public TLongIterator iterator() {
-        return new HypercubeIterator();
-    }
-
-    @Override public MasterIterator masterIterator() {
-        return new HypercubeMasterIterator();
-    }
-
     @Override
     public double getValue(long index) {
         // TODO: count this as a constraint check!
@@ -121,98 +110,4 @@ public final class HypercubeCostFunction extends AbstractCostFunction implements
         values[(int)index] = value;
     }
 
-    /**
-     * Implements the Iterator interface for an hypercube, allowing to iterate
-     * over its elements using the common java conventions.
-     */
-    protected class HypercubeIterator implements TLongIterator {
-        private long idx;
-        private double ng = getFactory().getSummarizeOperation().getNoGood();
-
-        public HypercubeIterator() {
-            idx = -1;
-            findNextGood();
-        }
-
-        private void findNextGood() {
-            idx++;
-            while (idx < size && getValue(idx) == ng) {
-                idx++;
-            }
-            if (idx == size) {
-                idx = -1;
-            }
-        }
-
-        @Override
-        public boolean hasNext() {
-            return idx >= 0 && idx < size;
-        }
-
-        @Override
-        public long next() {
-            if (idx < 0) {
-                throw new NoSuchElementException();
-            }
-
-            final long res = idx;
-            findNextGood();
-            return res;
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException("You can not remove elements from an hypercube.");
-        }
-
-    }
-
-    /**
-     * Implements the Iterator interface for an hypercube, allowing to iterate
-     * over its elements using the common java conventions.
-     */
-    protected class HypercubeMasterIterator implements MasterIterator {
-        private final int[] subidx = new int[variables.length];
-        private long idx;
-
-        public HypercubeMasterIterator() {
-            idx = -1;
-            if (variables.length > 0) {
-                subidx[variables.length-1] = -1;
-            }
-        }
-
-        private void incIdx() {
-            idx++;
-            for (int i=variables.length-1; i>=0; i--) {
-                if (++subidx[i] != variables[i].getDomain()) {
-                    break;
-                } else {
-                    subidx[i] = 0;
-                }
-            }
-        }
-
-        @Override
-        public boolean hasNext() {
-            return idx >= -1 && idx < size-1;
-        }
-
-        @Override
-        public long next() {
-            incIdx();
-            return idx;
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException("You can not remove elements from an hypercube.");
-        }
-
-        @Override
-        public int[] getIndices() {
-            return subidx;
-        }
-    }
-
 }
@@ -0,0 +1,436 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2014 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.ms.functions;
+
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.VariableAssignment;
+import es.csic.iiia.ms.op.Combine;
+import es.csic.iiia.ms.op.Summarize;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Cost Function implementation that only stores the values that differ from
+ * a default one.
+ *
+ * When the default value is a nogood, the operations only visit the stored
+ * values instead of the whole hypercube: combining gives a sparse function
+ * holding the configurations that are valid in this one, summarizing only
+ * projects the stored values, and reducing only filters them. Hence, the
+ * cost of these operations depends on the number of valid configurations
+ * instead of the product of the variables' domains.
+ */
+public final class SparseCostFunction extends AbstractCostFunction<Double> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Value of all the configurations that are not stored.
+     */
+    private final double defaultValue;
+
+    /**
+     * Stored values, by linearized index.
+     */
+    private TLongDoubleHashMap values;
+
+    /**
+     * Creates a new CostFunction, where all configurations have the given
+     * default value.
+     *
+     * @param variables involved in this factor.
+     * @param defaultValue value of all the configurations.
+     */
+    protected SparseCostFunction(Variable[] variables, double defaultValue) {
+        super(variables);
+        this.defaultValue = defaultValue;
+        this.values = buildMap(defaultValue);
+    }
+
+    /**
+     * Constructs a new factor by copying the given one.
+     *
+     * If the given factor is not sparse, the default value of the copy is the
+     * nogood of its summarize operation.
+     *
+     * @param factor factor to copy.
+     */
+    protected SparseCostFunction(CostFunction factor) {
+        super(factor);
+        if (factor instanceof SparseCostFunction) {
+            final SparseCostFunction other = (SparseCostFunction)factor;
+            defaultValue = other.defaultValue;
+            values = new TLongDoubleHashMap(other.values);
+        } else {
+            defaultValue = factor.getFactory().getSummarizeOperation().getNoGood();
+            values = buildMap(defaultValue);
+            TLongIterator it = factor.iterator();
+            while (it.hasNext()) {
+                final long i = it.next();
+                setValue(i, factor.getValue(i));
+            }
+        }
+    }
+
+    private static TLongDoubleHashMap buildMap(double defaultValue) {
+        return new TLongDoubleHashMap(16, 0.5f, -1L, defaultValue);
+    }
+
+    /**
+     * Get the value of all the configurations that are not stored.
+     *
+     * @return default value of this function.
+     */
+    public double getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Get the number of values stored by this function.
+     *
+     * @return number of stored values.
+     */
+    public int getNumStoredValues() {
+        return values.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double[] getValues() {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("Unable to list the values of a function "
+                    + "with more than " + Integer.MAX_VALUE + " elements.");
+        }
+        double[] result = new double[(int)size];
+        Arrays.fill(result, defaultValue);
+        for (long i : values.keys()) {
+            result[(int)i] = values.get(i);
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setValues(double[] values) {
+        if (values.length != size) {
+            throw new IllegalArgumentException("Invalid index specification");
+        }
+
+        this.values.clear();
+        for (int i = 0; i < values.length; i++) {
+            setValue(i, values[i]);
+        }
+    }
+
+    @Override
+    public double getValue(long index) {
+        return values.get(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setValue(long index, double value) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Invalid index " + index);
+        }
+        if (value == defaultValue) {
+            values.remove(index);
+        } else {
+            values.put(index, value);
+        }
+    }
+
+    /**
+     * Check if the configurations that are not stored have a nogood value.
+     */
+    private boolean isDefaultNoGood() {
+        return defaultValue == getFactory().getSummarizeOperation().getNoGood();
+    }
+
+    /**
+     * Check if combining the default value with any other value yields the
+     * default value again.
+     */
+    private boolean isDefaultAbsorbing() {
+        final Combine operation = getFactory().getCombineOperation();
+        switch (operation) {
+            case SUM:
+                return Double.isInfinite(defaultValue);
+            case PRODUCT:
+                return defaultValue == 0;
+        }
+        return false;
+    }
+
+    /**
+     * Get the linearized indices of the stored values, in ascending order.
+     */
+    private long[] getStoredIndices() {
+        long[] keys = values.keys();
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    @Override
+    public TLongIterator iterator() {
+        if (!isDefaultNoGood()) {
+            return super.iterator();
+        }
+        return new StoredIterator();
+    }
+
+    @Override
+    public CostFunction summarize(Variable[] vars) {
+        if (!isDefaultNoGood()) {
+            return super.summarize(vars);
+        }
+
+        // Configurations that are not stored have no effect on the result
+        final Summarize operation = getFactory().getSummarizeOperation();
+        SparseCostFunction result = new SparseCostFunction(vars, operation.getNoGood());
+        result.setFactory(getFactory());
+
+        final int[] subidxs = new int[variables.length];
+        ConditionedIterator rit = result.conditionedIterator(this);
+        for (long i : getStoredIndices()) {
+            final double value = values.get(i);
+            indexToSubindex(i, subidxs);
+            rit.nextSubidxs(subidxs);
+            while (rit.hasNextOffset()) {
+                final long idx = rit.nextOffset();
+                result.setValue(idx, operation.eval(value, result.getValue(idx)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CostFunction combine(CostFunction factor) {
+        if (factor == null || factor.getSize() == 0 || getSize() == 0) {
+            return super.combine(factor);
+        }
+
+        CostFunction result = combineSparse(Collections.singletonList(factor));
+        return result != null ? result : super.combine(factor);
+    }
+
+    @Override
+    public CostFunction combine(Collection<CostFunction> functions) {
+        List<CostFunction> fs = new ArrayList<>(functions);
+        fs.removeAll(Collections.singleton(null));
+        if (fs.size() <= 1) {
+            return super.combine(fs);
+        }
+
+        CostFunction result = combineSparse(fs);
+        return result != null ? result : super.combine(fs);
+    }
+
+    /**
+     * Combine this function with the given ones by only visiting the stored
+     * values of the sparse function (among all of them) with the least stored
+     * values and an absorbing default value.
+     *
+     * @param fs functions to combine with.
+     * @return the combination, or <em>null</em> if none of the functions is
+     * a sparse function with an absorbing default value.
+     */
+    private CostFunction combineSparse(List<CostFunction> fs) {
+        List<CostFunction> all = new ArrayList<>(fs);
+        all.add(this);
+
+        int driver = -1;
+        for (int j = 0; j < all.size(); j++) {
+            final CostFunction f = all.get(j);
+            if (!(f instanceof AbstractCostFunction)) {
+                return null;
+            }
+            if (f instanceof SparseCostFunction && ((SparseCostFunction)f).isDefaultAbsorbing()
+                    && (driver < 0 || ((SparseCostFunction)f).values.size()
+                        < ((SparseCostFunction)all.get(driver)).values.size())) {
+                driver = j;
+            }
+        }
+        if (driver < 0) {
+            return null;
+        }
+        final SparseCostFunction sparse = (SparseCostFunction)all.remove(driver);
+
+        // Same variable order as the dense combination
+        LinkedHashSet<Variable> varSet = new LinkedHashSet<>(variableSet);
+        for (CostFunction f : fs) {
+            varSet.addAll(f.getVariableSet());
+        }
+        SparseCostFunction result = new SparseCostFunction(varSet.toArray(new Variable[0]),
+                sparse.defaultValue);
+        result.setFactory(getFactory());
+
+        final Combine operation = getFactory().getCombineOperation();
+        final int nOthers = all.size();
+        ConditionedIterator[] its = new ConditionedIterator[nOthers];
+        for (int j = 0; j < nOthers; j++) {
+            its[j] = all.get(j).conditionedIterator(result);
+        }
+        ConditionedIterator rit = result.conditionedIterator(sparse);
+        final int[] ssubidxs = new int[sparse.variables.length];
+        final int[] rsubidxs = new int[result.variables.length];
+        for (long i : sparse.getStoredIndices()) {
+            final double value = sparse.values.get(i);
+            sparse.indexToSubindex(i, ssubidxs);
+            rit.nextSubidxs(ssubidxs);
+            while (rit.hasNextOffset()) {
+                final long idx = rit.nextOffset();
+                result.indexToSubindex(idx, rsubidxs);
+                double v = value;
+                for (int j = 0; j < nOthers; j++) {
+                    v = operation.eval(v, all.get(j).getValue(its[j].nextSubidxs(rsubidxs)));
+                }
+                if (Double.isNaN(v)) {
+                    throw new RuntimeException("Combination generated a NaN value. Halting.");
+                }
+                result.setValue(idx, v);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CostFunction reduce(VariableAssignment mapping) {
+        if (mapping == null || mapping.isEmpty()) {
+            return new SparseCostFunction(this);
+        }
+
+        LinkedHashSet<Variable> newVariables = new LinkedHashSet<>(variableSet);
+        newVariables.removeAll(mapping.keySet());
+        if (newVariables.isEmpty()) {
+            return super.reduce(mapping);
+        }
+
+        // Only the stored values matching the mapping remain
+        SparseCostFunction result = new SparseCostFunction(
+                newVariables.toArray(new Variable[0]), defaultValue);
+        result.setFactory(getFactory());
+        final int len = variables.length;
+        final int[] fixed = new int[len];
+        for (int j = 0; j < len; j++) {
+            final Integer value = mapping.get(variables[j]);
+            fixed[j] = value == null ? -1 : value;
+        }
+
+        final int[] subidxs = new int[len];
+        ConditionedIterator rit = result.conditionedIterator(this);
+        for (long i : getStoredIndices()) {
+            indexToSubindex(i, subidxs);
+            boolean matches = true;
+            for (int j = 0; j < len && matches; j++) {
+                matches = fixed[j] < 0 || fixed[j] == subidxs[j];
+            }
+            if (matches) {
+                result.setValue(rit.nextSubidxs(subidxs), values.get(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CostFunction negate() {
+        return transform(false);
+    }
+
+    @Override
+    public CostFunction invert() {
+        return transform(true);
+    }
+
+    /**
+     * Negate or invert all the values of this function, leaving nogoods
+     * untouched.
+     */
+    private CostFunction transform(boolean invert) {
+        final Combine operation = getFactory().getCombineOperation();
+        final double ng = getFactory().getSummarizeOperation().getNoGood();
+        final double newDefault = defaultValue == ng ? defaultValue
+                : (invert ? operation.invert(defaultValue) : operation.negate(defaultValue));
+        SparseCostFunction result = new SparseCostFunction(variables, newDefault);
+        result.setFactory(getFactory());
+        for (long i : values.keys()) {
+            final double value = values.get(i);
+            final double v = value == ng ? value
+                    : (invert ? operation.invert(value) : operation.negate(value));
+            if (Double.isNaN(v)) {
+                throw new RuntimeException("Negation generated a NaN value. Halting.");
+            }
+            result.setValue(i, v);
+        }
+        return result;
+    }
+
+    /**
+     * Iterates over the (non-nogood) stored values, in ascending order.
+     */
+    private class StoredIterator implements TLongIterator {
+        private final long[] indices = getStoredIndices();
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+            return next < indices.length;
+        }
+
+        @Override
+        public long next() {
+            if (next >= indices.length) {
+                throw new NoSuchElementException();
+            }
+            return indices[next++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("You can not remove elements from this iterator.");
+        }
+    }
+
+}
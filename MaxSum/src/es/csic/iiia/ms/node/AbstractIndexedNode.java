@@ -0,0 +1,228 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2014 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.ms.node;
+
+import es.csic.iiia.ms.Communicator;
+import es.csic.iiia.ms.Identity;
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.functions.CostFunction;
+import es.csic.iiia.ms.functions.CostFunctionFactory;
+import es.csic.iiia.ms.op.Combine;
+import es.csic.iiia.ms.op.Normalize;
+import es.csic.iiia.ms.op.Summarize;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base node that keeps its neighbors and incoming messages in arrays.
+ * <p/>
+ * Each neighbor is resolved to a slot when it is added, and incoming
+ * messages are copied into a per-slot buffer instead of being stored as
+ * functions. Subclasses compute their outgoing messages from these buffers,
+ * so that no intermediate functions have to be built on each run. Outgoing
+ * messages are still built as new functions, because communicators may keep
+ * the messages they send (e.g. to apply damping).
+ * <p/>
+ * Nodes are identified by identities of type <em>T</em>, which is the type
+ * that their communicator sends messages between. Hence, their neighbors
+ * must be identified by identities of that type too.
+ *
+ * @param <T> type of the identities of the nodes.
+ */
+public abstract class AbstractIndexedNode<T extends Identity> implements Node {
+    private final Communicator<T> comunicator;
+    private final T id;
+    private final CostFunction potential;
+
+    protected final CostFunctionFactory factory;
+    protected final Combine combine;
+    protected final Summarize summarize;
+
+    private final Map<Identity, Integer> slots = new HashMap<>();
+    protected int degree;
+    protected Identity[] neighborIds = new Identity[0];
+    protected Variable[][] neighborScopes = new Variable[0][];
+    protected double[][] inbox = new double[0][];
+
+    public AbstractIndexedNode(T id, Communicator<T> communicator, CostFunction potential) {
+        this.id = id;
+        this.potential = potential;
+        this.comunicator = communicator;
+        this.factory = potential.getFactory();
+        this.combine = factory.getCombineOperation();
+        this.summarize = factory.getSummarizeOperation();
+    }
+
+    @Override
+    public T getId() {
+        return id;
+    }
+
+    @Override
+    public CostFunction getPotential() {
+        return potential;
+    }
+
+    /**
+     * Get the number of neighbors of this node.
+     *
+     * @return number of neighbors.
+     */
+    public int getDegree() {
+        return degree;
+    }
+
+    @Override
+    public void addNeighbor(Identity neighbor, Variable variable) {
+        if (slots.containsKey(neighbor)) {
+            throw new IllegalArgumentException("Node " + id + " is already linked to " + neighbor);
+        }
+
+        final int slot = degree++;
+        slots.put(neighbor, slot);
+        neighborIds = Arrays.copyOf(neighborIds, degree);
+        neighborScopes = Arrays.copyOf(neighborScopes, degree);
+        inbox = Arrays.copyOf(inbox, degree);
+        neighborIds[slot] = neighbor;
+        neighborScopes[slot] = new Variable[]{variable};
+
+        // Empty message for the first iteration
+        inbox[slot] = new double[variable.getDomain()];
+        Arrays.fill(inbox[slot], combine.getNeutralValue());
+    }
+
+    @Override
+    public void receive(CostFunction message, Identity neighbor) {
+        final Integer slot = slots.get(neighbor);
+        if (slot == null) {
+            throw new IllegalArgumentException("Node " + id + " received a message from "
+                    + "the unknown neighbor " + neighbor);
+        }
+
+        final double[] buffer = inbox[slot];
+        if (message.getSize() != buffer.length) {
+            throw new IllegalArgumentException("Invalid message size " + message.getSize()
+                    + " from " + neighbor + ", expected " + buffer.length);
+        }
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = message.getValue(i);
+        }
+    }
+
+    /**
+     * Send the given values as a message to the neighbor in the given slot.
+     *
+     * @param slot slot of the recipient.
+     * @param values values of the message.
+     */
+    protected void send(int slot, double[] values) {
+        final CostFunction message = factory.buildCostFunction(neighborScopes[slot], 0);
+        for (int i = 0; i < values.length; i++) {
+            message.setValue(i, values[i]);
+        }
+        comunicator.send(message, id, getNeighbor(slot));
+    }
+
+    /**
+     * Get the identity of the neighbor in the given slot.
+     *
+     * @param slot slot of the neighbor.
+     * @return identity of the neighbor.
+     */
+    @SuppressWarnings("unchecked")
+    protected T getNeighbor(int slot) {
+        // Neighbors are added through the Node interface, which does not know
+        // the type of the identities
+        return (T)neighborIds[slot];
+    }
+
+    /**
+     * Normalize the given message values in place, following the
+     * normalization mode of the factory.
+     *
+     * @see CostFunction#normalize()
+     * @param values values to normalize.
+     */
+    protected void normalize(double[] values) {
+        if (factory.getNormalizationType() == Normalize.NONE) {
+            return;
+        }
+
+        final double ng = summarize.getNoGood();
+        double sum = 0, max = ng;
+        for (double value : values) {
+            if (value != ng) {
+                sum += value;
+                max = summarize.eval(max, value);
+            }
+        }
+
+        final double avg = sum / values.length;
+        if (Double.isNaN(avg)) {
+            throw new RuntimeException("Normalization generated a NaN value. Halting.");
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == ng) {
+                continue;
+            }
+            switch (factory.getNormalizationType()) {
+                case SUM0:
+                    values[i] -= avg;
+                    break;
+                case SUM1:
+                    values[i] = sum != 0 ? values[i] / sum : 1d / values.length;
+                    break;
+                case DIFF:
+                    values[i] -= max;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Combine two values, failing if the result is not a number.
+     */
+    protected double eval(double x, double y) {
+        final double v = combine.eval(x, y);
+        if (Double.isNaN(v)) {
+            throw new RuntimeException("Combination generated a NaN value (" + x + "," + y + "). Halting.");
+        }
+        return v;
+    }
+
+}
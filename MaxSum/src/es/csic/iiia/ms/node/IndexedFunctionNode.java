@@ -0,0 +1,145 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2014 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.ms.node;
+
+import es.csic.iiia.ms.Communicator;
+import es.csic.iiia.ms.Identity;
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.functions.CostFunction;
+import es.csic.iiia.ms.functions.MasterIterator;
+import java.util.Arrays;
+
+/**
+ * Function node that keeps its messages in arrays.
+ * <p/>
+ * All outgoing messages are computed in a single pass over the
+ * configurations of the potential. For each configuration, the value seen by
+ * each neighbor combines the potential with the messages from all other
+ * neighbors, obtained by combining the prefix of messages before that
+ * neighbor with the suffix of messages after it. Hence, no negated messages
+ * nor combined functions are built, and each run takes
+ * <em>O(size x degree)</em> time using buffers that are only allocated once.
+ * <p/>
+ * Potentials whose summarization does not need to enumerate all their
+ * configurations (such as cardinality functions) are better served by a
+ * {@link FunctionNode}.
+ *
+ * @param <T> type of the identities of the nodes.
+ */
+public class IndexedFunctionNode<T extends Identity> extends AbstractIndexedNode<T> {
+
+    private final Variable[] variables;
+    private CostFunction belief;
+
+    // Position of the variable of each neighbor within the potential
+    private int[] positions = new int[0];
+    private double[][] outgoing;
+    private double[] prefix;
+
+    public IndexedFunctionNode(T id, Communicator<T> communicator, CostFunction potential) {
+        super(id, communicator, potential);
+        variables = potential.getVariableSet().toArray(new Variable[0]);
+        belief = potential;
+    }
+
+    @Override
+    public void addNeighbor(Identity neighbor, Variable variable) {
+        final int position = Arrays.asList(variables).indexOf(variable);
+        if (position < 0) {
+            throw new IllegalArgumentException("Variable " + variable + " of neighbor "
+                    + neighbor + " is not in the potential of function node " + getId());
+        }
+        super.addNeighbor(neighbor, variable);
+        positions = Arrays.copyOf(positions, degree);
+        positions[degree - 1] = position;
+        outgoing = null;
+    }
+
+    @Override
+    public CostFunction getBelief() {
+        return belief;
+    }
+
+    @Override
+    public void run() {
+        final CostFunction potential = getPotential();
+        if (outgoing == null) {
+            outgoing = new double[degree][];
+            for (int k = 0; k < degree; k++) {
+                outgoing[k] = new double[inbox[k].length];
+            }
+            prefix = new double[degree + 1];
+            belief = factory.buildCostFunction(variables, 0);
+        }
+
+        final double ng = summarize.getNoGood();
+        for (double[] message : outgoing) {
+            Arrays.fill(message, ng);
+        }
+
+        final double neutral = combine.getNeutralValue();
+        MasterIterator it = potential.masterIterator();
+        final int[] subidx = it.getIndices();
+        while (it.hasNext()) {
+            final long idx = it.next();
+            prefix[0] = potential.getValue(idx);
+            for (int k = 0; k < degree; k++) {
+                prefix[k + 1] = eval(prefix[k], inbox[k][subidx[positions[k]]]);
+            }
+            belief.setValue(idx, prefix[degree]);
+
+            double suffix = neutral;
+            for (int k = degree - 1; k >= 0; k--) {
+                final int value = subidx[positions[k]];
+                final double v = eval(prefix[k], suffix);
+                outgoing[k][value] = summarize.eval(outgoing[k][value], v);
+                suffix = eval(inbox[k][value], suffix);
+            }
+        }
+
+        for (int k = 0; k < degree; k++) {
+            normalize(outgoing[k]);
+            send(k, outgoing[k]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IFNode[" + getId() + "]";
+    }
+
+}
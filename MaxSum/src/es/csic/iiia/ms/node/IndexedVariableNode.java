@@ -0,0 +1,159 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2014 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.ms.node;
+
+import es.csic.iiia.ms.Communicator;
+import es.csic.iiia.ms.Identity;
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.VariableAssignment;
+import es.csic.iiia.ms.functions.CostFunction;
+import java.util.Arrays;
+
+/**
+ * Variable node that keeps its messages in arrays.
+ * <p/>
+ * The message to each neighbor is the combination of the potential with the
+ * messages from all other neighbors. Instead of combining everything and
+ * then removing the recipient's message, the node combines the prefix of
+ * messages before each neighbor with the suffix after it. Hence, each run
+ * takes <em>O(degree x domain)</em> time using buffers that are only
+ * allocated once.
+ *
+ * @param <T> type of the identities of the nodes.
+ */
+public class IndexedVariableNode<T extends Identity> extends AbstractIndexedNode<T> {
+
+    private Variable variable;
+    private CostFunction belief;
+    private double[] potentialValues;
+
+    // suffixes[k] is the combination of the messages from neighbors k..degree-1
+    private double[][] suffixes;
+    private double[] prefix;
+    private double[] outgoing;
+
+    public IndexedVariableNode(T id, Communicator<T> communicator, CostFunction potential) {
+        super(id, communicator, potential);
+        belief = potential;
+    }
+
+    @Override
+    public void addNeighbor(Identity neighbor, Variable variable) {
+        if (this.variable == null) {
+            setVariable(variable);
+        } else if (!this.variable.equals(variable)) {
+            throw new IllegalArgumentException("All neighbors of variable node " + getId()
+                    + " must share its variable " + this.variable + ", got " + variable);
+        }
+        super.addNeighbor(neighbor, variable);
+        suffixes = null;
+    }
+
+    private void setVariable(Variable variable) {
+        final CostFunction potential = getPotential();
+        final int nVars = potential.getVariableSet().size();
+        if (nVars > 1 || nVars == 1 && !potential.getVariableSet().contains(variable)) {
+            throw new IllegalArgumentException("The potential of variable node " + getId()
+                    + " must be constant or defined over " + variable);
+        }
+
+        this.variable = variable;
+        final int domain = variable.getDomain();
+        potentialValues = new double[domain];
+        for (int i = 0; i < domain; i++) {
+            potentialValues[i] = potential.getValue(nVars == 0 ? 0 : i);
+        }
+        prefix = new double[domain];
+        outgoing = new double[domain];
+        belief = factory.buildCostFunction(new Variable[]{variable}, 0);
+        belief.setValues(potentialValues);
+    }
+
+    @Override
+    public CostFunction getBelief() {
+        return belief;
+    }
+
+    @Override
+    public void run() {
+        if (variable == null) {
+            return;
+        }
+
+        final int domain = potentialValues.length;
+        if (suffixes == null) {
+            suffixes = new double[degree + 1][domain];
+            Arrays.fill(suffixes[degree], combine.getNeutralValue());
+        }
+
+        for (int k = degree - 1; k >= 0; k--) {
+            final double[] next = suffixes[k + 1];
+            final double[] current = suffixes[k];
+            final double[] message = inbox[k];
+            for (int i = 0; i < domain; i++) {
+                current[i] = eval(message[i], next[i]);
+            }
+        }
+
+        // Each neighbor gets the potential and the messages before and after it
+        System.arraycopy(potentialValues, 0, prefix, 0, domain);
+        for (int k = 0; k < degree; k++) {
+            final double[] next = suffixes[k + 1];
+            final double[] message = inbox[k];
+            for (int i = 0; i < domain; i++) {
+                outgoing[i] = eval(prefix[i], next[i]);
+                prefix[i] = eval(prefix[i], message[i]);
+            }
+            send(k, outgoing);
+        }
+
+        for (int i = 0; i < domain; i++) {
+            belief.setValue(i, prefix[i]);
+        }
+    }
+
+    public int select() {
+        VariableAssignment configuration = belief.getOptimalConfiguration(null);
+        return configuration.get(configuration.keySet().iterator().next());
+    }
+
+    @Override
+    public String toString() {
+        return "IVNode[" + getId() + "]";
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2014, IIIA-CSIC, Artificial Intelligence Research Institute
+ * All rights reserved.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package es.csic.iiia.ms.functions;
+
+import es.csic.iiia.ms.StringIdentity;
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.VariableAssignment;
+import es.csic.iiia.ms.op.Combine;
+import es.csic.iiia.ms.op.Normalize;
+import es.csic.iiia.ms.op.Summarize;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that cardinality functions behave as their dense counterparts.
+ */
+public class CardinalityCostFunctionTest {
+
+    private CostFunctionFactory factory;
+    private Variable[] variables;
+    private Random random;
+
+    @Before
+    public void setUp() {
+        factory = new CostFunctionFactory();
+        factory.setMode(Summarize.MAX, Combine.SUM, Normalize.NONE);
+        variables = new Variable[]{
+            new Variable(new StringIdentity("a"), 2),
+            new Variable(new StringIdentity("b"), 3),
+            new Variable(new StringIdentity("c"), 1),
+            new Variable(new StringIdentity("d"), 3),
+        };
+        random = new Random(0);
+    }
+
+    private CostFunction buildRandomCardinality() {
+        int[] actives = new int[variables.length];
+        for (int i = 0; i < actives.length; i++) {
+            actives[i] = random.nextInt(variables[i].getDomain());
+        }
+        double[] counts = new double[variables.length + 1];
+        for (int k = 0; k < counts.length; k++) {
+            counts[k] = random.nextInt(20) - 10;
+        }
+        return factory.buildCardinalityCostFunction(variables, actives, counts);
+    }
+
+    private CostFunction toDense(CostFunction f) {
+        CostFunction dense = factory.buildCostFunction(
+                f.getVariableSet().toArray(new Variable[0]), 0);
+        dense.setValues(f.getValues());
+        return dense;
+    }
+
+    private List<CostFunction> buildRandomUnaries() {
+        List<CostFunction> result = new ArrayList<>();
+        for (Variable v : variables) {
+            CostFunction unary = factory.buildCostFunction(new Variable[]{v}, 0);
+            for (int i = 0; i < v.getDomain(); i++) {
+                unary.setValue(i, random.nextInt(10));
+            }
+            result.add(unary);
+        }
+        return result;
+    }
+
+    @Test
+    public void testGetValue() {
+        CostFunction f = factory.buildCardinalityCostFunction(variables,
+                new int[]{1, 0, 0, 2}, new double[]{0, 1, 2, 3, 4});
+        assertEquals(3, f.getValue(new int[]{1, 1, 0, 2}), 0);
+        assertEquals(1, f.getValue(new int[]{0, 2, 0, 1}), 0);
+        assertEquals(4, f.getValue(new int[]{1, 0, 0, 2}), 0);
+    }
+
+    @Test
+    public void testCombineUnaries() {
+        for (int trial = 0; trial < 20; trial++) {
+            CostFunction f = buildRandomCardinality();
+            List<CostFunction> unaries = buildRandomUnaries();
+            CostFunction constant = factory.buildCostFunction(new Variable[0], 3);
+
+            CostFunction combined = f.combine(unaries);
+            assertTrue(combined instanceof CardinalityCostFunction);
+            assertEquals(toDense(f).combine(unaries), combined);
+            assertEquals(toDense(f).combine(constant), f.combine(constant));
+        }
+    }
+
+    @Test
+    public void testCombineOther() {
+        CostFunction f = buildRandomCardinality();
+        CostFunction other = factory.buildCostFunction(new Variable[]{variables[0], variables[1]}, 0);
+        other.setValues(new double[]{1, 2, 3, 4, 5, 6});
+        CostFunction combined = f.combine(other);
+        assertFalse(combined instanceof CardinalityCostFunction);
+        assertEquals(toDense(f).combine(other), combined);
+    }
+
+    @Test
+    public void testSummarize() {
+        for (Summarize summarize : new Summarize[]{Summarize.MAX, Summarize.MIN}) {
+            factory.setSummarizeOperation(summarize);
+            for (int trial = 0; trial < 20; trial++) {
+                CostFunction f = buildRandomCardinality().combine(buildRandomUnaries());
+                CostFunction dense = toDense(f);
+                for (Variable v : variables) {
+                    Variable[] vars = new Variable[]{v};
+                    assertEquals(dense.summarize(vars), f.summarize(vars));
+                }
+                assertEquals(dense.summarize(new Variable[0]), f.summarize(new Variable[0]));
+                assertEquals(dense.summarize(new Variable[]{variables[0], variables[3]}),
+                        f.summarize(new Variable[]{variables[0], variables[3]}));
+            }
+        }
+    }
+
+    @Test
+    public void testSummarizeNoGoods() {
+        CostFunction f = buildRandomCardinality();
+        CostFunction unary = factory.buildCostFunction(new Variable[]{variables[1]}, 0);
+        unary.setValues(new double[]{Double.NEGATIVE_INFINITY, 1, Double.NEGATIVE_INFINITY});
+        f = f.combine(unary);
+        CostFunction dense = toDense(f);
+        for (Variable v : variables) {
+            Variable[] vars = new Variable[]{v};
+            assertEquals(dense.summarize(vars), f.summarize(vars));
+        }
+    }
+
+    @Test
+    public void testSummarizeManyVariables() {
+        // 3^30 configurations, which can not be materialized
+        final int n = 30;
+        Variable[] vars = new Variable[n];
+        int[] actives = new int[n];
+        double[] counts = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            vars[i] = new Variable(new StringIdentity("v" + i), 3);
+        }
+        counts[3] = 10;
+        CostFunction f = factory.buildCardinalityCostFunction(vars, actives, counts);
+        CostFunction unary = factory.buildCostFunction(new Variable[]{vars[5]}, 0);
+        unary.setValues(new double[]{-1, 0, 0});
+        f = f.combine(unary);
+
+        CostFunction msg = f.summarize(new Variable[]{vars[0]});
+        assertArrayEquals(new double[]{10, 10, 10}, msg.getValues(), 0);
+        msg = f.summarize(new Variable[]{vars[5]});
+        assertArrayEquals(new double[]{9, 10, 10}, msg.getValues(), 0);
+    }
+
+    @Test
+    public void testReduce() {
+        for (int trial = 0; trial < 20; trial++) {
+            CostFunction f = buildRandomCardinality().combine(buildRandomUnaries());
+            VariableAssignment mapping = new VariableAssignment();
+            mapping.put(variables[1], random.nextInt(3));
+            mapping.put(variables[2], 0);
+            CostFunction reduced = f.reduce(mapping);
+            assertTrue(reduced instanceof CardinalityCostFunction);
+            assertEquals(toDense(f).reduce(mapping), reduced);
+        }
+    }
+
+    @Test
+    public void testNegate() {
+        CostFunction f = buildRandomCardinality().combine(buildRandomUnaries());
+        CostFunction negated = f.negate();
+        assertTrue(negated instanceof CardinalityCostFunction);
+        assertEquals(toDense(f).negate(), negated);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetValue() {
+        buildRandomCardinality().setValue(0, 1);
+    }
+
+}
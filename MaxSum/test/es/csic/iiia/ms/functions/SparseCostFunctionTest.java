@@ -0,0 +1,164 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2014, IIIA-CSIC, Artificial Intelligence Research Institute
+ * All rights reserved.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package es.csic.iiia.ms.functions;
+
+import es.csic.iiia.ms.StringIdentity;
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.VariableAssignment;
+import es.csic.iiia.ms.op.Combine;
+import es.csic.iiia.ms.op.Normalize;
+import es.csic.iiia.ms.op.Summarize;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Runs the cost function tests over sparse functions, and checks that the
+ * specialized operations give the same results as the dense ones.
+ */
+public class SparseCostFunctionTest extends AbstractCostFunctionTest {
+
+    @Override
+    public CostFunctionFactory buildFactory() {
+        return new CostFunctionFactory() {
+            @Override
+            public CostFunction buildCostFunction(Variable[] variables, double initialValue) {
+                return buildSparseCostFunction(variables, initialValue);
+            }
+
+            @Override
+            public CostFunction buildCostFunction(CostFunction function) {
+                CostFunction c = new SparseCostFunction(function);
+                c.setFactory(this);
+                return c;
+            }
+        };
+    }
+
+    /**
+     * Build a sparse function where only some random configurations are valid,
+     * along with its dense counterpart.
+     */
+    private CostFunction[] buildRandomPair(Variable[] vars, Random random) {
+        final double ng = factory.getSummarizeOperation().getNoGood();
+        CostFunction sparse = factory.buildSparseCostFunction(vars, ng);
+        CostFunction dense = new CostFunctionFactory().buildCostFunction(vars, ng);
+        dense.setFactory(factory);
+        for (long i = 0; i < sparse.getSize(); i++) {
+            if (random.nextInt(3) == 0) {
+                final double value = random.nextInt(10);
+                sparse.setValue(i, value);
+                dense.setValue(i, value);
+            }
+        }
+        return new CostFunction[]{sparse, dense};
+    }
+
+    @Test
+    public void testStoredValues() {
+        SparseCostFunction f = (SparseCostFunction)factory.buildSparseCostFunction(
+                new Variable[]{a, b, c}, Double.NEGATIVE_INFINITY);
+        assertEquals(0, f.getNumStoredValues());
+        f.setValue(3, 1.5);
+        f.setValue(7, 2);
+        assertEquals(2, f.getNumStoredValues());
+        assertEquals(1.5, f.getValue(3), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, f.getValue(4), 0);
+
+        // Setting the default value removes the stored one
+        f.setValue(3, Double.NEGATIVE_INFINITY);
+        assertEquals(1, f.getNumStoredValues());
+    }
+
+    @Test
+    public void testIteratorSkipsDefault() {
+        factory.setMode(Summarize.MAX, Combine.SUM, Normalize.NONE);
+        CostFunction f = factory.buildSparseCostFunction(new Variable[]{a, b, c},
+                Double.NEGATIVE_INFINITY);
+        f.setValue(9, 1);
+        f.setValue(2, 3);
+        gnu.trove.iterator.TLongIterator it = f.iterator();
+        assertEquals(2, it.next());
+        assertEquals(9, it.next());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testSparseOperations() {
+        Variable e = new Variable(new StringIdentity("e"), 3);
+        Random random = new Random(0);
+        for (Summarize summarize : new Summarize[]{Summarize.MAX, Summarize.MIN}) {
+            factory.setMode(summarize, Combine.SUM, Normalize.NONE);
+            for (int trial = 0; trial < 20; trial++) {
+                CostFunction[] f = buildRandomPair(new Variable[]{a, b, c}, random);
+                CostFunction[] g = buildRandomPair(new Variable[]{c, d}, random);
+                CostFunction[] h = buildRandomPair(new Variable[]{e, a}, random);
+
+                // Combination
+                CostFunction sparse = f[0].combine(g[0]);
+                assertTrue(sparse instanceof SparseCostFunction);
+                assertEquals(f[1].combine(g[1]), sparse);
+                assertEquals(f[1].combine(fdc), f[0].combine(fdc));
+                assertEquals(fdc.combine(f[1]), fdc.combine(f[0]));
+                assertEquals(f[1].combine(Arrays.asList(g[1], h[1], fa)),
+                        f[0].combine(Arrays.asList(g[0], h[0], fa)));
+
+                // Summarization
+                for (Variable[] vars : new Variable[][]{{a}, {c, a}, {b, c}, {}, {d}}) {
+                    sparse = f[0].summarize(vars);
+                    assertTrue(sparse instanceof SparseCostFunction);
+                    assertEquals(f[1].summarize(vars), sparse);
+                }
+
+                // Reduction
+                VariableAssignment mapping = new VariableAssignment();
+                mapping.put(b, 1);
+                mapping.put(d, 0);
+                sparse = f[0].reduce(mapping);
+                assertTrue(sparse instanceof SparseCostFunction);
+                assertEquals(f[1].reduce(mapping), sparse);
+
+                // Negation
+                assertEquals(f[1].negate(), f[0].negate());
+            }
+        }
+    }
+
+}
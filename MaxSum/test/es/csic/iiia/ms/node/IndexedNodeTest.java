@@ -0,0 +1,223 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2014, IIIA-CSIC, Artificial Intelligence Research Institute
+ * All rights reserved.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package es.csic.iiia.ms.node;
+
+import es.csic.iiia.ms.Communicator;
+import es.csic.iiia.ms.Identity;
+import es.csic.iiia.ms.StringIdentity;
+import es.csic.iiia.ms.Variable;
+import es.csic.iiia.ms.functions.CostFunction;
+import es.csic.iiia.ms.functions.CostFunctionFactory;
+import es.csic.iiia.ms.op.Combine;
+import es.csic.iiia.ms.op.Normalize;
+import es.csic.iiia.ms.op.Summarize;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that indexed nodes send the same messages as the classic ones.
+ */
+public class IndexedNodeTest {
+
+    private static final double DELTA = 1e-9;
+
+    private CostFunctionFactory factory;
+    private Random random;
+    private Variable[] variables;
+    private Identity[] neighbors;
+
+    @Before
+    public void setUp() {
+        factory = new CostFunctionFactory();
+        random = new Random(0);
+        variables = new Variable[]{
+            new Variable(new StringIdentity("x0"), 2),
+            new Variable(new StringIdentity("x1"), 3),
+            new Variable(new StringIdentity("x2"), 2),
+            new Variable(new StringIdentity("x3"), 3),
+        };
+        neighbors = new Identity[variables.length];
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = new StringIdentity("n" + i);
+        }
+    }
+
+    private CostFunction buildRandom(Variable[] vars, boolean positive) {
+        CostFunction f = factory.buildCostFunction(vars, 0);
+        for (int i = 0; i < f.getSize(); i++) {
+            f.setValue(i, positive ? 0.1 + random.nextDouble() : random.nextDouble() * 20 - 10);
+        }
+        return f;
+    }
+
+    private void assertSameMessages(Capture expected, Capture actual) {
+        assertEquals(expected.sent.keySet(), actual.sent.keySet());
+        for (Identity recipient : expected.sent.keySet()) {
+            assertArrayEquals(expected.sent.get(recipient).getValues(),
+                    actual.sent.get(recipient).getValues(), DELTA);
+        }
+    }
+
+    private void checkFunctionNode(boolean positive) {
+        final Identity id = new StringIdentity("f");
+        final CostFunction potential = buildRandom(variables, positive);
+        final Capture classicOut = new Capture();
+        final Capture indexedOut = new Capture();
+        final FunctionNode classic = new FunctionNode(id, classicOut, potential);
+        final IndexedFunctionNode<Identity> indexed = new IndexedFunctionNode<>(id, indexedOut, potential);
+        for (int i = 0; i < variables.length; i++) {
+            classic.addNeighbor(neighbors[i], variables[i]);
+            indexed.addNeighbor(neighbors[i], variables[i]);
+        }
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            for (int i = 0; i < variables.length; i++) {
+                CostFunction message = buildRandom(new Variable[]{variables[i]}, positive);
+                classic.receive(message, neighbors[i]);
+                indexed.receive(message, neighbors[i]);
+            }
+            classic.run();
+            indexed.run();
+            assertSameMessages(classicOut, indexedOut);
+            assertArrayEquals(classic.getBelief().getValues(), indexed.getBelief().getValues(), DELTA);
+        }
+    }
+
+    private void checkVariableNode(boolean positive) {
+        final Identity id = new StringIdentity("v");
+        final Variable variable = variables[1];
+        final CostFunction potential = buildRandom(new Variable[]{variable}, positive);
+        final Capture classicOut = new Capture();
+        final Capture indexedOut = new Capture();
+        final VariableNode classic = new VariableNode(id, classicOut, potential);
+        final IndexedVariableNode<Identity> indexed = new IndexedVariableNode<>(id, indexedOut, potential);
+        for (Identity neighbor : neighbors) {
+            classic.addNeighbor(neighbor, variable);
+            indexed.addNeighbor(neighbor, variable);
+        }
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            for (Identity neighbor : neighbors) {
+                CostFunction message = buildRandom(new Variable[]{variable}, positive);
+                classic.receive(message, neighbor);
+                indexed.receive(message, neighbor);
+            }
+            classic.run();
+            indexed.run();
+            assertSameMessages(classicOut, indexedOut);
+            assertArrayEquals(classic.getBelief().getValues(), indexed.getBelief().getValues(), DELTA);
+            assertEquals(classic.select(), indexed.select());
+        }
+    }
+
+    @Test
+    public void testMaxSum() {
+        factory.setMode(Summarize.MAX, Combine.SUM, Normalize.SUM0);
+        checkFunctionNode(false);
+        checkVariableNode(false);
+    }
+
+    @Test
+    public void testMinSum() {
+        factory.setMode(Summarize.MIN, Combine.SUM, Normalize.NONE);
+        checkFunctionNode(false);
+        checkVariableNode(false);
+    }
+
+    @Test
+    public void testMaxSumDiff() {
+        factory.setMode(Summarize.MAX, Combine.SUM, Normalize.DIFF);
+        checkFunctionNode(false);
+        checkVariableNode(false);
+    }
+
+    @Test
+    public void testMaxProduct() {
+        factory.setMode(Summarize.MAX, Combine.PRODUCT, Normalize.SUM1);
+        checkFunctionNode(true);
+        checkVariableNode(true);
+    }
+
+    @Test
+    public void testFirstRun() {
+        factory.setMode(Summarize.MAX, Combine.SUM, Normalize.SUM0);
+        final CostFunction potential = buildRandom(new Variable[]{variables[0]}, false);
+        final Capture out = new Capture();
+        final IndexedVariableNode<Identity> node = new IndexedVariableNode<>(new StringIdentity("v"), out, potential);
+        node.addNeighbor(neighbors[0], variables[0]);
+        node.addNeighbor(neighbors[1], variables[0]);
+        node.run();
+        assertArrayEquals(potential.getValues(), out.sent.get(neighbors[0]).getValues(), DELTA);
+        assertArrayEquals(potential.getValues(), node.getBelief().getValues(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownNeighbor() {
+        factory.setMode(Summarize.MAX, Combine.SUM, Normalize.SUM0);
+        final CostFunction potential = buildRandom(variables, false);
+        final IndexedFunctionNode<Identity> node = new IndexedFunctionNode<>(new StringIdentity("f"), new Capture(), potential);
+        node.addNeighbor(neighbors[0], variables[0]);
+        node.receive(buildRandom(new Variable[]{variables[1]}, false), neighbors[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForeignVariable() {
+        factory.setMode(Summarize.MAX, Combine.SUM, Normalize.SUM0);
+        final CostFunction potential = buildRandom(new Variable[]{variables[0]}, false);
+        final IndexedFunctionNode<Identity> node = new IndexedFunctionNode<>(new StringIdentity("f"), new Capture(), potential);
+        node.addNeighbor(neighbors[1], variables[1]);
+    }
+
+    /**
+     * Communicator that keeps the last message sent to each recipient.
+     */
+    private static class Capture implements Communicator<Identity> {
+        private final Map<Identity, CostFunction> sent = new HashMap<>();
+
+        @Override
+        public void send(CostFunction message, Identity from, Identity to) {
+            sent.put(to, message);
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+#!/bin/bash
+
+# Runs a matrix of experiments concurrently, each one as a separate start.sh
+# run with its own kernel port, log directory and results directory. At the
+# end, the results of all runs are summarized in <output>/summary.tsv.
+#
+# Each line of the matrix file describes a set of runs:
+#
+#   <config> <map> <scenario> <seeds> [start.sh options ...]
+#
+# where <seeds> is a list of seeds and ranges such as "1-30" or "1,5,10-12".
+# Lines starting with # are ignored. For example:
+#
+#   fgmd-bms-t30-d00-gno  paris  no-21-10-2013-rblockades  1-30  -b
+#   fgmd-bms-t30-d05-gno  paris  no-21-10-2013-rblockades  1-30  -b
+#
+# The paths cache and the fire simulator rays are shared by all runs. They are
+# built by the first run of each map (and search algorithm), which is run
+# before the other runs of that map.
+
+# Cleanup runs (and their simulations) when interrupted
+trap 'trap - SIGINT SIGTERM; kill 0' SIGINT SIGTERM
+
+. functions.sh
+
+function printFarmUsage {
+    echo "Usage: $0 [options] <matrix file>"
+    echo "Options"
+    echo "======="
+    echo "-j    --jobs      <num>         Number of concurrent runs. Default is the most that fit in the cores and memory."
+    echo "      --job-cpus  <num>         Cores used by each run. Default is 2."
+    echo "      --job-mem   <gigabytes>   Memory used by each run. Default is 10 (6 with --inline)."
+    echo "-i    --inline                  Run each experiment in a single JVM (see start.sh --inline)."
+    echo "-o    --output    <dir>         Set the output directory. Default is \"farm/<date>\"."
+    echo "      --base-port <num>         Set the kernel port of the first run. Default is 20000."
+}
+
+function processFarmArgs {
+    JOBS=
+    JOB_CPUS=2
+    JOB_MEM=
+    FARM_INLINE=
+    OUTPUT="farm/$(date +%Y%m%d-%H%M%S)"
+    BASE_PORT=20000
+    MATRIX=
+
+    while [[ ! -z "$1" ]]; do
+        case "$1" in
+            -j | --jobs)
+                JOBS="$2"
+                shift 2
+                ;;
+            --job-cpus)
+                JOB_CPUS="$2"
+                shift 2
+                ;;
+            --job-mem)
+                JOB_MEM="$2"
+                shift 2
+                ;;
+            -i | --inline)
+                FARM_INLINE=true
+                shift 1
+                ;;
+            -o | --output)
+                OUTPUT="$2"
+                shift 2
+                ;;
+            --base-port)
+                BASE_PORT="$2"
+                shift 2
+                ;;
+            -h | --help)
+                printFarmUsage
+                exit 1
+                ;;
+            *)
+                if [ ! -z "$MATRIX" ]; then
+                    echo "Unrecognised option: $1"
+                    printFarmUsage
+                    exit 1
+                fi
+                MATRIX="$1"
+                shift 1
+                ;;
+        esac
+    done
+
+    if [ ! -f "$MATRIX" ]; then
+        echo "You must specify an existing matrix file."
+        printFarmUsage
+        exit 1
+    fi
+
+    if [ -z "$JOB_MEM" ]; then
+        if [ -z "$FARM_INLINE" ]; then
+            JOB_MEM=10
+        else
+            JOB_MEM=6
+        fi
+    fi
+
+    # Run as many simulations as fit in both the cores and the memory
+    if [ -z "$JOBS" ]; then
+        CORES=$(nproc)
+        MEMORY=$(awk '/MemAvailable/ {print int($2/1048576)}' /proc/meminfo)
+        JOBS=$((CORES / JOB_CPUS))
+        if [ $((MEMORY / JOB_MEM)) -lt $JOBS ]; then
+            JOBS=$((MEMORY / JOB_MEM))
+        fi
+        if [ $JOBS -lt 1 ]; then
+            JOBS=1
+        fi
+    fi
+
+    mkdir -p "$OUTPUT/logs" "$OUTPUT/results"
+    OUTPUT=$(cd "$OUTPUT"; pwd)
+}
+
+# Outputs the seeds of a list such as "1-3,7" (one per line)
+function expandSeeds {
+    for PART in ${1//,/ }; do
+        if [[ "$PART" == *-* ]]; then
+            seq ${PART%-*} ${PART#*-}
+        else
+            echo $PART
+        fi
+    done
+}
+
+# Reads the matrix file into the JOB_* arrays, one entry per run
+function readMatrix {
+    N_JOBS=0
+    while read -r CONFIG MAP_NAME SCENARIO_NAME SEEDS EXTRA; do
+        if [ -z "$CONFIG" ] || [[ "$CONFIG" == \#* ]]; then
+            continue
+        fi
+        # Runs that share the paths cache and rays
+        CACHE_KEY="$MAP_NAME"
+        CACHE_KEY="$CACHE_KEY $(configFetchSetting $CONFIGDIR/${CONFIG%.cfg}.cfg agent.search.class)"
+        CACHE_KEY="$CACHE_KEY $(configFetchSetting $CONFIGDIR/${CONFIG%.cfg}.cfg cache.format)"
+        for SEED in $(expandSeeds $SEEDS); do
+            JOB_ID[$N_JOBS]="${CONFIG%.cfg}_${MAP_NAME}_$(basename ${SCENARIO_NAME%.xml})_s$SEED"
+            JOB_ARGS[$N_JOBS]="-c $CONFIG -m $MAP_NAME -s $SCENARIO_NAME --seed $SEED $EXTRA"
+            JOB_KEY[$N_JOBS]="$CACHE_KEY"
+            N_JOBS=$((N_JOBS + 1))
+        done
+    done < "$MATRIX"
+}
+
+# Runs job $1 and records its outcome in jobs.tsv
+function runJob {
+    local ID=${JOB_ID[$1]}
+    local ARGS="${JOB_ARGS[$1]} --port $((BASE_PORT + $1)) -l $OUTPUT/logs/$ID -r $OUTPUT/results/$ID"
+    if [ ! -z "$FARM_INLINE" ]; then
+        ARGS="$ARGS --inline"
+    fi
+
+    local START=$(date +%s)
+    ./start.sh $ARGS > "$OUTPUT/logs/$ID.log" 2>&1
+    local END=$(date +%s)
+
+    # The run completed if it wrote results and its log shows that the kernel
+    # shut down on its own, or that the center agent ended the run because all
+    # fires were out. Inline runs are a single JVM that logs to rslb2.log.
+    local LOG="$OUTPUT/logs/$ID/kernel.log"
+    if [ ! -z "$FARM_INLINE" ]; then
+        LOG="$OUTPUT/logs/$ID/rslb2.log"
+    fi
+    local STATUS=failed
+    if [ -n "$(find "$OUTPUT/results/$ID" \( -name '*.dat' -o -name '*.bin' \) 2>/dev/null)" ] \
+            && grep -qE 'Kernel has shut down|All fires extinguished' "$LOG" 2>/dev/null; then
+        STATUS=ok
+    fi
+    printf "%s\t%s\t%s\t%d\n" "$ID" "${JOB_ARGS[$1]}" $STATUS $((END - START)) >> "$OUTPUT/jobs.tsv"
+    echo "Finished $ID ($STATUS, $((END - START))s)"
+}
+
+# Starts job $1 once there is a free slot
+function startJob {
+    while [ $(jobs -rp | wc -l) -ge $JOBS ]; do
+        wait -n
+    done
+    echo "Starting ${JOB_ID[$1]}..."
+    runJob $1 &
+}
+
+processFarmArgs $*
+CONFIGDIR="$DIR/config"
+readMatrix
+echo "Running $N_JOBS simulations, $JOBS at a time. Output in $OUTPUT"
+printf "job\targs\tstatus\tseconds\n" > "$OUTPUT/jobs.tsv"
+
+# First run of each map, which builds the shared caches
+declare -A WARM
+for ((i = 0; i < N_JOBS; i++)); do
+    if [ -z "${WARM["${JOB_KEY[$i]}"]}" ]; then
+        WARM["${JOB_KEY[$i]}"]=$i
+        startJob $i
+    fi
+done
+wait
+
+# Then all the others
+for ((i = 0; i < N_JOBS; i++)); do
+    if [ "${WARM["${JOB_KEY[$i]}"]}" != "$i" ]; then
+        startJob $i
+    fi
+done
+wait
+
+java -cp "$BASEDIR/dist/RSLB2.jar" RSLBench.Helpers.Results.ResultsAggregator \
+    "$OUTPUT/summary.tsv" "$OUTPUT/results"
@@ -10,12 +10,15 @@ function printUsage {
     echo "======="
     echo "-b    --blockades               Run the blockades loader"
     echo "-c    --config <file>           Set the config file to employ. Default is \"example\""
+    echo "-i    --inline                  Run the kernel, simulators and RSLB2 in a single JVM"
     echo "      --config-dir <configdir>  Set the config directory. Default is \"config\""
     echo "-m    --map       <mapdir>      Set the map directory. Default is \"paris\""
     echo '-n    --no-rslb2                Do not run RSLB2 (useful if you want to run it externaly with a debugger)'
     echo "-l    --log       <logdir>      Set the log directory. Default is \"logs/$PID\""
     echo "-o    --only-rslb2              Run only RSLB2 (useful in combination with -n)"
     echo "-p    --plot                    Plot the run results."
+    echo "      --port      <num>         Set the kernel port. Default is a random port."
+    echo "-r    --results   <resultsdir>  Set the results directory. Default is \"results/\""
     echo "-t    --team      <teamname>    Set the team name. Default is \"\""
     echo "      --think-time <millis>     Set the max. agent think time in millis. Default is 100000 (100s)."
     echo "      --seed      <num>         Set the random seed to num. Default is 1.";
@@ -37,6 +40,8 @@ function processArgs {
     SCENARIO="example"
     THINK_TIME=100000
     SEED=1
+    PORT=
+    RESULTS_PATH=
 
     while [[ ! -z "$1" ]]; do
         case "$1" in
@@ -48,6 +53,10 @@ function processArgs {
                 BLOCKADES=true
                 shift 1
                 ;;
+            -i | --inline)
+                INLINE=true
+                shift 1
+                ;;
             -m | --map)
                 MAP="$2"
                 shift 2
@@ -72,6 +81,14 @@ function processArgs {
                 SEED="$2"
                 shift 2
                 ;;
+            --port)
+                PORT="$2"
+                shift 2
+                ;;
+            -r | --results)
+                RESULTS_PATH="$2"
+                shift 2
+                ;;
             -t | --team)
                 TEAM="$2"
                 shift 2
@@ -179,9 +196,15 @@ function processArgs {
     fi
 
     # Get the location of the results directory and ensure it exists
-    RESULTSDIR=$(grep "results.path" "$CONFIGDIR/$CONFIGFILE.cfg" | cut -d':' -f2)
-    if [ ! -d $RESULTSDIR ]; then
-        mkdir $RESULTSDIR
+    if [ -z "$RESULTS_PATH" ]; then
+        RESULTSDIR=$(grep "results.path" "$CONFIGDIR/$CONFIGFILE.cfg" | cut -d':' -f2)
+        if [ ! -d $RESULTSDIR ]; then
+            mkdir $RESULTSDIR
+        fi
+        RESULTS_PATH="results/"
+    else
+        mkdir -p "$RESULTS_PATH"
+        RESULTS_PATH="${RESULTS_PATH%/}/"
     fi
 
     CACHEDIR=$(grep "cache.path" "$CONFIGDIR/$CONFIGFILE.cfg" | cut -d':' -f2)
@@ -189,12 +212,14 @@ function processArgs {
         mkdir $CACHEDIR
     fi
 
-    # Use a random port when running everything, or the default one when only running
-    # parts of the software
-    if [ -z "$NO_RSLB2" ] && [ -z "$ONLY_RSLB2" ]; then
-        PORT=$((RANDOM%5000+7000))
-    else
-        PORT=5557
+    # Unless given, use a random port when running everything, or the default
+    # one when only running parts of the software
+    if [ -z "$PORT" ]; then
+        if [ -z "$NO_RSLB2" ] && [ -z "$ONLY_RSLB2" ]; then
+            PORT=$((RANDOM%5000+7000))
+        else
+            PORT=5557
+        fi
     fi
 
     JVM_OPTS=""
@@ -285,7 +310,7 @@ function startSims {
 
 function startRslb2 {
     JVM_OPTS="-Xmx5G -Dlog4j.configurationFile=file://$BASEDIR/supplement/log4j2.xml -Djava.awt.headless=true"
-    OPTS="-c $SCONFIGDIR/kernel.cfg -c $CONFIGDIR/$CONFIGFILE.cfg --results.path=results/ --run=$UUID --kernel.port=$PORT"
+    OPTS="-c $SCONFIGDIR/kernel.cfg -c $CONFIGDIR/$CONFIGFILE.cfg --results.path=$RESULTS_PATH --run=$UUID --kernel.port=$PORT"
     OPTS="$OPTS --random.seed=$SEED"
     if [ ! -z "$START_TIME" ]; then
         OPTS="$OPTS --experiment.start_time=$START_TIME"
@@ -297,6 +322,57 @@ function startRslb2 {
     launch
 }
 
+# Start the kernel, simulators and RSLB2 agents in a single JVM. Components
+# exchange messages in memory, so there are no ports nor separate processes.
+function startInline {
+    STEPS=$(configFetchSetting $CONFIGDIR/$CONFIGFILE.cfg "experiment.end_time")
+
+    # Components to launch inside the kernel (lists can not be given in the
+    # command line, so they go to a config file of this run)
+    INLINE_CONFIG="$LOGDIR/inline.cfg"
+    CP_EXTRA="$RSL_SIM_PATH/oldsims/firesimulator/lib/commons-logging-1.1.1.jar"
+    cat > "$INLINE_CONFIG" <<EOF
+kernel.inline-only: true
+kernel.inline.in-memory: true
+kernel.inline.groups: RSLBench.InlineAgents
+kernel.simulators.auto +: misc.MiscSimulator
+kernel.simulators.auto +: traffic3.simulator.TrafficSimulator
+kernel.simulators.auto +: firesimulator.FireSimulatorWrapper
+EOF
+    if [ ! -z "$BLOCKADES" ]; then
+        echo "kernel.simulators.auto +: rslb2.blockadeloader.BlockadeLoader" >> "$INLINE_CONFIG"
+        echo "kernel.simulators.auto +: clear.ClearSimulator" >> "$INLINE_CONFIG"
+        CP_EXTRA="$CP_EXTRA:$BLOCKADE_SIM_PATH/dist/BlockadeLoader.jar"
+    fi
+    if [ ! -z "$VIEWER" ]; then
+        echo "kernel.viewers.auto: sample.SampleViewer" >> "$INLINE_CONFIG"
+    fi
+
+    OPTS="-c $SCONFIGDIR/kernel.cfg -c $CONFIGDIR/$CONFIGFILE.cfg -c $INLINE_CONFIG"
+    OPTS="$OPTS --kernel.agents.think-time=$THINK_TIME --kernel.timesteps=$STEPS"
+    OPTS="$OPTS --gis.map.dir=$MAP --gis.map.scenario=$SCENARIO"
+    OPTS="$OPTS --kernel.logname=/dev/null --results.path=$RESULTS_PATH --run=$UUID"
+    OPTS="$OPTS --random.seed=$SEED"
+    if [ ! -z "$START_TIME" ]; then
+        OPTS="$OPTS --experiment.start_time=$START_TIME"
+    fi
+    if [ -z "$KERNEL_VIEWER" ]; then
+        JVM_OPTS="-Djava.awt.headless=true"
+    else
+        JVM_OPTS="-Djava.awt.headless=false"
+    fi
+    JVM_OPTS="$JVM_OPTS -Xmx6G -Dlog4j.configurationFile=file://$BASEDIR/supplement/log4j2.xml"
+    makeClasspath $RSL_SIM_PATH/jars $RSL_SIM_PATH/lib
+    PROGRAM="-cp $BASEDIR/dist/RSLB2.jar:$CP:$CP_EXTRA kernel.StartKernel $OPTS"
+    if [ -z "$KERNEL_VIEWER" ]; then
+        PROGRAM="$PROGRAM --nomenu --autorun --nogui"
+    else
+        PROGRAM="$PROGRAM --nomenu --autorun"
+    fi
+    OUTFILE=""
+    TEEFILE="$LOGDIR/rslb2.log"
+    launch
+}
 
 #################################################################################
 # Java-related helper functions
@@ -456,8 +532,11 @@ function relPath {
 # Utilities to parse the configuration file
 #################################################################################
 
+# Resolves the includes of a configuration file in place.
+# $1 is the file to process
+# $2 is the optional folder of the included files. Defaults to the folder of $1.
 function configResolveIncludes {
-    P=$(dirname $1)
+    P=${2:-$(dirname $1)}
     while egrep -q '^[^#]*!include[[:space:]]+' $1; do
         #echo "Include found!"
         line=$(nl -ba $1  | egrep -m1 '^[^#]*!include[[:space:]]+')
@@ -481,14 +560,16 @@ function configResolveIncludes {
 }
 
 function configFetchSetting {
-    # We need to resolve the configuration includes, so use a temporary file for that
-    cp $1 $1.parsed
-    configResolveIncludes $1.parsed
+    # We need to resolve the configuration includes, so use a temporary file
+    # for that (a private one, because several runs may read the same file)
+    PARSED=$(mktemp)
+    cp $1 $PARSED
+    configResolveIncludes $PARSED $(dirname $1)
 
     # Now fetch (the latest value) for the given setting
-    VALUE=$(egrep '[^#]*'$2':' $1.parsed | tail -n1 | cut -d ':' -f2)
+    VALUE=$(egrep '[^#]*'$2':' $PARSED | tail -n1 | cut -d ':' -f2)
     echo $VALUE
 
     # Remove the temporary file when done
-    rm $1.parsed
+    rm $PARSED
 }
@@ -9,7 +9,9 @@ BLOCKADE_SIM_PATH=$(cd ../../BlockadeLoader; pwd)
 
 processArgs $*
 
-if [ -z "$ONLY_RSLB2" ]; then
+if [ -n "$INLINE" ]; then
+	startInline
+elif [ -z "$ONLY_RSLB2" ]; then
 	if [ -z "$KERNEL_VIEWER" ]; then
 		startKernel --nomenu --autorun --nogui
 	else
@@ -18,12 +20,12 @@ if [ -z "$ONLY_RSLB2" ]; then
 	startSims --nogui
 fi
 
-if [ -z "$NO_RSLB2" ]; then
+if [ -z "$NO_RSLB2" ] && [ -z "$INLINE" ]; then
     startRslb2
 fi
 
 waitUntilFinished $PIDS
 
 if [ -n "$PLOT" ]; then
-    for f in results/$UUID-*.dat; do results/plot.sh $f; done
+    for f in $RESULTS_PATH$UUID-*.dat; do results/plot.sh $f; done
 fi
\ No newline at end of file
@@ -44,9 +44,9 @@ import java.util.ArrayList;
 import rescuecore2.worldmodel.EntityID;
 
 import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.Message;
 import RSLBench.Comm.CommunicationLayer;
-import RSLBench.Constants;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 
 import es.csic.iiia.bms.Factor;
@@ -56,6 +56,7 @@ import es.csic.iiia.bms.factors.CardinalityFactor.CardinalityFunction;
 import es.csic.iiia.bms.factors.WeightingFactor;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.config.Config;
@@ -74,6 +75,7 @@ public class BMSFireAgent implements DCOPAgent {
     private HashMap<NodeID, Factor<NodeID>> factors;
     private HashMap<NodeID, EntityID> factorLocations;
     private RSLBenchCommunicationAdapter communicationAdapter;
+    private ResidualScheduler scheduler;
     private EntityID targetId;
     private long constraintChecks;
 
@@ -87,23 +89,46 @@ public class BMSFireAgent implements DCOPAgent {
     public void initialize(Config config, EntityID agentID, ProblemDefinition problem) {
         Logger.trace("Initializing agent {}", agentID);
 
+        // Graph of the previous timestep, if this agent is being reused
+        final ProblemDefinition previous = this.problem;
+        final HashMap<NodeID, Factor<NodeID>> previousFactors = factors;
+        final boolean sameEntities = FactorGraphs.haveSameEntities(previous, problem);
+
         this.id = agentID;
         this.targetId = null;
         this.problem = problem;
 
         // Reset internal structures
         factors = new HashMap<>();
-        factorLocations = new HashMap<>();
-        communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        if (!sameEntities) {
+            factorLocations = new HashMap<>();
+        }
+        if (communicationAdapter == null) {
+            communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        }
 
         // Build the variable node
-        addSelectorNode();
+        addSelectorNode(previousFactors);
 
         // And the fire utility nodes that correspond to this agent
-        addUtilityNodes();
+        addUtilityNodes(previousFactors);
 
         // Finally, compute the location of each factor in the simulation
-        computeFactorLocations();
+        // (unless they are where they were in the previous timestep)
+        if (!sameEntities) {
+            computeFactorLocations();
+        }
+
+        communicationAdapter.restart(factors);
+        if (config.getBooleanValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL, false)) {
+            if (scheduler == null) {
+                scheduler = new ResidualScheduler(communicationAdapter,
+                        config.getIntValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL_BUDGET, 0));
+            }
+            scheduler.reset(factors);
+        } else {
+            scheduler = null;
+        }
 
         Logger.trace("Agent {} initialized.", agentID);
     }
@@ -113,37 +138,56 @@ public class BMSFireAgent implements DCOPAgent {
      */
     private void addFactor(NodeID id, Factor<NodeID> factor) {
         factors.put(id, factor);
+        if (id.equals(factor.getIdentity())) {
+            // Reused from the previous timestep, so it is already set up
+            return;
+        }
         factor.setMaxOperator(MAX_OPERATOR);
         factor.setIdentity(id);
-        factor.setCommunicationAdapter(communicationAdapter);
     }
 
     /**
      * Creates a selector node for the agent's "variable".
+     *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      */
-    private void addSelectorNode() {
-        this.variableNode = new BMSSelectorFactor<>();
+    private void addSelectorNode(Map<NodeID, Factor<NodeID>> previousFactors) {
+        final NodeID agentID = new NodeID(id, null);
 
         // The agent's factor is the selector plus the independent utilities
         // of this agent for each fire.
-        WeightingFactor<NodeID> agentFactor = new WeightingFactor<>(variableNode);
+        WeightingFactor<NodeID> agentFactor;
+        Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, agentID);
+        if (old instanceof WeightingFactor) {
+            agentFactor = (WeightingFactor<NodeID>)old;
+            variableNode = (BMSSelectorFactor<NodeID>)agentFactor.getInnerFactor();
+        } else {
+            variableNode = new BMSSelectorFactor<>();
+            agentFactor = new WeightingFactor<>(variableNode);
+        }
 
-        for (EntityID fire : problem.getFireAgentNeighbors(id)) {
-            NodeID fireID = new NodeID(null, fire);
-            // Link the agent to each fire
-            agentFactor.addNeighbor(fireID);
+        // Link the agent to each fire
+        List<EntityID> fires = problem.getFireAgentNeighbors(id);
+        List<NodeID> neighbors = new ArrayList<>(fires.size());
+        for (EntityID fire : fires) {
+            neighbors.add(new NodeID(null, fire));
+        }
+        FactorGraphs.setNeighbors(agentFactor, neighbors);
 
-            // ... and populate the utilities
+        // ... and populate the utilities
+        for (int i = 0; i < fires.size(); i++) {
+            final EntityID fire = fires.get(i);
             double value = problem.getFireUtility(id, fire);
             if (problem.isFireAgentBlocked(id, fire)) {
-                value -= problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY);
+                value -= problem.getSettings().getBlockedFirePenalty();
             }
 
-            agentFactor.setPotential(fireID, value);
+            FactorGraphs.setPotential(agentFactor, neighbors.get(i), value);
             Logger.trace("Utility for {}: {}", new Object[]{fire, value});
         }
 
-        addFactor(new NodeID(id, null), agentFactor);
+        addFactor(agentID, agentFactor);
     }
 
     /**
@@ -158,8 +202,10 @@ public class BMSFireAgent implements DCOPAgent {
      * Agent 0 (agents.get(0)) gets Fires 0, 2, 4
      * Agent 1 (agents.get(1)) gets Fires 1, 3
      *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      **/
-    private void addUtilityNodes() {
+    private void addUtilityNodes(Map<NodeID, Factor<NodeID>> previousFactors) {
         ArrayList<EntityID> fires  = problem.getFires();
         final int nAgents = problem.getNumFireAgents();
         final int nFires  = fires.size();
@@ -170,23 +216,33 @@ public class BMSFireAgent implements DCOPAgent {
             final EntityID fire = fires.get(i);
             final NodeID fireID = new NodeID(null, fire);
 
-            // Build the utility node
-            BMSCardinalityFactor<NodeID> f = new BMSCardinalityFactor<>();
-
-            // Set the maximum number of agents that should be attending this
-            // fire
-            CardinalityFunction wf = new CardinalityFunction() {
-                @Override
-                public double getCost(int nActiveVariables) {
-                    return - problem.getUtilityPenalty(fire, nActiveVariables);
-                }
-            };
-            f.setFunction(wf);
+            // Build the utility node, unless this agent already had it (its
+            // function always evaluates the current problem)
+            BMSCardinalityFactor<NodeID> f;
+            Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, fireID);
+            if (old instanceof BMSCardinalityFactor) {
+                f = (BMSCardinalityFactor<NodeID>)old;
+            } else {
+                f = new BMSCardinalityFactor<>();
+
+                // Set the maximum number of agents that should be attending this
+                // fire
+                CardinalityFunction wf = new CardinalityFunction() {
+                    @Override
+                    public double getCost(int nActiveVariables) {
+                        return - problem.getUtilityPenalty(fire, nActiveVariables);
+                    }
+                };
+                f.setFunction(wf);
+            }
 
             // Link the fire with all its neighboring agents
-            for (EntityID agent : problem.getFireNeighbors(fire)) {
-                f.addNeighbor(new NodeID(agent, null));
+            List<EntityID> agents = problem.getFireNeighbors(fire);
+            List<NodeID> neighbors = new ArrayList<>(agents.size());
+            for (EntityID agent : agents) {
+                neighbors.add(new NodeID(agent, null));
             }
+            FactorGraphs.setNeighbors(f, neighbors);
 
             // Finally add the factor to this agent
             addFactor(fireID, f);
@@ -227,13 +283,22 @@ public class BMSFireAgent implements DCOPAgent {
      * the agent.
      */
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         Logger.trace("improveAssignment start...");
         constraintChecks = 0;
 
-        // Let all factors run
-        for (NodeID eid : factors.keySet()) {
-            constraintChecks += factors.get(eid).run();
+        // Let all factors run (or only those whose inputs changed). Past the
+        // deadline only the factor of this agent runs, so that it can choose.
+        final NodeID agentID = new NodeID(id, null);
+        if (scheduler != null) {
+            constraintChecks += scheduler.run(deadline, agentID);
+        } else {
+            for (NodeID eid : factors.keySet()) {
+                if (deadline.isExpired() && !eid.equals(agentID)) {
+                    continue;
+                }
+                constraintChecks += factors.get(eid).run();
+            }
         }
 
         // Now extract our choice
@@ -255,7 +320,8 @@ public class BMSFireAgent implements DCOPAgent {
         }
         Logger.trace("improveAssignment end.");
 
-        return !communicationAdapter.isConverged();
+        return !communicationAdapter.isConverged()
+                || (scheduler != null && scheduler.hasPending());
     }
 
     @Override
@@ -313,6 +379,11 @@ public class BMSFireAgent implements DCOPAgent {
         }
 
         BinaryMaxSumMessage message = (BinaryMaxSumMessage)amessage;
+        if (scheduler != null) {
+            scheduler.receive(message.message, message.getSenderFactor(),
+                    message.getRecipientFactor());
+            return;
+        }
         Factor<NodeID> recipient = factors.get(message.getRecipientFactor());
         recipient.receive(message.message, message.getSenderFactor());
     }
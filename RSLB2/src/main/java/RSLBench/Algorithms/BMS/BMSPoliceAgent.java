@@ -41,6 +41,8 @@ import RSLBench.Algorithms.BMS.factor.BMSCardinalityFactor;
 import java.util.Collection;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import es.csic.iiia.bms.Factor;
 import es.csic.iiia.bms.MaxOperator;
@@ -55,6 +57,7 @@ import rescuecore2.config.Config;
 
 import RSLBench.Assignment.Assignment;
 import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.Message;
 import RSLBench.Comm.CommunicationLayer;
 import RSLBench.Constants;
@@ -78,6 +81,7 @@ public class BMSPoliceAgent implements DCOPAgent {
     private HashMap<NodeID, Factor<NodeID>> factors;
     private HashMap<NodeID, EntityID> factorLocations;
     private RSLBenchCommunicationAdapter communicationAdapter;
+    private ResidualScheduler scheduler;
     private EntityID targetId;
     private long constraintChecks;
 
@@ -95,23 +99,46 @@ public class BMSPoliceAgent implements DCOPAgent {
                 Constants.KEY_BLOCKED_FIRE_PENALTY);
         POLICE_ETA = problem.getConfig().getFloatValue(Constants.KEY_POLICE_ETA);
 
+        // Graph of the previous timestep, if this agent is being reused
+        final ProblemDefinition previous = this.problem;
+        final HashMap<NodeID, Factor<NodeID>> previousFactors = factors;
+        final boolean sameEntities = FactorGraphs.haveSameEntities(previous, problem);
+
         this.id = agentID;
         this.targetId = null;
         this.problem = problem;
 
         // Reset internal structures
         factors = new HashMap<>();
-        factorLocations = new HashMap<>();
-        communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        if (!sameEntities) {
+            factorLocations = new HashMap<>();
+        }
+        if (communicationAdapter == null) {
+            communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        }
 
         // Build the variable node
-        addPoliceFactor();
+        addPoliceFactor(previousFactors);
 
         // And the blockade factor nodes that correspond to this agent
-        addBlockadeFactors();
+        addBlockadeFactors(previousFactors);
 
         // Finally, compute the location of each factor in the simulation
-        computeFactorLocations();
+        // (unless they are where they were in the previous timestep)
+        if (!sameEntities) {
+            computeFactorLocations();
+        }
+
+        communicationAdapter.restart(factors);
+        if (config.getBooleanValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL, false)) {
+            if (scheduler == null) {
+                scheduler = new ResidualScheduler(communicationAdapter,
+                        config.getIntValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL_BUDGET, 0));
+            }
+            scheduler.reset(factors);
+        } else {
+            scheduler = null;
+        }
 
         Logger.trace("Agent {} initialized.", agentID);
     }
@@ -121,37 +148,56 @@ public class BMSPoliceAgent implements DCOPAgent {
      */
     private void addFactor(NodeID id, Factor<NodeID> factor) {
         factors.put(id, factor);
+        if (id.equals(factor.getIdentity())) {
+            // Reused from the previous timestep, so it is already set up
+            return;
+        }
         factor.setMaxOperator(MAX_OPERATOR);
         factor.setIdentity(id);
-        factor.setCommunicationAdapter(communicationAdapter);
     }
 
     /**
      * Creates a selector node for the agent's "variable".
+     *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      */
-    private void addPoliceFactor() {
-        this.variableNode = new BMSAtMostOneFactor<>();
+    private void addPoliceFactor(Map<NodeID, Factor<NodeID>> previousFactors) {
+        final NodeID agentID = new NodeID(id, null);
 
         // The agent's factor is the selector plus the independent utilities
         // of this agent for each blockade.
-        WeightingFactor<NodeID> agentFactor = new WeightingFactor<>(variableNode);
+        WeightingFactor<NodeID> agentFactor;
+        Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, agentID);
+        if (old instanceof WeightingFactor) {
+            agentFactor = (WeightingFactor<NodeID>)old;
+            variableNode = (BMSAtMostOneFactor<NodeID>)agentFactor.getInnerFactor();
+        } else {
+            variableNode = new BMSAtMostOneFactor<>();
+            agentFactor = new WeightingFactor<>(variableNode);
+        }
 
-        for (EntityID blockade : problem.getBlockades()) {
-            NodeID blockadeID = new NodeID(null, blockade);
-            // Link the agent to each fire
-            agentFactor.addNeighbor(blockadeID);
+        // Link the agent to each blockade
+        List<EntityID> blockades = problem.getBlockades();
+        List<NodeID> neighbors = new ArrayList<>(blockades.size());
+        for (EntityID blockade : blockades) {
+            neighbors.add(new NodeID(null, blockade));
+        }
+        FactorGraphs.setNeighbors(agentFactor, neighbors);
 
-            // ... and populate the utilities
+        // ... and populate the utilities
+        for (int i = 0; i < blockades.size(); i++) {
+            final EntityID blockade = blockades.get(i);
             double value = problem.getPoliceUtility(id, blockade);
             if (problem.isPoliceAgentBlocked(id, blockade)) {
                 value -= BLOCKED_PENALTY;
             }
-            agentFactor.setPotential(blockadeID, value);
+            FactorGraphs.setPotential(agentFactor, neighbors.get(i), value);
 
             Logger.trace("Utility for {}: {}", new Object[]{blockade, value});
         }
 
-        addFactor(new NodeID(id, null), agentFactor);
+        addFactor(agentID, agentFactor);
     }
 
     /**
@@ -166,34 +212,47 @@ public class BMSPoliceAgent implements DCOPAgent {
      * Agent 0 (agents.get(0)) gets Blockades 0, 2, 4
      * Agent 1 (agents.get(1)) gets Blockades 1, 3
      *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      **/
-    private void addBlockadeFactors() {
+    private void addBlockadeFactors(Map<NodeID, Factor<NodeID>> previousFactors) {
         ArrayList<EntityID> agents = problem.getPoliceAgents();
         ArrayList<EntityID> blockades  = problem.getBlockades();
         final int nAgents = agents.size();
         final int nBlockades = blockades.size();
         final int nAgent = agents.indexOf(id);
 
+        // All blockades are linked with all agents
+        List<NodeID> neighbors = new ArrayList<>(nAgents);
+        for (EntityID agent : agents) {
+            neighbors.add(new NodeID(agent, null));
+        }
+
         // Iterate over the blockades whose factors must run within this agent
         for (int i = nAgent; i < nBlockades; i += nAgents) {
             final EntityID blockade = blockades.get(i);
-
-            // Build the factor node
-            BMSCardinalityFactor<NodeID> f = new BMSCardinalityFactor<>();
-            f.setFunction(new CardinalityFactor.CardinalityFunction() {
-                @Override
-                public double getCost(int i) {
-                    return (i>0) ? POLICE_ETA : 0;
-                }
-            });
+            final NodeID blockadeID = new NodeID(null, blockade);
+
+            // Build the factor node, unless this agent already had it
+            BMSCardinalityFactor<NodeID> f;
+            Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, blockadeID);
+            if (old instanceof BMSCardinalityFactor) {
+                f = (BMSCardinalityFactor<NodeID>)old;
+            } else {
+                f = new BMSCardinalityFactor<>();
+                f.setFunction(new CardinalityFactor.CardinalityFunction() {
+                    @Override
+                    public double getCost(int i) {
+                        return (i>0) ? POLICE_ETA : 0;
+                    }
+                });
+            }
 
             // Link the blockade with all agents
-            for (EntityID agent : agents) {
-                f.addNeighbor(new NodeID(agent, null));
-            }
+            FactorGraphs.setNeighbors(f, neighbors);
 
             // Finally add the factor to this agent
-            addFactor(new NodeID(null, blockade), f);
+            addFactor(blockadeID, f);
         }
     }
 
@@ -231,13 +290,22 @@ public class BMSPoliceAgent implements DCOPAgent {
      * the agent.
      */
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         Logger.trace("improveAssignment start...");
         constraintChecks = 0;
 
-        // Let all factors run
-        for (NodeID eid : factors.keySet()) {
-            constraintChecks += factors.get(eid).run();
+        // Let all factors run (or only those whose inputs changed). Past the
+        // deadline only the factor of this agent runs, so that it can choose.
+        final NodeID agentID = new NodeID(id, null);
+        if (scheduler != null) {
+            constraintChecks += scheduler.run(deadline, agentID);
+        } else {
+            for (NodeID eid : factors.keySet()) {
+                if (deadline.isExpired() && !eid.equals(agentID)) {
+                    continue;
+                }
+                constraintChecks += factors.get(eid).run();
+            }
         }
 
         // Now extract our choice
@@ -251,7 +319,8 @@ public class BMSPoliceAgent implements DCOPAgent {
         }
         Logger.trace("improveAssignment end.");
 
-        return !communicationAdapter.isConverged();
+        return !communicationAdapter.isConverged()
+                || (scheduler != null && scheduler.hasPending());
     }
 
     @Override
@@ -309,6 +378,11 @@ public class BMSPoliceAgent implements DCOPAgent {
         }
 
         BinaryMaxSumMessage message = (BinaryMaxSumMessage)amessage;
+        if (scheduler != null) {
+            scheduler.receive(message.message, message.getSenderFactor(),
+                    message.getRecipientFactor());
+            return;
+        }
         Factor<NodeID> recipient = factors.get(message.getRecipientFactor());
         recipient.receive(message.message, message.getSenderFactor());
     }
@@ -46,6 +46,7 @@ import java.util.ArrayList;
 import rescuecore2.worldmodel.EntityID;
 
 import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.Message;
 import RSLBench.Comm.CommunicationLayer;
 import RSLBench.Constants;
@@ -58,6 +59,7 @@ import es.csic.iiia.bms.factors.CardinalityFactor.CardinalityFunction;
 import es.csic.iiia.bms.factors.WeightingFactor;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.config.Config;
@@ -75,10 +77,10 @@ public class BMSTeamFireAgent implements DCOPAgent {
     private EntityID id;
     private ProblemDefinition problem;
     private BMSSelectorFactor<NodeID> variableNode;
-    private ArrayList<BMSVariableFactor<NodeID>> variableFactors;
     private HashMap<NodeID, Factor<NodeID>> factors;
     private HashMap<NodeID, EntityID> factorLocations;
     private RSLBenchCommunicationAdapter communicationAdapter;
+    private ResidualScheduler scheduler;
     private EntityID targetId;
     private long constraintChecks;
 
@@ -92,6 +94,11 @@ public class BMSTeamFireAgent implements DCOPAgent {
     public void initialize(Config config, EntityID agentID, ProblemDefinition problem) {
         Logger.trace("Initializing inter-team agent {}", agentID);
 
+        // Graph of the previous timestep, if this agent is being reused
+        final ProblemDefinition previous = this.problem;
+        final HashMap<NodeID, Factor<NodeID>> previousFactors = factors;
+        final boolean sameEntities = FactorGraphs.haveSameEntities(previous, problem);
+
         this.id = agentID;
         this.targetId = null;
         this.problem = problem;
@@ -99,20 +106,38 @@ public class BMSTeamFireAgent implements DCOPAgent {
 
         // Reset internal structures
         factors = new HashMap<>();
-        factorLocations = new HashMap<>();
-        communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        if (!sameEntities) {
+            factorLocations = new HashMap<>();
+        }
+        if (communicationAdapter == null) {
+            communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        }
 
         // ... And the variable nodes
-        addFirefighterToFireNodes();
+        addFirefighterToFireNodes(previousFactors);
 
         // Build the selector node
-        addFirefighterFactor();
+        addFirefighterFactor(previousFactors);
 
         // And the fire utility nodes that correspond to this agent
-        addFireNodes();
+        addFireNodes(previousFactors);
 
         // Finally, compute the location of each factor in the simulation
-        computeFactorLocations();
+        // (unless they are where they were in the previous timestep)
+        if (!sameEntities) {
+            computeFactorLocations();
+        }
+
+        communicationAdapter.restart(factors);
+        if (config.getBooleanValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL, false)) {
+            if (scheduler == null) {
+                scheduler = new ResidualScheduler(communicationAdapter,
+                        config.getIntValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL_BUDGET, 0));
+            }
+            scheduler.reset(factors);
+        } else {
+            scheduler = null;
+        }
 
         Logger.trace("Agent {} initialized.", agentID);
     }
@@ -122,41 +147,76 @@ public class BMSTeamFireAgent implements DCOPAgent {
      */
     private void addFactor(NodeID id, Factor<NodeID> factor) {
         factors.put(id, factor);
+        if (id.equals(factor.getIdentity())) {
+            // Reused from the previous timestep, so it is already set up
+            return;
+        }
         factor.setMaxOperator(MAX_OPERATOR);
         factor.setIdentity(id);
-        factor.setCommunicationAdapter(communicationAdapter);
     }
 
     /**
      * Add the variable nodes for each agent to fire assignment.
+     *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      */
-    private void addFirefighterToFireNodes() {
-        variableFactors = new ArrayList<>();
+    private void addFirefighterToFireNodes(Map<NodeID, Factor<NodeID>> previousFactors) {
         for (EntityID fire : problem.getFireAgentNeighbors(id)) {
-            BMSVariableFactor<NodeID> variable = new BMSVariableFactor<>();
-            variable.addNeighbor(new NodeID(id, null));
-            variable.addNeighbor(new NodeID(null, fire));
-            addFactor(new NodeID(id, fire), variable);
-            variableFactors.add(variable);
+            final NodeID variableID = new NodeID(id, fire);
+            BMSVariableFactor<NodeID> variable;
+            Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, variableID);
+            if (old instanceof BMSVariableFactor) {
+                variable = (BMSVariableFactor<NodeID>)old;
+            } else {
+                variable = new BMSVariableFactor<>();
+            }
+
+            List<NodeID> neighbors = new ArrayList<>(3);
+            neighbors.add(new NodeID(id, null));
+            neighbors.add(new NodeID(null, fire));
+            if (problem.isFireAgentBlocked(id, fire)) {
+                // Connect with the penalty removal factor of the blockade
+                EntityID blockade = problem.getBlockadeBlockingFireAgent(id, fire);
+                neighbors.add(new NodeID(id, fire, blockade));
+            }
+            FactorGraphs.setNeighbors(variable, neighbors);
+
+            addFactor(variableID, variable);
         }
     }
 
     /**
      * Creates a selector node for the agent's "variable".
+     *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      */
-    private void addFirefighterFactor() {
+    private void addFirefighterFactor(Map<NodeID, Factor<NodeID>> previousFactors) {
+        final NodeID agentID = new NodeID(id, null);
         List<EntityID> fires = problem.getFireAgentNeighbors(id);
-        this.variableNode = new BMSSelectorFactor<>();
 
         // The agent's factor is the selector plus the independent utilities
         // of this agent for each fire.
-        WeightingFactor<NodeID> agentFactor = new WeightingFactor<>(variableNode);
+        WeightingFactor<NodeID> agentFactor;
+        Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, agentID);
+        if (old instanceof WeightingFactor) {
+            agentFactor = (WeightingFactor<NodeID>)old;
+            variableNode = (BMSSelectorFactor<NodeID>)agentFactor.getInnerFactor();
+        } else {
+            variableNode = new BMSSelectorFactor<>();
+            agentFactor = new WeightingFactor<>(variableNode);
+        }
+
+        // Link the agent to each fire
+        List<NodeID> neighbors = new ArrayList<>(fires.size());
+        for (EntityID fire : fires) {
+            neighbors.add(new NodeID(id, fire));
+        }
+        FactorGraphs.setNeighbors(agentFactor, neighbors);
 
         for (int fireIndex=0; fireIndex<fires.size(); fireIndex++) {
             final EntityID fire = fires.get(fireIndex);
-            NodeID agentToFireID = new NodeID(id, fire);
-            // Link the agent to each fire
-            agentFactor.addNeighbor(agentToFireID);
 
             // ... and populate the utilities
             double value = problem.getFireUtility(id, fire);
@@ -165,38 +225,47 @@ public class BMSTeamFireAgent implements DCOPAgent {
 
                 // Connect with the blockade attended flag
                 addPenaltyRemovalFactor(problem.getBlockadeBlockingFireAgent(id, fire), fire,
-                        fireIndex);
+                        previousFactors);
             }
 
-            agentFactor.setPotential(agentToFireID, value);
+            FactorGraphs.setPotential(agentFactor, neighbors.get(fireIndex), value);
             Logger.trace("Utility for {}: {}", new Object[]{fire, value});
         }
 
-        addFactor(new NodeID(id, null), agentFactor);
+        addFactor(agentID, agentFactor);
     }
 
     /**
      * Add a penalty removal factor
      *
      * @param blockade blockade that penalizes unless being attended
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      */
-    private void addPenaltyRemovalFactor(EntityID blockade, EntityID fire, int fireIndex) {
+    private void addPenaltyRemovalFactor(EntityID blockade, EntityID fire,
+            Map<NodeID, Factor<NodeID>> previousFactors) {
         Logger.debug("Adding penalty removal for firefighter {}, blockade {}, fire {}",
                 id, blockade, fire);
 
-        // Build the factor
-        BMSStandardFactor<NodeID> penaltyRemoval = new BMSStandardFactor<>();
-        penaltyRemoval.addNeighbor(new NodeID(id, fire));
-        penaltyRemoval.addNeighbor(new NodeID(null, blockade));
-        penaltyRemoval.setPotential(new double[]{0, 0, 0, BLOCKED_PENALTY});
+        // Build the factor, unless it already existed (its neighbors are
+        // given by its id)
+        NodeID nodeID = new NodeID(id, fire, blockade);
+        BMSStandardFactor<NodeID> penaltyRemoval;
+        Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, nodeID);
+        if (old instanceof BMSStandardFactor) {
+            penaltyRemoval = (BMSStandardFactor<NodeID>)old;
+        } else {
+            penaltyRemoval = new BMSStandardFactor<>();
+            penaltyRemoval.addNeighbor(new NodeID(id, fire));
+            penaltyRemoval.addNeighbor(new NodeID(null, blockade));
+        }
+        if (penaltyRemoval != old || penaltyRemoval.getPotential()[3] != BLOCKED_PENALTY) {
+            penaltyRemoval.setPotential(new double[]{0, 0, 0, BLOCKED_PENALTY});
+        }
 
         // Track the location of this factor
-        NodeID nodeID = new NodeID(id, fire, blockade);
         addFactor(nodeID, penaltyRemoval);
         factorLocations.put(nodeID, id);
-
-        // Now we need to add it as neighbor of the variable factor node
-        variableFactors.get(fireIndex).addNeighbor(nodeID);
     }
 
     /**
@@ -211,8 +280,10 @@ public class BMSTeamFireAgent implements DCOPAgent {
      * Agent 0 (agents.get(0)) gets Fires 0, 2, 4
      * Agent 1 (agents.get(1)) gets Fires 1, 3
      *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      **/
-    private void addFireNodes() {
+    private void addFireNodes(Map<NodeID, Factor<NodeID>> previousFactors) {
         ArrayList<EntityID> fires  = problem.getFires();
         final int nAgents = problem.getNumFireAgents();
         final int nFires  = fires.size();
@@ -224,23 +295,33 @@ public class BMSTeamFireAgent implements DCOPAgent {
             final EntityID fire = fires.get(i);
             final NodeID fireID = new NodeID(null, fire);
 
-            // Build the utility node
-            BMSCardinalityFactor<NodeID> f = new BMSCardinalityFactor<>();
-
-            // Set the maximum number of agents that should be attending this
-            // fire
-            CardinalityFunction wf = new CardinalityFunction() {
-                @Override
-                public double getCost(int nActiveVariables) {
-                    return - problem.getUtilityPenalty(fire, nActiveVariables);
-                }
-            };
-            f.setFunction(wf);
+            // Build the utility node, unless this agent already had it (its
+            // function always evaluates the current problem)
+            BMSCardinalityFactor<NodeID> f;
+            Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, fireID);
+            if (old instanceof BMSCardinalityFactor) {
+                f = (BMSCardinalityFactor<NodeID>)old;
+            } else {
+                f = new BMSCardinalityFactor<>();
+
+                // Set the maximum number of agents that should be attending this
+                // fire
+                CardinalityFunction wf = new CardinalityFunction() {
+                    @Override
+                    public double getCost(int nActiveVariables) {
+                        return - problem.getUtilityPenalty(fire, nActiveVariables);
+                    }
+                };
+                f.setFunction(wf);
+            }
 
             // Link the fire with all agents' variables
-            for (EntityID agent : problem.getFireNeighbors(fire)) {
-                f.addNeighbor(new NodeID(agent, fire));
+            List<EntityID> agents = problem.getFireNeighbors(fire);
+            List<NodeID> neighbors = new ArrayList<>(agents.size());
+            for (EntityID agent : agents) {
+                neighbors.add(new NodeID(agent, fire));
             }
+            FactorGraphs.setNeighbors(f, neighbors);
 
             // Finally add the factor to this agent
             addFactor(fireID, f);
@@ -297,13 +378,22 @@ public class BMSTeamFireAgent implements DCOPAgent {
      * the agent.
      */
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         Logger.trace("improveAssignment start...");
         constraintChecks = 0;
 
-        // Let all factors run
-        for (NodeID eid : factors.keySet()) {
-            constraintChecks += factors.get(eid).run();
+        // Let all factors run (or only those whose inputs changed). Past the
+        // deadline only the factor of this agent runs, so that it can choose.
+        final NodeID agentID = new NodeID(id, null);
+        if (scheduler != null) {
+            constraintChecks += scheduler.run(deadline, agentID);
+        } else {
+            for (NodeID eid : factors.keySet()) {
+                if (deadline.isExpired() && !eid.equals(agentID)) {
+                    continue;
+                }
+                constraintChecks += factors.get(eid).run();
+            }
         }
 
         // Now extract our choice
@@ -316,7 +406,8 @@ public class BMSTeamFireAgent implements DCOPAgent {
         }
         Logger.trace("improveAssignment end.");
 
-        return !communicationAdapter.isConverged();
+        return !communicationAdapter.isConverged()
+                || (scheduler != null && scheduler.hasPending());
     }
 
     @Override
@@ -374,6 +465,11 @@ public class BMSTeamFireAgent implements DCOPAgent {
         }
 
         BinaryMaxSumMessage message = (BinaryMaxSumMessage)amessage;
+        if (scheduler != null) {
+            scheduler.receive(message.message, message.getSenderFactor(),
+                    message.getRecipientFactor());
+            return;
+        }
         Factor<NodeID> recipient = factors.get(message.getRecipientFactor());
         recipient.receive(message.message, message.getSenderFactor());
     }
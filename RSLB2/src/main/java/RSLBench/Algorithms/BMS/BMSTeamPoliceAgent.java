@@ -41,6 +41,8 @@ import RSLBench.Algorithms.BMS.factor.BMSVariableFactor;
 import java.util.Collection;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import es.csic.iiia.bms.factors.AtMostOneFactor;
 import es.csic.iiia.bms.Factor;
@@ -55,6 +57,7 @@ import rescuecore2.config.Config;
 
 import RSLBench.Assignment.Assignment;
 import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.Message;
 import RSLBench.Comm.CommunicationLayer;
 import RSLBench.Constants;
@@ -80,6 +83,7 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
     private HashMap<NodeID, Factor<NodeID>> factors;
     private HashMap<NodeID, EntityID> factorLocations;
     private RSLBenchCommunicationAdapter communicationAdapter;
+    private ResidualScheduler scheduler;
     private EntityID targetId;
     private long constraintChecks;
 
@@ -96,23 +100,46 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
         BLOCKED_PENALTY = problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY);
         POLICE_ETA = problem.getConfig().getFloatValue(Constants.KEY_POLICE_ETA);
 
+        // Graph of the previous timestep, if this agent is being reused
+        final ProblemDefinition previous = this.problem;
+        final HashMap<NodeID, Factor<NodeID>> previousFactors = factors;
+        final boolean sameEntities = FactorGraphs.haveSameEntities(previous, problem);
+
         this.id = agentID;
         this.targetId = null;
         this.problem = problem;
 
         // Reset internal structures
         factors = new HashMap<>();
-        factorLocations = new HashMap<>();
-        communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        if (!sameEntities) {
+            factorLocations = new HashMap<>();
+        }
+        if (communicationAdapter == null) {
+            communicationAdapter = new RSLBenchCommunicationAdapter(config);
+        }
 
         // Build the variable node
-        addPoliceFactor();
+        addPoliceFactor(previousFactors);
 
         // And the blockade factor nodes that correspond to this agent
-        addBlockadeFactors();
+        addBlockadeFactors(previousFactors);
 
         // Finally, compute the location of each factor in the simulation
-        computeFactorLocations();
+        // (unless they are where they were in the previous timestep)
+        if (!sameEntities) {
+            computeFactorLocations();
+        }
+
+        communicationAdapter.restart(factors);
+        if (config.getBooleanValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL, false)) {
+            if (scheduler == null) {
+                scheduler = new ResidualScheduler(communicationAdapter,
+                        config.getIntValue(BinaryMaxSum.KEY_MAXSUM_RESIDUAL_BUDGET, 0));
+            }
+            scheduler.reset(factors);
+        } else {
+            scheduler = null;
+        }
 
         Logger.trace("Agent {} initialized.", agentID);
     }
@@ -122,36 +149,56 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
      */
     private void addFactor(NodeID id, Factor<NodeID> factor) {
         factors.put(id, factor);
+        if (id.equals(factor.getIdentity())) {
+            // Reused from the previous timestep, so it is already set up
+            return;
+        }
         factor.setMaxOperator(MAX_OPERATOR);
         factor.setIdentity(id);
-        factor.setCommunicationAdapter(communicationAdapter);
     }
 
     /**
      * Creates a selector node for the agent's "variable".
+     *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      */
-    private void addPoliceFactor() {
-        this.variableNode = new AtMostOneFactor<>();
+    private void addPoliceFactor(Map<NodeID, Factor<NodeID>> previousFactors) {
+        final NodeID agentID = new NodeID(id, null);
 
         // The agent's factor is the selector plus the independent utilities
         // of this agent for each blockade.
-        WeightingFactor<NodeID> agentFactor = new WeightingFactor<>(variableNode);
-        for (EntityID blockade : problem.getBlockades()) {
-            NodeID blockadeID = new NodeID(blockade, null);
-            // Link the agent to each fire
-            agentFactor.addNeighbor(blockadeID);
+        WeightingFactor<NodeID> agentFactor;
+        Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, agentID);
+        if (old instanceof WeightingFactor) {
+            agentFactor = (WeightingFactor<NodeID>)old;
+            variableNode = (AtMostOneFactor<NodeID>)agentFactor.getInnerFactor();
+        } else {
+            variableNode = new AtMostOneFactor<>();
+            agentFactor = new WeightingFactor<>(variableNode);
+        }
+
+        // Link the agent to each blockade
+        List<EntityID> blockades = problem.getBlockades();
+        List<NodeID> neighbors = new ArrayList<>(blockades.size());
+        for (EntityID blockade : blockades) {
+            neighbors.add(new NodeID(blockade, null));
+        }
+        FactorGraphs.setNeighbors(agentFactor, neighbors);
 
-            // ... and populate the utilities
+        // ... and populate the utilities
+        for (int i = 0; i < blockades.size(); i++) {
+            final EntityID blockade = blockades.get(i);
             double value = problem.getPoliceUtility(id, blockade);
             if (problem.isPoliceAgentBlocked(id, blockade)) {
                 value -= BLOCKED_PENALTY;
             }
-            agentFactor.setPotential(blockadeID, value);
+            FactorGraphs.setPotential(agentFactor, neighbors.get(i), value);
 
             Logger.trace("Utility for {}: {}", new Object[]{blockade, value});
         }
 
-        addFactor(new NodeID(id, null), agentFactor);
+        addFactor(agentID, agentFactor);
     }
 
     /**
@@ -166,8 +213,10 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
      * Agent 0 (agents.get(0)) gets Blockades 0, 2, 4
      * Agent 1 (agents.get(1)) gets Blockades 1, 3
      *
+     * @param previousFactors factors of the previous timestep, reused when
+     * possible (may be <em>null</em>).
      **/
-    private void addBlockadeFactors() {
+    private void addBlockadeFactors(Map<NodeID, Factor<NodeID>> previousFactors) {
         ArrayList<EntityID> policeAgents = problem.getPoliceAgents();
         ArrayList<EntityID> blockades  = problem.getBlockades();
         final int nAgents = policeAgents.size();
@@ -177,34 +226,51 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
         // Iterate over the blockades whose factors must run within this agent
         for (int i = nAgent; i < nBlockades; i += nAgents) {
             final EntityID blockade = blockades.get(i);
+            final NodeID blockadeID = new NodeID(blockade, null);
+            final NodeID cVariableID = new NodeID(null, blockade);
+
+            // Build the factor node, unless this agent already had it
+            WeightingFactor<NodeID> f;
+            Factor<NodeID> old = FactorGraphs.reuse(previousFactors, communicationAdapter, blockadeID);
+            if (old instanceof WeightingFactor) {
+                f = (WeightingFactor<NodeID>)old;
+            } else {
+                BMSConditionedAtLeastOneFactor<NodeID> condition = new BMSConditionedAtLeastOneFactor<>();
+                f = new WeightingFactor<>(condition);
+                condition.setConditionNeighbor(cVariableID);
+            }
 
-            // Build the factor node
-            BMSConditionedAtLeastOneFactor<NodeID> condition = new BMSConditionedAtLeastOneFactor<>();
-            WeightingFactor<NodeID> f = new WeightingFactor<>(condition);
-            NodeID cVariableID = new NodeID(null, blockade);
-            f.addNeighbor(cVariableID);
-            condition.setConditionNeighbor(cVariableID);
-            f.setPotential(cVariableID, POLICE_ETA);
-
-            // Link the blockade with all police agents
+            // Link the blockade with its coordination variable and all police agents
+            List<NodeID> neighbors = new ArrayList<>(nAgents + 1);
+            neighbors.add(cVariableID);
             for (EntityID policeAgent : policeAgents) {
-                f.addNeighbor(new NodeID(policeAgent, null));
+                neighbors.add(new NodeID(policeAgent, null));
             }
+            FactorGraphs.setNeighbors(f, neighbors);
+            FactorGraphs.setPotential(f, cVariableID, POLICE_ETA);
 
             // Add the factor to this agent
-            addFactor(new NodeID(blockade, null), f);
+            addFactor(blockadeID, f);
 
             // ... And now create the coordination variable for this blockade
-            BMSVariableFactor<NodeID> cVariable = new BMSVariableFactor<>();
-            cVariable.addNeighbor(new NodeID(blockade, null));
+            BMSVariableFactor<NodeID> cVariable;
+            old = FactorGraphs.reuse(previousFactors, communicationAdapter, cVariableID);
+            if (old instanceof BMSVariableFactor) {
+                cVariable = (BMSVariableFactor<NodeID>)old;
+            } else {
+                cVariable = new BMSVariableFactor<>();
+            }
+            neighbors = new ArrayList<>();
+            neighbors.add(blockadeID);
             // Link with the firefighters nodes
             for (Pair<EntityID, EntityID> entry : problem.getFireAgentsBlockedByBlockade(blockade)) {
                 EntityID fireAgent = entry.first();
                 EntityID fire = entry.second();
                 NodeID incentiveID = new NodeID(fireAgent, fire, blockade);
-                cVariable.addNeighbor(incentiveID);
+                neighbors.add(incentiveID);
                 factorLocations.put(incentiveID, fireAgent);
             }
+            FactorGraphs.setNeighbors(cVariable, neighbors);
             addFactor(cVariableID, cVariable);
         }
     }
@@ -244,13 +310,22 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
      * the agent.
      */
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         Logger.trace("improveAssignment start...");
         constraintChecks = 0;
 
-        // Let all factors run
-        for (NodeID eid : factors.keySet()) {
-            constraintChecks += factors.get(eid).run();
+        // Let all factors run (or only those whose inputs changed). Past the
+        // deadline only the factor of this agent runs, so that it can choose.
+        final NodeID agentID = new NodeID(id, null);
+        if (scheduler != null) {
+            constraintChecks += scheduler.run(deadline, agentID);
+        } else {
+            for (NodeID eid : factors.keySet()) {
+                if (deadline.isExpired() && !eid.equals(agentID)) {
+                    continue;
+                }
+                constraintChecks += factors.get(eid).run();
+            }
         }
 
         // Now extract our choice
@@ -264,7 +339,8 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
         }
         Logger.trace("improveAssignment end.");
 
-        return !communicationAdapter.isConverged();
+        return !communicationAdapter.isConverged()
+                || (scheduler != null && scheduler.hasPending());
     }
 
     @Override
@@ -322,6 +398,11 @@ public class BMSTeamPoliceAgent implements DCOPAgent {
         }
 
         BinaryMaxSumMessage message = (BinaryMaxSumMessage)amessage;
+        if (scheduler != null) {
+            scheduler.receive(message.message, message.getSenderFactor(),
+                    message.getRecipientFactor());
+            return;
+        }
         Factor<NodeID> recipient = factors.get(message.getRecipientFactor());
         recipient.receive(message.message, message.getSenderFactor());
     }
@@ -27,6 +27,24 @@ public class BinaryMaxSum extends DCOPSolver {
      */
     public static final String KEY_MAXSUM_DAMPING = "maxsum.damping";
 
+    /**
+     * Whether to keep the agents' factor graphs between timesteps, starting
+     * each timestep from the messages of the previous one.
+     */
+    public static final String KEY_MAXSUM_PERSISTENT = "maxsum.persistent";
+
+    /**
+     * Whether to run only the factors whose incoming messages changed, by
+     * decreasing residual, instead of running all factors in every iteration.
+     */
+    public static final String KEY_MAXSUM_RESIDUAL = "maxsum.residual";
+
+    /**
+     * Maximum time (in milliseconds) that each agent spends running factors
+     * in each iteration of the residual mode (<em>0</em> for no limit).
+     */
+    public static final String KEY_MAXSUM_RESIDUAL_BUDGET = "maxsum.residual.budget";
+
     @Override
     protected DCOPAgent buildAgent(StandardEntityURN type) {
         final boolean team = config.getBooleanValue(Constants.KEY_INTERTEAM_COORDINATION);
@@ -46,10 +64,18 @@ public class BinaryMaxSum extends DCOPSolver {
         return "BinaryMaxSum";
     }
 
+    @Override
+    protected boolean isPersistent() {
+        return config.getBooleanValue(KEY_MAXSUM_PERSISTENT, false);
+    }
+
     @Override
     public List<String> getUsedConfigurationKeys() {
         List<String> result = super.getUsedConfigurationKeys();
         result.add(KEY_MAXSUM_DAMPING);
+        result.add(KEY_MAXSUM_PERSISTENT);
+        result.add(KEY_MAXSUM_RESIDUAL);
+        result.add(KEY_MAXSUM_RESIDUAL_BUDGET);
         return result;
     }
 
@@ -0,0 +1,108 @@
+package RSLBench.Algorithms.BMS;
+
+import RSLBench.Helpers.Utility.ProblemDefinition;
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.factors.WeightingFactor;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers to reuse the factor graph of a binary max-sum agent across
+ * timesteps.
+ *
+ * @see BinaryMaxSum#KEY_MAXSUM_PERSISTENT
+ */
+final class FactorGraphs {
+
+    private FactorGraphs() {}
+
+    /**
+     * Check if two problems have the same agents and targets, in the same
+     * order, so that all factors are placed on the same agents in both.
+     *
+     * @param previous problem of the previous timestep (may be <em>null</em>).
+     * @param problem problem of the current timestep.
+     * @return <em>true</em> if both problems have the same entities.
+     */
+    static boolean haveSameEntities(ProblemDefinition previous, ProblemDefinition problem) {
+        return previous != null
+                && previous.getFireAgents().equals(problem.getFireAgents())
+                && previous.getFires().equals(problem.getFires())
+                && previous.getPoliceAgents().equals(problem.getPoliceAgents())
+                && previous.getBlockades().equals(problem.getBlockades());
+    }
+
+    /**
+     * Get the factor of the previous timestep with the given id, so that it
+     * can be used again (keeping the messages it received) instead of
+     * building a new one.
+     * <p/>
+     * Factors that reduced themselves during the previous run (dropping the
+     * neighbors fixed by an infinite message) can not be reused, because
+     * they no longer represent the original function.
+     *
+     * @param previous factors of the previous timestep, by id (may be
+     * <em>null</em>).
+     * @param adapter communication adapter used by the previous factors.
+     * @param id id of the factor.
+     * @return the factor of the previous timestep, or <em>null</em> if a new
+     * one must be built.
+     */
+    static Factor<NodeID> reuse(Map<NodeID, Factor<NodeID>> previous,
+            RSLBenchCommunicationAdapter adapter, NodeID id) {
+        if (previous == null || adapter.isReduced(id)) {
+            return null;
+        }
+        return previous.get(id);
+    }
+
+    /**
+     * Set the neighbors of a factor, keeping the messages that it received
+     * from the neighbors that it already had.
+     * <p/>
+     * Neighbors are only added and removed when they differ from the current
+     * ones, so a factor whose neighborhood has not changed is left untouched.
+     *
+     * @param factor factor to update.
+     * @param neighbors neighbors that the factor must have.
+     * @return <em>true</em> if the neighbors of the factor changed.
+     */
+    static boolean setNeighbors(Factor<NodeID> factor, List<NodeID> neighbors) {
+        final List<NodeID> current = factor.getNeighbors();
+        if (current.equals(neighbors)) {
+            return false;
+        }
+
+        final Set<NodeID> wanted = new HashSet<>(neighbors);
+        for (NodeID neighbor : new ArrayList<>(current)) {
+            if (!wanted.contains(neighbor)) {
+                factor.removeNeighbor(neighbor);
+            }
+        }
+        final Set<NodeID> existing = new HashSet<>(current);
+        for (NodeID neighbor : neighbors) {
+            if (!existing.contains(neighbor)) {
+                factor.addNeighbor(neighbor);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the potential of a neighbor of a weighting factor, unless it
+     * already has that value.
+     *
+     * @param factor factor to update.
+     * @param neighbor neighbor of the factor.
+     * @param value potential of the neighbor.
+     */
+    static void setPotential(WeightingFactor<NodeID> factor, NodeID neighbor, double value) {
+        if (factor.getPotential(neighbor) != value) {
+            factor.setPotential(neighbor, value);
+        }
+    }
+
+}
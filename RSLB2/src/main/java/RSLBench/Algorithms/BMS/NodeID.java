@@ -50,29 +50,35 @@ public final class NodeID {
     public final EntityID target;
     public final EntityID blockedBy;
 
+    /** Ids are looked up for every message, so their hash is computed once */
+    private final int hash;
+
     public NodeID(EntityID agent, EntityID target) {
-        this.agent = agent;
-        this.target = target;
-        this.blockedBy = null;
+        this(agent, target, null);
     }
 
     public NodeID(EntityID agent, EntityID target, EntityID blockedBy) {
         this.agent = agent;
         this.target = target;
         this.blockedBy = blockedBy;
+
+        int h = 7;
+        h = 59 * h + Objects.hashCode(this.agent);
+        h = 59 * h + Objects.hashCode(this.target);
+        h = 59 * h + Objects.hashCode(this.blockedBy);
+        this.hash = h;
     }
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 59 * hash + Objects.hashCode(this.agent);
-        hash = 59 * hash + Objects.hashCode(this.target);
-        hash = 59 * hash + Objects.hashCode(this.blockedBy);
         return hash;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
@@ -80,6 +86,9 @@ public final class NodeID {
             return false;
         }
         final NodeID other = (NodeID) obj;
+        if (hash != other.hash) {
+            return false;
+        }
         if (!Objects.equals(this.agent, other.agent)) {
             return false;
         }
@@ -6,20 +6,33 @@ package RSLBench.Algorithms.BMS;
 
 import RSLBench.Constants;
 import es.csic.iiia.bms.CommunicationAdapter;
+import es.csic.iiia.bms.Factor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.config.Config;
-import rescuecore2.misc.Pair;
 
 /**
+ * Communication adapter that collects the messages sent by the factors of an
+ * agent, damping them and checking whether they have converged.
+ * <p/>
+ * Each directed edge between factors gets an integer id when the graph is
+ * built (see {@link #restart(Map)}), and every factor is given its own
+ * adapter that holds the ids of its outgoing edges. The last message sent
+ * through each edge is kept in an array indexed by that id, so damping a
+ * message and checking it for convergence only takes a lookup in the edges
+ * of its sender and does not allocate anything.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public class RSLBenchCommunicationAdapter implements CommunicationAdapter<NodeID> {
+public class RSLBenchCommunicationAdapter {
     private static final Logger Logger = LogManager.getLogger(RSLBenchCommunicationAdapter.class);
 
     /** Threshold below which messages are considered equal. */
@@ -29,47 +42,167 @@ public class RSLBenchCommunicationAdapter implements CommunicationAdapter<NodeID
     private final double DAMPING_FACTOR;
 
     private ArrayList<BinaryMaxSumMessage> outgoingMessages;
-    private Map<Pair<NodeID,NodeID>, Double> oldMessages;
+    private ArrayList<BinaryMaxSumMessage> flushedMessages;
     private boolean converged;
 
+    /** Adapter given to each factor, by factor id */
+    private Map<NodeID, FactorAdapter> adapters;
+
+    /** Last message sent through each edge */
+    private double[] oldMessages;
+
+    /** Edges through which a message has been sent */
+    private BitSet sent;
+
+    /** Number of edges with an id */
+    private int nEdges;
+
+    /** Factors that have sent infinite messages since the last restart */
+    private final Set<NodeID> reduced = new HashSet<>();
+
+    /** Largest amount by which damping held back a message since the last reset */
+    private double dampingGap;
+
     public RSLBenchCommunicationAdapter(Config config) {
         DAMPING_FACTOR = config.getFloatValue(BinaryMaxSum.KEY_MAXSUM_DAMPING);
         outgoingMessages = new ArrayList<>();
-        oldMessages = new HashMap<>();
+        flushedMessages = new ArrayList<>();
+        adapters = new HashMap<>();
+        oldMessages = new double[0];
+        sent = new BitSet();
         converged = true;
     }
 
+    /**
+     * Get the messages sent since the last flush.
+     *
+     * The returned collection is reused, so it is only valid until the next
+     * call to this method.
+     *
+     * @return messages sent since the last flush.
+     */
     public Collection<BinaryMaxSumMessage> flushMessages() {
-        Collection<BinaryMaxSumMessage> result = outgoingMessages;
-        outgoingMessages = new ArrayList<>();
+        flushedMessages.clear();
+        ArrayList<BinaryMaxSumMessage> result = outgoingMessages;
+        outgoingMessages = flushedMessages;
+        flushedMessages = result;
         converged = true;
         return result;
     }
 
-    @Override
-    public void send(double message, NodeID sender, NodeID recipient) {
-        Logger.trace("Message from {} to {} : {}", new Object[]{sender, recipient, message});
+    /**
+     * Send a message through the given edge.
+     */
+    private void send(int edge, double message, NodeID sender, NodeID recipient) {
+        if (Logger.isTraceEnabled()) {
+            Logger.trace("Message from {} to {} : {}", new Object[]{sender, recipient, message});
+        }
         if (Double.isNaN(message)) {
             Logger.warn("Factor {} tried to send {} to factor {}!", new Object[]{sender, message, recipient});
             throw new RuntimeException("Invalid message sent!");
         }
 
+        if (Double.isInfinite(message)) {
+            reduced.add(sender);
+        }
+
         // The algorithm has converged unless there is at least one message
         // different from the previous iteration
-        Pair<NodeID, NodeID> sr = new Pair<>(sender, recipient);
-        Double oldMessage = oldMessages.get(sr);
+        final double oldMessage = oldMessages[edge];
+        final boolean first = !sent.get(edge);
 
-        if (oldMessage != null && !Double.isInfinite(message)) {
-            message = oldMessage * DAMPING_FACTOR + message * (1 - DAMPING_FACTOR);
+        if (!first && !Double.isInfinite(message)) {
+            final double damped = oldMessage * DAMPING_FACTOR + message * (1 - DAMPING_FACTOR);
+            if (!Double.isInfinite(damped)) {
+                dampingGap = Math.max(dampingGap, Math.abs(message - damped));
+            }
+            message = damped;
         }
-        if (oldMessage == null || isDifferent(oldMessage, message)) {
+        if (first || isDifferent(oldMessage, message)) {
             converged = false;
         }
-        oldMessages.put(sr, message);
+        oldMessages[edge] = message;
+        sent.set(edge);
 
         outgoingMessages.add(new BinaryMaxSumMessage(message, sender, recipient));
     }
 
+    /**
+     * Prepare this adapter to run the given factors in a new timestep.
+     * <p/>
+     * Messages that have not been flushed yet are discarded, every edge of
+     * the given factors is given a new id, and each factor is given an
+     * adapter that holds the ids of its edges. The last message of each edge
+     * is only kept if the edge already existed, so that messages between
+     * persistent factors are damped (and checked for convergence) against the
+     * values of the previous timestep.
+     * <p/>
+     * This must be called once all the factors of the agent have been built,
+     * and before they run.
+     *
+     * @param factors factors that use this adapter, by id.
+     */
+    public void restart(Map<NodeID, ? extends Factor<NodeID>> factors) {
+        outgoingMessages.clear();
+        reduced.clear();
+        converged = true;
+
+        final Map<NodeID, FactorAdapter> oldAdapters = adapters;
+        final double[] previous = oldMessages;
+        final BitSet previousSent = sent;
+        int size = 0;
+        for (Factor<NodeID> factor : factors.values()) {
+            size += factor.getNeighbors().size();
+        }
+
+        adapters = new HashMap<>();
+        oldMessages = new double[size];
+        sent = new BitSet(size);
+        nEdges = 0;
+        for (Map.Entry<NodeID, ? extends Factor<NodeID>> entry : factors.entrySet()) {
+            final NodeID sender = entry.getKey();
+            final Factor<NodeID> factor = entry.getValue();
+            final FactorAdapter oldAdapter = oldAdapters.get(sender);
+            final FactorAdapter adapter = new FactorAdapter(factor.getNeighbors().size());
+            for (NodeID recipient : factor.getNeighbors()) {
+                final int edge = adapter.addEdge(recipient);
+                final Integer oldEdge = oldAdapter == null ? null : oldAdapter.edges.get(recipient);
+                if (oldEdge != null && previousSent.get(oldEdge)) {
+                    oldMessages[edge] = previous[oldEdge];
+                    sent.set(edge);
+                }
+            }
+            adapters.put(sender, adapter);
+            factor.setCommunicationAdapter(adapter);
+        }
+    }
+
+    /**
+     * Give a new id to an edge.
+     */
+    private int addEdge() {
+        if (nEdges == oldMessages.length) {
+            final int size = Math.max(16, nEdges * 2);
+            oldMessages = Arrays.copyOf(oldMessages, size);
+        }
+        return nEdges++;
+    }
+
+    /**
+     * Check if the given factor has sent infinite messages since the last
+     * restart.
+     * <p/>
+     * Factors send an infinite message when a neighbor is fixed, either by
+     * them or by an infinite message they received, after which they reduce
+     * themselves to the remaining neighbors.
+     *
+     * @param factor id of the factor.
+     * @return <em>true</em> if the factor has sent infinite messages.
+     */
+    public boolean isReduced(NodeID factor) {
+        return reduced.contains(factor);
+    }
+
     /**
      * Returns true if all the messages sent in the current iteration are
      * <em>equal</em> to the messages sent in the previous one.
@@ -81,8 +214,50 @@ public class RSLBenchCommunicationAdapter implements CommunicationAdapter<NodeID
         return converged;
     }
 
+    /**
+     * Get the largest difference between a message computed by a factor and
+     * the damped message actually sent, since the last call to this method.
+     * <p/>
+     * A factor whose messages have been held back by damping must run again
+     * even if its inputs do not change, so that its messages keep approaching
+     * the computed values.
+     *
+     * @return largest amount by which a message has been damped.
+     */
+    public double resetDampingGap() {
+        final double result = dampingGap;
+        dampingGap = 0;
+        return result;
+    }
+
     private boolean isDifferent(double m1, double m2) {
         return Math.abs(m1 - m2) > EPSILON;
     }
 
+    /**
+     * Adapter of a single factor, which holds the id of the edge to each of
+     * its neighbors.
+     */
+    private final class FactorAdapter implements CommunicationAdapter<NodeID> {
+        private final Map<NodeID, Integer> edges;
+
+        private FactorAdapter(int nNeighbors) {
+            edges = new HashMap<>(nNeighbors * 2);
+        }
+
+        private int addEdge(NodeID recipient) {
+            final int edge = RSLBenchCommunicationAdapter.this.addEdge();
+            edges.put(recipient, edge);
+            return edge;
+        }
+
+        @Override
+        public void send(double message, NodeID sender, NodeID recipient) {
+            final Integer edge = edges.get(recipient);
+            // Neighbors added after the restart get an id on their first message
+            RSLBenchCommunicationAdapter.this.send(edge == null ? addEdge(recipient) : edge,
+                    message, sender, recipient);
+        }
+    }
+
 }
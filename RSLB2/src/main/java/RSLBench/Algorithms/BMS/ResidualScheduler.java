@@ -0,0 +1,158 @@
+package RSLBench.Algorithms.BMS;
+
+import RSLBench.Assignment.DCOP.Deadline;
+import es.csic.iiia.bms.Factor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the factors of a binary max-sum agent by message residual, instead of
+ * running all of them in every iteration.
+ * <p/>
+ * Incoming messages are delivered through {@link #receive(double, NodeID, NodeID)},
+ * which tracks the largest change (residual) between each message and the
+ * previous one received through the same edge. Then, {@link #run()} only runs
+ * the factors whose residual is above {@link RSLBenchCommunicationAdapter#EPSILON},
+ * from the largest residual to the smallest one, and until the time budget of
+ * the iteration is spent. Factors that do not run send no messages, so their
+ * neighbors keep the last messages they sent. Once the deadline of the solver
+ * expires, only the factor of the agent itself runs.
+ * <p/>
+ * A factor whose messages have been held back by damping also runs again, until
+ * its messages reach the values it computes.
+ *
+ * @see BinaryMaxSum#KEY_MAXSUM_RESIDUAL
+ */
+final class ResidualScheduler {
+
+    private static final Comparator<Entry> BY_RESIDUAL = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            return Double.compare(o2.residual, o1.residual);
+        }
+    };
+
+    private final RSLBenchCommunicationAdapter adapter;
+    private final long budget;
+    private final HashMap<NodeID, Entry> entries = new HashMap<>();
+    private final ArrayList<Entry> ready = new ArrayList<>();
+
+    /**
+     * Build a new scheduler.
+     *
+     * @param adapter communication adapter used by the factors.
+     * @param budget maximum time to spend running factors in each iteration,
+     * in milliseconds (<em>0</em> for no limit).
+     */
+    ResidualScheduler(RSLBenchCommunicationAdapter adapter, long budget) {
+        this.adapter = adapter;
+        this.budget = budget * 1000000L;
+    }
+
+    /**
+     * Start scheduling the given factors, so that all of them run in the next
+     * iteration.
+     *
+     * @param factors factors of the agent, by id.
+     */
+    void reset(Map<NodeID, ? extends Factor<NodeID>> factors) {
+        entries.clear();
+        for (Map.Entry<NodeID, ? extends Factor<NodeID>> e : factors.entrySet()) {
+            entries.put(e.getKey(), new Entry(e.getValue()));
+        }
+    }
+
+    /**
+     * Deliver a message to its recipient factor, updating its residual.
+     *
+     * @param message value of the message.
+     * @param sender factor that sent the message.
+     * @param recipient factor that receives the message.
+     */
+    void receive(double message, NodeID sender, NodeID recipient) {
+        final Entry entry = entries.get(recipient);
+        double[] last = entry.received.get(sender);
+        if (last == null) {
+            last = new double[]{Double.NaN};
+            entry.received.put(sender, last);
+        }
+
+        double residual;
+        if (Double.isNaN(last[0])) {
+            residual = Double.POSITIVE_INFINITY;
+        } else if (message == last[0]) {
+            residual = 0;
+        } else {
+            residual = Math.abs(message - last[0]);
+        }
+        last[0] = message;
+        entry.residual = Math.max(entry.residual, residual);
+
+        entry.factor.receive(message, sender);
+    }
+
+    /**
+     * Run the factors whose residual is above the threshold, by decreasing
+     * residual and within the time budget.
+     *
+     * @param deadline deadline of the solver.
+     * @param agentID factor of the agent, which also runs past the deadline.
+     * @return number of constraint checks performed by the factors.
+     */
+    long run(Deadline deadline, NodeID agentID) {
+        final long start = System.nanoTime();
+        ready.clear();
+        for (Entry entry : entries.values()) {
+            if (entry.residual > RSLBenchCommunicationAdapter.EPSILON) {
+                ready.add(entry);
+            }
+        }
+        Collections.sort(ready, BY_RESIDUAL);
+
+        final Entry agentEntry = entries.get(agentID);
+        long constraintChecks = 0;
+        int nRuns = 0;
+        for (Entry entry : ready) {
+            // Always run at least one factor, so that the agent makes progress
+            if (budget > 0 && nRuns > 0 && System.nanoTime() - start >= budget) {
+                break;
+            }
+            if (entry != agentEntry && deadline.isExpired()) {
+                continue;
+            }
+            adapter.resetDampingGap();
+            constraintChecks += entry.factor.run();
+            entry.residual = adapter.resetDampingGap();
+            nRuns++;
+        }
+        return constraintChecks;
+    }
+
+    /**
+     * Check if there are factors waiting to run.
+     *
+     * @return <em>true</em> if some factor has a residual above the threshold.
+     */
+    boolean hasPending() {
+        for (Entry entry : entries.values()) {
+            if (entry.residual > RSLBenchCommunicationAdapter.EPSILON) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        private final Factor<NodeID> factor;
+        private final HashMap<NodeID, double[]> received = new HashMap<>();
+        private double residual = Double.POSITIVE_INFINITY;
+
+        private Entry(Factor<NodeID> factor) {
+            this.factor = factor;
+        }
+    }
+
+}
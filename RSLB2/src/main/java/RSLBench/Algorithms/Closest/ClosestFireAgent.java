@@ -5,6 +5,7 @@
 package RSLBench.Algorithms.Closest;
 
 import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Assignment.DCOP.DefaultDCOPAgent;
 import RSLBench.Helpers.Distance;
 import org.apache.logging.log4j.LogManager;
@@ -22,7 +23,7 @@ public class ClosestFireAgent extends DefaultDCOPAgent {
     private static final Logger Logger = LogManager.getLogger(ClosestFireAgent.class);
 
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         final StandardWorldModel world = getProblem().getWorld();
         final EntityID id = getID();
 
@@ -5,6 +5,7 @@
 package RSLBench.Algorithms.Closest;
 
 import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Assignment.DCOP.DefaultDCOPAgent;
 import RSLBench.Helpers.Distance;
 import RSLBench.PlatoonPoliceAgent;
@@ -23,7 +24,7 @@ public class ClosestPoliceAgent extends DefaultDCOPAgent {
     private static final Logger Logger = LogManager.getLogger(ClosestPoliceAgent.class);
 
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         final StandardWorldModel world = getProblem().getWorld();
         final EntityID id = getID();
         final double threshold = getProblem().getConfig().getFloatValue(PlatoonPoliceAgent.DISTANCE_KEY);
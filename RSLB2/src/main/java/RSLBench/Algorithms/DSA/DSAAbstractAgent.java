@@ -3,6 +3,7 @@ package RSLBench.Algorithms.DSA;
 import RSLBench.Algorithms.DSA.scoring.ScoringFunction;
 import RSLBench.Assignment.Assignment;
 import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.Message;
 import RSLBench.Comm.CommunicationLayer;
 import RSLBench.Helpers.Utility.ProblemDefinition;
@@ -11,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,6 +27,8 @@ public abstract class DSAAbstractAgent implements DCOPAgent {
     private static final Logger Logger = LogManager.getLogger(DSAAbstractAgent.class);
 
     private boolean INITIALIZE_RANDOMLY;
+    private double probability;
+    private Random random;
 
     private ProblemDefinition problem;
     private EntityID id;
@@ -115,6 +119,8 @@ public abstract class DSAAbstractAgent implements DCOPAgent {
         targetScores = new TargetScores(id, problem);
         target = Assignment.UNKNOWN_TARGET_ID;
         this.config = config;
+        probability = config.getFloatValue(DSA.KEY_DSA_PROBABILITY);
+        random = problem.getRandom(id);
         String initMethod = config.getValue(DSA.KEY_DSA_INITIAL_TARGET, DSA.TARGET_RANDOM);
 
         // Set the scoring function used by this agent
@@ -129,7 +135,7 @@ public abstract class DSAAbstractAgent implements DCOPAgent {
         if (candidateTargets.size() > 0) {
             switch(initMethod.toLowerCase()) {
                 case DSA.TARGET_RANDOM:
-                    target = candidateTargets.get(config.getRandom().nextInt(candidateTargets.size()));
+                    target = candidateTargets.get(random.nextInt(candidateTargets.size()));
                     break;
                 case DSA.TARGET_BEST:
                     target = getPreferredTarget();
@@ -158,14 +164,14 @@ public abstract class DSAAbstractAgent implements DCOPAgent {
     }
 
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         // Find the best target given utilities and constraints
         EntityID bestTarget = getBestTarget();
         nCCCs += targetScores.getScoringFunction().getCCs();
 
         if (!bestTarget.equals(target)) {
             Logger.debug("Agent {} had target {} before, now wants {}", id, target, bestTarget);
-            if (config.getRandom().nextDouble() <= config.getFloatValue(DSA.KEY_DSA_PROBABILITY)) {
+            if (random.nextDouble() <= probability) {
                 Logger.trace("Agent {} passes the dice throw and changes to {}", id, bestTarget);
                 target = bestTarget;
             }
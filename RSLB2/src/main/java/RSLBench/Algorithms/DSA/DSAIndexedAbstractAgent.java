@@ -0,0 +1,300 @@
+package RSLBench.Algorithms.DSA;
+
+import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
+import RSLBench.Comm.CommunicationLayer;
+import RSLBench.Comm.Message;
+import RSLBench.Helpers.Utility.ProblemDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import rescuecore2.config.Config;
+
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * DSA agent that works with dense indices instead of entity ids.
+ * <p/>
+ * Candidate targets are numbered from 0 to <em>n-1</em> when the agent is
+ * initialized, and everything the agent needs to score them (their unary
+ * scores and the data to compute the penalty of adding one more agent) is
+ * gathered into arrays indexed by candidate. Neighbors send
+ * {@link IndexedAssignmentMessage}s, so the number of neighbors choosing each
+ * candidate is counted in an <code>int[]</code> without any hashing, and the
+ * best target is found with a sweep over those arrays.
+ * <p/>
+ * The choices made (including random draws) are the same as those of the
+ * corresponding {@link DSAAbstractAgent} implementations.
+ */
+public abstract class DSAIndexedAbstractAgent implements DCOPAgent {
+    private static final Logger Logger = LogManager.getLogger(DSAIndexedAbstractAgent.class);
+
+    private double probability;
+    private Random random;
+
+    private ProblemDefinition problem;
+    private EntityID id;
+    private int index;
+    private int target;
+    private boolean fallback;
+    private long nCCCs = 0;
+
+    /** Neighboring agents with which to communicate */
+    private EntityID[] neighbors;
+
+    /** Candidate targets, by candidate */
+    private EntityID[] candidates;
+
+    /** Index of each candidate in the problem, by candidate */
+    private int[] candidateIndices;
+
+    /** Candidate of each target index, or -1 if it is not a candidate */
+    private int[] slots;
+
+    /** Number of neighbors that have chosen each candidate */
+    protected int[] counts;
+
+    /** Score of each candidate that does not depend on the neighbors' choices */
+    protected double[] unaryScores;
+
+    /**
+     * Get the definition of the problem being solved currently.
+     *
+     * @return problem definition.
+     */
+    protected ProblemDefinition getProblem() {
+        return problem;
+    }
+
+    /**
+     * Get the index of this agent in the problem.
+     *
+     * @return index of this agent.
+     */
+    protected int getIndex() {
+        return index;
+    }
+
+    /**
+     * Compute the set of neighbors of this agent. This includes all agents that share any common
+     * candidate target with this one.
+     *
+     * @return set of neighbors of this agent
+     */
+    protected abstract Set<EntityID> computeNeighbors();
+
+    /**
+     * Compute the list of candidate targets of this agent.
+     *
+     * @return list of candidate targets
+     */
+    protected abstract List<EntityID> computeCandidates();
+
+    /**
+     * Get the total number of targets of the kind attended by this agent.
+     *
+     * @return number of targets in the problem.
+     */
+    protected abstract int getNumTargets();
+
+    /**
+     * Get the utilities of this agent for all targets of its kind.
+     *
+     * @return utilities indexed by target.
+     */
+    protected abstract double[] getUtilities();
+
+    /**
+     * Prepare any additional data needed to score the candidates, once
+     * {@link #counts} and {@link #unaryScores} have been built.
+     *
+     * @param candidates candidate targets, by candidate.
+     */
+    protected abstract void initializeScores(EntityID[] candidates);
+
+    /**
+     * Get the score of the given candidate, given the number of neighbors
+     * that have chosen it.
+     *
+     * @param candidate candidate to evaluate.
+     * @return score of that candidate.
+     */
+    protected abstract double score(int candidate);
+
+    /**
+     * Get the number of constraint checks performed to score a candidate.
+     *
+     * @return constraint checks per candidate.
+     */
+    protected abstract int getCCsPerCandidate();
+
+    /**
+     * Get the target to choose when the agent has no candidates.
+     *
+     * @return target to choose, possibly {@link Assignment#UNKNOWN_TARGET_ID}.
+     */
+    protected abstract EntityID getFallbackTarget();
+
+    /**
+     * Get the preferred target in terms of individual utility.
+     *
+     * @param candidates candidate targets of this agent.
+     * @return preferred target in terms of individual utility.
+     */
+    protected abstract EntityID getPreferredTarget(List<EntityID> candidates);
+
+    @Override
+    public void initialize(Config config, EntityID id, ProblemDefinition problem) {
+        this.id = id;
+        this.problem = problem;
+        index = problem.getIndex(id);
+        probability = config.getFloatValue(DSA.KEY_DSA_PROBABILITY);
+        random = problem.getRandom(id);
+        String initMethod = config.getValue(DSA.KEY_DSA_INITIAL_TARGET, DSA.TARGET_RANDOM);
+
+        // The neighbors of this agent are all candidates of all eligible targets
+        Set<EntityID> neighborSet = computeNeighbors();
+        neighborSet.remove(id);
+        neighbors = neighborSet.toArray(new EntityID[neighborSet.size()]);
+
+        // Number the candidates and gather their utilities
+        List<EntityID> candidateList = computeCandidates();
+        final int nCandidates = candidateList.size();
+        candidates = candidateList.toArray(new EntityID[nCandidates]);
+        candidateIndices = new int[nCandidates];
+        slots = new int[getNumTargets()];
+        Arrays.fill(slots, -1);
+        counts = new int[nCandidates];
+        unaryScores = new double[nCandidates];
+        final double[] utilities = getUtilities();
+        for (int c = 0; c < nCandidates; c++) {
+            final int t = problem.getIndex(candidates[c]);
+            candidateIndices[c] = t;
+            slots[t] = c;
+            unaryScores[c] = utilities[t];
+        }
+        initializeScores(candidates);
+
+        // Choose the initial target
+        target = -1;
+        fallback = false;
+        if (nCandidates > 0) {
+            switch(initMethod.toLowerCase()) {
+                case DSA.TARGET_RANDOM:
+                    target = random.nextInt(nCandidates);
+                    break;
+                case DSA.TARGET_BEST:
+                    target = slots[problem.getIndex(getPreferredTarget(candidateList))];
+                    break;
+                case DSA.TARGET_LAST:
+                    EntityID last = problem.getLastAssignment().getAssignment(id);
+                    Logger.trace("{} {} initialized to the target of the last iteration {}.",
+                            getClass().getSimpleName(), id, last);
+                    final int t = last == null ? -1 : problem.getIndex(last);
+                    target = t < 0 || t >= slots.length ? -1 : slots[t];
+                    if (target < 0 || !candidates[target].equals(last)) {
+                        EntityID preferred = getPreferredTarget(candidateList);
+                        target = slots[problem.getIndex(preferred)];
+                        Logger.info("{} {} can not reuse last target {} because it is not a candidate anymore. Using {}.",
+                                getClass().getSimpleName(), id, last, preferred);
+                    }
+                    break;
+                default:
+                    Logger.error("Unknown DSA initialization method \"{}\".", initMethod);
+                    throw new RuntimeException("Unknown DSA initialization method: " + initMethod);
+            }
+        }
+
+        Logger.debug("{} {} initialized with {} targets and {} neighboring agents.",
+                getClass().getSimpleName(), id, nCandidates, neighbors.length);
+    }
+
+    @Override
+    public boolean improveAssignment(Deadline deadline) {
+        // Find the best target given utilities and constraints
+        int bestTarget = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        final int nCandidates = candidates.length;
+        for (int c = 0; c < nCandidates; c++) {
+            final double score = score(c);
+            if (score > bestScore) {
+                bestScore = score;
+                bestTarget = c;
+            }
+        }
+        nCCCs += (long)nCandidates * getCCsPerCandidate();
+
+        // Without a valid candidate, the agent wants the fallback target
+        final EntityID current = getTarget();
+        final EntityID best = bestTarget < 0 ? getFallbackTarget() : candidates[bestTarget];
+        if (best.equals(current)) {
+            Logger.trace("Agent {} is okay with its decision.", id);
+            return false;
+        }
+
+        Logger.debug("Agent {} had target {} before, now wants {}", id, current, best);
+        if (random.nextDouble() <= probability) {
+            Logger.trace("Agent {} passes the dice throw and changes to {}", id, best);
+            target = bestTarget;
+            fallback = bestTarget < 0;
+        }
+        return true;
+    }
+
+    @Override
+    public long getConstraintChecks() {
+        return nCCCs;
+    }
+
+    @Override
+    public EntityID getID() {
+        return id;
+    }
+
+    @Override
+    public EntityID getTarget() {
+        if (target >= 0) {
+            return candidates[target];
+        }
+        return fallback ? getFallbackTarget() : Assignment.UNKNOWN_TARGET_ID;
+    }
+
+    @Override
+    public Collection<Message> sendMessages(CommunicationLayer com) {
+        Collection<Message> sentMessages = new ArrayList<>(neighbors.length);
+        final EntityID targetId = getTarget();
+        final int targetIndex = target < 0 ? problem.getIndex(targetId) : candidateIndices[target];
+        final IndexedAssignmentMessage msg = new IndexedAssignmentMessage(id, targetId, targetIndex);
+
+        for (EntityID neighbor : neighbors) {
+            sentMessages.add(msg);
+            com.send(neighbor, msg);
+        }
+
+        return sentMessages;
+    }
+
+    @Override
+    public void receiveMessages(Collection<Message> messages) {
+        Logger.trace("ReceiveMessages start, {} messages in queue.", messages.size());
+        Arrays.fill(counts, 0);
+        nCCCs = 0;
+        for (Message m : messages) {
+            if (m instanceof IndexedAssignmentMessage) {
+                final int t = ((IndexedAssignmentMessage)m).getTargetIndex();
+                if (t >= 0 && t < slots.length && slots[t] >= 0) {
+                    counts[slots[t]]++;
+                }
+                nCCCs++;
+            }
+        }
+    }
+
+}
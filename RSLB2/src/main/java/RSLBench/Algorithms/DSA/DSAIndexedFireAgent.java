@@ -0,0 +1,106 @@
+package RSLBench.Algorithms.DSA;
+
+import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Settings;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Indexed counterpart of {@link DSAFireAgent}, scoring targets like the
+ * {@link RSLBench.Algorithms.DSA.scoring.FireScoringFunction}.
+ */
+public class DSAIndexedFireAgent extends DSAIndexedAbstractAgent {
+
+    private double k;
+    private double alpha;
+
+    /** Number of agents required by each candidate */
+    private int[] required;
+
+    @Override
+    protected Set<EntityID> computeNeighbors() {
+        final ProblemDefinition problem = getProblem();
+        final EntityID id = getID();
+
+        // The neighbors of this agent are all candidates of all eligible fires
+        HashSet<EntityID> neighbors = new HashSet<>();
+        for (EntityID fire : problem.getFireAgentNeighbors(id)) {
+            neighbors.addAll(problem.getFireNeighbors(fire));
+        }
+        return neighbors;
+    }
+
+    @Override
+    protected List<EntityID> computeCandidates() {
+        return getProblem().getFireAgentNeighbors(getID());
+    }
+
+    @Override
+    protected int getNumTargets() {
+        return getProblem().getNumFires();
+    }
+
+    @Override
+    protected double[] getUtilities() {
+        return getProblem().getFireUtilities(getIndex());
+    }
+
+    @Override
+    protected void initializeScores(EntityID[] candidates) {
+        final ProblemDefinition problem = getProblem();
+        final Settings settings = problem.getSettings();
+        k = settings.getUtilK();
+        alpha = settings.getUtilAlpha();
+        required = new int[candidates.length];
+        for (int c = 0; c < candidates.length; c++) {
+            required[c] = problem.getRequiredAgentCount(candidates[c]);
+
+            // Subtract the corresponding penalty if that fire is blocked
+            if (problem.isFireAgentBlocked(getID(), candidates[c])) {
+                unaryScores[c] -= settings.getBlockedFirePenalty();
+            }
+        }
+    }
+
+    @Override
+    protected double score(int candidate) {
+        final int nAgents = counts[candidate];
+
+        // The score is the individual utility gain minus the increase in penalty
+        final double penalty = penalty(candidate, nAgents+1) - penalty(candidate, nAgents);
+        return unaryScores[candidate] - penalty;
+    }
+
+    /**
+     * Same as {@link ProblemDefinition#getUtilityPenalty(EntityID, int)}.
+     */
+    private double penalty(int candidate, int nAgents) {
+        final int maxAgents = required[candidate];
+        if (maxAgents >= nAgents) {
+            return 0;
+        }
+        return k * Math.pow(nAgents-maxAgents, alpha);
+    }
+
+    @Override
+    protected int getCCsPerCandidate() {
+        return 4;
+    }
+
+    @Override
+    protected EntityID getFallbackTarget() {
+        // In the case of firefighters, it is always better to do something, so we go to the
+        // most preferred fire if we are left without candidates during the pruning
+        return getProblem().getHighestTargetForFireAgent(getID());
+    }
+
+    @Override
+    protected EntityID getPreferredTarget(List<EntityID> candidates) {
+        return getProblem().getHighestTargetForFireAgent(getID(), candidates);
+    }
+
+}
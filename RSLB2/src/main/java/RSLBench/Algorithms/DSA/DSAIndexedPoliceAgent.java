@@ -0,0 +1,84 @@
+package RSLBench.Algorithms.DSA;
+
+import RSLBench.Assignment.Assignment;
+import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Settings;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Indexed counterpart of {@link DSAPoliceAgent}, scoring targets like the
+ * {@link RSLBench.Algorithms.DSA.scoring.BlockadeScoringFunction}.
+ */
+public class DSAIndexedPoliceAgent extends DSAIndexedAbstractAgent {
+
+    private double eta;
+
+    @Override
+    protected Set<EntityID> computeNeighbors() {
+        final EntityID id = getID();
+        final ProblemDefinition problem = getProblem();
+
+        HashSet<EntityID> neighbors = new HashSet<>();
+        for (EntityID blockade : problem.getPoliceAgentNeighbors(id)) {
+            neighbors.addAll(problem.getBlockadeNeighbors(blockade));
+        }
+        return neighbors;
+    }
+
+    @Override
+    protected List<EntityID> computeCandidates() {
+        return getProblem().getPoliceAgentNeighbors(getID());
+    }
+
+    @Override
+    protected int getNumTargets() {
+        return getProblem().getBlockades().size();
+    }
+
+    @Override
+    protected double[] getUtilities() {
+        return getProblem().getPoliceUtilities(getIndex());
+    }
+
+    @Override
+    protected void initializeScores(EntityID[] candidates) {
+        final ProblemDefinition problem = getProblem();
+        final Settings settings = problem.getSettings();
+        eta = settings.getPoliceEta();
+        for (int c = 0; c < candidates.length; c++) {
+            if (problem.isPoliceAgentBlocked(getID(), candidates[c])) {
+                unaryScores[c] -= settings.getBlockedPolicePenalty();
+            }
+        }
+    }
+
+    @Override
+    protected double score(int candidate) {
+        // If we are the first police picking it, then we gain the blockade's utility
+        if (counts[candidate] == 0) {
+            return unaryScores[candidate] + eta;
+        }
+        return unaryScores[candidate];
+    }
+
+    @Override
+    protected int getCCsPerCandidate() {
+        return 2;
+    }
+
+    @Override
+    protected EntityID getFallbackTarget() {
+        return Assignment.UNKNOWN_TARGET_ID;
+    }
+
+    @Override
+    protected EntityID getPreferredTarget(List<EntityID> candidates) {
+        return getProblem().getHighestTargetForPoliceAgent(getID(), candidates);
+    }
+
+}
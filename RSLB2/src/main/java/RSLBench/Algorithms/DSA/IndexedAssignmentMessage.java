@@ -0,0 +1,36 @@
+package RSLBench.Algorithms.DSA;
+
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Assignment message that also carries the index of the chosen target, so
+ * that receivers can track it without looking up the target's id.
+ *
+ * @see RSLBench.Helpers.Utility.ProblemDefinition#getIndex(EntityID)
+ */
+public class IndexedAssignmentMessage extends AssignmentMessage {
+
+    private final int targetIndex;
+
+    /**
+     * Builds a new assignment message.
+     *
+     * @param agent the agent id
+     * @param target the target id
+     * @param targetIndex index of the target in the problem, or <em>-1</em>
+     * if the agent has no target.
+     */
+    public IndexedAssignmentMessage(EntityID agent, EntityID target, int targetIndex) {
+        super(agent, target);
+        this.targetIndex = targetIndex;
+    }
+
+    /**
+     * Get the index of the target.
+     * @return target index, or <em>-1</em> if the agent has no target.
+     */
+    public int getTargetIndex() {
+        return targetIndex;
+    }
+
+}
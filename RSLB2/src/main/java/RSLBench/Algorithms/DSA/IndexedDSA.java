@@ -0,0 +1,39 @@
+package RSLBench.Algorithms.DSA;
+
+import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Constants;
+import rescuecore2.standard.entities.StandardEntityURN;
+
+/**
+ * DSA solver whose agents work with dense target indices and primitive
+ * arrays instead of hash maps.
+ * <p/>
+ * It takes the same decisions as {@link DSA}. The inter-team variants, whose
+ * scores depend on the choices of agents of the other kind, are not indexed,
+ * so this solver builds the regular team agents when inter-team coordination
+ * is enabled.
+ */
+public class IndexedDSA extends DSA {
+
+    @Override
+    public String getIdentifier() {
+        return "IndexedDSA";
+    }
+
+    @Override
+    protected DCOPAgent buildAgent(StandardEntityURN type) {
+        if (config.getBooleanValue(Constants.KEY_INTERTEAM_COORDINATION)) {
+            return super.buildAgent(type);
+        }
+
+        switch(type) {
+            case FIRE_BRIGADE:
+                return new DSAIndexedFireAgent();
+            case POLICE_FORCE:
+                return new DSAIndexedPoliceAgent();
+            default:
+                throw new UnsupportedOperationException("The DSA solver does not support agents of type " + type);
+        }
+    }
+
+}
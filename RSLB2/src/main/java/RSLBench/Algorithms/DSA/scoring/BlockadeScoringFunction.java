@@ -5,7 +5,6 @@
 package RSLBench.Algorithms.DSA.scoring;
 
 import RSLBench.Algorithms.DSA.TargetScores;
-import RSLBench.Constants;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import rescuecore2.worldmodel.EntityID;
 
@@ -23,13 +22,13 @@ public class BlockadeScoringFunction extends AbstractScoringFunction {
         // The cost of picking this blockade is given by the unary utility
         double utility = problem.getPoliceUtility(agent, target);
         if (problem.isPoliceAgentBlocked(agent, target)) {
-            utility -= problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY);
+            utility -= problem.getSettings().getBlockedPolicePenalty();
         }
         CC();
 
         // but if we are the first police picking it, then we gain the blockade's utility
         if (nAgents == 0) {
-            utility += problem.getConfig().getFloatValue(Constants.KEY_POLICE_ETA);
+            utility += problem.getSettings().getPoliceEta();
         }
 
         return utility;
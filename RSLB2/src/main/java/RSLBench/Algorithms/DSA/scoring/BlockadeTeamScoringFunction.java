@@ -5,7 +5,6 @@
 package RSLBench.Algorithms.DSA.scoring;
 
 import RSLBench.Algorithms.DSA.TargetScores;
-import RSLBench.Constants;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,13 +26,13 @@ public class BlockadeTeamScoringFunction extends AbstractScoringFunction {
         // The cost of picking this blockade is given by the unary utility
         double utility = problem.getPoliceUtility(agent, target);
         if (problem.isPoliceAgentBlocked(agent, target)) {
-            utility -= problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY);
+            utility -= problem.getSettings().getBlockedPolicePenalty();
         }
         CC();
 
         // If we are the first police attending that blockade, we gain the blockade's utility
         if (nAgents == 0) {
-            utility += problem.getConfig().getFloatValue(Constants.KEY_POLICE_ETA);
+            utility += problem.getSettings().getPoliceEta();
 
             // ... plus some possible penalty removal incentives if fire agents are blocked by this blockade
             for (Pair<EntityID, EntityID> info : problem.getFireAgentsBlockedByBlockade(target)) {
@@ -43,7 +42,7 @@ public class BlockadeTeamScoringFunction extends AbstractScoringFunction {
                 if (scores.getAssignment(fireAgent).equals(fire)) {
                     Logger.trace("Blockade {} is more attractive for {} because fire agent {} is blocked by it.",
                             target, agent, fireAgent);
-                    utility += problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY);
+                    utility += problem.getSettings().getBlockedFirePenalty();
                 }
                 CC();
             }
@@ -5,7 +5,6 @@
 package RSLBench.Algorithms.DSA.scoring;
 
 import RSLBench.Algorithms.DSA.TargetScores;
-import RSLBench.Constants;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import rescuecore2.worldmodel.EntityID;
 
@@ -30,7 +29,7 @@ public class FireScoringFunction extends AbstractScoringFunction {
 
         // Subtract the corresponding penalty if that fire is blocked
         if (problem.isFireAgentBlocked(agent, target)) {
-                utility -= problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY);
+                utility -= problem.getSettings().getBlockedFirePenalty();
         }
         CC();
 
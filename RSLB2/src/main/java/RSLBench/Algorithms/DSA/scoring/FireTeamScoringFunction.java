@@ -5,7 +5,6 @@
 package RSLBench.Algorithms.DSA.scoring;
 
 import RSLBench.Algorithms.DSA.TargetScores;
-import RSLBench.Constants;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -38,7 +37,7 @@ public class FireTeamScoringFunction extends AbstractScoringFunction {
             EntityID blockade = problem.getBlockadeBlockingFireAgent(agent, target);
             final int nPolice = scores.getAgentCount(blockade);
             if (nPolice == 0) {
-                utility -= problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY);
+                utility -= problem.getSettings().getBlockedFirePenalty();
             } else {
                 Logger.trace("Firefighter {} is now free to go to {} because there are {} police agents attending {}",
                         agent, target, nPolice, blockade);
@@ -17,6 +17,7 @@ import org.apache.logging.log4j.Logger;
 
 import rescuecore2.worldmodel.EntityID;
 import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.Message;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import es.csic.iiia.bms.Factor;
@@ -25,7 +26,6 @@ import es.csic.iiia.bms.Minimize;
 import es.csic.iiia.bms.factors.CardinalityFactor.CardinalityFunction;
 import es.csic.iiia.bms.factors.WeightingFactor;
 import RSLBench.Comm.CommunicationLayer;
-import RSLBench.Constants;
 import RSLBench.Algorithms.FGMD.FGMDProblemDefinition;
 
 import rescuecore2.config.Config;
@@ -74,6 +74,8 @@ public class FGMDFireAgent implements DCOPAgent {
 		// build the selector node for each agent
 		this.addSelectorNode();
 		
+		// give each factor the ids of its edges
+		communicationAdapter.restart(factors);
 	}
 	
 	/**
@@ -86,7 +88,6 @@ public class FGMDFireAgent implements DCOPAgent {
 		factors.put(id, factor);
 		factor.setMaxOperator(MIN_OPERATOR);
 		factor.setIdentity(id);
-		factor.setCommunicationAdapter(communicationAdapter);
 	}
 	
 	/**
@@ -113,7 +114,7 @@ public class FGMDFireAgent implements DCOPAgent {
 			 
             /* modification of the problem for FGMD */
             if(problem.isFireAgentBlocked(id, fire)){
-            	delta_ij += problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY);
+            	delta_ij += problem.getSettings().getBlockedFirePenalty();
             }
             /* end of the modification of the problem for FGMD */
 			
@@ -214,12 +215,17 @@ public class FGMDFireAgent implements DCOPAgent {
 	 * agent.
 	 */
 	@Override
-	public boolean improveAssignment() {
+	public boolean improveAssignment(Deadline deadline) {
 		Logger.trace("improveAssignment start...");
 		constraintChecks = 0;
 		
 		//let all factors run
+		//past the deadline only the factor of this agent runs, so that it can choose
+		final NodeID agentID = new NodeID(id, null);
 		for(NodeID eid : factors.keySet()){
+			if(deadline.isExpired() && !eid.equals(agentID)){
+				continue;
+			}
 			constraintChecks += factors.get(eid).run();
 		}
 		
@@ -12,6 +12,7 @@ import RSLBench.Algorithms.BMS.factor.BMSAtMostOneFactor;
 import RSLBench.Algorithms.BMS.factor.BMSCardinalityFactor;
 import RSLBench.Assignment.Assignment;
 import RSLBench.Assignment.DCOP.DCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.CommunicationLayer;
 import RSLBench.Comm.Message;
 import RSLBench.Helpers.Utility.ProblemDefinition;
@@ -70,6 +71,9 @@ public class FGMDPoliceAgent2 implements DCOPAgent {
         // Finally, compute the location of each factor in the simulation
         computeFactorLocations();
 
+        // ... and give each factor the ids of its edges
+        communicationAdapter.restart(factors);
+
         Logger.trace("Agent {} initialized.", agentID);
 
 	}
@@ -84,7 +88,6 @@ public class FGMDPoliceAgent2 implements DCOPAgent {
 		factors.put(id, factor);
 		factor.setMaxOperator(MIN_OPERATOR);
 		factor.setIdentity(id);
-		factor.setCommunicationAdapter(communicationAdapter);
 	}
 	
 	private void addPoliceFactor(){
@@ -190,12 +193,17 @@ public class FGMDPoliceAgent2 implements DCOPAgent {
 	 * and them extracting the best current assignment from the selector of the agent.
 	 */
 	@Override
-	public boolean improveAssignment() {
+	public boolean improveAssignment(Deadline deadline) {
 		Logger.trace("improveAssignment start...");
 		constraintChecks = 0;
 		
 		//let all factor run
+		//past the deadline only the factor of this agent runs, so that it can choose
+		final NodeID agentID = new NodeID(id, null);
 		for(NodeID eid : factors.keySet()){
+			if(deadline.isExpired() && !eid.equals(agentID)){
+				continue;
+			}
 			constraintChecks += factors.get(eid).run();
 		}
 		
@@ -36,10 +36,10 @@ public class FGMDProblemDefinition extends ProblemDefinition {
 
 	private static final Logger Logger = LogManager.getLogger(FGMDProblemDefinition.class);
 	
-	public FGMDProblemDefinition(Config config, ArrayList<EntityID> fireAgents, ArrayList<EntityID> fires,
+	public FGMDProblemDefinition(Config config, int time, ArrayList<EntityID> fireAgents, ArrayList<EntityID> fires,
 			ArrayList<EntityID> policeAgents, ArrayList<EntityID> blockades, Assignment lastAssignment,
 			StandardWorldModel world) {
-		super(config, fireAgents, fires, policeAgents, blockades, lastAssignment, world); 
+		super(config, time, fireAgents, fires, policeAgents, blockades, lastAssignment, world); 
 	}
     
 }
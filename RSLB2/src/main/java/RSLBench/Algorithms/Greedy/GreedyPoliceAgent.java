@@ -5,6 +5,7 @@
 package RSLBench.Algorithms.Greedy;
 
 import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Assignment.DCOP.DefaultDCOPAgent;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import rescuecore2.worldmodel.EntityID;
@@ -20,7 +21,7 @@ import rescuecore2.worldmodel.EntityID;
 public class GreedyPoliceAgent extends DefaultDCOPAgent {
 
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         final ProblemDefinition problem = getProblem();
         final EntityID id = getID();
 
@@ -5,16 +5,16 @@
 package RSLBench.Algorithms.MS;
 
 import RSLBench.Assignment.DCOP.AbstractDCOPAgent;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Comm.CommunicationLayer;
 import RSLBench.Comm.Message;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import es.csic.iiia.ms.Variable;
 import es.csic.iiia.ms.functions.CostFunction;
 import es.csic.iiia.ms.functions.CostFunctionFactory;
-import es.csic.iiia.ms.functions.MasterIterator;
 import es.csic.iiia.ms.node.FunctionNode;
+import es.csic.iiia.ms.node.IndexedVariableNode;
 import es.csic.iiia.ms.node.Node;
-import es.csic.iiia.ms.node.VariableNode;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -36,7 +36,7 @@ public class MSAgent extends AbstractDCOPAgent {
     private CostFunctionFactory cfFactory = new MSCostFunctionFactory();
     private MSCommunicator communicator;
 
-    private VariableNode variableNode;
+    private IndexedVariableNode<Identity> variableNode;
     private Map<Identity, EntityID> nodeLocations = new HashMap<>();
     private Map<Identity, Node> localNodes = new HashMap<>();
 
@@ -76,23 +76,13 @@ public class MSAgent extends AbstractDCOPAgent {
             assignments[i] = problem.getFireAgentNeighbors(fireAgent).indexOf(fire);
         }
 
-        // Build the potential CostFunction and set the values
-        CostFunction f = cfFactory.buildCostFunction(variables, 0);
-        for (MasterIterator it = f.masterIterator(); it.hasNext();) {
-            final long idx = it.next();
-            final int[] indices = it.getIndices();
-
-            int nActiveCandidates = 0;
-            for (int i=0; i<nFireAgents; i++) {
-                if (indices[i] == assignments[i]) {
-                    nActiveCandidates++;
-                }
-            }
-
-            f.setValue(idx, -problem.getUtilityPenalty(fire, nActiveCandidates));
+        // The potential only depends on how many candidates pick this fire
+        final double[] countValues = new double[nFireAgents + 1];
+        for (int nActiveCandidates=0; nActiveCandidates<=nFireAgents; nActiveCandidates++) {
+            countValues[nActiveCandidates] = -problem.getUtilityPenalty(fire, nActiveCandidates);
         }
 
-        return f;
+        return cfFactory.buildCardinalityCostFunction(variables, assignments, countValues);
     }
 
     private void buildFactorNodes() {
@@ -146,7 +136,7 @@ public class MSAgent extends AbstractDCOPAgent {
         Variable variable = getVariable(id);
         CostFunction potential = buildFireAgentPotential(id, variable);
         Logger.trace("Local variable: {}, potential: {}", variable, potential);
-        variableNode = new VariableNode(variableId, communicator, potential);
+        variableNode = new IndexedVariableNode<>(variableId, communicator, potential);
         localNodes.put(variableId, variableNode);
 
         // Link the variable with all its neighbors
@@ -172,14 +162,18 @@ public class MSAgent extends AbstractDCOPAgent {
 
 
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         final ProblemDefinition problem = getProblem();
         final EntityID id = getID();
         final List<EntityID> candidates = problem.getFireAgentNeighbors(id);
 
-        // Let all nodes run
+        // Let all nodes run (past the deadline, only the variable node runs,
+        // so that it can choose)
         nConstraintChecks = 0;
         for (Node node : localNodes.values()) {
+            if (node != variableNode && deadline.isExpired()) {
+                continue;
+            }
             nConstraintChecks += node.getBelief().getSize();
             node.run();
         }
@@ -33,18 +33,30 @@ public class MSCommunicator implements Communicator<Identity> {
     private boolean converged;
 
     private List<MSMessage> outgoingMessages;
+    private List<MSMessage> flushedMessages;
     private Map<Pair<Identity, Identity>, CostFunction> oldMessages;
 
     public MSCommunicator(Config config) {
         DAMPING_FACTOR = config.getFloatValue(MaxSum.KEY_MAXSUM_DAMPING);
         outgoingMessages = new ArrayList<>();
+        flushedMessages = new ArrayList<>();
         oldMessages = new HashMap<>();
         converged = true;
     }
 
+    /**
+     * Get the messages sent since the last flush.
+     *
+     * The returned collection is reused, so it is only valid until the next
+     * call to this method.
+     *
+     * @return messages sent since the last flush.
+     */
     public Collection<MSMessage> flushMessages() {
-        Collection<MSMessage> result = outgoingMessages;
-        outgoingMessages = new ArrayList<>();
+        flushedMessages.clear();
+        List<MSMessage> result = outgoingMessages;
+        outgoingMessages = flushedMessages;
+        flushedMessages = result;
         converged = true;
         return result;
     }
@@ -5,6 +5,7 @@
 package RSLBench.Algorithms.Random;
 
 import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.DCOP.Deadline;
 import RSLBench.Assignment.DCOP.DefaultDCOPAgent;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import java.util.List;
@@ -23,13 +24,13 @@ public abstract class AbstractRandomAgent extends DefaultDCOPAgent {
     @Override
     public void initialize(Config config, EntityID agentID, ProblemDefinition utility) {
         super.initialize(config, agentID, utility);
-        random = config.getRandom();
+        random = utility.getRandom(agentID);
     }
 
     public abstract List<EntityID> getAvailableTargets();
 
     @Override
-    public boolean improveAssignment() {
+    public boolean improveAssignment(Deadline deadline) {
         final EntityID id = getID();
         setTarget(Assignment.UNKNOWN_TARGET_ID);
 
@@ -4,13 +4,11 @@ import java.util.ArrayList;
 
 import rescuecore2.config.Config;
 import rescuecore2.standard.entities.StandardWorldModel;
+import RSLBench.Helpers.CpuTime;
 import RSLBench.Helpers.Stats;
 import RSLBench.Constants;
-import RSLBench.Algorithms.FGMD.FGMDBinaryMaxSum;
 import RSLBench.Helpers.Utility.ProblemDefinition;
 import RSLBench.Search.SearchFactory;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -20,7 +18,6 @@ import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.entities.StandardEntityConstants;
 import rescuecore2.standard.entities.StandardEntityURN;
 import rescuecore2.standard.score.BuildingDamageScoreFunction;
-import rescuecore2.worldmodel.EntityID;
 
 /**
  * This class represents a sort of "collection point" and acts as a layer of communication
@@ -70,6 +67,15 @@ public abstract class AbstractSolver implements Solver
         return worldModel;
     }
 
+    /**
+     * Get the statistics reported by this solver in the last step.
+     *
+     * @return statistics of this solver.
+     */
+    public Stats getStats() {
+        return stats;
+    }
+
     public Config getConfig() {
         return config;
     }
@@ -134,8 +140,10 @@ public abstract class AbstractSolver implements Solver
         stats.report("nBurning", nBurning);
 
         final long start = System.currentTimeMillis();
+        final long startCpu = CpuTime.getThreadCpuTime();
         Assignment solution = compute(problem);
         long cputime = System.currentTimeMillis() - start;
+        long threadCpu = startCpu < 0 ? -1 : (CpuTime.getThreadCpuTime() - startCpu) / 1000000;
         Logger.info("{} took {} ms.", getIdentifier(), cputime);
 
         // Compute score and utility obtained
@@ -146,6 +154,7 @@ public abstract class AbstractSolver implements Solver
 
         Logger.debug("DA Simulator done");
         stats.report("cpu_time", cputime);
+        stats.report("thread_cpu_time", threadCpu);
 
         stats.reportStep();
         return solution;
@@ -156,92 +165,13 @@ public abstract class AbstractSolver implements Solver
      *
      * @param solution solution to evaluate.
      * @return utility obtained by this solution.
+     * @see UtilityEvaluator
      */
     public double getUtility(ProblemDefinition problem, Assignment solution) {
         if (solution == null) {
             return Double.NaN;
         }
-
-        final boolean INTERTEAM = problem.getConfig().getBooleanValue(Constants.KEY_INTERTEAM_COORDINATION);
-        final double POLICE_PENALTY = problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY);
-        final double FIRE_PENALTY = problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY);
-        final double w_j = problem.getConfig().getFloatValue(FGMDBinaryMaxSum.FGMD_WORKLOAD);
-        final double selfish_penalty = problem.getConfig().getFloatValue(FGMDBinaryMaxSum.FGMD_SELFISH_PENALTY);
-
-        double utility = 0;
-
-        HashSet<EntityID> blockadesAttended = new HashSet<>();
-        // Add individual police utilities
-        for (EntityID policeAgent : problem.getPoliceAgents()) {
-            EntityID target = solution.getAssignment(policeAgent);
-            if (target == Assignment.UNKNOWN_TARGET_ID) {
-                continue;
-            }
-
-            EntityID highestPoliceTask = problem.getHighestTargetForPoliceAgent(policeAgent);
-            double maxDelta = problem.getPoliceUtility(policeAgent, highestPoliceTask);
-            double delta = problem.getPoliceUtility(policeAgent, target);
-            if(maxDelta == 0.0)
-            {
-            	maxDelta = 1.0;
-            }
-            double u = -delta*Math.exp(-(delta/maxDelta));
-            
-            if (problem.isPoliceAgentBlocked(policeAgent, target)) {
-                u += POLICE_PENALTY;
-            }
-            utility += u;
-
-            // Track assignments and violations
-            if (blockadesAttended.contains(target)) {
-                return Double.POSITIVE_INFINITY;
-            }
-            blockadesAttended.add(target);
-        }
-
-        // Track individual utilities and count how many firefighters have chosen each fire
-        HashMap<EntityID, Integer> nAgentsPerTarget = new HashMap<>();
-        for (EntityID fireAgent : problem.getFireAgents()) {
-            EntityID fire = solution.getAssignment(fireAgent);
-
-            EntityID highestFireTask = problem.getHighestTargetForFireAgent(fireAgent);
-            double maxDeltaFire = problem.getFireUtility(fireAgent, highestFireTask);
-            double deltaFire = problem.getFireUtility(fireAgent, fire);
-            if(maxDeltaFire == 0.0){
-            	maxDeltaFire = 1.0;
-            }
-            double uF = -deltaFire*Math.exp(-(deltaFire/maxDeltaFire));
-
-            // Penalized if the relevant blockade is not attended
-            if (problem.isFireAgentBlocked(fireAgent, fire)) {
-            	uF += FIRE_PENALTY;
-                //EntityID blockade = problem.getBlockadeBlockingFireAgent(fireAgent, fire);
-                //if (!INTERTEAM || !blockadesAttended.contains(blockade)) {
-                //    utility -= FIRE_PENALTY;
-                //}
-            }
-            
-            // Individual utility
-            utility += uF;
-
-
-            // Add 1 to the target count
-            Integer nAgents = nAgentsPerTarget.get(fire);
-            nAgentsPerTarget.put(fire, nAgents == null ? 1 : nAgents+1);
-        }
-
-        // Finally penalize overassignments of agents to fires
-        for (EntityID target : nAgentsPerTarget.keySet()) {
-            int assigned = nAgentsPerTarget.get(target);
-            if(assigned >= w_j){
-            	utility += (w_j/(assigned*(assigned-(w_j-1))));
-            }else{
-            	utility += selfish_penalty;
-            }
-            //utility -= problem.getUtilityPenalty(target, assigned);
-        }
-
-        return utility;
+        return new UtilityEvaluator(problem, solution).getUtility();
     }
 
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import rescuecore2.config.Config;
 import rescuecore2.standard.entities.StandardWorldModel;
+import RSLBench.Helpers.CpuTime;
 import RSLBench.Helpers.Stats;
 import RSLBench.Constants;
 import RSLBench.Helpers.Utility.ProblemDefinition;
@@ -69,6 +70,15 @@ public abstract class AbstractSolverMTTA implements Solver
         return worldModel;
     }
 
+    /**
+     * Get the statistics reported by this solver in the last step.
+     *
+     * @return statistics of this solver.
+     */
+    public Stats getStats() {
+        return stats;
+    }
+
     public Config getConfig() {
         return config;
     }
@@ -133,8 +143,10 @@ public abstract class AbstractSolverMTTA implements Solver
         stats.report("nBurning", nBurning);
 
         final long start = System.currentTimeMillis();
+        final long startCpu = CpuTime.getThreadCpuTime();
         Assignment solution = compute(problem);
         long cputime = System.currentTimeMillis() - start;
+        long threadCpu = startCpu < 0 ? -1 : (CpuTime.getThreadCpuTime() - startCpu) / 1000000;
         Logger.info("{} took {} ms.", getIdentifier(), cputime);
 
         // Compute score and utility obtained
@@ -145,6 +157,7 @@ public abstract class AbstractSolverMTTA implements Solver
 
         Logger.debug("DA Simulator done");
         stats.report("cpu_time", cputime);
+        stats.report("thread_cpu_time", threadCpu);
 
         stats.reportStep();
         return solution;
@@ -161,9 +174,9 @@ public abstract class AbstractSolverMTTA implements Solver
             return Double.NaN;
         }
 
-        final boolean INTERTEAM = problem.getConfig().getBooleanValue(Constants.KEY_INTERTEAM_COORDINATION);
-        final double POLICE_PENALTY = problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY);
-        final double FIRE_PENALTY = problem.getConfig().getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY);
+        final boolean INTERTEAM = problem.getSettings().isInterteamCoordination();
+        final double POLICE_PENALTY = problem.getSettings().getBlockedPolicePenalty();
+        final double FIRE_PENALTY = problem.getSettings().getBlockedFirePenalty();
 
         double utility = 0;
 
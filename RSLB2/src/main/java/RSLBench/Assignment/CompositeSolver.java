@@ -4,23 +4,55 @@
  */
 package RSLBench.Assignment;
 
+import RSLBench.Helpers.Parallel;
 import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Settings;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.config.Config;
 import rescuecore2.standard.entities.StandardWorldModel;
 
 /**
+ * Solver that runs a main solver, whose assignment is the one used, along
+ * with some test solvers that are only run to collect their statistics.
+ * <p/>
+ * By default the solvers run one after the other. In portfolio mode (see
+ * {@link #KEY_PORTFOLIO}) they all run at the same time, each in its own
+ * thread, on the same problem definition (which is not modified once built).
+ * The main solver is always waited for, but test solvers are only waited for
+ * until their own maximum time expires. A test solver that is still running
+ * by then is left to finish in the background. Because solvers read the
+ * world while they run, those solvers must be waited for through
+ * {@link #awaitTestSolvers()} before the world is updated for the next step.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
 public class CompositeSolver implements Solver {
     private static final Logger Logger = LogManager.getLogger(CompositeSolver.class);
 
+    /**
+     * Configuration key to run all solvers concurrently instead of one after
+     * the other.
+     */
+    public static final String KEY_PORTFOLIO = "solver.portfolio";
+
     private Solver mainSolver;
     private List<Solver> testSolvers;
+    private ExecutorService executor;
+
+    /** Test solvers that overran their time, and the step they are still running */
+    private Map<Solver, Future<Assignment>> overrunning = new LinkedHashMap<>();
 
     public CompositeSolver(Solver main) {
         mainSolver = main;
@@ -37,6 +69,15 @@ public class CompositeSolver implements Solver {
         for (Solver s : testSolvers) {
             s.initialize(world, config);
         }
+
+        if (config.getBooleanValue(KEY_PORTFOLIO, false)) {
+            Logger.info("Running {} solvers concurrently.", testSolvers.size() + 1);
+            executor = Executors.newFixedThreadPool(testSolvers.size() + 1,
+                    Parallel.daemonThreads("solver-"));
+
+            // All solvers read the configuration at the same time
+            Settings.warmConfigurationCache(config);
+        }
     }
 
     @Override
@@ -46,6 +87,10 @@ public class CompositeSolver implements Solver {
 
     @Override
     public Assignment solve(int time, ProblemDefinition utility) {
+        if (executor != null) {
+            return solveConcurrently(time, utility);
+        }
+
         Assignment solution = mainSolver.solve(time, utility);
         for (Solver s : testSolvers) {
             s.solve(time, utility);
@@ -53,6 +98,84 @@ public class CompositeSolver implements Solver {
         return solution;
     }
 
+    private Assignment solveConcurrently(int time, ProblemDefinition problem) {
+        final long start = System.currentTimeMillis();
+
+        // Start the test solvers
+        awaitTestSolvers();
+        Map<Solver, Future<Assignment>> running = new LinkedHashMap<>();
+        for (Solver s : testSolvers) {
+            running.put(s, submit(s, time, problem));
+        }
+
+        // The main solver runs until it is done
+        Assignment solution = null;
+        try {
+            solution = submit(mainSolver, time, problem).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            // Fail as if the main solver had been run on this thread
+            throw Parallel.unchecked(ex.getCause());
+        }
+
+        // The test solvers are waited for until their own time expires
+        for (Map.Entry<Solver, Future<Assignment>> entry : running.entrySet()) {
+            final Solver s = entry.getKey();
+            final long remaining = s.getMaxTime() - (System.currentTimeMillis() - start);
+            try {
+                entry.getValue().get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                Logger.warn("Solver {} is still running after its {} ms in step {}.",
+                        s.getIdentifier(), s.getMaxTime(), time);
+                overrunning.put(s, entry.getValue());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                Logger.error("Solver {} failed: {}", s.getIdentifier(), ex.getCause(), ex.getCause());
+            }
+        }
+
+        Logger.debug("Portfolio of {} solvers took {} ms.", running.size() + 1,
+                System.currentTimeMillis() - start);
+        return solution;
+    }
+
+    /**
+     * Wait for the test solvers that are still running a previous step.
+     * <p/>
+     * Solvers read the world (and the problem definition reads it on their
+     * behalf) until they finish, so this must be called before the world is
+     * updated with the changes of the next step.
+     */
+    public void awaitTestSolvers() {
+        for (Map.Entry<Solver, Future<Assignment>> entry : overrunning.entrySet()) {
+            final long start = System.currentTimeMillis();
+            try {
+                entry.getValue().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                Logger.error("Solver {} failed: {}", entry.getKey().getIdentifier(),
+                        ex.getCause(), ex.getCause());
+            }
+            Logger.warn("Waited {} ms for solver {} to finish its previous step.",
+                    System.currentTimeMillis() - start, entry.getKey().getIdentifier());
+        }
+        overrunning.clear();
+    }
+
+    private Future<Assignment> submit(final Solver solver, final int time, final ProblemDefinition problem) {
+        return executor.submit(new Callable<Assignment>() {
+            @Override
+            public Assignment call() {
+                return solver.solve(time, problem);
+            }
+        });
+    }
+
     @Override
     public List<String> getUsedConfigurationKeys() {
         return null;
@@ -0,0 +1,136 @@
+package RSLBench.Assignment.DCOP;
+
+import RSLBench.Helpers.Parallel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a single phase of a DCOP iteration (sending, receiving or improving)
+ * over all agents using a pool of worker threads.
+ * <p/>
+ * Agents are split in contiguous chunks, one per worker, and
+ * {@link #run(List, AgentTask)} does not return until every agent has
+ * completed the phase. Hence, consecutive calls behave as phases separated by
+ * a barrier.
+ */
+public class AgentPhaseExecutor {
+
+    private static final AtomicInteger poolCounter = new AtomicInteger();
+
+    private final int nThreads;
+    private final ExecutorService executor;
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Task to be run on each agent during a phase.
+     */
+    public interface AgentTask {
+
+        /**
+         * Run this task on the given agent.
+         *
+         * @param index index of the agent within the list of agents.
+         * @param agent agent to run the task on.
+         */
+        public void run(int index, DCOPAgent agent);
+
+    }
+
+    /**
+     * Build a new phase executor.
+     *
+     * @param nThreads number of worker threads to use.
+     */
+    public AgentPhaseExecutor(int nThreads) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive, got " + nThreads);
+        }
+        this.nThreads = nThreads;
+        final int poolId = poolCounter.incrementAndGet();
+        ThreadPoolExecutor pool = (ThreadPoolExecutor)Executors.newFixedThreadPool(nThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dcop-" + poolId + "-worker-" + count.incrementAndGet());
+                t.setDaemon(true);
+                workers.add(t);
+                return t;
+            }
+        });
+        // Start the workers now so that they can be accounted for from the beginning
+        pool.prestartAllCoreThreads();
+        executor = pool;
+    }
+
+    /**
+     * Get the number of worker threads used by this executor.
+     *
+     * @return number of worker threads.
+     */
+    public int getNumThreads() {
+        return nThreads;
+    }
+
+    /**
+     * Get the identifiers of the worker threads started so far.
+     *
+     * @return identifiers of the worker threads.
+     */
+    public long[] getThreadIds() {
+        Thread[] threads = workers.toArray(new Thread[0]);
+        long[] ids = new long[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            ids[i] = threads[i].getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Run the given task on all agents, waiting until all of them are done.
+     *
+     * @param agents agents to run the task on.
+     * @param task task to run.
+     */
+    public void run(final List<? extends DCOPAgent> agents, final AgentTask task) {
+        final int nAgents = agents.size();
+        final int nChunks = Math.min(nThreads, nAgents);
+        if (nChunks <= 1) {
+            for (int i = 0; i < nAgents; i++) {
+                task.run(i, agents.get(i));
+            }
+            return;
+        }
+
+        List<Callable<Void>> chunks = new ArrayList<>(nChunks);
+        for (int c = 0; c < nChunks; c++) {
+            final int start = (int)((long)nAgents * c / nChunks);
+            final int end   = (int)((long)nAgents * (c + 1) / nChunks);
+            chunks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = start; i < end; i++) {
+                        task.run(i, agents.get(i));
+                    }
+                    return null;
+                }
+            });
+        }
+
+        Parallel.invokeAll(executor, chunks);
+    }
+
+    /**
+     * Stop the worker threads of this executor.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -27,9 +27,14 @@ public interface DCOPAgent
     /**
      * Considering all the messages received from other agents, tries to find
      * an improvement over the previous assignment of the agent.
+     * <p/>
+     * Agents that do lots of work here (such as running many factors) should
+     * stop once the deadline expires, but still choose a target with the work
+     * done so far.
+     * @param deadline time by which the solver must have its assignment.
      * @return true, if the assignment of this agent changed, false otherwise.
      */
-    public boolean improveAssignment();
+    public boolean improveAssignment(Deadline deadline);
 
     /**
      * Returns the ID of the agent.
@@ -2,13 +2,20 @@ package RSLBench.Assignment.DCOP;
 
 import RSLBench.Assignment.AbstractSolver;
 import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.UtilityEvaluator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import RSLBench.Comm.Message;
-import RSLBench.Comm.CommunicationLayer;
+import RSLBench.Comm.IndexedCommunicationLayer;
+import RSLBench.Comm.IndexedOutbox;
+import RSLBench.Helpers.AllocationCounter;
 import RSLBench.Helpers.Logging.Markers;
 import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Settings;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.standard.entities.StandardEntity;
@@ -36,10 +43,33 @@ public abstract class DCOPSolver extends AbstractSolver {
      */
     public static final String KEY_GREEDY_CORRECTION = "dcop.greedy_correction";
 
+    /**
+     * Configuration key to set the number of threads used to run each phase
+     * of a DCOP iteration (send, receive, improve) across agents. With one
+     * thread (the default) the iterations are run sequentially.
+     */
+    public static final String KEY_DCOP_THREADS = "dcop.threads";
+
     private static final Logger Logger = LogManager.getLogger(DCOPSolver.class);
     private List<DCOPAgent> agents;
+    private List<EntityID> agentIDs;
+
+    /** Agents of the previous computation, by id (only kept by persistent solvers) */
+    private Map<EntityID, DCOPAgent> previousAgents = new HashMap<>();
     private List<Double> utilities;
 
+    // Parallel execution of the iteration phases
+    private AgentPhaseExecutor phaseExecutor;
+    private IndexedOutbox[] outboxes;
+    private Collection<? extends Message>[] sentMessages;
+    private boolean[] improvements;
+    private long[] constraintChecks;
+
+    // Per-iteration counters filled by the iteration methods
+    private int iterationMessages;
+    private long iterationBytes;
+    private long iterationNccc;
+
     public DCOPSolver() {
         utilities = new ArrayList<>();
     }
@@ -50,15 +80,22 @@ public abstract class DCOPSolver extends AbstractSolver {
         keys.add(KEY_DCOP_ITERATIONS);
         keys.add(KEY_ANYTIME);
         keys.add(KEY_GREEDY_CORRECTION);
+        keys.add(KEY_DCOP_THREADS);
         return keys;
     }
 
     @Override
     public Assignment compute(ProblemDefinition problem) {
         long startTime = System.currentTimeMillis();
-        boolean ranOutOfTime = false;
-        CommunicationLayer comLayer = new CommunicationLayer();
+        final Deadline deadline = new Deadline(maxTime);
+        setupPhaseExecutor();
         initializeAgents(problem);
+        IndexedCommunicationLayer comLayer = new IndexedCommunicationLayer(agentIDs);
+        if (phaseExecutor != null) {
+            allocatePhaseBuffers(comLayer);
+        }
+        final long[] allocThreads = getAllocationThreads();
+        final long startAllocated = AllocationCounter.getAllocatedBytes(allocThreads);
 
         int totalNccc = 0;
         long bMessages = 0;
@@ -69,64 +106,60 @@ public abstract class DCOPSolver extends AbstractSolver {
         int iterations = 0;
         Assignment finalAssignment = null, bestAssignment = null;
         double bestAssignmentUtility = Double.NEGATIVE_INFINITY;
+        UtilityEvaluator evaluator = null;
         long iterationTime = System.currentTimeMillis();
         while (!done && iterations < MAX_ITERATIONS) {
             finalAssignment = new Assignment();
 
-            // send messages
-            for (DCOPAgent agent : agents) {
-                Collection<? extends Message> messages = agent.sendMessages(comLayer);
-                //collect the byte size of the messages exchanged between agents
-                nMessages = nMessages + messages.size();
-                for (Message msg : messages) {
-                    bMessages += msg.getBytes();
-                }
+            if (phaseExecutor != null) {
+                done = parallelIteration(comLayer, finalAssignment, deadline);
+            } else {
+                done = sequentialIteration(comLayer, finalAssignment, deadline);
             }
-
-            // receive messages
-            for (DCOPAgent agent : agents) {
-                agent.receiveMessages(comLayer.retrieveMessages(agent.getID()));
+            nMessages += iterationMessages;
+            bMessages += iterationBytes;
+
+            // Collect the best assignment visited, reevaluating only the
+            // agents that changed their targets
+            if (evaluator == null) {
+                evaluator = new UtilityEvaluator(problem, finalAssignment);
+            } else {
+                evaluator.update(finalAssignment);
             }
-
-            // try to improve assignment
-            done = true;
-            long nccc = 0;
-            for (DCOPAgent agent : agents) {
-                boolean improved = agent.improveAssignment();
-                nccc = Math.max(nccc, agent.getConstraintChecks());
-                done = done && !improved;
-
-                // Collect assignment
-                finalAssignment.assign(agent.getID(), agent.getTarget());
-            }
-
-            // Collect the best assignment visited
-            double assignmentUtility = getUtility(problem, finalAssignment);
+            double assignmentUtility = evaluator.getUtility();
             utilities.add(assignmentUtility);
-            totalNccc += nccc;
+            totalNccc += iterationNccc;
             iterations++;
 
-            // Check the maximum time requirements
-            long elapsedTime = System.currentTimeMillis() - startTime;
-            if (elapsedTime >= maxTime) {
-                Logger.info("Solver {} ran out of time (got {}, took {} to do {} iterations)",
-                        getIdentifier(), maxTime, elapsedTime, iterations);
-                ranOutOfTime = true;
-                break;
-            }
-
+            // An iteration cut short by the deadline still yields a complete
+            // assignment, so it is considered too
             Logger.trace("Assignment util: {}, values: ", assignmentUtility, finalAssignment);
             if (assignmentUtility < bestAssignmentUtility || Double.isInfinite(bestAssignmentUtility)) {
                 bestAssignmentUtility = assignmentUtility;
                 bestAssignment = finalAssignment;
             }
 
+            // Check the maximum time requirements
+            if (deadline.isExpired()) {
+                Logger.info("Solver {} ran out of time (got {}, took {} to do {} iterations)",
+                        getIdentifier(), maxTime, deadline.getElapsed(), iterations);
+                break;
+            }
+
             long time = System.currentTimeMillis();
             Logger.trace("Iteration {} took {}ms.", iterations, time-iterationTime);
             iterationTime = time;
         }
         Logger.debug("Done with iterations. Needed {} in {}ms.", iterations,
                 System.currentTimeMillis() - startTime);
+        // The deadline applies to the iterations, not to the evaluation and
+        // greedy improvements that follow them
+        final boolean deadlineHit = deadline.isExpired();
+        final long deadlineOverrun = deadlineHit ? deadline.getOverrun() : 0;
+        long allocated = AllocationCounter.getAllocatedBytes(allocThreads);
+        if (allocated >= 0) {
+            allocated -= startAllocated;
+        }
 
         // Recompute this because its not saved from the solving loop
         double finalAssignmentUtility = getUtility(problem, finalAssignment);
@@ -134,8 +167,9 @@ public abstract class DCOPSolver extends AbstractSolver {
         // Perform greedy improvement on the latest assignment if time permits
         Assignment finalGreedy = finalAssignment;
         double finalGreedyU = finalAssignmentUtility;
-        if (!ranOutOfTime) {
-                 finalGreedy = greedyImprovement(problem, finalAssignment);
+        final boolean finalGreedyRun = !deadline.isExpired();
+        if (finalGreedyRun) {
+                 finalGreedy = greedyImprovement(problem, finalAssignment, deadline);
                  finalGreedyU = getUtility(problem, finalGreedy);
         }
         // saftey check, because this should never happen
@@ -150,8 +184,9 @@ public abstract class DCOPSolver extends AbstractSolver {
         // Perform greedy improvement on the anytime best assignment if time permits
         Assignment bestGreedy = bestAssignment;
         double bestGreedyU = bestAssignmentUtility;
-        if (!ranOutOfTime) {
-            bestGreedy = greedyImprovement(problem, bestAssignment);
+        final boolean bestGreedyRun = !deadline.isExpired();
+        if (bestGreedyRun) {
+            bestGreedy = greedyImprovement(problem, bestAssignment, deadline);
             bestGreedyU = getUtility(problem, bestGreedy);
         }
         // saftey check, because this should never happen
@@ -178,41 +213,216 @@ public abstract class DCOPSolver extends AbstractSolver {
         stats.report("MessageBytes", bMessages);
         stats.report("OtherNum", nOtherMessages);
         stats.report("OtherBytes", bOtherMessages);
+        stats.report("MessageBytesPerIteration", iterations > 0 ? algBMessages / iterations : 0);
+        stats.report("InboxAllocations", comLayer.getAllocatedInboxes());
+        stats.report("AllocBytes", allocated);
+        stats.report("AllocBytesPerIteration", iterations > 0 && allocated >= 0 ? allocated / iterations : allocated);
         stats.report("final", finalAssignmentUtility);
         stats.report("best", bestAssignmentUtility);
-        if (!ranOutOfTime) {
-            stats.report("final_greedy", finalGreedyU);
-            stats.report("best_greedy", bestGreedyU);
-        } else {
-            stats.report("final_greedy", Double.NaN);
-            stats.report("best_greedy", Double.NaN);
-        }
+        stats.report("final_greedy", finalGreedyRun ? finalGreedyU : Double.NaN);
+        stats.report("best_greedy", bestGreedyRun ? bestGreedyU : Double.NaN);
         reportUtilities();
+        reportDeadline(deadlineHit, deadlineOverrun);
 
         // Return the assignment depending on the configuration settings
         boolean anytime = config.getBooleanValue(KEY_ANYTIME);
         boolean greedy  = config.getBooleanValue(KEY_GREEDY_CORRECTION);
-        if (anytime && greedy && !ranOutOfTime) {
+        if (anytime && greedy && bestGreedyRun) {
             return bestGreedy;
         } else if (anytime && bestAssignment != null) {
             return bestAssignment;
-        } else if (greedy && !ranOutOfTime) {
+        } else if (greedy && finalGreedyRun) {
             return finalGreedy;
         }
         return finalAssignment;
     }
 
     private void reportUtilities() {
-        StringBuilder buf = new StringBuilder();
-        String prefix = "";
-        for (double utility : utilities) {
-            buf.append(prefix).append(utility);
-            prefix = ",";
+        double[] trace = new double[utilities.size()];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = utilities.get(i);
         }
-        stats.report("utilities", buf.toString());
+        stats.report("utilities", trace);
         utilities.clear();
     }
 
+    /**
+     * Report whether the deadline was missed in this computation, and by how
+     * much.
+     *
+     * @param hit whether the deadline expired before the iterations ended.
+     * @param overrun time past the deadline when the iterations ended, in
+     * milliseconds.
+     */
+    private void reportDeadline(boolean hit, long overrun) {
+        if (hit) {
+            Logger.info("Solver {} missed its deadline by {}ms", getIdentifier(), overrun);
+        }
+        stats.report("deadline_hit", hit);
+        stats.report("deadline_overrun", overrun);
+    }
+
+    /**
+     * Run a single iteration of all agents, one after the other.
+     *
+     * @param comLayer communication layer to use.
+     * @param assignment assignment where to collect the agents' choices.
+     * @param deadline deadline of the computation.
+     * @return <em>true</em> if no agent changed its assignment.
+     */
+    private boolean sequentialIteration(IndexedCommunicationLayer comLayer, Assignment assignment,
+            Deadline deadline) {
+        iterationMessages = 0;
+        iterationBytes = 0;
+        iterationNccc = 0;
+
+        // send messages
+        for (DCOPAgent agent : agents) {
+            Collection<? extends Message> messages = agent.sendMessages(comLayer);
+            //collect the byte size of the messages exchanged between agents
+            iterationMessages += messages.size();
+            for (Message msg : messages) {
+                iterationBytes += msg.getBytes();
+            }
+        }
+
+        // receive messages
+        for (int i = 0; i < agents.size(); i++) {
+            agents.get(i).receiveMessages(comLayer.retrieveMessages(i));
+        }
+
+        // try to improve assignment
+        boolean done = true;
+        for (DCOPAgent agent : agents) {
+            boolean improved = agent.improveAssignment(deadline);
+            iterationNccc = Math.max(iterationNccc, agent.getConstraintChecks());
+            done = done && !improved;
+
+            // Collect assignment
+            assignment.assign(agent.getID(), agent.getTarget());
+        }
+
+        return done;
+    }
+
+    /**
+     * Run a single iteration, with each phase spread across the worker
+     * threads.
+     *
+     * Messages sent by each agent are buffered in a private outbox and then
+     * delivered in agent order, so that every inbox ends up exactly as in the
+     * sequential iteration. Likewise, the results of each agent are collected
+     * in agent order, so both modes produce the same assignments.
+     *
+     * @param comLayer communication layer to use.
+     * @param assignment assignment where to collect the agents' choices.
+     * @param deadline deadline of the computation.
+     * @return <em>true</em> if no agent changed its assignment.
+     */
+    private boolean parallelIteration(final IndexedCommunicationLayer comLayer, Assignment assignment,
+            final Deadline deadline) {
+        iterationMessages = 0;
+        iterationBytes = 0;
+        iterationNccc = 0;
+
+        // send messages
+        phaseExecutor.run(agents, new AgentPhaseExecutor.AgentTask() {
+            @Override
+            public void run(int index, DCOPAgent agent) {
+                sentMessages[index] = agent.sendMessages(outboxes[index]);
+            }
+        });
+        for (int i = 0; i < agents.size(); i++) {
+            iterationMessages += sentMessages[i].size();
+            for (Message msg : sentMessages[i]) {
+                iterationBytes += msg.getBytes();
+            }
+            sentMessages[i] = null;
+            outboxes[i].deliverTo(comLayer);
+        }
+
+        // receive messages
+        phaseExecutor.run(agents, new AgentPhaseExecutor.AgentTask() {
+            @Override
+            public void run(int index, DCOPAgent agent) {
+                agent.receiveMessages(comLayer.retrieveMessages(index));
+            }
+        });
+
+        // try to improve assignment
+        phaseExecutor.run(agents, new AgentPhaseExecutor.AgentTask() {
+            @Override
+            public void run(int index, DCOPAgent agent) {
+                improvements[index] = agent.improveAssignment(deadline);
+                constraintChecks[index] = agent.getConstraintChecks();
+            }
+        });
+        boolean done = true;
+        for (int i = 0; i < agents.size(); i++) {
+            final DCOPAgent agent = agents.get(i);
+            iterationNccc = Math.max(iterationNccc, constraintChecks[i]);
+            done = done && !improvements[i];
+            assignment.assign(agent.getID(), agent.getTarget());
+        }
+
+        return done;
+    }
+
+    /**
+     * Creates (or discards) the pool of worker threads depending on the
+     * configured number of threads.
+     */
+    private void setupPhaseExecutor() {
+        final int nThreads = config.getIntValue(KEY_DCOP_THREADS, 1);
+        if (phaseExecutor != null && phaseExecutor.getNumThreads() == nThreads) {
+            return;
+        }
+        if (phaseExecutor != null) {
+            phaseExecutor.shutdown();
+            phaseExecutor = null;
+        }
+        if (nThreads > 1) {
+            Logger.info("Solver {} running DCOP iterations with {} threads.",
+                    getIdentifier(), nThreads);
+            phaseExecutor = new AgentPhaseExecutor(nThreads);
+            // Agents read the configuration from the worker threads
+            Settings.warmConfigurationCache(config);
+        }
+    }
+
+    /**
+     * Get the threads whose allocations are attributed to this solver.
+     *
+     * @return identifiers of the current thread and the worker threads.
+     */
+    private long[] getAllocationThreads() {
+        final long current = Thread.currentThread().getId();
+        if (phaseExecutor == null) {
+            return new long[]{current};
+        }
+        long[] workers = phaseExecutor.getThreadIds();
+        long[] result = Arrays.copyOf(workers, workers.length + 1);
+        result[workers.length] = current;
+        return result;
+    }
+
+    /**
+     * Allocates the per-agent buffers used by the parallel iterations.
+     *
+     * @param comLayer communication layer whose slots are shared by the outboxes.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // generic arrays can only be created raw
+    private void allocatePhaseBuffers(IndexedCommunicationLayer comLayer) {
+        final int nAgents = agents.size();
+        outboxes = new IndexedOutbox[nAgents];
+        for (int i = 0; i < nAgents; i++) {
+            outboxes[i] = new IndexedOutbox(comLayer);
+        }
+        sentMessages = new Collection[nAgents];
+        improvements = new boolean[nAgents];
+        constraintChecks = new long[nAgents];
+    }
+
     /**
      * This method initializes the agents for the simulation (it calls the
      * initialize method of the specific DCOP algorithm used for the
@@ -222,66 +432,97 @@ public abstract class DCOPSolver extends AbstractSolver {
      */
     protected void initializeAgents(ProblemDefinition problem) {
         agents = new ArrayList<>();
+        agentIDs = new ArrayList<>();
         final long startTime = System.currentTimeMillis();
-        initializeAgentType(problem, problem.getFireAgents());
-        initializeAgentType(problem, problem.getPoliceAgents());
+        final boolean persistent = isPersistent();
+        initializeAgentType(problem, problem.getFireAgents(), persistent);
+        initializeAgentType(problem, problem.getPoliceAgents(), persistent);
+        previousAgents.clear();
+        if (persistent) {
+            for (DCOPAgent agent : agents) {
+                previousAgents.put(agent.getID(), agent);
+            }
+        }
         Logger.debug(Markers.BLUE, "Initialized {} {} agents in {}ms.",
                 agents.size(), getIdentifier(), System.currentTimeMillis() - startTime);
     }
 
-    private void initializeAgentType(ProblemDefinition problem, List<EntityID> ids) {
+    private void initializeAgentType(ProblemDefinition problem, List<EntityID> ids,
+            boolean persistent) {
         for (EntityID agentID : ids) {
-            StandardEntity entity = problem.getWorld().getEntity(agentID);
-            DCOPAgent agent = buildAgent(entity.getStandardURN());
+            DCOPAgent agent = persistent ? previousAgents.get(agentID) : null;
+            if (agent == null) {
+                StandardEntity entity = problem.getWorld().getEntity(agentID);
+                agent = buildAgent(entity.getStandardURN());
+            }
             // @TODO: if required give only local problem view to each agent!
             agent.initialize(config, agentID, problem);
             agents.add(agent);
+            agentIDs.add(agentID);
         }
     }
 
     protected abstract DCOPAgent buildAgent(StandardEntityURN type);
 
+    /**
+     * Check if the agents of this solver are kept between timesteps.
+     * <p/>
+     * Persistent agents are initialized again with the problem of each step,
+     * so they can reuse whatever they built (and learned) in the previous
+     * one. Agents that leave the problem are discarded.
+     *
+     * @return <em>true</em> if agents must be reused, or <em>false</em> to
+     * build new agents at each timestep (the default).
+     */
+    protected boolean isPersistent() {
+        return false;
+    }
+
     /**
      * Operate on the (sequential) greedy algorithm.
      *
      * This gives the agent an opportunity to orderly reconsider their choices.
+     * Each candidate reassignment is evaluated incrementally, in constant time.
+     * Since each reassignment improves the assignment, the agents that come
+     * after the deadline expires simply keep their choices.
      *
      * @param initial current assignment.
+     * @param deadline deadline of the computation.
      */
     public Assignment greedyImprovement(ProblemDefinition problem,
-            Assignment initial)
+            Assignment initial, Deadline deadline)
     {
         Assignment result = new Assignment(initial);
-        double bestUtility = getUtility(problem, initial);
-        Logger.debug("Initiating greedy improvement. Initial value {}", bestUtility);
+        UtilityEvaluator evaluator = new UtilityEvaluator(problem, initial);
+        Logger.debug("Initiating greedy improvement. Initial value {}", evaluator.getUtility());
 
         // Allow each fire agent to try to improve
         for (EntityID fireAgent : problem.getFireAgents()) {
-            Assignment tested = new Assignment(result);
+            if (deadline.isExpired()) {
+                break;
+            }
             for (EntityID fire : problem.getFires()) {
-                tested.assign(fireAgent, fire);
-                double utility = getUtility(problem, tested);
-                if (utility < bestUtility) {
+                if (evaluator.getDelta(fireAgent, fire) < 0) {
+                    evaluator.assign(fireAgent, fire);
                     result.assign(fireAgent, fire);
-                    bestUtility = utility;
                 }
             }
         }
 
         // Allow each police agent to try to improve
         for (EntityID police : problem.getPoliceAgents()) {
-            Assignment tested = new Assignment(result);
+            if (deadline.isExpired()) {
+                break;
+            }
             for (EntityID blockade : problem.getBlockades()) {
-                tested.assign(police, blockade);
-                double utility = getUtility(problem, tested);
-                if (utility < bestUtility) {
+                if (evaluator.getDelta(police, blockade) < 0) {
+                    evaluator.assign(police, blockade);
                     result.assign(police, blockade);
-                    bestUtility = utility;
                 }
             }
         }
 
-        Logger.debug("Finished greedy improvement. Final value {}", bestUtility);
+        Logger.debug("Finished greedy improvement. Final value {}", evaluator.getUtility());
         return result;
     }
 
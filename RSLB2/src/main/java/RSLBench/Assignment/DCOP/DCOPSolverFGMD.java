@@ -56,6 +56,7 @@ public abstract class DCOPSolverFGMD extends AbstractSolver {
     @Override
     public Assignment compute(ProblemDefinition problem) {
         long startTime = System.currentTimeMillis();
+        final Deadline deadline = new Deadline(maxTime);
         boolean ranOutOfTime = false;
         CommunicationLayer comLayer = new CommunicationLayer();
         initializeAgents(problem);
@@ -92,7 +93,7 @@ public abstract class DCOPSolverFGMD extends AbstractSolver {
             done = true;
             long nccc = 0;
             for (DCOPAgent agent : agents) {
-                boolean improved = agent.improveAssignment();
+                boolean improved = agent.improveAssignment(deadline);
                 nccc = Math.max(nccc, agent.getConstraintChecks());
                 done = done && !improved;
 
@@ -203,13 +204,11 @@ public abstract class DCOPSolverFGMD extends AbstractSolver {
     }
 
     private void reportUtilities() {
-        StringBuilder buf = new StringBuilder();
-        String prefix = "";
-        for (double utility : utilities) {
-            buf.append(prefix).append(utility);
-            prefix = ",";
+        double[] trace = new double[utilities.size()];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = utilities.get(i);
         }
-        stats.report("utilities", buf.toString());
+        stats.report("utilities", trace);
         utilities.clear();
     }
 
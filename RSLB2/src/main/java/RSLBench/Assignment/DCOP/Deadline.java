@@ -0,0 +1,62 @@
+package RSLBench.Assignment.DCOP;
+
+/**
+ * Time by which a solver must have its assignment ready.
+ * <p/>
+ * The deadline is handed to the agents at each iteration, so that they can
+ * check it between units of work (such as running each of their factors) and
+ * stop working once it expires. Once any thread sees the deadline expired,
+ * all of them do, so the agents of an iteration agree on it.
+ */
+public final class Deadline {
+
+    /** Deadline that never expires */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long start;
+    private final long budget;
+    private volatile boolean expired;
+
+    /**
+     * Build a deadline that expires after the given time from now.
+     *
+     * @param millis time available, in milliseconds.
+     */
+    public Deadline(long millis) {
+        start = System.nanoTime();
+        budget = millis >= Long.MAX_VALUE / 1000000L ? Long.MAX_VALUE : millis * 1000000L;
+    }
+
+    /**
+     * Check if the deadline has expired.
+     *
+     * @return <em>true</em> if the available time has been spent.
+     */
+    public boolean isExpired() {
+        if (!expired && System.nanoTime() - start >= budget) {
+            expired = true;
+        }
+        return expired;
+    }
+
+    /**
+     * Get the time elapsed since the deadline was set.
+     *
+     * @return elapsed time, in milliseconds.
+     */
+    public long getElapsed() {
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    /**
+     * Get how long ago the deadline expired.
+     *
+     * @return time past the deadline in milliseconds, or <em>0</em> if it
+     * has not expired yet.
+     */
+    public long getOverrun() {
+        final long overrun = System.nanoTime() - start - budget;
+        return overrun > 0 ? overrun / 1000000L : 0;
+    }
+
+}
@@ -0,0 +1,282 @@
+package RSLBench.Assignment;
+
+import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Settings;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Incremental evaluator of the utility of an assignment.
+ *
+ * The utility is the sum of the individual utilities of all agents, plus the
+ * workload term of each fire given the number of agents assigned to it. The
+ * evaluator keeps the individual contribution of each agent and the
+ * number of agents assigned to each target, so that the change in utility of
+ * reassigning a single agent is obtained in constant time, instead of
+ * evaluating the whole assignment again. The best target of each agent, used
+ * to normalize its individual utility, is only looked up once.
+ *
+ * Utilities are costs (lower is better), and an assignment where two police
+ * agents attend the same blockade has an infinite utility.
+ */
+public class UtilityEvaluator {
+
+    private final ProblemDefinition problem;
+    private final double policePenalty;
+    private final double firePenalty;
+    private final double workload;
+    private final double selfishPenalty;
+
+    // Agents, fire agents first
+    private final HashMap<EntityID, Integer> agentIndex = new HashMap<>();
+    private final int nFireAgents;
+    private final EntityID[] agents;
+    private final double[] maxDeltas;
+    private final EntityID[] targets;
+    private final double[] contributions;
+
+    // Number of fire agents assigned to each fire
+    private final HashMap<EntityID, Integer> fireIndex = new HashMap<>();
+    private int[] fireCounts;
+
+    // Number of police agents assigned to each blockade
+    private final HashMap<EntityID, Integer> blockadeIndex = new HashMap<>();
+    private int[] blockadeCounts;
+    private int nConflicts;
+
+    /**
+     * Build a new evaluator for the given problem, starting from the given
+     * assignment.
+     *
+     * @param problem problem being solved.
+     * @param solution initial assignment.
+     */
+    public UtilityEvaluator(ProblemDefinition problem, Assignment solution) {
+        this.problem = problem;
+        final Settings settings = problem.getSettings();
+        policePenalty = settings.getBlockedPolicePenalty();
+        firePenalty = settings.getBlockedFirePenalty();
+        workload = settings.getWorkload();
+        selfishPenalty = settings.getSelfishPenalty();
+
+        final List<EntityID> fireAgents = problem.getFireAgents();
+        final List<EntityID> policeAgents = problem.getPoliceAgents();
+        nFireAgents = fireAgents.size();
+        final int nAgents = nFireAgents + policeAgents.size();
+        agents = new EntityID[nAgents];
+        maxDeltas = new double[nAgents];
+        targets = new EntityID[nAgents];
+        contributions = new double[nAgents];
+
+        for (EntityID fire : problem.getFires()) {
+            fireIndex.put(fire, fireIndex.size());
+        }
+        fireCounts = new int[fireIndex.size()];
+        for (EntityID blockade : problem.getBlockades()) {
+            blockadeIndex.put(blockade, blockadeIndex.size());
+        }
+        blockadeCounts = new int[blockadeIndex.size()];
+
+        for (int i = 0; i < nAgents; i++) {
+            final boolean fire = i < nFireAgents;
+            agents[i] = fire ? fireAgents.get(i) : policeAgents.get(i - nFireAgents);
+            agentIndex.put(agents[i], i);
+
+            double maxDelta = fire
+                    ? problem.getFireUtility(agents[i], problem.getHighestTargetForFireAgent(agents[i]))
+                    : problem.getPoliceUtility(agents[i], problem.getHighestTargetForPoliceAgent(agents[i]));
+            maxDeltas[i] = maxDelta == 0.0 ? 1.0 : maxDelta;
+
+            // Police agents start unassigned, and are assigned below
+            targets[i] = Assignment.UNKNOWN_TARGET_ID;
+            if (fire) {
+                // Fire agents are always counted, even if unassigned
+                targets[i] = solution.getAssignment(agents[i]);
+                contributions[i] = getContribution(i, targets[i]);
+                fireCounts[getFireIndex(targets[i])]++;
+            }
+        }
+        for (int i = nFireAgents; i < nAgents; i++) {
+            assign(i, solution.getAssignment(agents[i]));
+        }
+    }
+
+    /**
+     * Get the utility of the current assignment.
+     *
+     * @return utility of the current assignment.
+     */
+    public double getUtility() {
+        if (nConflicts > 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double utility = 0;
+        for (double contribution : contributions) {
+            utility += contribution;
+        }
+        for (int count : fireCounts) {
+            utility += getCountUtility(count);
+        }
+        return utility;
+    }
+
+    /**
+     * Get the change in utility obtained by assigning the given agent to the
+     * given target, leaving everything else as it is.
+     *
+     * When the current assignment has an infinite utility, the change is
+     * zero unless the reassignment solves all conflicts (in which case it is
+     * negative infinity).
+     *
+     * @param agent agent to reassign.
+     * @param target new target for that agent.
+     * @return utility change of the reassignment.
+     */
+    public double getDelta(EntityID agent, EntityID target) {
+        final int i = agentIndex.get(agent);
+        final EntityID current = targets[i];
+        if (current.equals(target)) {
+            return 0;
+        }
+
+        double delta = getContribution(i, target) - contributions[i];
+        int conflicts = nConflicts;
+        if (i < nFireAgents) {
+            final int from = fireCounts[getFireIndex(current)];
+            final int to = fireIndex.containsKey(target) ? fireCounts[fireIndex.get(target)] : 0;
+            delta += getCountUtility(from - 1) - getCountUtility(from)
+                    + getCountUtility(to + 1) - getCountUtility(to);
+        } else {
+            if (!Assignment.UNKNOWN_TARGET_ID.equals(current)
+                    && blockadeCounts[getBlockadeIndex(current)] > 1) {
+                conflicts--;
+            }
+            if (!Assignment.UNKNOWN_TARGET_ID.equals(target) && blockadeIndex.containsKey(target)
+                    && blockadeCounts[blockadeIndex.get(target)] > 0) {
+                conflicts++;
+            }
+        }
+
+        if (nConflicts > 0) {
+            return conflicts > 0 ? 0 : Double.NEGATIVE_INFINITY;
+        }
+        return conflicts > 0 ? Double.POSITIVE_INFINITY : delta;
+    }
+
+    /**
+     * Assign the given agent to the given target.
+     *
+     * @param agent agent to reassign.
+     * @param target new target for that agent.
+     */
+    public void assign(EntityID agent, EntityID target) {
+        assign(agentIndex.get(agent), target);
+    }
+
+    /**
+     * Update the evaluator to the given assignment, reassigning only the
+     * agents whose target has changed.
+     *
+     * @param solution new assignment.
+     * @return number of agents reassigned.
+     */
+    public int update(Assignment solution) {
+        int nChanged = 0;
+        for (int i = 0; i < agents.length; i++) {
+            final EntityID target = solution.getAssignment(agents[i]);
+            if (!targets[i].equals(target)) {
+                assign(i, target);
+                nChanged++;
+            }
+        }
+        return nChanged;
+    }
+
+    private void assign(int i, EntityID target) {
+        final EntityID current = targets[i];
+        if (current.equals(target)) {
+            return;
+        }
+
+        if (i < nFireAgents) {
+            fireCounts[getFireIndex(current)]--;
+            fireCounts[getFireIndex(target)]++;
+        } else {
+            if (!Assignment.UNKNOWN_TARGET_ID.equals(current)) {
+                if (--blockadeCounts[getBlockadeIndex(current)] > 0) {
+                    nConflicts--;
+                }
+            }
+            if (!Assignment.UNKNOWN_TARGET_ID.equals(target)) {
+                if (blockadeCounts[getBlockadeIndex(target)]++ > 0) {
+                    nConflicts++;
+                }
+            }
+        }
+        targets[i] = target;
+        contributions[i] = getContribution(i, target);
+    }
+
+    /**
+     * Get the individual utility of assigning the given agent to the given
+     * target.
+     */
+    private double getContribution(int i, EntityID target) {
+        final EntityID agent = agents[i];
+        if (i < nFireAgents) {
+            final double delta = problem.getFireUtility(agent, target);
+            double u = -delta * Math.exp(-(delta / maxDeltas[i]));
+            if (problem.isFireAgentBlocked(agent, target)) {
+                u += firePenalty;
+            }
+            return u;
+        }
+
+        if (Assignment.UNKNOWN_TARGET_ID.equals(target)) {
+            return 0;
+        }
+        final double delta = problem.getPoliceUtility(agent, target);
+        double u = -delta * Math.exp(-(delta / maxDeltas[i]));
+        if (problem.isPoliceAgentBlocked(agent, target)) {
+            u += policePenalty;
+        }
+        return u;
+    }
+
+    /**
+     * Get the utility of a fire attended by the given number of agents.
+     */
+    private double getCountUtility(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        if (count >= workload) {
+            return workload / (count * (count - (workload - 1)));
+        }
+        return selfishPenalty;
+    }
+
+    private int getFireIndex(EntityID fire) {
+        Integer index = fireIndex.get(fire);
+        if (index == null) {
+            index = fireIndex.size();
+            fireIndex.put(fire, index);
+            fireCounts = Arrays.copyOf(fireCounts, index + 1);
+        }
+        return index;
+    }
+
+    private int getBlockadeIndex(EntityID blockade) {
+        Integer index = blockadeIndex.get(blockade);
+        if (index == null) {
+            index = blockadeIndex.size();
+            blockadeIndex.put(blockade, index);
+            blockadeCounts = Arrays.copyOf(blockadeCounts, index + 1);
+        }
+        return index;
+    }
+
+}
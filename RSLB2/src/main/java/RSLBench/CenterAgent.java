@@ -7,6 +7,7 @@ import java.util.EnumSet;
 import java.util.List;
 
 import rescuecore2.messages.Command;
+import rescuecore2.messages.control.KASense;
 import rescuecore2.standard.components.StandardAgent;
 import rescuecore2.standard.entities.*;
 import rescuecore2.worldmodel.ChangeSet;
@@ -45,6 +46,7 @@ public class CenterAgent extends StandardAgent<Building> {
     public static final String CONF_KEY_TIME = "time";
 
     private Solver solver = null;
+    private Settings settings = null;
     private Exporter exporter = null;
     private ArrayList<EntityID> fireAgentsIDs = new ArrayList<>();
     private ArrayList<EntityID> policeAgentsIDs = new ArrayList<>();
@@ -52,6 +54,8 @@ public class CenterAgent extends StandardAgent<Building> {
     private List<PlatoonFireAgent> fireAgents;
     private List<PlatoonPoliceAgent> policeAgents;
     private List<Blockade> blockades = new ArrayList<>();
+    private ProblemDefinition lastProblem = null;
+    private int lastProblemTime = -1;
 
     public CenterAgent(List<PlatoonFireAgent> fireAgents,
             List<PlatoonPoliceAgent> policeAgents) {
@@ -120,6 +124,9 @@ public class CenterAgent extends StandardAgent<Building> {
 
         initializeParameters();
 
+        // Snapshot of the configuration values used by all the problems
+        settings = new Settings(config);
+
         if (config.getBooleanValue(Constants.KEY_EXPORT)) {
             exporter = new Exporter();
             exporter.initialize(model, config);
@@ -211,6 +218,15 @@ public class CenterAgent extends StandardAgent<Building> {
         return null;
     }
 
+    @Override
+    protected void processSense(KASense sense) {
+        // Test solvers still running in the background read the world
+        if (solver instanceof CompositeSolver) {
+            ((CompositeSolver)solver).awaitTestSolvers();
+        }
+        super.processSense(sense);
+    }
+
     @Override
     protected void think(int time, ChangeSet changed, Collection<Command> heard) {
         final long startTime = System.currentTimeMillis();
@@ -255,8 +271,20 @@ public class CenterAgent extends StandardAgent<Building> {
 
         // Build the problem
         ArrayList<EntityID> fires = new ArrayList<>(burning);
-        ProblemDefinition problem = new ProblemDefinition(config, fireAgentsIDs,
-                fires, policeAgentsIDs, blockadeIDs, lastAssignment, model);
+        ProblemDefinition problem;
+        if (config.getBooleanValue(Constants.KEY_PROBLEM_INCREMENTAL, false)
+                && lastProblemTime == time-1) {
+            // The change set only holds the changes since the last step
+            problem = new ProblemDefinition(config, settings, time, fireAgentsIDs,
+                    fires, policeAgentsIDs, blockadeIDs, lastAssignment, model,
+                    lastProblem, changed);
+        } else {
+            problem = new ProblemDefinition(config, settings, time, fireAgentsIDs,
+                    fires, policeAgentsIDs, blockadeIDs, lastAssignment, model,
+                    null, null);
+        }
+        lastProblem = problem;
+        lastProblemTime = time;
         nextTime = System.currentTimeMillis();
         Logger.debug("Build problem took {} millis", nextTime - lastTime);
         lastTime = nextTime;
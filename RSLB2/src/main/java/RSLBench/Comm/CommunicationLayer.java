@@ -53,7 +53,7 @@ public class CommunicationLayer {
      *
      * @param agentID: the id of the recipient
      */
-    public void send(EntityID agentID, Collection<Message> messages) {
+    public void send(EntityID agentID, Collection<? extends Message> messages) {
         for (Message message : messages) {
             send(agentID, message);
         }
@@ -73,4 +73,19 @@ public class CommunicationLayer {
         return mesageInbox;
     }
 
+    /**
+     * Moves all the messages held by this layer to the given one, keeping the
+     * order in which they were sent to each recipient.
+     *
+     * After this call, all inboxes of this layer are empty.
+     *
+     * @param other communication layer that will receive the messages.
+     */
+    public void deliverTo(CommunicationLayer other) {
+        for (Map.Entry<EntityID, List<Message>> entry : messageInboxes.entrySet()) {
+            other.send(entry.getKey(), entry.getValue());
+        }
+        messageInboxes.clear();
+    }
+
 }
@@ -0,0 +1,236 @@
+package RSLBench.Comm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Communication layer that keeps the inboxes of a fixed set of agents in
+ * dense, reusable slots.
+ * <p/>
+ * Agents are mapped to integer slots once (typically once per problem
+ * definition), and each slot holds two inbox lists that are swapped on every
+ * retrieval. Hence, the list returned by {@link #retrieveMessages(EntityID)}
+ * stays valid until the next retrieval for the same agent, and after the
+ * first few iterations no more inboxes need to be allocated.
+ * <p/>
+ * Messages sent to agents that were not registered when building the layer
+ * are handled as in the regular {@link CommunicationLayer}.
+ * <p/>
+ * Inboxes of different agents can be retrieved concurrently, but sending
+ * messages is not thread-safe. To send messages from several threads, give
+ * each sender an {@link IndexedOutbox} of this layer.
+ */
+public class IndexedCommunicationLayer extends CommunicationLayer {
+
+    private final Map<EntityID, Integer> slots;
+    private final EntityID[] agents;
+    private final Inbox[] inboxes;
+
+    // Slots whose inboxes got messages since the last delivery
+    private final int[] pending;
+    private int nPending;
+
+    private long nMessages;
+    private long nBytes;
+    private long nAllocatedInboxes;
+
+    /**
+     * Build a new indexed communication layer.
+     *
+     * @param agents agents that will exchange messages through this layer.
+     */
+    public IndexedCommunicationLayer(List<EntityID> agents) {
+        final int nAgents = agents.size();
+        this.agents = agents.toArray(new EntityID[nAgents]);
+        slots = new HashMap<>(nAgents * 2);
+        for (int i = 0; i < nAgents; i++) {
+            slots.put(this.agents[i], i);
+        }
+        inboxes = new Inbox[nAgents];
+        pending = new int[nAgents];
+    }
+
+    /**
+     * Get the slot assigned to the given agent.
+     *
+     * @param agentID agent whose slot to get.
+     * @return slot of that agent, or -1 if the agent is not registered.
+     */
+    public int getSlot(EntityID agentID) {
+        Integer slot = slots.get(agentID);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Get the agent assigned to the given slot.
+     *
+     * @param slot slot of the agent.
+     * @return id of that agent.
+     */
+    public EntityID getAgent(int slot) {
+        return agents[slot];
+    }
+
+    @Override
+    public void send(EntityID agentID, Message message) {
+        Integer slot = slots.get(agentID);
+        if (slot == null) {
+            super.send(agentID, message);
+        } else {
+            send(slot, message);
+        }
+    }
+
+    @Override
+    public void send(EntityID agentID, Collection<? extends Message> messages) {
+        Integer slot = slots.get(agentID);
+        if (slot == null) {
+            super.send(agentID, messages);
+            return;
+        }
+        for (Message message : messages) {
+            send(slot, message);
+        }
+    }
+
+    /**
+     * Sends a message to the agent in the given slot.
+     *
+     * @param slot slot of the recipient.
+     * @param message the message.
+     */
+    public void send(int slot, Message message) {
+        Inbox inbox = inboxes[slot];
+        if (inbox == null) {
+            inbox = new Inbox();
+            inboxes[slot] = inbox;
+        }
+        if (inbox.messages == null) {
+            inbox.messages = new ArrayList<>();
+            nAllocatedInboxes++;
+        }
+        if (!inbox.pending) {
+            inbox.pending = true;
+            pending[nPending++] = slot;
+        }
+        inbox.messages.add(message);
+        nMessages++;
+        nBytes += message.getBytes();
+    }
+
+    @Override
+    public List<Message> retrieveMessages(EntityID agentID) {
+        Integer slot = slots.get(agentID);
+        if (slot == null) {
+            return super.retrieveMessages(agentID);
+        }
+        return retrieveMessages(slot);
+    }
+
+    /**
+     * Retrieves the messages from the inbox of the agent in the given slot.
+     *
+     * The returned list is owned by this layer, and it is only valid until
+     * the next retrieval for the same agent, which clears and reuses it.
+     *
+     * @param slot slot of the recipient.
+     * @return list of all the messages received since the last retrieval.
+     */
+    public List<Message> retrieveMessages(int slot) {
+        Inbox inbox = inboxes[slot];
+        if (inbox == null) {
+            inbox = new Inbox();
+            inboxes[slot] = inbox;
+        }
+        List<Message> result = inbox.messages;
+        List<Message> next = inbox.spare;
+        if (result == null) {
+            // Nothing was sent since the last retrieval
+            result = next;
+            if (result == null) {
+                result = new ArrayList<>();
+                nAllocatedInboxes++;
+                inbox.spare = result;
+            }
+            result.clear();
+            return result;
+        }
+
+        if (next != null) {
+            next.clear();
+        }
+        inbox.messages = next;
+        inbox.spare = result;
+        return result;
+    }
+
+    @Override
+    public void deliverTo(CommunicationLayer other) {
+        for (int i = 0; i < nPending; i++) {
+            final int slot = pending[i];
+            final Inbox inbox = inboxes[slot];
+            inbox.pending = false;
+            if (inbox.messages != null && !inbox.messages.isEmpty()) {
+                other.send(agents[slot], inbox.messages);
+                inbox.messages.clear();
+            }
+        }
+        nPending = 0;
+        super.deliverTo(other);
+    }
+
+    /**
+     * Get the number of messages sent through this layer since the last
+     * counters reset.
+     *
+     * @return number of messages sent.
+     */
+    public long getMessageCount() {
+        return nMessages;
+    }
+
+    /**
+     * Get the number of bytes sent through this layer since the last counters
+     * reset.
+     *
+     * @return number of bytes sent.
+     */
+    public long getMessageBytes() {
+        return nBytes;
+    }
+
+    /**
+     * Get the number of inbox lists allocated by this layer since the last
+     * counters reset.
+     *
+     * @return number of inboxes allocated.
+     */
+    public long getAllocatedInboxes() {
+        return nAllocatedInboxes;
+    }
+
+    /**
+     * Reset the message, bytes and allocation counters.
+     */
+    public void resetCounters() {
+        nMessages = 0;
+        nBytes = 0;
+        nAllocatedInboxes = 0;
+    }
+
+    /**
+     * Inbox of a slot, with the list that collects its messages and the one
+     * to reuse after the next retrieval.
+     */
+    private static final class Inbox {
+        private List<Message> messages;
+        private List<Message> spare;
+        private boolean pending;
+    }
+
+}
@@ -0,0 +1,101 @@
+package RSLBench.Comm;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Buffer for the messages that a single agent sends through an
+ * {@link IndexedCommunicationLayer}, so that several agents can send their
+ * messages concurrently.
+ * <p/>
+ * Messages are kept in sending order together with the slot of their
+ * recipient, so the memory used is proportional to the messages actually
+ * sent. {@link #deliverTo(CommunicationLayer)} moves them to the layer, where
+ * each inbox ends up with the messages in the same order as if they had been
+ * sent there directly.
+ * <p/>
+ * Messages sent to agents that are not registered in the layer are handled
+ * as in the regular {@link CommunicationLayer}.
+ */
+public class IndexedOutbox extends CommunicationLayer {
+
+    private final IndexedCommunicationLayer layer;
+    private int[] recipients = new int[16];
+    private Message[] messages = new Message[16];
+    private int size;
+
+    /**
+     * Build a new outbox for the given layer.
+     *
+     * @param layer layer whose agents and slots this outbox sends messages to.
+     */
+    public IndexedOutbox(IndexedCommunicationLayer layer) {
+        this.layer = layer;
+    }
+
+    @Override
+    public void send(EntityID agentID, Message message) {
+        final int slot = layer.getSlot(agentID);
+        if (slot < 0) {
+            super.send(agentID, message);
+        } else {
+            send(slot, message);
+        }
+    }
+
+    @Override
+    public void send(EntityID agentID, Collection<? extends Message> messages) {
+        final int slot = layer.getSlot(agentID);
+        for (Message message : messages) {
+            if (slot < 0) {
+                super.send(agentID, message);
+            } else {
+                send(slot, message);
+            }
+        }
+    }
+
+    /**
+     * Sends a message to the agent in the given slot of the layer.
+     *
+     * @param slot slot of the recipient.
+     * @param message the message.
+     */
+    public void send(int slot, Message message) {
+        if (size == messages.length) {
+            recipients = Arrays.copyOf(recipients, size * 2);
+            messages = Arrays.copyOf(messages, size * 2);
+        }
+        recipients[size] = slot;
+        messages[size] = message;
+        size++;
+    }
+
+    /**
+     * Outboxes only hold outgoing messages, so they can not be retrieved.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public List<Message> retrieveMessages(EntityID agentID) {
+        throw new UnsupportedOperationException("Outboxes can not be read");
+    }
+
+    @Override
+    public void deliverTo(CommunicationLayer other) {
+        for (int i = 0; i < size; i++) {
+            if (other == layer) {
+                layer.send(recipients[i], messages[i]);
+            } else {
+                other.send(layer.getAgent(recipients[i]), messages[i]);
+            }
+            messages[i] = null;
+        }
+        size = 0;
+        super.deliverTo(other);
+    }
+
+}
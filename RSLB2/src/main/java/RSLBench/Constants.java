@@ -22,6 +22,9 @@ public class Constants {
     /** Path where exported problems should be saved to */
     public static final String KEY_EXPORT_PATH = "export.path";
 
+    /** Format of the exported problems */
+    public static final String KEY_EXPORT_FORMAT = "export.format";
+
     /** Fully qualified class of the utility function to employ */
     public static final String KEY_UTILITY_CLASS = "util.class";
 
@@ -73,6 +76,15 @@ public class Constants {
     /** The maximum number of neighbours of an agent or fire in the pruned problem */
     public static final String KEY_PROBLEM_MAXNEIGHBORS = "problem.max_neighbors";
 
+    /** Whether to build each problem by updating the previous one with the world changes */
+    public static final String KEY_PROBLEM_INCREMENTAL = "problem.incremental";
+
+    /** Number of threads used to search for blocked agents when building the problem */
+    public static final String KEY_PROBLEM_THREADS = "problem.threads";
+
+    /** Seed (in hexadecimal) of the random streams used by agents and utility functions */
+    public static final String KEY_RANDOM_SEED = "random.seed";
+
     /** Config key to the results path */
     public static final String KEY_RESULTS_PATH = "results.path";
 
@@ -0,0 +1,74 @@
+package RSLBench.Helpers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes allocated in the heap by a set of threads.
+ * <p/>
+ * This relies on the HotSpot-specific extension of the {@link ThreadMXBean}.
+ * When running on a JVM that does not provide it, all readings return
+ * <em>-1</em>.
+ */
+public final class AllocationCounter {
+
+    private static final com.sun.management.ThreadMXBean THREADS;
+    static {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean threads = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            threads = (com.sun.management.ThreadMXBean)bean;
+            try {
+                if (!threads.isThreadAllocatedMemoryEnabled()) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                }
+            } catch (UnsupportedOperationException ex) {
+                threads = null;
+            }
+        }
+        THREADS = threads;
+    }
+
+    private AllocationCounter() {}
+
+    /**
+     * Check if allocation counting is supported by this JVM.
+     *
+     * @return <em>true</em> if allocations can be counted.
+     */
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Get the total number of bytes allocated so far by the current thread.
+     *
+     * @return number of bytes allocated, or -1 if unsupported.
+     */
+    public static long getAllocatedBytes() {
+        return getAllocatedBytes(new long[]{Thread.currentThread().getId()});
+    }
+
+    /**
+     * Get the total number of bytes allocated so far by the given threads.
+     *
+     * Threads that are not alive anymore are ignored.
+     *
+     * @param threadIds identifiers of the threads to consider.
+     * @return number of bytes allocated, or -1 if unsupported.
+     */
+    public static long getAllocatedBytes(long[] threadIds) {
+        if (THREADS == null) {
+            return -1;
+        }
+
+        long total = 0;
+        for (long allocated : THREADS.getThreadAllocatedBytes(threadIds)) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+}
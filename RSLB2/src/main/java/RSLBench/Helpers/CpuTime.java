@@ -0,0 +1,43 @@
+package RSLBench.Helpers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the CPU time consumed by the current thread.
+ * <p/>
+ * When the JVM does not support measuring the CPU time of threads, all
+ * readings return <em>-1</em>.
+ */
+public final class CpuTime {
+
+    private static final ThreadMXBean THREADS;
+    static {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try {
+            if (!threads.isCurrentThreadCpuTimeSupported()) {
+                threads = null;
+            } else if (!threads.isThreadCpuTimeEnabled()) {
+                threads.setThreadCpuTimeEnabled(true);
+            }
+        } catch (UnsupportedOperationException ex) {
+            threads = null;
+        }
+        THREADS = threads;
+    }
+
+    private CpuTime() {}
+
+    /**
+     * Get the CPU time consumed so far by the current thread.
+     *
+     * @return CPU time in nanoseconds, or -1 if unsupported.
+     */
+    public static long getThreadCpuTime() {
+        if (THREADS == null) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+}
@@ -6,10 +6,15 @@ package RSLBench.Helpers;
 
 import RSLBench.Constants;
 import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Helpers.Utility.ProblemSnapshot;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.config.Config;
@@ -23,12 +28,72 @@ import rescuecore2.worldmodel.EntityID;
 public class Exporter {
     private static final Logger Logger = LogManager.getLogger(Exporter.class);
 
+    /**
+     * Only the fire problem, as the required agents of each fire and the
+     * utility matrix (<em>.def</em> files).
+     */
+    public static final String FORMAT_DEF = "def";
+
+    /**
+     * Whole problem snapshots (<em>.problem</em> files), that can be replayed
+     * with {@link ProblemReplay}.
+     *
+     * @see ProblemSnapshot
+     */
+    public static final String FORMAT_PROBLEM = "problem";
+
+    /**
+     * Whole problem snapshots in binary (<em>.bin</em> files), that can also
+     * be replayed with {@link ProblemReplay}.
+     *
+     * @see ProblemSnapshot#writeBinary(java.nio.channels.WritableByteChannel)
+     */
+    public static final String FORMAT_BINARY = "binary";
+
+    /** Extension of the binary snapshot files */
+    public static final String BINARY_EXTENSION = "bin";
+
+    /**
+     * Single thread that writes the snapshots, in order, so that the center
+     * agent does not wait for the disk.
+     */
+    private static final ExecutorService writerThread =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "export-writer");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("export-shutdown") {
+            @Override
+            public void run() {
+                writerThread.shutdown();
+                try {
+                    writerThread.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
     private Config config;
     private int counter;
+    private String format;
 
     public void initialize(StandardWorldModel world, Config config) {
         this.config = config;
         counter = 0;
+        format = config.getValue(Constants.KEY_EXPORT_FORMAT, FORMAT_DEF);
+        if (!FORMAT_DEF.equals(format) && !FORMAT_PROBLEM.equals(format)
+                && !FORMAT_BINARY.equals(format)) {
+            Logger.error("Unknown export format " + format + ", using " + FORMAT_DEF + ".");
+            format = FORMAT_DEF;
+        }
     }
 
     public void export(ProblemDefinition utility) {
@@ -40,7 +105,31 @@ public class Exporter {
             Logger.error("Unable to create exports directory \"" + folder.getPath() + "\"");
             System.exit(0);
         }
-        export(utility, folder.getPath() + "/" + counter + ".def");
+        if (FORMAT_DEF.equals(format)) {
+            export(utility, folder.getPath() + "/" + counter + "." + FORMAT_DEF);
+            return;
+        }
+
+        // The snapshot must be taken now, because the utility function reads
+        // the world, but it is written in the background.
+        final ProblemSnapshot snapshot = ProblemSnapshot.of(utility);
+        final boolean binary = FORMAT_BINARY.equals(format);
+        final File file = new File(folder, counter + "."
+                + (binary ? BINARY_EXTENSION : FORMAT_PROBLEM));
+        writerThread.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (binary) {
+                        snapshot.writeBinary(file);
+                    } else {
+                        snapshot.write(file);
+                    }
+                } catch (IOException e) {
+                    Logger.error(e.getLocalizedMessage(), e);
+                }
+            }
+        });
     }
 
     private void export(ProblemDefinition utility, String file) {
@@ -0,0 +1,105 @@
+package RSLBench.Helpers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helpers to run tasks in thread pools and get their results back as if
+ * they had been run in the calling thread.
+ */
+public final class Parallel {
+
+    private Parallel() {}
+
+    /**
+     * Build a factory of daemon threads, named with the given prefix and
+     * their sequence number.
+     *
+     * @param prefix prefix of the thread names.
+     * @return new thread factory.
+     */
+    public static ThreadFactory daemonThreads(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, prefix + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Run the given tasks in the executor and wait for all of them.
+     *
+     * @param executor executor to run the tasks.
+     * @param tasks tasks to run.
+     * @return results of the tasks, in the same order as the tasks.
+     * @throws RuntimeException or Error thrown by the first failed task, or
+     * wrapping its checked exception.
+     */
+    public static <T> List<T> invokeAll(ExecutorService executor,
+            Collection<? extends Callable<T>> tasks) {
+        return invokeAll(executor, tasks, RuntimeException.class);
+    }
+
+    /**
+     * Run the given tasks in the executor and wait for all of them, letting
+     * checked exceptions of the given type through.
+     *
+     * @param executor executor to run the tasks.
+     * @param tasks tasks to run.
+     * @param checked type of the checked exceptions thrown by the tasks.
+     * @return results of the tasks, in the same order as the tasks.
+     * @throws X if the first failed task threw an exception of that type.
+     * @throws RuntimeException or Error thrown by the first failed task, or
+     * wrapping its other checked exceptions. Interruptions are rethrown as
+     * runtime exceptions, with the interrupted status of the thread set.
+     */
+    public static <T, X extends Exception> List<T> invokeAll(ExecutorService executor,
+            Collection<? extends Callable<T>> tasks, Class<X> checked) throws X {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> result : executor.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for tasks", ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (checked.isInstance(cause)) {
+                throw checked.cast(cause);
+            }
+            throw unchecked(cause);
+        }
+    }
+
+    /**
+     * Get an exception thrown by a task as an unchecked exception.
+     *
+     * @param cause exception thrown by the task.
+     * @return the exception itself if it is a runtime exception, or a
+     * runtime exception that wraps it.
+     * @throws Error if the task threw an error, which is rethrown as is.
+     */
+    public static RuntimeException unchecked(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException)cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error)cause;
+        }
+        return new RuntimeException(cause);
+    }
+
+}
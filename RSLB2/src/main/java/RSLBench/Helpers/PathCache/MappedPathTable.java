@@ -0,0 +1,283 @@
+package RSLBench.Helpers.PathCache;
+
+import RSLBench.Search.SearchResults;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import rescuecore2.standard.entities.Area;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * All-pairs path table stored in a flat, memory-mapped file.
+ * <p/>
+ * Areas are identified by dense indices (their position in the ascending
+ * list of area ids). For each target area <em>t</em>, the file holds a row
+ * with the next hop from every other area towards <em>t</em>, so that the
+ * path between any two areas is reconstructed by following the hops within
+ * a single row, reading them straight from the mapped file.
+ * <p/>
+ * File layout (big endian): magic, version, number of areas <em>n</em>,
+ * bytes per entry (2 or 4), the <em>n</em> area ids, and then <em>n</em>
+ * rows of <em>n</em> entries each, where unreachable areas hold -1.
+ * <p/>
+ * Paths are returned in the same form as the search algorithm that the
+ * table stands for: by default they exclude the starting area and include
+ * the final one, as {@link RSLBench.Search.BreadthFirstSearch} does, but
+ * they can also be listed from the final area's side, including the
+ * starting area and excluding the final one, as {@link RSLBench.Search.AStar}
+ * does.
+ *
+ * @see PathPrecomputation
+ */
+public class MappedPathTable {
+    private static final Logger Logger = LogManager.getLogger(MappedPathTable.class);
+
+    private static final int MAGIC = 0x52534C50;
+    private static final int VERSION = 1;
+    static final int UNREACHABLE = -1;
+
+    private final StandardWorldModel model;
+    private final boolean reversed;
+    private final int[] ids;
+    private final Area[] areas;
+    private final int entryBytes;
+    private final long rowBytes;
+    private final long headerBytes;
+    private final int rowsPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    private MappedPathTable(File file, StandardWorldModel model, boolean reversed)
+            throws IOException {
+        this.model = model;
+        this.reversed = reversed;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                throw new IOException("File " + file + " is not a path table.");
+            }
+            final int n = raf.readInt();
+            entryBytes = raf.readInt();
+            ids = new int[n];
+            areas = new Area[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = raf.readInt();
+                StandardEntity entity = model.getEntity(new EntityID(ids[i]));
+                if (!(entity instanceof Area)) {
+                    throw new IOException("Path table " + file + " does not match the map: "
+                            + ids[i] + " is not an area.");
+                }
+                areas[i] = (Area)entity;
+            }
+
+            headerBytes = getHeaderBytes(n);
+            rowBytes = (long)n * entryBytes;
+            rowsPerSegment = getRowsPerSegment(rowBytes);
+            final int nSegments = n == 0 ? 0 : (n + rowsPerSegment - 1) / rowsPerSegment;
+            segments = new MappedByteBuffer[nSegments];
+            for (int s = 0; s < nSegments; s++) {
+                final int rows = Math.min(rowsPerSegment, n - s * rowsPerSegment);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        headerBytes + s * rowsPerSegment * rowBytes, rows * rowBytes);
+            }
+        }
+    }
+
+    /**
+     * Open the path table stored in the given file, returning paths that
+     * exclude the starting area and include the final one.
+     *
+     * @param file file holding the table.
+     * @param model world model of the map the table was built for.
+     * @return the path table.
+     */
+    public static MappedPathTable open(File file, StandardWorldModel model) {
+        return open(file, model, false);
+    }
+
+    /**
+     * Open the path table stored in the given file.
+     *
+     * @param file file holding the table.
+     * @param model world model of the map the table was built for.
+     * @param reversed whether to list paths from the final area's side,
+     * including the starting area and excluding the final one.
+     * @return the path table.
+     */
+    public static MappedPathTable open(File file, StandardWorldModel model, boolean reversed) {
+        try {
+            return new MappedPathTable(file, model, reversed);
+        } catch (IOException ex) {
+            Logger.error("Unable to open path table {}: {}", file, ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Get the number of areas in this table.
+     *
+     * @return number of areas.
+     */
+    public int getNumAreas() {
+        return ids.length;
+    }
+
+    /**
+     * Get the dense index of the given area.
+     *
+     * @param area area to look for.
+     * @return index of the area, or -1 if it is not in this table.
+     */
+    public int indexOf(EntityID area) {
+        final int index = Arrays.binarySearch(ids, area.getValue());
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Get the next hop from one area towards another.
+     *
+     * @param from index of the area where the path starts.
+     * @param to index of the area where the path ends.
+     * @return index of the next area in the path, or -1 if <em>to</em> is
+     * not reachable from <em>from</em>.
+     */
+    public int getNextHop(int from, int to) {
+        final ByteBuffer segment = segments[to / rowsPerSegment];
+        final int offset = (int)((to % rowsPerSegment) * rowBytes) + from * entryBytes;
+        return entryBytes == 2 ? segment.getShort(offset) : segment.getInt(offset);
+    }
+
+    /**
+     * Get the path between two areas.
+     * <p/>
+     * Unless the table was opened as reversed, the path does not include the
+     * starting area, but includes the final one.
+     *
+     * @param from area where the path starts.
+     * @param to area where the path ends.
+     * @return search results with the path and the blockades found on it.
+     */
+    public SearchResults search(EntityID from, EntityID to) {
+        return SearchResults.build(getAreas(from, to), model);
+    }
+
+    /**
+     * Get the ids of the areas in the path between two areas.
+     *
+     * @param from area where the path starts.
+     * @param to area where the path ends.
+     * @return ids of the areas in the path.
+     * @see #search(EntityID, EntityID)
+     */
+    public List<EntityID> getPath(EntityID from, EntityID to) {
+        List<Area> path = getAreas(from, to);
+        List<EntityID> result = new ArrayList<>(path.size());
+        for (Area area : path) {
+            result.add(area.getID());
+        }
+        return result;
+    }
+
+    private List<Area> getAreas(EntityID from, EntityID to) {
+        final int origin = indexOf(from);
+        final int target = indexOf(to);
+        if (origin < 0 || target < 0) {
+            throw new RuntimeException("Unable to find path from " + from + " to " + to);
+        }
+
+        List<Area> path = new ArrayList<>();
+        if (origin == target) {
+            path.add(areas[target]);
+        }
+        for (int current = origin; current != target;) {
+            current = getNextHop(current, target);
+            if (current == UNREACHABLE) {
+                Logger.error("Unable to find path from {} ({}) to {} ({})!",
+                        from, model.getEntity(from), to, model.getEntity(to));
+                throw new RuntimeException("Unable to find path from " + from + " to " + to);
+            }
+            path.add(areas[current]);
+        }
+
+        if (reversed) {
+            List<Area> result = new ArrayList<>(path.size());
+            for (int i = path.size() - 2; i >= 0; i--) {
+                result.add(path.get(i));
+            }
+            if (origin != target) {
+                result.add(areas[origin]);
+            }
+            return result;
+        }
+        return path;
+    }
+
+    /**
+     * Get the number of bytes used by each entry of a table with the given
+     * number of areas.
+     */
+    static int getEntryBytes(int nAreas) {
+        return nAreas <= Short.MAX_VALUE ? 2 : 4;
+    }
+
+    /**
+     * Get the size of the header of a table with the given number of areas.
+     */
+    static long getHeaderBytes(int nAreas) {
+        return 16 + 4L * nAreas;
+    }
+
+    /**
+     * Write the header of a table with the given areas at the start of the
+     * given file.
+     */
+    static void writeHeader(RandomAccessFile raf, int[] ids, int entryBytes) throws IOException {
+        raf.seek(0);
+        raf.writeInt(MAGIC);
+        raf.writeInt(VERSION);
+        raf.writeInt(ids.length);
+        raf.writeInt(entryBytes);
+        for (int id : ids) {
+            raf.writeInt(id);
+        }
+    }
+
+    /**
+     * Check if the given file starts with the header of a table with the
+     * given areas.
+     */
+    static boolean readHeader(RandomAccessFile raf, int[] ids, int entryBytes) throws IOException {
+        if (raf.length() < getHeaderBytes(ids.length)) {
+            return false;
+        }
+        raf.seek(0);
+        if (raf.readInt() != MAGIC || raf.readInt() != VERSION
+                || raf.readInt() != ids.length || raf.readInt() != entryBytes) {
+            return false;
+        }
+        for (int id : ids) {
+            if (raf.readInt() != id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of rows mapped in each segment, so that no segment
+     * exceeds the maximum size of a buffer.
+     */
+    static int getRowsPerSegment(long rowBytes) {
+        return (int)Math.max(1, Integer.MAX_VALUE / Math.max(1, rowBytes));
+    }
+
+}
@@ -5,7 +5,11 @@
 package RSLBench.Helpers.PathCache;
 
 import RSLBench.Constants;
-import RSLBench.Search.DistanceInterface;
+import RSLBench.Search.AStar;
+import RSLBench.Search.BreadthFirstSearch;
+import RSLBench.Search.CompactAStar;
+import RSLBench.Search.CompactBreadthFirstSearch;
+import RSLBench.Search.CompactGraph;
 import RSLBench.Search.Graph;
 import RSLBench.Search.SearchAlgorithm;
 import RSLBench.Search.SearchFactory;
@@ -34,19 +38,42 @@ import rescuecore2.worldmodel.EntityID;
 public class PathDB {
     private static final Logger Logger = LogManager.getLogger(PathDB.class);
 
+    /** Format of the paths database stored in the cache folder */
+    public static final String KEY_CACHE_FORMAT = "cache.format";
+
+    /** Paths stored in a compressed MapDB tree map */
+    public static final String FORMAT_MAPDB = "mapdb";
+
+    /** Paths stored as a memory-mapped table of next hops */
+    public static final String FORMAT_MAPPED = "mapped";
+
     private static File dbFile;
+    private static boolean mapped;
+    private static boolean reversed;
     private static PathDB instance;
     private static StandardWorldModel model;
 
     private final BTreeMap<EntityIDPair, PathList> paths;
+    private final MappedPathTable table;
 
     private PathDB(File f) {
+        if (mapped) {
+            paths = null;
+            table = MappedPathTable.open(f, model, reversed);
+            return;
+        }
+
         DB db = DBMaker.newFileDB(f).readOnly().transactionDisable()
                 .compressionEnable().closeOnJvmShutdown().make();
         paths = db.getTreeMap("paths");
+        table = null;
     }
 
     public SearchResults search(EntityID from, EntityID to) {
+        if (table != null) {
+            return table.search(from, to);
+        }
+
         boolean reverse = false;
 
         EntityIDPair key = new EntityIDPair(from, to);
@@ -70,33 +97,73 @@ public class PathDB {
         return instance;
     }
 
+    /**
+     * Check if the given search finds the paths with the least hops, instead
+     * of the shortest ones.
+     */
+    static boolean minimizesHops(SearchAlgorithm search) {
+        return search instanceof BreadthFirstSearch || search instanceof CompactBreadthFirstSearch;
+    }
+
+    /**
+     * Check if the given search lists its paths from the goal's side,
+     * including the origin instead of the goal.
+     */
+    static boolean listsFromGoal(SearchAlgorithm search) {
+        return search instanceof AStar;
+    }
+
     public static void initialize(Config config, StandardWorldModel model) {
         PathDB.model = model;
         String cachePath = config.getValue(Constants.KEY_CACHE_PATH, Constants.DEFAULT_CACHE_PATH);
         String searchClass = config.getValue(SearchFactory.KEY_SEARCH_CLASS);
         searchClass = searchClass.substring(searchClass.lastIndexOf('.')+1);
         String map = config.getValue(Constants.KEY_MAP_NAME);
+        String format = config.getValue(KEY_CACHE_FORMAT, FORMAT_MAPDB);
 
-        dbFile = new File(cachePath + map + "-" + searchClass + ".paths");
+        final SearchAlgorithm search = SearchFactory.buildSearchAlgorithm(config);
+        final boolean hops = minimizesHops(search);
+        reversed = listsFromGoal(search);
+        if (!hops && !reversed && !(search instanceof CompactAStar)) {
+            Logger.warn("Precomputed paths of {} are the shortest ones, which may differ from its own.",
+                    search.getClass().getSimpleName());
+        }
+        mapped = FORMAT_MAPPED.equals(format);
+        if (!mapped && !FORMAT_MAPDB.equals(format)) {
+            Logger.error("Unknown paths database format {}, using {}.", format, FORMAT_MAPDB);
+        }
+
+        dbFile = new File(cachePath + map + "-" + searchClass + (mapped ? ".nexthop" : ".paths"));
         if (dbFile.exists() && dbFile.isFile()) {
             Logger.info("Using precomputed paths database: {}", dbFile);
             return;
         }
 
+        // Tied shortest paths are taken from the precomputed table, so they
+        // may differ from those that the search itself would find
         Logger.info("Building precomputed paths database: {}", dbFile);
 
+        final CompactGraph graph = CompactGraph.build(Graph.getInstance(model));
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (mapped) {
+            new PathPrecomputation(graph, hops, threads).computeTable(dbFile);
+            return;
+        }
+
+        // Precompute the path table next to the database, and then fill the
+        // database from it
+        File tableFile = new File(dbFile.getPath() + ".nexthop");
+        if (!tableFile.isFile()) {
+            new PathPrecomputation(graph, hops, threads).computeTable(tableFile);
+        }
+        final MappedPathTable table = MappedPathTable.open(tableFile, model, reversed);
+
         DB db = DBMaker.newFileDB(dbFile).asyncWriteEnable().transactionDisable().compressionEnable().make();
         final BTreeMap<EntityIDPair, PathList> paths = db.getTreeMap("paths");
 
-        // Compute number of road-to-road pairs
-        final SearchAlgorithm search = SearchFactory.buildSearchAlgorithm(config);
-        final Graph g = Graph.getInstance(model);
-        final DistanceInterface distanceMatrix = new DistanceInterface(model);
-
         final List<StandardEntity> areas = new ArrayList<>(model.getEntitiesOfType(
                 StandardEntityURN.ROAD, StandardEntityURN.BUILDING));
 
-        int threads = Runtime.getRuntime().availableProcessors();
         ExecutorService service = Executors.newFixedThreadPool(threads);
 
         final int nAreas = areas.size();
@@ -108,10 +175,9 @@ public class PathDB {
                     final EntityID r1 = areas.get(i).getID();
                     for (int j=i; j < nAreas; j++) {
                         EntityID r2 = areas.get(j).getID();
-                        SearchResults result = search.search(r1, r2, g, distanceMatrix);
-                        paths.put(new EntityIDPair(r1,r2), new PathList(result.getPathIds()));
+                        paths.put(new EntityIDPair(r1,r2), new PathList(table.getPath(r1, r2)));
                     }
-                    Logger.info("Done with area {} of {}", i, areas.size());
+                    Logger.debug("Done with area {} of {}", i, areas.size());
                 }
             });
         }
@@ -124,6 +190,7 @@ public class PathDB {
             throw new RuntimeException(ex);
         }
         db.close();
+        tableFile.delete();
     }
 
 }
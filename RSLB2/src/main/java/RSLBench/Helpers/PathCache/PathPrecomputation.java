@@ -0,0 +1,328 @@
+package RSLBench.Helpers.PathCache;
+
+import RSLBench.Helpers.Parallel;
+import RSLBench.Search.CompactGraph;
+import RSLBench.Search.IndexedHeap;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Precomputes the all-pairs path table of a map.
+ * <p/>
+ * The table is computed with one single-source Dijkstra search per area,
+ * run backwards from that area over the compact graph, so that it yields
+ * the next hop from every other area towards it. The searches are split
+ * among several threads, and their rows are written straight into the
+ * memory-mapped table file.
+ * <p/>
+ * When several shortest paths join two areas, the table keeps the one found
+ * by the backwards search from the goal, whereas the configured search
+ * algorithm picks one by the order in which it expands areas from the origin.
+ * Both paths are equally short, but they may go through different blockades.
+ * <p/>
+ * The rows completed so far are periodically checkpointed to a progress
+ * file, so that an interrupted precomputation resumes from the last
+ * checkpoint instead of starting over. The progress and estimated time to
+ * completion are logged while the precomputation runs.
+ */
+public class PathPrecomputation {
+    private static final Logger Logger = LogManager.getLogger(PathPrecomputation.class);
+
+    /** Minimum time between checkpoints, in milliseconds */
+    private static final long CHECKPOINT_INTERVAL = 30000;
+
+    /** Minimum time between progress reports, in milliseconds */
+    private static final long REPORT_INTERVAL = 10000;
+
+    private final CompactGraph reversed;
+    private final boolean hops;
+    private final int nThreads;
+
+    private final ConcurrentLinkedQueue<Integer> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nCompleted = new AtomicInteger();
+    private DataOutputStream progressOut;
+    private FileOutputStream progressFile;
+    private MappedByteBuffer[] segments;
+    private int nResumed;
+    private long startTime;
+    private long lastCheckpoint;
+    private long lastReport;
+
+    /**
+     * Build a new precomputation engine.
+     *
+     * @param graph graph of the map.
+     * @param hops whether to minimize hops instead of distance.
+     * @param nThreads number of threads to run the searches.
+     */
+    public PathPrecomputation(CompactGraph graph, boolean hops, int nThreads) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive, got " + nThreads);
+        }
+        this.reversed = graph.reverse();
+        this.hops = hops;
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * Compute the path table and store it in the given file.
+     * <p/>
+     * While running, the table is written to a temporary file next to the
+     * given one, along with a progress file. If both exist from a previous
+     * (interrupted) run on the same map, the precomputation resumes from
+     * them.
+     *
+     * @param file file where the table is stored.
+     */
+    public void computeTable(File file) {
+        final int n = reversed.getNumAreas();
+        final int[] ids = reversed.getIds();
+        final int entryBytes = MappedPathTable.getEntryBytes(n);
+        final long headerBytes = MappedPathTable.getHeaderBytes(n);
+        final long rowBytes = (long)n * entryBytes;
+        final int rowsPerSegment = MappedPathTable.getRowsPerSegment(rowBytes);
+        final File tmpFile = new File(file.getPath() + ".tmp");
+        final File progress = new File(file.getPath() + ".progress");
+
+        try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+                FileChannel channel = raf.getChannel()) {
+            final boolean[] done = new boolean[n];
+            if (progress.isFile() && MappedPathTable.readHeader(raf, ids, entryBytes)) {
+                nResumed = readProgress(progress, done);
+                Logger.info("Resuming precomputation of {} with {} of {} rows done.",
+                        file, nResumed, n);
+            } else {
+                raf.setLength(0);
+                MappedPathTable.writeHeader(raf, ids, entryBytes);
+                progress.delete();
+            }
+            raf.setLength(headerBytes + n * rowBytes);
+
+            final int nSegments = n == 0 ? 0 : (n + rowsPerSegment - 1) / rowsPerSegment;
+            segments = new MappedByteBuffer[nSegments];
+            for (int s = 0; s < nSegments; s++) {
+                final int rows = Math.min(rowsPerSegment, n - s * rowsPerSegment);
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        headerBytes + s * rowsPerSegment * rowBytes, rows * rowBytes);
+            }
+
+            progressFile = new FileOutputStream(progress, true);
+            progressOut = new DataOutputStream(progressFile);
+            try {
+                run(done, entryBytes, rowBytes, rowsPerSegment);
+                checkpoint();
+            } finally {
+                progressOut.close();
+            }
+        } catch (IOException ex) {
+            Logger.error("Unable to write path table {}: {}", tmpFile, ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+
+        if (!tmpFile.renameTo(file)) {
+            throw new RuntimeException("Unable to move " + tmpFile + " to " + file);
+        }
+        progress.delete();
+        Logger.info("Path table {} computed in {}.", file,
+                formatTime(System.currentTimeMillis() - startTime));
+    }
+
+    private void run(boolean[] done, final int entryBytes, final long rowBytes,
+            final int rowsPerSegment) throws IOException {
+        final int n = done.length;
+        final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+            @Override
+            protected Workspace initialValue() {
+                return new Workspace(n);
+            }
+        };
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < n; t++) {
+            if (done[t]) {
+                continue;
+            }
+            final int target = t;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    final Workspace workspace = workspaces.get();
+                    searchBackwards(target, workspace);
+
+                    final ByteBuffer row = segments[target / rowsPerSegment].duplicate();
+                    row.position((int)((target % rowsPerSegment) * rowBytes));
+                    final int[] next = workspace.next;
+                    for (int i = 0; i < n; i++) {
+                        if (entryBytes == 2) {
+                            row.putShort((short)next[i]);
+                        } else {
+                            row.putInt(next[i]);
+                        }
+                    }
+
+                    completed.add(target);
+                    nCompleted.incrementAndGet();
+                    update();
+                    return null;
+                }
+            });
+        }
+
+        startTime = System.currentTimeMillis();
+        lastCheckpoint = startTime;
+        lastReport = startTime;
+        ExecutorService service = Executors.newFixedThreadPool(nThreads);
+        try {
+            Parallel.invokeAll(service, tasks, IOException.class);
+        } catch (IOException | RuntimeException | Error ex) {
+            // Keep the rows completed so far
+            checkpoint();
+            throw ex;
+        } finally {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Report the progress and checkpoint the completed rows if enough time
+     * has elapsed since the last time.
+     */
+    private synchronized void update() throws IOException {
+        final long now = System.currentTimeMillis();
+        if (now - lastReport >= REPORT_INTERVAL) {
+            report(now);
+            lastReport = now;
+        }
+        if (now - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+            checkpoint();
+            lastCheckpoint = now;
+        }
+    }
+
+    private void report(long now) {
+        final int total = reversed.getNumAreas() - nResumed;
+        final int count = nCompleted.get();
+        final long elapsed = now - startTime;
+        final long remaining = count == 0 ? -1 : elapsed * (total - count) / count;
+        Logger.info("Computed {} of {} rows ({}%), elapsed {}, ETA {}", count, total,
+                total == 0 ? 100 : 100 * count / total, formatTime(elapsed),
+                remaining < 0 ? "unknown" : formatTime(remaining));
+    }
+
+    /**
+     * Persist the rows computed so far and record them in the progress file.
+     */
+    private synchronized void checkpoint() throws IOException {
+        List<Integer> rows = new ArrayList<>();
+        for (Integer row = completed.poll(); row != null; row = completed.poll()) {
+            rows.add(row);
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // Rows must be on disk before they are marked as done
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        for (Integer row : rows) {
+            progressOut.writeInt(row);
+        }
+        progressOut.flush();
+        progressFile.getFD().sync();
+    }
+
+    /**
+     * Read the rows marked as done in the given progress file.
+     *
+     * @return number of rows done.
+     */
+    private static int readProgress(File progress, boolean[] done) throws IOException {
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(progress)))) {
+            while (true) {
+                final int row = in.readInt();
+                if (row >= 0 && row < done.length && !done[row]) {
+                    done[row] = true;
+                    count++;
+                }
+            }
+        } catch (EOFException ex) {
+            // A partially written entry at the end is simply ignored
+        }
+        return count;
+    }
+
+    private static String formatTime(long millis) {
+        final long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    /**
+     * Per-thread buffers of the searches.
+     */
+    private static class Workspace {
+        public final int[] next;
+        public final double[] distance;
+        public final IndexedHeap heap;
+
+        public Workspace(int n) {
+            next = new int[n];
+            distance = new double[n];
+            heap = new IndexedHeap(n);
+        }
+    }
+
+    /**
+     * Compute the next hop from every area towards the target, by running
+     * Dijkstra's algorithm from the target over the reversed graph.
+     */
+    private void searchBackwards(int target, Workspace workspace) {
+        final int[] offsets = reversed.getOffsets();
+        final int[] sources = reversed.getTargets();
+        final int[] lengths = reversed.getDistances();
+        final int[] next = workspace.next;
+        final double[] distance = workspace.distance;
+        final IndexedHeap open = workspace.heap;
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(next, MappedPathTable.UNREACHABLE);
+
+        distance[target] = 0;
+        next[target] = target;
+        open.offer(target, 0);
+        while (!open.isEmpty()) {
+            final int u = open.poll();
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                final int v = sources[k];
+                final double dv = distance[u] + (hops ? 1 : lengths[k]);
+                if (dv < distance[v]) {
+                    distance[v] = dv;
+                    next[v] = u;
+                    open.offer(v, dv);
+                }
+            }
+        }
+    }
+
+}
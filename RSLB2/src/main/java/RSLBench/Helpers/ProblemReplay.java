@@ -0,0 +1,244 @@
+package RSLBench.Helpers;
+
+import RSLBench.Assignment.AbstractSolver;
+import RSLBench.Assignment.AbstractSolverFGMD;
+import RSLBench.Assignment.AbstractSolverMTTA;
+import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.Solver;
+import RSLBench.Assignment.UtilityEvaluator;
+import RSLBench.CenterAgent;
+import RSLBench.Constants;
+import RSLBench.Settings;
+import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Helpers.Utility.ProblemSnapshot;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import rescuecore2.config.Config;
+import rescuecore2.config.ConfigException;
+import rescuecore2.misc.CommandLineOptions;
+import rescuecore2.standard.entities.StandardWorldModel;
+
+/**
+ * Runs solvers on problems exported during a simulation, without the kernel,
+ * simulators nor agents.
+ * <p/>
+ * Problems must have been exported with <em>export.format: problem</em> or
+ * <em>export.format: binary</em> (see {@link Exporter#FORMAT_PROBLEM} and
+ * {@link Exporter#FORMAT_BINARY}). The solvers to run are read from the
+ * configuration, as in a simulation (<em>solver.class</em>, and then
+ * <em>solver.1.class</em>, <em>solver.2.class</em>, ...), and each one solves
+ * all the problems in order. Each solver writes its usual results file (with
+ * the fire statistics and score of each step, computed from the buildings
+ * saved in the snapshot), and a
+ * summary with the time, iterations and utility of each solver is printed at
+ * the end. Run it with the RSLB2 classpath:
+ * <pre>
+ * java -cp build/classes:lib/*:../roborescue/lib/* RSLBench.Helpers.ProblemReplay \
+ *     -c boot/config/kernel.cfg -c boot/config/experiment.cfg [--key=value ...] \
+ *     export/&lt;run&gt; [more problem files or folders ...]
+ * </pre>
+ * To make the same random choices as in the simulation, set
+ * <em>random.seed</em> to the seed of that run (it is written in the header
+ * of its results files). Solvers that look at the map (such as
+ * <em>Closest</em>) can not be replayed, because snapshots hold no map.
+ */
+public final class ProblemReplay {
+    private static final Logger Logger = LogManager.getLogger(ProblemReplay.class);
+
+    private ProblemReplay() {}
+
+    public static void main(String[] args) {
+        Config config = new Config();
+        List<File> files = new ArrayList<>();
+        try {
+            args = CommandLineOptions.processArgs(args, config);
+        } catch (IOException | ConfigException e) {
+            Logger.fatal("Unable to read the configuration", e);
+            System.exit(1);
+        }
+        for (String arg : args) {
+            files.addAll(findProblems(new File(arg)));
+        }
+        if (files.isEmpty()) {
+            System.err.println("No problems to replay.");
+            System.exit(1);
+        }
+
+        // Keys that are set by the center agent in a simulation
+        if (!config.isDefined(Constants.KEY_RUN_ID)) {
+            config.setValue(Constants.KEY_RUN_ID, "replay-" + UUID.randomUUID().toString());
+        }
+        if (!config.isDefined(Constants.KEY_MAP_NAME)) {
+            config.setValue(Constants.KEY_MAP_NAME, "replay");
+        }
+        if (!config.isDefined(Constants.KEY_MAP_SCENARIO)) {
+            config.setValue(Constants.KEY_MAP_SCENARIO, "replay");
+        }
+
+        List<ProblemSnapshot> snapshots = new ArrayList<>();
+        for (File file : files) {
+            try {
+                snapshots.add(ProblemSnapshot.read(file));
+            } catch (IOException e) {
+                Logger.fatal("Unable to read problem " + file, e);
+                System.exit(1);
+            }
+        }
+
+        List<Solver> solvers = buildSolvers(config);
+        config.setValue(Constants.KEY_MAIN_SOLVER, solvers.get(0).getIdentifier());
+
+        // The problems are read-only, so all solvers share them
+        final StandardWorldModel world = ProblemSnapshot.buildWorld(snapshots);
+        final Settings settings = new Settings(config);
+        List<ProblemDefinition> problems = new ArrayList<>();
+        for (ProblemSnapshot snapshot : snapshots) {
+            problems.add(new ProblemDefinition(config, settings, snapshot, world));
+        }
+        System.out.printf("Replaying %d problems from %d files.%n", problems.size(), files.size());
+
+        System.out.printf("%-30s %6s %10s %10s %10s %10s %14s%n", "solver", "steps",
+                "total_ms", "ms/step", "steps/s", "iters", "utility");
+        for (Solver solver : solvers) {
+            solver.initialize(world, config);
+            Stats stats = getStats(solver);
+
+            long elapsed = 0;
+            long iterations = 0;
+            double utility = 0;
+            for (int i = 0; i < problems.size(); i++) {
+                // Fire statistics and the score are computed from the buildings
+                snapshots.get(i).restoreBuildings(world);
+                final ProblemDefinition problem = problems.get(i);
+                final long start = System.nanoTime();
+                Assignment solution = solver.solve(problem.getTime(), problem);
+                elapsed += System.nanoTime() - start;
+
+                if (solution != null) {
+                    utility += new UtilityEvaluator(problem, solution).getUtility();
+                }
+                Object value = stats == null ? null : stats.getValue("iterations");
+                if (value instanceof Number) {
+                    iterations += ((Number)value).longValue();
+                }
+            }
+            if (stats != null) {
+                stats.close();
+            }
+
+            final int n = problems.size();
+            System.out.printf("%-30s %6d %10.1f %10.2f %10.2f %10.1f %14.4f%n",
+                    solver.getIdentifier(), n, elapsed / 1e6, elapsed / 1e6 / n,
+                    n / (elapsed / 1e9), (double)iterations / n, utility);
+        }
+    }
+
+    /**
+     * Get the problem files to replay from the given path.
+     *
+     * Folders are replaced by the problems they hold, ordered by their export
+     * number.
+     */
+    private static List<File> findProblems(File path) {
+        if (!path.isDirectory()) {
+            return Arrays.asList(path);
+        }
+
+        File[] found = path.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isFile() && getExtension(f) != null;
+            }
+        });
+        Arrays.sort(found, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(getNumber(o1), getNumber(o2));
+            }
+
+            private long getNumber(File f) {
+                String name = f.getName();
+                try {
+                    return Long.parseLong(name.substring(0,
+                            name.length() - getExtension(f).length() - 1));
+                } catch (NumberFormatException e) {
+                    return Long.MAX_VALUE;
+                }
+            }
+        });
+        return Arrays.asList(found);
+    }
+
+    /**
+     * Get the extension of the given snapshot file, or <em>null</em> if it
+     * is not a snapshot.
+     */
+    private static String getExtension(File f) {
+        final String name = f.getName();
+        for (String extension : new String[]{Exporter.FORMAT_PROBLEM, Exporter.BINARY_EXTENSION}) {
+            if (name.endsWith("." + extension)) {
+                return extension;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build the solvers configured, main solver first.
+     */
+    private static List<Solver> buildSolvers(Config config) {
+        List<Solver> solvers = new ArrayList<>();
+        solvers.add(buildSolver(
+                config.getValue(CenterAgent.CONF_KEY_SOLVER + "." + CenterAgent.CONF_KEY_CLASS),
+                config.getIntValue(CenterAgent.CONF_KEY_SOLVER + "." + CenterAgent.CONF_KEY_TIME)));
+        for (int nTestClass=1;;nTestClass++) {
+            final String prefix = CenterAgent.CONF_KEY_SOLVER + "." + nTestClass + ".";
+            String className = config.getValue(prefix + CenterAgent.CONF_KEY_CLASS, null);
+            if (className == null) {
+                break;
+            }
+            solvers.add(buildSolver(className,
+                    config.getIntValue(prefix + CenterAgent.CONF_KEY_TIME)));
+        }
+        return solvers;
+    }
+
+    private static Solver buildSolver(String clazz, int time) {
+        try {
+            Object s = Class.forName(clazz).newInstance();
+            if (s instanceof Solver) {
+                Solver solver = (Solver)s;
+                solver.setMaxTime(time);
+                return solver;
+            }
+            Logger.fatal("Class {} is not a solver!", clazz);
+        } catch (ClassNotFoundException ex) {
+            Logger.fatal("Solver class {} not found!", ex.getMessage());
+        } catch (InstantiationException | IllegalAccessException ex) {
+            Logger.fatal("Unable to instantiate solver {}", ex);
+        }
+
+        System.exit(1);
+        return null;
+    }
+
+    private static Stats getStats(Solver solver) {
+        if (solver instanceof AbstractSolver) {
+            return ((AbstractSolver)solver).getStats();
+        } else if (solver instanceof AbstractSolverMTTA) {
+            return ((AbstractSolverMTTA)solver).getStats();
+        } else if (solver instanceof AbstractSolverFGMD) {
+            return ((AbstractSolverFGMD)solver).getStats();
+        }
+        return null;
+    }
+
+}
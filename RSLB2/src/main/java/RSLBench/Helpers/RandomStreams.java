@@ -0,0 +1,149 @@
+package RSLBench.Helpers;
+
+import RSLBench.Constants;
+import java.math.BigInteger;
+import java.util.Random;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import rescuecore2.config.Config;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Deterministic random streams derived from the seed of the run.
+ * <p/>
+ * Instead of sharing the (synchronized) random generator of the config, each
+ * agent gets its own stream at each timestep, whose seed is derived from the
+ * run seed, the timestep and the agent id. Streams are not shared among
+ * threads, so they need no synchronization, and the numbers drawn by each
+ * agent do not depend on how many threads run the solver or in which order
+ * the agents are run.
+ * <p/>
+ * Likewise, the noise added to each utility is a function of the run seed
+ * and the agent and target being evaluated, so it does not depend on the
+ * order in which utilities are evaluated.
+ */
+public final class RandomStreams {
+    private static final Logger Logger = LogManager.getLogger(RandomStreams.class);
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private final long seed;
+
+    /**
+     * Build the streams of a run with the given seed.
+     *
+     * @param seed seed of the run.
+     */
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get the streams of the run described by the given config.
+     * <p/>
+     * The seed is read (in hexadecimal) from {@link Constants#KEY_RANDOM_SEED}.
+     * If it is not defined, a seed is drawn from the config's random generator
+     * and stored back in the config, so that all streams of the run share it
+     * and it can be reported.
+     *
+     * @param config configuration of the run.
+     * @return random streams of the run.
+     */
+    public static RandomStreams fromConfig(Config config) {
+        synchronized (config) {
+            String value = config.getValue(Constants.KEY_RANDOM_SEED, "");
+            if (value.isEmpty()) {
+                value = Long.toHexString(config.getRandom().nextLong());
+                config.setValue(Constants.KEY_RANDOM_SEED, value);
+                Logger.info("No random seed defined, using {}", value);
+            }
+            return new RandomStreams(new BigInteger(value, 16).longValue());
+        }
+    }
+
+    /**
+     * Get the seed of the run.
+     *
+     * @return seed of the run.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the stream of the given agent at the given timestep.
+     * <p/>
+     * The returned generator must not be shared among threads.
+     *
+     * @param time simulation timestep.
+     * @param agent agent that draws the numbers.
+     * @return new random generator, always the same for the same arguments.
+     */
+    public Random getStream(int time, EntityID agent) {
+        return new Stream(hash(hash(seed, time), agent.getValue()));
+    }
+
+    /**
+     * Get a uniformly distributed number in <em>[0, 1)</em> for the given pair
+     * of entities.
+     *
+     * @param first first entity (i.e.: an agent).
+     * @param second second entity (i.e.: a target).
+     * @return random number, always the same for the same arguments.
+     */
+    public double getNoise(EntityID first, EntityID second) {
+        final long bits = hash(hash(seed, first.getValue()), second.getValue());
+        return (bits >>> 11) * DOUBLE_UNIT;
+    }
+
+    private static long hash(long key, long value) {
+        return mix(key ^ mix(value + GOLDEN_GAMMA));
+    }
+
+    /**
+     * Finalizer of the SplitMix64 generator, which scrambles all the bits of
+     * its input.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Unsynchronized SplitMix64 generator.
+     */
+    private static final class Stream extends Random {
+        private static final long serialVersionUID = 1L;
+
+        private long state;
+
+        public Stream(long seed) {
+            super(0);
+            state = seed;
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            state = seed;
+        }
+
+        @Override
+        protected int next(int bits) {
+            return (int)(nextLong() >>> (64 - bits));
+        }
+
+        @Override
+        public long nextLong() {
+            state += GOLDEN_GAMMA;
+            return mix(state);
+        }
+
+        @Override
+        public double nextDouble() {
+            return (nextLong() >>> 11) * DOUBLE_UNIT;
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package RSLBench.Helpers.Results;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the results written by a {@link BinaryResultsWriter}.
+ */
+public class BinaryResultsReader implements ResultsReader {
+
+    private final DataInputStream in;
+    private List<String> comments;
+    private List<String> columns;
+
+    /**
+     * Open the given results file and read its header.
+     *
+     * @param fileName path of the results file.
+     * @throws IOException if the file can not be read or is not a binary
+     * results file.
+     */
+    public BinaryResultsReader(String fileName) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+        if (in.readInt() != BinaryResultsWriter.MAGIC) {
+            in.close();
+            throw new IOException(fileName + " is not a binary results file");
+        }
+        final int version = in.readInt();
+        if (version != BinaryResultsWriter.VERSION) {
+            in.close();
+            throw new IOException("Unsupported results format version " + version);
+        }
+        comments = readStrings();
+        columns = readStrings();
+    }
+
+    private List<String> readStrings() throws IOException {
+        final int n = in.readInt();
+        List<String> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(in.readUTF());
+        }
+        return result;
+    }
+
+    /**
+     * Get the description of the run.
+     *
+     * @return header comments, one entry per line.
+     */
+    @Override
+    public List<String> getComments() {
+        return comments;
+    }
+
+    /**
+     * Get the names of the reported statistics.
+     *
+     * @return column names.
+     */
+    @Override
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Read the statistics of the next step.
+     *
+     * @return values of the next row, or <em>null</em> if there are no more
+     * rows.
+     * @throws IOException if the row can not be read.
+     */
+    @Override
+    public Object[] readRow() throws IOException {
+        final int n;
+        try {
+            n = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        Object[] values = new Object[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = readValue();
+        }
+        return values;
+    }
+
+    private Object readValue() throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+            case BinaryResultsWriter.TAG_NULL:
+                return null;
+            case BinaryResultsWriter.TAG_BOOLEAN:
+                return in.readBoolean();
+            case BinaryResultsWriter.TAG_INT:
+                return in.readInt();
+            case BinaryResultsWriter.TAG_LONG:
+                return in.readLong();
+            case BinaryResultsWriter.TAG_FLOAT:
+                return in.readFloat();
+            case BinaryResultsWriter.TAG_DOUBLE:
+                return in.readDouble();
+            case BinaryResultsWriter.TAG_STRING:
+                return in.readUTF();
+            case BinaryResultsWriter.TAG_TRACE:
+                double[] trace = new double[in.readInt()];
+                for (int i = 0; i < trace.length; i++) {
+                    trace[i] = in.readDouble();
+                }
+                return trace;
+            default:
+                throw new IOException("Unknown value type " + tag);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
@@ -0,0 +1,113 @@
+package RSLBench.Helpers.Results;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the results in a compact binary format.
+ * <p/>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, followed by the
+ * header (the number of comments and the comments, then the number of columns
+ * and their names). Each row is then written as its number of values, and each
+ * value as a one-byte type tag followed by its binary representation, so that
+ * numbers and traces are stored without formatting them as text.
+ *
+ * @see BinaryResultsReader
+ * @see ResultsConverter
+ */
+public class BinaryResultsWriter implements ResultsWriter {
+
+    /** Marks the beginning of a binary results file */
+    public static final int MAGIC = 0x52534C42;
+
+    /** Version of the format */
+    public static final int VERSION = 1;
+
+    static final byte TAG_NULL = 'N';
+    static final byte TAG_BOOLEAN = 'Z';
+    static final byte TAG_INT = 'I';
+    static final byte TAG_LONG = 'J';
+    static final byte TAG_FLOAT = 'F';
+    static final byte TAG_DOUBLE = 'D';
+    static final byte TAG_STRING = 'S';
+    static final byte TAG_TRACE = 'T';
+
+    private final DataOutputStream out;
+
+    /**
+     * Build a writer that (over)writes the given file.
+     *
+     * @param fileName path of the results file.
+     * @throws IOException if the file can not be opened.
+     */
+    public BinaryResultsWriter(String fileName) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName, false)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    @Override
+    public void writeHeader(List<String> comments, List<String> columns) throws IOException {
+        out.writeInt(comments.size());
+        for (String comment : comments) {
+            out.writeUTF(comment);
+        }
+        out.writeInt(columns.size());
+        for (String column : columns) {
+            out.writeUTF(column);
+        }
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        out.writeInt(values.length);
+        for (Object value : values) {
+            writeValue(value);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean)value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_INT);
+            out.writeInt(((Number)value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long)value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float)value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double)value);
+        } else if (value instanceof double[]) {
+            final double[] trace = (double[])value;
+            out.writeByte(TAG_TRACE);
+            out.writeInt(trace.length);
+            for (double v : trace) {
+                out.writeDouble(v);
+            }
+        } else {
+            out.writeByte(TAG_STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
@@ -0,0 +1,214 @@
+package RSLBench.Helpers.Results;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summarizes the results files of many runs in a single table.
+ * <pre>
+ * java -cp build/classes:lib/* RSLBench.Helpers.Results.ResultsAggregator \
+ *     summary.tsv results/ [more results files or folders ...]
+ * </pre>
+ * Folders are searched recursively for results files, in both the
+ * tab-separated (<code>.dat</code>) and binary (<code>.bin</code>) formats.
+ * The summary has one row for each statistic of each results file, with its
+ * mean, minimum, maximum and final value over the steps of the run. Traces are
+ * left out, and boolean statistics count as 0 or 1. The <em>job</em> column
+ * is the folder that holds the results file, relative to the folder given,
+ * as laid out by <em>boot/farm.sh</em>.
+ */
+public final class ResultsAggregator {
+
+    /** Header keys copied to each row of the summary */
+    private static final String[] KEYS = {"run", "solver", "map.name",
+        "map.scenario", "random.seed"};
+
+    private static final String[] COLUMNS = {"job", "run", "solver", "map",
+        "scenario", "seed", "steps", "stat", "mean", "min", "max", "final"};
+
+    private ResultsAggregator() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ResultsAggregator <output.tsv> <results file or folder> [...]");
+            System.exit(1);
+        }
+
+        int files = 0;
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(args[0]))) {
+            writeFields(out, Arrays.asList(COLUMNS));
+            for (int i = 1; i < args.length; i++) {
+                File root = new File(args[i]);
+                files += aggregate(root.isDirectory() ? root : null, root, out);
+            }
+        }
+        System.out.println("Aggregated " + files + " results files into " + args[0]);
+    }
+
+    /**
+     * Summarize the results files found in the given path.
+     *
+     * @param root folder given by the user, used to name the jobs (or
+     * <em>null</em> if a file was given).
+     * @param path results file or folder to summarize.
+     * @param out where to write the summary rows.
+     * @return number of results files summarized.
+     * @throws IOException if the summary can not be written.
+     */
+    private static int aggregate(File root, File path, BufferedWriter out) throws IOException {
+        if (path.isDirectory()) {
+            File[] children = path.listFiles();
+            Arrays.sort(children);
+            int files = 0;
+            for (File child : children) {
+                files += aggregate(root, child, out);
+            }
+            return files;
+        }
+
+        final String name = path.getName();
+        if (!name.endsWith(".dat") && !name.endsWith(".bin")) {
+            return 0;
+        }
+
+        List<String> rows;
+        try {
+            rows = summarize(path, getJob(root, path));
+        } catch (IOException e) {
+            // Other files, such as exported problems, may share the extension
+            System.err.println("Skipping " + path + ": " + e.getMessage());
+            return 0;
+        }
+        for (String row : rows) {
+            out.write(row);
+            out.newLine();
+        }
+        return 1;
+    }
+
+    private static String getJob(File root, File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (root == null || parent.equals(root.getAbsoluteFile())) {
+            return parent.getName();
+        }
+        return root.getAbsoluteFile().toURI().relativize(parent.toURI()).getPath()
+                .replaceAll("/$", "");
+    }
+
+    /**
+     * Summarize a results file.
+     *
+     * @param file results file.
+     * @param job name of the job that produced it.
+     * @return summary rows, one for each statistic.
+     * @throws IOException if the file can not be read.
+     */
+    private static List<String> summarize(File file, String job) throws IOException {
+        try (ResultsReader in = open(file)) {
+            Map<String, String> header = new HashMap<>();
+            for (String comment : in.getComments()) {
+                final int separator = comment.indexOf(": ");
+                if (separator > 0) {
+                    header.put(comment.substring(0, separator), comment.substring(separator + 2));
+                }
+            }
+
+            final List<String> columns = in.getColumns();
+            Map<String, Summary> summaries = new LinkedHashMap<>();
+            int steps = 0;
+            for (Object[] row = in.readRow(); row != null; row = in.readRow()) {
+                steps++;
+                for (int i = 0; i < row.length && i < columns.size(); i++) {
+                    final String column = columns.get(i);
+                    final double value = toDouble(row[i]);
+                    if ("time".equals(column) || Double.isNaN(value)) {
+                        continue;
+                    }
+                    Summary summary = summaries.get(column);
+                    if (summary == null) {
+                        summary = new Summary();
+                        summaries.put(column, summary);
+                    }
+                    summary.add(value);
+                }
+            }
+
+            List<String> prefix = new ArrayList<>();
+            prefix.add(job);
+            for (String key : KEYS) {
+                prefix.add(header.containsKey(key) ? header.get(key) : "");
+            }
+            prefix.add(String.valueOf(steps));
+
+            List<String> rows = new ArrayList<>();
+            for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+                final Summary s = entry.getValue();
+                List<String> fields = new ArrayList<>(prefix);
+                fields.add(entry.getKey());
+                fields.add(Double.toString(s.sum / s.count));
+                fields.add(Double.toString(s.min));
+                fields.add(Double.toString(s.max));
+                fields.add(Double.toString(s.last));
+                rows.add(join(fields));
+            }
+            return rows;
+        }
+    }
+
+    private static ResultsReader open(File file) throws IOException {
+        if (file.getName().endsWith(".bin")) {
+            return new BinaryResultsReader(file.getPath());
+        }
+        return new TsvResultsReader(file.getPath());
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number)value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean)value ? 1 : 0;
+        }
+        return Double.NaN;
+    }
+
+    private static void writeFields(BufferedWriter out, List<String> fields) throws IOException {
+        out.write(join(fields));
+        out.newLine();
+    }
+
+    private static String join(List<String> fields) {
+        StringBuilder buf = new StringBuilder();
+        String prefix = "";
+        for (String field : fields) {
+            buf.append(prefix).append(field);
+            prefix = "\t";
+        }
+        return buf.toString();
+    }
+
+    private static final class Summary {
+        private int count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double last;
+
+        private void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            last = value;
+        }
+    }
+
+}
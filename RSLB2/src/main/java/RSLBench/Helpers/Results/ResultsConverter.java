@@ -0,0 +1,61 @@
+package RSLBench.Helpers.Results;
+
+import java.io.IOException;
+
+/**
+ * Converts a binary results file to the tab-separated format, producing the
+ * same file that the run would have written with the <code>tsv</code> format.
+ * <pre>
+ * java -cp build/classes:lib/* RSLBench.Helpers.Results.ResultsConverter \
+ *     results/run-Solver.bin [results/run-Solver.dat]
+ * </pre>
+ * When the output file is not given, it is the input file with the
+ * <code>.dat</code> extension.
+ *
+ * @see RSLBench.Helpers.Stats#KEY_RESULTS_FORMAT
+ */
+public final class ResultsConverter {
+
+    private ResultsConverter() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ResultsConverter <input.bin> [output.dat]");
+            System.exit(1);
+        }
+
+        final String input = args[0];
+        final String output = args.length > 1 ? args[1] : getTsvName(input);
+        final int rows = convert(input, output);
+        System.out.println("Wrote " + rows + " rows to " + output);
+    }
+
+    /**
+     * Convert a binary results file to the tab-separated format.
+     *
+     * @param input path of the binary results file.
+     * @param output path of the tab-separated file to write.
+     * @return number of rows converted.
+     * @throws IOException if the files can not be read or written.
+     */
+    public static int convert(String input, String output) throws IOException {
+        int rows = 0;
+        try (BinaryResultsReader in = new BinaryResultsReader(input);
+                TsvResultsWriter out = new TsvResultsWriter(output)) {
+            out.writeHeader(in.getComments(), in.getColumns());
+            for (Object[] row = in.readRow(); row != null; row = in.readRow()) {
+                out.writeRow(row);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static String getTsvName(String fileName) {
+        if (fileName.endsWith(".bin")) {
+            fileName = fileName.substring(0, fileName.length() - 4);
+        }
+        return fileName + ".dat";
+    }
+
+}
@@ -0,0 +1,37 @@
+package RSLBench.Helpers.Results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Source of the statistics written by a {@link ResultsWriter}.
+ *
+ * @see ResultsAggregator
+ */
+public interface ResultsReader extends Closeable {
+
+    /**
+     * Get the description of the run.
+     *
+     * @return header comments, one entry per line.
+     */
+    public List<String> getComments();
+
+    /**
+     * Get the names of the reported statistics.
+     *
+     * @return column names.
+     */
+    public List<String> getColumns();
+
+    /**
+     * Read the statistics of the next step.
+     *
+     * @return values of the next row, or <em>null</em> if there are no more
+     * rows.
+     * @throws IOException if the row can not be read.
+     */
+    public Object[] readRow() throws IOException;
+
+}
@@ -0,0 +1,43 @@
+package RSLBench.Helpers.Results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sink of the statistics reported by a solver, which keeps its file open for
+ * the whole run.
+ *
+ * @see RSLBench.Helpers.Stats
+ */
+public interface ResultsWriter extends Closeable {
+
+    /**
+     * Write the header of the results.
+     *
+     * @param comments description of the run (solver and configuration), one
+     * entry per line.
+     * @param columns names of the reported statistics.
+     * @throws IOException if the header can not be written.
+     */
+    public void writeHeader(List<String> comments, List<String> columns) throws IOException;
+
+    /**
+     * Write the statistics of one step, in the same order as the columns.
+     * <p/>
+     * Values may be boxed numbers, booleans, strings or <code>double[]</code>
+     * traces. Anything else is written as its string representation.
+     *
+     * @param values values of the statistics.
+     * @throws IOException if the row can not be written.
+     */
+    public void writeRow(Object[] values) throws IOException;
+
+    /**
+     * Flush the buffered results to the file.
+     *
+     * @throws IOException if the results can not be written.
+     */
+    public void flush() throws IOException;
+
+}
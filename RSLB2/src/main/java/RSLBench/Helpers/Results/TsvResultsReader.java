@@ -0,0 +1,118 @@
+package RSLBench.Helpers.Results;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the results written by a {@link TsvResultsWriter}.
+ * <p/>
+ * Since the text format does not keep the type of the values, they are read
+ * back as <code>Long</code> or <code>Double</code> when they are numbers,
+ * <code>Boolean</code> when they are <em>true</em> or <em>false</em>, and
+ * <code>double[]</code> when they are comma-separated traces.
+ */
+public class TsvResultsReader implements ResultsReader {
+
+    private final BufferedReader in;
+    private final List<String> comments = new ArrayList<>();
+    private List<String> columns;
+    private String nextLine;
+
+    /**
+     * Open the given results file and read its header.
+     *
+     * @param fileName path of the results file.
+     * @throws IOException if the file can not be read.
+     */
+    public TsvResultsReader(String fileName) throws IOException {
+        this(new FileReader(fileName));
+    }
+
+    /**
+     * Read the results from the given stream, starting with its header.
+     *
+     * @param in stream with the results.
+     * @throws IOException if the header can not be read.
+     */
+    public TsvResultsReader(Reader in) throws IOException {
+        this.in = new BufferedReader(in);
+        String line = this.in.readLine();
+        while (line != null && line.startsWith("#")) {
+            comments.add(line.startsWith("# ") ? line.substring(2) : line.substring(1));
+            line = this.in.readLine();
+        }
+        columns = line == null ? new ArrayList<String>()
+                : Arrays.asList(line.split("\t", -1));
+        nextLine = this.in.readLine();
+    }
+
+    @Override
+    public List<String> getComments() {
+        return comments;
+    }
+
+    @Override
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public Object[] readRow() throws IOException {
+        while (nextLine != null && nextLine.isEmpty()) {
+            nextLine = in.readLine();
+        }
+        if (nextLine == null) {
+            return null;
+        }
+
+        final String[] fields = nextLine.split("\t", -1);
+        nextLine = in.readLine();
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = parseValue(fields[i]);
+        }
+        return values;
+    }
+
+    private static Object parseValue(String field) {
+        if ("null".equals(field)) {
+            return null;
+        }
+        if ("true".equals(field) || "false".equals(field)) {
+            return Boolean.valueOf(field);
+        }
+        if (field.indexOf(',') >= 0) {
+            final String[] parts = field.split(",");
+            double[] trace = new double[parts.length];
+            try {
+                for (int i = 0; i < parts.length; i++) {
+                    trace[i] = Double.parseDouble(parts[i]);
+                }
+                return trace;
+            } catch (NumberFormatException e) {
+                return field;
+            }
+        }
+        try {
+            return Long.valueOf(field);
+        } catch (NumberFormatException e) {
+            // Not an integer
+        }
+        try {
+            return Double.valueOf(field);
+        } catch (NumberFormatException e) {
+            return field;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
@@ -0,0 +1,89 @@
+package RSLBench.Helpers.Results;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes the results as tab-separated values, with the header lines prefixed
+ * by <code>#</code>.
+ * <p/>
+ * Traces are written as a single column of comma-separated values.
+ */
+public class TsvResultsWriter implements ResultsWriter {
+
+    private final BufferedWriter out;
+
+    /**
+     * Build a writer that (over)writes the given file.
+     *
+     * @param fileName path of the results file.
+     * @throws IOException if the file can not be opened.
+     */
+    public TsvResultsWriter(String fileName) throws IOException {
+        this(new FileWriter(fileName, false));
+    }
+
+    /**
+     * Build a writer that writes to the given stream.
+     *
+     * @param out stream where to write the results.
+     */
+    public TsvResultsWriter(Writer out) {
+        this.out = new BufferedWriter(out);
+    }
+
+    @Override
+    public void writeHeader(List<String> comments, List<String> columns) throws IOException {
+        for (String comment : comments) {
+            out.write("# ");
+            out.write(comment);
+            out.newLine();
+        }
+
+        String prefix = "";
+        for (String column : columns) {
+            out.write(prefix);
+            prefix = "\t";
+            out.write(column);
+        }
+        out.newLine();
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        String prefix = "";
+        for (Object value : values) {
+            out.write(prefix);
+            prefix = "\t";
+            if (value instanceof double[]) {
+                writeTrace((double[])value);
+            } else {
+                out.write(String.valueOf(value));
+            }
+        }
+        out.newLine();
+    }
+
+    private void writeTrace(double[] trace) throws IOException {
+        String prefix = "";
+        for (double value : trace) {
+            out.write(prefix);
+            prefix = ",";
+            out.write(Double.toString(value));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
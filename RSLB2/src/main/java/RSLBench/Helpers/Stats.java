@@ -1,34 +1,122 @@
 package RSLBench.Helpers;
 
 import RSLBench.Assignment.Solver;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import RSLBench.Helpers.Results.BinaryResultsWriter;
+import RSLBench.Helpers.Results.ResultsWriter;
+import RSLBench.Helpers.Results.TsvResultsWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import rescuecore2.config.Config;
 import rescuecore2.log.Logger;
 
 /**
  * This class collects and writes the stats in the fileName file (default logs/basePackage_groupName_className.dat).
+ * <p/>
+ * The results file is kept open for the whole run. Each step's values are
+ * collected on the solver thread, and then written and flushed by a
+ * background thread, so the solver does not wait for the disk. Files that are
+ * still open when the JVM exits are flushed and closed by a shutdown hook.
  */
 public class Stats
 {
+    /**
+     * Format of the results file: "tsv" (the default) for tab-separated
+     * values, or "binary" for the format read by
+     * {@link RSLBench.Helpers.Results.ResultsConverter}.
+     */
+    public static final String KEY_RESULTS_FORMAT = "results.format";
+
+    /** Results written as tab-separated values */
+    public static final String FORMAT_TSV = "tsv";
+
+    /** Results written in binary */
+    public static final String FORMAT_BINARY = "binary";
+
+    /** Single thread that writes the results of all solvers, in order */
+    private static final ExecutorService writerThread =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "stats-writer");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /** Stats whose files are open */
+    private static final Set<Stats> open =
+            Collections.synchronizedSet(new LinkedHashSet<Stats>());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("stats-shutdown") {
+            @Override
+            public void run() {
+                List<Stats> pending;
+                synchronized (open) {
+                    pending = new ArrayList<>(open);
+                }
+                for (Stats s : pending) {
+                    s.submitClose();
+                }
+                writerThread.shutdown();
+                try {
+                    writerThread.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
     private Config config;
     private Solver solver;
     private Map<String, Object> stats = new LinkedHashMap<>();
     private String fileName;
+    private boolean binary;
     private boolean headerWritten;
 
+    /** Writer of the results file (only accessed from the writer thread) */
+    private ResultsWriter writer;
+
     public Stats() {}
 
     public void initialize(Config config, Solver solver, String fileName) {
+        String format = config.getValue(KEY_RESULTS_FORMAT, FORMAT_TSV);
+        binary = FORMAT_BINARY.equals(format);
+        if (!binary && !FORMAT_TSV.equals(format)) {
+            Logger.error("Unknown results format " + format + ", using " + FORMAT_TSV + ".");
+        }
+        if (binary && fileName.endsWith(".dat")) {
+            fileName = fileName.substring(0, fileName.length() - 4) + ".bin";
+        }
+
         this.config = config;
         this.fileName = fileName;
         this.solver = solver;
         this.headerWritten = false;
     }
 
+    /**
+     * Get the path of the results file.
+     *
+     * @return path of the results file.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
     /**
      * Stores a reported value for this step.
      *
@@ -39,6 +127,28 @@ public class Stats
         stats.put(statKey, statValue);
     }
 
+    /**
+     * Stores a trace of values (such as the utility of each iteration) for
+     * this step.
+     *
+     * @param statKey Name of the statistic being reported
+     * @param values Values of that statistic for the current step
+     */
+    public void report(String statKey, double[] values) {
+        stats.put(statKey, values);
+    }
+
+    /**
+     * Get the value reported for the given statistic.
+     *
+     * @param statKey Name of the statistic
+     * @return last value reported for that statistic, or <em>null</em> if
+     * it has not been reported.
+     */
+    public Object getValue(String statKey) {
+        return stats.get(statKey);
+    }
+
     /**
      * Writes the current step's statistics to the report file.
      */
@@ -47,18 +157,21 @@ public class Stats
             writeHeader();
         }
 
-        try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName, true))) {
-            String prefix = "";
-            for (String statKey : stats.keySet()) {
-                out.write(prefix);
-                prefix = "\t";
-                out.write(stats.get(statKey).toString());
+        final Object[] values = stats.values().toArray();
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                if (writer == null) {
+                    return;
+                }
+                try {
+                    writer.writeRow(values);
+                    writer.flush();
+                } catch (IOException e) {
+                    Logger.error(e.getLocalizedMessage(), e);
+                }
             }
-            out.newLine();
-            out.close();
-        } catch (IOException e) {
-            Logger.error(e.getLocalizedMessage(), e);
-        }
+        });
     }
 
     /**
@@ -67,29 +180,72 @@ public class Stats
      */
     public void writeHeader() {
         headerWritten = true;
-        try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName, false))) {
-            writeLine(out, "# solver: " + solver.getIdentifier());
-            writeLine(out, "# max_time: " + solver.getMaxTime());
-            for (String key : solver.getUsedConfigurationKeys()) {
-                writeLine(out, "# " + key + ": " + config.getValue(key));
+
+        // Gather the header here, because the config is not thread-safe
+        final List<String> comments = new ArrayList<>();
+        comments.add("solver: " + solver.getIdentifier());
+        comments.add("max_time: " + solver.getMaxTime());
+        for (String key : solver.getUsedConfigurationKeys()) {
+            comments.add(key + ": " + config.getValue(key));
+        }
+        final List<String> columns = new ArrayList<>(stats.keySet());
+
+        open.add(this);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    closeWriter();
+                    writer = binary ? new BinaryResultsWriter(fileName)
+                            : new TsvResultsWriter(fileName);
+                    writer.writeHeader(comments, columns);
+                } catch (IOException e) {
+                    Logger.error(e.getLocalizedMessage(), e);
+                }
             }
+        });
+    }
 
-            String prefix = "";
-            for (String statKey : stats.keySet()) {
-                out.write(prefix);
-                prefix = "\t";
-                out.write(statKey);
+    /**
+     * Writes the pending statistics and closes the report file.
+     * <p/>
+     * Reporting another step afterwards starts the file again.
+     */
+    public void close() {
+        headerWritten = false;
+        try {
+            submitClose().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Logger.error(e.getLocalizedMessage(), e);
+        }
+    }
+
+    private Future<?> submitClose() {
+        open.remove(this);
+        return submit(new Runnable() {
+            @Override
+            public void run() {
+                closeWriter();
             }
-            out.newLine();
-            out.close();
+        });
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
         } catch (IOException e) {
             Logger.error(e.getLocalizedMessage(), e);
         }
+        writer = null;
     }
 
-    private void writeLine(BufferedWriter out, String line) throws IOException {
-        out.write(line);
-        out.newLine();
+    private Future<?> submit(Runnable task) {
+        return writerThread.submit(task);
     }
 
 }
@@ -4,6 +4,8 @@
  */
 package RSLBench.Helpers.Utility;
 
+import RSLBench.Helpers.RandomStreams;
+import RSLBench.Settings;
 import rescuecore2.config.Config;
 import rescuecore2.standard.entities.StandardWorldModel;
 import rescuecore2.worldmodel.EntityID;
@@ -16,6 +18,8 @@ import rescuecore2.worldmodel.EntityID;
 public abstract class AbstractUtilityFunction implements UtilityFunction {
     protected StandardWorldModel world;
     protected Config config;
+    protected Settings settings;
+    protected RandomStreams random;
 
     @Override
     public void setWorld(StandardWorldModel world) {
@@ -27,6 +31,12 @@ public abstract class AbstractUtilityFunction implements UtilityFunction {
         this.config = config;
     }
 
+    @Override
+    public void setSettings(Settings settings) {
+        this.settings = settings;
+        this.random = settings.getRandomStreams();
+    }
+
     @Override
     public double getPoliceUtility(EntityID policeAgent, EntityID blockade) {
         throw new UnsupportedOperationException("Not supported yet.");
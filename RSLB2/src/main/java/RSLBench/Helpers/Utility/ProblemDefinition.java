@@ -2,8 +2,10 @@ package RSLBench.Helpers.Utility;
 
 import RSLBench.Assignment.Assignment;
 import RSLBench.Constants;
+import RSLBench.Helpers.Parallel;
 import RSLBench.Helpers.PathCache.PathDB;
 import RSLBench.Search.SearchResults;
+import RSLBench.Settings;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -13,6 +15,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.config.Config;
@@ -20,18 +29,54 @@ import rescuecore2.misc.Pair;
 import rescuecore2.standard.entities.Blockade;
 import rescuecore2.standard.entities.Human;
 
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardPropertyURN;
 import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
 import rescuecore2.worldmodel.EntityID;
+import rescuecore2.worldmodel.Property;
 
 
 /**
  * This class represents the current world status as utilities.
  *
  * Utilities are calculated using the configured UtilityFunction.
+ *
+ * Problems can also be built incrementally, by updating the problem of the
+ * previous step with the changes reported by the kernel during this step. In
+ * that case, only the utilities of agents that moved and of targets whose state
+ * changed are evaluated again, and the blocked agents are only searched again
+ * for the agents and targets that need it.
  */
 public class ProblemDefinition {
     private static final Logger Logger = LogManager.getLogger(ProblemDefinition.class);
 
+    /** Agent properties that the utility functions depend on */
+    private static final String[] AGENT_PROPERTIES = {
+        StandardPropertyURN.POSITION.toString(),
+        StandardPropertyURN.X.toString(),
+        StandardPropertyURN.Y.toString(),
+    };
+
+    /** Fire properties that the utility functions depend on */
+    private static final String[] FIRE_PROPERTIES = {
+        StandardPropertyURN.FIERYNESS.toString(),
+    };
+
+    /** Blockade properties that the utility functions depend on */
+    private static final String[] BLOCKADE_PROPERTIES = {
+        StandardPropertyURN.POSITION.toString(),
+        StandardPropertyURN.X.toString(),
+        StandardPropertyURN.Y.toString(),
+        StandardPropertyURN.APEXES.toString(),
+        StandardPropertyURN.REPAIR_COST.toString(),
+    };
+
+    /** Road properties that the blocked agents depend on */
+    private static final String[] ROAD_PROPERTIES = {
+        StandardPropertyURN.BLOCKADES.toString(),
+    };
+
     private UtilityFunction utilityFunction;
     private ArrayList<EntityID> fireAgents;
     private ArrayList<EntityID> policeAgents;
@@ -39,12 +84,27 @@ public class ProblemDefinition {
     private ArrayList<EntityID> blockades;
     private StandardWorldModel world;
     private Config config;
+    private final int time;
+    private final Settings settings;
 
     // Indexes entities to indices
     private Map<EntityID, Integer> id2idx = new HashMap<>();
+    private int nEvaluations;
+
+    /**
+     * Values of the properties listed above when this problem was built, so
+     * that the next problem can tell the properties that have actually changed
+     * from those that are just sent again.
+     */
+    private Map<EntityID, Object[]> propertyValues = new HashMap<>();
     private double[][] fireUtilityMatrix;
     private double[][] policeUtilityMatrix;
 
+    // Utilities as returned by the utility function (before hysteresis and
+    // capping), kept to update the matrices in the next step.
+    private double[][] rawFireUtilities;
+    private double[][] rawPoliceUtilities;
+
     // Assignment chosen in the last iteration
     private Assignment lastAssignment;
 
@@ -54,6 +114,11 @@ public class ProblemDefinition {
     /**
      * Creates a problem definition
      *
+     * The configuration values are read into a new snapshot, so this problem
+     * sees the config as it is now.
+     *
+     * @param config configuration of the run
+     * @param time simulation timestep of this problem
      * @param fireAgents a list of fire brigade agents
      * @param fires a list of fires
      * @param policeAgents a list of police agents
@@ -61,10 +126,41 @@ public class ProblemDefinition {
      * @param lastAssignment the assignment computed in the last iteration
      * @param world the model of the world
      */
-    public ProblemDefinition(Config config, ArrayList<EntityID> fireAgents,
+    public ProblemDefinition(Config config, int time, ArrayList<EntityID> fireAgents,
             ArrayList<EntityID> fires, ArrayList<EntityID> policeAgents,
             ArrayList<EntityID> blockades, Assignment lastAssignment,
             StandardWorldModel world) {
+        this(config, new Settings(config), time, fireAgents, fires, policeAgents,
+                blockades, lastAssignment, world, null, null);
+    }
+
+    /**
+     * Creates a problem definition by updating the one built in the previous
+     * step.
+     *
+     * The previous problem is only reused if it has the same agents and world,
+     * and the given change set must hold all the changes applied to the world
+     * since it was built. Otherwise, the problem is built from scratch.
+     *
+     * @param config configuration of the run
+     * @param settings snapshot of the configuration values of the run
+     * @param time simulation timestep of this problem
+     * @param fireAgents a list of fire brigade agents
+     * @param fires a list of fires
+     * @param policeAgents a list of police agents
+     * @param blockades a list of blockades
+     * @param lastAssignment the assignment computed in the last iteration
+     * @param world the model of the world
+     * @param previous problem built in the previous step, or <em>null</em>
+     * @param changes changes applied to the world since the previous problem
+     * was built, or <em>null</em>
+     */
+    public ProblemDefinition(Config config, Settings settings, int time,
+            ArrayList<EntityID> fireAgents, ArrayList<EntityID> fires,
+            ArrayList<EntityID> policeAgents, ArrayList<EntityID> blockades,
+            Assignment lastAssignment, StandardWorldModel world,
+            ProblemDefinition previous, ChangeSet changes) {
+        this.time = time;
         this.fireAgents = fireAgents;
         this.fires = fires;
         this.policeAgents = policeAgents;
@@ -73,17 +169,40 @@ public class ProblemDefinition {
 
         this.world = world;
         this.config = config;
-
-        // Utilities to perform searches
-        pathDB = PathDB.getInstance();
+        this.settings = settings;
 
         long initialTime = System.currentTimeMillis();
-        utilityFunction = UtilityFactory.buildFunction();
-        utilityFunction.setWorld(world);
-        utilityFunction.setConfig(config);
+        if (previous != null && (changes == null || previous.world != world
+                || previous.settings != settings
+                || !previous.fireAgents.equals(fireAgents)
+                || !previous.policeAgents.equals(policeAgents))) {
+            Logger.debug("Previous problem can not be reused, building from scratch.");
+            previous = null;
+        }
 
-        buildFirefightersUtilityMatrix(lastAssignment);
-        buildPoliceUtilityMatrix(lastAssignment);
+        if (previous == null) {
+            utilityFunction = UtilityFactory.buildFunction();
+            utilityFunction.setWorld(world);
+            utilityFunction.setConfig(config);
+            utilityFunction.setSettings(settings);
+        } else {
+            utilityFunction = previous.utilityFunction;
+        }
+
+        Set<EntityID> movedFireAgents = Collections.emptySet();
+        Set<EntityID> movedPoliceAgents = Collections.emptySet();
+        Set<EntityID> changedFires = Collections.emptySet();
+        Set<EntityID> changedBlockades = Collections.emptySet();
+        if (previous != null) {
+            movedFireAgents = previous.getChanged(changes, fireAgents, AGENT_PROPERTIES);
+            movedPoliceAgents = previous.getChanged(changes, policeAgents, AGENT_PROPERTIES);
+            changedFires = previous.getChanged(changes, fires, FIRE_PROPERTIES);
+            changedBlockades = previous.getChanged(changes, blockades, BLOCKADE_PROPERTIES);
+        }
+        recordProperties();
+
+        buildFirefightersUtilityMatrix(previous, movedFireAgents, changedFires);
+        buildPoliceUtilityMatrix(previous, movedPoliceAgents, changedBlockades);
 
         // Prune the fireAgents <-> fires graph if required
         if (config.getBooleanValue(Constants.KEY_PROBLEM_PRUNE)) {
@@ -92,14 +211,128 @@ public class ProblemDefinition {
 
         // Compute blocked targets... only if there actually are some blockades in the simulation!
         if (blockades.size() > 0) {
-            computeBlockedFireAgents();
-            computeBlockedPoliceAgents();
+            pathDB = PathDB.getInstance();
+            if (previous != null && hasBlockadeLayoutChanged(previous, changes)) {
+                Logger.debug("Blockades changed, searching all blocked agents again.");
+                previous = null;
+            }
+            computeBlockedFireAgents(previous, movedFireAgents);
+            computeBlockedPoliceAgents(previous, movedPoliceAgents);
         }
 
         long elapsedTime = System.currentTimeMillis() - initialTime;
         Logger.debug("Problem definition initialized in {}ms.", elapsedTime);
     }
 
+    /**
+     * Creates a problem definition from a snapshot of another one, so that
+     * solvers can run on it without the world it was computed from.
+     *
+     * The utilities, required agents and blocked agents are taken from the
+     * snapshot as they are, so nothing is evaluated nor searched again. The
+     * problem is still pruned if the configuration says so.
+     *
+     * @param config configuration of the run
+     * @param settings snapshot of the configuration values of the run
+     * @param snapshot snapshot of the problem
+     * @param world world holding the agents of the snapshot
+     * @see ProblemSnapshot#buildWorld(Collection)
+     */
+    public ProblemDefinition(Config config, Settings settings, ProblemSnapshot snapshot,
+            StandardWorldModel world) {
+        this.time = snapshot.getTime();
+        this.fireAgents = new ArrayList<>(snapshot.getFireAgents());
+        this.fires = new ArrayList<>(snapshot.getFires());
+        this.policeAgents = new ArrayList<>(snapshot.getPoliceAgents());
+        this.blockades = new ArrayList<>(snapshot.getBlockades());
+        this.lastAssignment = snapshot.getLastAssignment();
+
+        this.world = world;
+        this.config = config;
+        this.settings = settings;
+        utilityFunction = new SnapshotUtilityFunction(snapshot);
+
+        fireUtilityMatrix = rawFireUtilities = snapshot.getFireUtilities();
+        policeUtilityMatrix = rawPoliceUtilities = snapshot.getPoliceUtilities();
+        for (int j=0; j<fires.size(); j++) {
+            id2idx.put(fires.get(j), j);
+        }
+        for (int i=0; i<fireAgents.size(); i++) {
+            id2idx.put(fireAgents.get(i), i);
+        }
+        for (int j=0; j<blockades.size(); j++) {
+            id2idx.put(blockades.get(j), j);
+        }
+        for (int i=0; i<policeAgents.size(); i++) {
+            id2idx.put(policeAgents.get(i), i);
+        }
+
+        if (config.getBooleanValue(Constants.KEY_PROBLEM_PRUNE)) {
+            pruneProblem();
+        }
+
+        for (EntityID[] t : snapshot.getBlockedFireAgents()) {
+            addBlocked(blockedFireAgents, fireAgentsByBlockade, new Pair<>(t[0], t[1]), t[2]);
+        }
+        for (EntityID[] t : snapshot.getBlockedPoliceAgents()) {
+            addBlocked(blockedPoliceAgents, policeAgentsByBlockade, new Pair<>(t[0], t[1]), t[2]);
+        }
+    }
+
+    /**
+     * Utility function that reads the values of a problem snapshot.
+     */
+    private static class SnapshotUtilityFunction implements UtilityFunction {
+        private final ProblemSnapshot snapshot;
+        private final Map<EntityID, Integer> required = new HashMap<>();
+
+        /** Index of each agent and target in its list of the snapshot */
+        private final Map<EntityID, Integer> indices = new HashMap<>();
+
+        public SnapshotUtilityFunction(ProblemSnapshot snapshot) {
+            this.snapshot = snapshot;
+            final int[] counts = snapshot.getFireRequired();
+            for (int j=0; j<counts.length; j++) {
+                required.put(snapshot.getFires().get(j), counts[j]);
+            }
+            addIndices(snapshot.getFireAgents());
+            addIndices(snapshot.getFires());
+            addIndices(snapshot.getPoliceAgents());
+            addIndices(snapshot.getBlockades());
+        }
+
+        private void addIndices(List<EntityID> ids) {
+            for (int i=0; i<ids.size(); i++) {
+                indices.put(ids.get(i), i);
+            }
+        }
+
+        @Override
+        public void setConfig(Config config) {}
+
+        @Override
+        public void setSettings(Settings settings) {}
+
+        @Override
+        public void setWorld(StandardWorldModel world) {}
+
+        @Override
+        public double getFireUtility(EntityID fireAgent, EntityID fire) {
+            return snapshot.getFireUtilities()[indices.get(fireAgent)][indices.get(fire)];
+        }
+
+        @Override
+        public double getPoliceUtility(EntityID policeAgent, EntityID blockade) {
+            return snapshot.getPoliceUtilities()[indices.get(policeAgent)][indices.get(blockade)];
+        }
+
+        @Override
+        public int getRequiredAgentCount(EntityID target) {
+            final Integer count = required.get(target);
+            return count == null ? 0 : count;
+        }
+    }
+
     /**
      * Get the assignment selected in the last iteration
      * @return assignment selected in the last iteration
@@ -108,6 +341,29 @@ public class ProblemDefinition {
         return lastAssignment;
     }
 
+    /**
+     * Get the simulation timestep of this problem.
+     *
+     * @return simulation timestep
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * Get the random stream of the given agent for this problem.
+     *
+     * Each call returns a new generator that draws the same numbers, which
+     * only depend on the seed of the run, the timestep and the agent.
+     *
+     * @see RSLBench.Helpers.RandomStreams#getStream(int, EntityID)
+     * @param agent agent that draws the numbers
+     * @return random generator for the agent
+     */
+    public Random getRandom(EntityID agent) {
+        return settings.getRandomStreams().getStream(time, agent);
+    }
+
     /**
      * Get the simulator configuration for this run.
      *
@@ -117,73 +373,263 @@ public class ProblemDefinition {
         return config;
     }
 
+    /**
+     * Get the snapshot of the configuration values used in hot paths.
+     *
+     * @return configuration snapshot of this run
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Get the number of utilities evaluated to build this problem, as opposed
+     * to those taken from the previous one.
+     */
+    int getUtilityEvaluations() {
+        return nEvaluations;
+    }
+
+    /**
+     * Record the current values of the properties that the utilities and
+     * blocked agents depend on.
+     */
+    private void recordProperties() {
+        recordProperties(fireAgents, AGENT_PROPERTIES);
+        recordProperties(policeAgents, AGENT_PROPERTIES);
+        recordProperties(fires, FIRE_PROPERTIES);
+        recordProperties(blockades, BLOCKADE_PROPERTIES);
+
+        List<EntityID> roads = new ArrayList<>();
+        for (EntityID blockade : blockades) {
+            StandardEntity entity = world.getEntity(blockade);
+            if (entity instanceof Blockade && ((Blockade)entity).isPositionDefined()) {
+                roads.add(((Blockade)entity).getPosition());
+            }
+        }
+        recordProperties(roads, ROAD_PROPERTIES);
+    }
+
+    private void recordProperties(List<EntityID> entities, String[] properties) {
+        for (EntityID id : entities) {
+            StandardEntity entity = world.getEntity(id);
+            if (entity == null) {
+                continue;
+            }
+            Object[] values = new Object[properties.length];
+            for (int k=0; k<properties.length; k++) {
+                values[k] = getValue(entity.getProperty(properties[k]));
+            }
+            propertyValues.put(id, values);
+        }
+    }
+
+    /**
+     * Get a copy of the value of the given property that can be compared
+     * with {@link #isSameValue(Object, Object)}, where empty lists are the
+     * same as undefined properties.
+     */
+    private static Object getValue(Property property) {
+        if (property == null || !property.isDefined()) {
+            return null;
+        }
+        Object value = property.getValue();
+        if (value instanceof List) {
+            // Lists of references, whose order does not matter
+            List<?> list = (List<?>)value;
+            return list.isEmpty() ? null : new HashSet<>(list);
+        }
+        return value;
+    }
+
+    private static boolean isSameValue(Object a, Object b) {
+        if (a instanceof int[] && b instanceof int[]) {
+            return Arrays.equals((int[])a, (int[])b);
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Check if any of the given properties of an entity has a value in the
+     * change set that differs from the value it had when this problem was
+     * built.
+     *
+     * Entities that this problem did not record are considered changed unless
+     * their properties are empty in the change set (such as roads with no
+     * blockades).
+     */
+    private boolean hasChanged(ChangeSet changes, EntityID entity, String[] properties) {
+        final Object[] values = propertyValues.get(entity);
+        for (int k=0; k<properties.length; k++) {
+            Property property = changes.getChangedProperty(entity, properties[k]);
+            if (property == null) {
+                continue;
+            }
+            final Object value = getValue(property);
+            final Object previousValue = values == null ? null : values[k];
+            if (!isSameValue(previousValue, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the given entities for which any of the given properties has
+     * changed since this problem was built.
+     */
+    private Set<EntityID> getChanged(ChangeSet changes, List<EntityID> entities,
+            String[] properties) {
+        Set<EntityID> result = new HashSet<>();
+        Set<EntityID> changed = changes.getChangedEntities();
+        for (EntityID entity : entities) {
+            if (changed.contains(entity) && hasChanged(changes, entity, properties)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if the blockades that may lie in the agents' paths have changed
+     * since the previous problem was built.
+     */
+    private boolean hasBlockadeLayoutChanged(ProblemDefinition previous, ChangeSet changes) {
+        if (!new HashSet<>(blockades).equals(new HashSet<>(previous.blockades))) {
+            return true;
+        }
+
+        // Roads that held none of the blockades must still hold none
+        for (EntityID entity : changes.getChangedEntities()) {
+            if (previous.hasChanged(changes, entity, ROAD_PROPERTIES)) {
+                return true;
+            }
+        }
+        return !previous.getChanged(changes, blockades, new String[]{
+            StandardPropertyURN.POSITION.toString(),
+            StandardPropertyURN.REPAIR_COST.toString(),
+        }).isEmpty();
+    }
+
+    /**
+     * Get the utility that the problem reports from the one returned by the
+     * utility function.
+     */
+    private double getProblemUtility(double utility, EntityID agent, EntityID target,
+            double hysteresis) {
+        // Apply hysteresis factor if configured
+        if (lastAssignment.getAssignment(agent).equals(target)) {
+            utility *= hysteresis;
+        }
+
+        // Set a cap on max utility
+        if (Double.isInfinite(utility)) {
+            utility = 1e15;
+        }
+
+        return utility;
+    }
+
+    /**
+     * Map each of the given targets to its index in the previous problem, or
+     * to -1 if it must be evaluated again.
+     */
+    private static int[] getPreviousIndices(ArrayList<EntityID> targets,
+            ProblemDefinition previous, Set<EntityID> previousTargets,
+            Set<EntityID> changedTargets) {
+        int[] result = new int[targets.size()];
+        for (int j=0; j<result.length; j++) {
+            final EntityID target = targets.get(j);
+            result[j] = previous == null || changedTargets.contains(target)
+                    || !previousTargets.contains(target)
+                    ? -1 : previous.id2idx.get(target);
+        }
+        return result;
+    }
+
     /**
      * Build the firefighters (fire brigades to fires) utility matrix.
      *
      * This is necessary because utility functions may not be consistent
      * (they may introduce a small random noise to break ties), whereas the
      * problem repoted utilities must stay consistent.
+     *
+     * When a previous problem is given, the utilities of agents that did not
+     * move towards fires that did not change are taken from it. Hence, those
+     * utilities keep the noise they got when they were first evaluated.
      */
-    private void buildFirefightersUtilityMatrix(Assignment lastAssignment) {
+    private void buildFirefightersUtilityMatrix(ProblemDefinition previous,
+            Set<EntityID> movedAgents, Set<EntityID> changedFires) {
         final int nAgents = fireAgents.size();
         final int nTargets = fires.size();
+        final double hysteresis = settings.getUtilHysteresis();
+        for (int j=0; j<nTargets; j++) {
+            id2idx.put(fires.get(j), j);
+        }
+        final int[] previousIndices = getPreviousIndices(fires, previous,
+                previous == null ? null : new HashSet<>(previous.fires), changedFires);
+
+        int nEvaluations = 0;
+        rawFireUtilities = new double[nAgents][nTargets];
         fireUtilityMatrix = new double[nAgents][nTargets];
         for (int i=0; i<nAgents; i++) {
             final EntityID agent = fireAgents.get(i);
             id2idx.put(agent, i);
+            final boolean moved = movedAgents.contains(agent);
 
             for (int j=0; j<nTargets; j++) {
                 final EntityID target = fires.get(j);
-                if (i == 0) {
-                    id2idx.put(target, j);
-                }
-
-                double utility = utilityFunction.getFireUtility(agent, target);
-               
-                // Apply hysteresis factor if configured
-                if (lastAssignment.getAssignment(agent).equals(target)) {
-                    utility *= config.getFloatValue(Constants.KEY_UTIL_HYSTERESIS);
-                }
 
-                // Set a cap on max utility
-                if (Double.isInfinite(utility)) {
-                    utility = 1e15;
+                double utility;
+                if (moved || previousIndices[j] < 0) {
+                    utility = utilityFunction.getFireUtility(agent, target);
+                    nEvaluations++;
+                } else {
+                    utility = previous.rawFireUtilities[i][previousIndices[j]];
                 }
-
-                fireUtilityMatrix[i][j] = utility;
+                rawFireUtilities[i][j] = utility;
+                fireUtilityMatrix[i][j] = getProblemUtility(utility, agent, target, hysteresis);
             }
         }
+        Logger.debug("Evaluated {} of {} fire utilities.", nEvaluations, nAgents*nTargets);
+        this.nEvaluations += nEvaluations;
     }
 
-    private void buildPoliceUtilityMatrix(Assignment lastAssignment) {
+    private void buildPoliceUtilityMatrix(ProblemDefinition previous,
+            Set<EntityID> movedAgents, Set<EntityID> changedBlockades) {
         final int nAgents = policeAgents.size();
         final int nTargets = blockades.size();
+        final double hysteresis = settings.getUtilHysteresis();
+        for (int j=0; j<nTargets; j++) {
+            id2idx.put(blockades.get(j), j);
+        }
+        final int[] previousIndices = getPreviousIndices(blockades, previous,
+                previous == null ? null : new HashSet<>(previous.blockades), changedBlockades);
+
+        int nEvaluations = 0;
+        rawPoliceUtilities = new double[nAgents][nTargets];
         policeUtilityMatrix = new double[nAgents][nTargets];
         for (int i=0; i<nAgents; i++) {
             final EntityID agent = policeAgents.get(i);
             id2idx.put(agent, i);
+            final boolean moved = movedAgents.contains(agent);
 
             for (int j=0; j<nTargets; j++) {
                 final EntityID target = blockades.get(j);
-                if (i == 0) {
-                    id2idx.put(target, j);
-                }
-
-                double utility = utilityFunction.getPoliceUtility(agent, target);
-
-                // Apply hysteresis factor if configured
-                if (lastAssignment.getAssignment(agent).equals(target)) {
-                    utility *= config.getFloatValue(Constants.KEY_UTIL_HYSTERESIS);
-                }
 
-                // Set a cap on max utility
-                if (Double.isInfinite(utility)) {
-                    utility = 1e15;
+                double utility;
+                if (moved || previousIndices[j] < 0) {
+                    utility = utilityFunction.getPoliceUtility(agent, target);
+                    nEvaluations++;
+                } else {
+                    utility = previous.rawPoliceUtilities[i][previousIndices[j]];
                 }
-
-                policeUtilityMatrix[i][j] = utility;
+                rawPoliceUtilities[i][j] = utility;
+                policeUtilityMatrix[i][j] = getProblemUtility(utility, agent, target, hysteresis);
             }
         }
+        Logger.debug("Evaluated {} of {} police utilities.", nEvaluations, nAgents*nTargets);
+        this.nEvaluations += nEvaluations;
     }
 
     /**
@@ -193,57 +639,290 @@ public class ProblemDefinition {
     private HashMap<Pair<EntityID, EntityID>, EntityID> blockedFireAgents = new HashMap<>();
     private HashMap<Pair<EntityID, EntityID>, EntityID> blockedPoliceAgents = new HashMap<>();
 
+    /**
+     * Holds the inverse of the previous maps, from <em>blockade</em> to the
+     * <em>(agent, target)</em> pairs blocked by it.
+     */
+    private HashMap<EntityID, List<Pair<EntityID, EntityID>>> fireAgentsByBlockade = new HashMap<>();
+    private HashMap<EntityID, List<Pair<EntityID, EntityID>>> policeAgentsByBlockade = new HashMap<>();
+
+    /**
+     * Get the <em>(fire agent, fire)</em> pairs where the agent is blocked
+     * from reaching the fire by the given blockade.
+     *
+     * @param blockade blockade to consider
+     * @return unmodifiable collection of pairs blocked by the given blockade.
+     */
     public Collection<Pair<EntityID, EntityID>> getFireAgentsBlockedByBlockade(EntityID blockade) {
-        Collection<Pair<EntityID, EntityID>> result = new HashSet<>();
+        return getBlockedByBlockade(fireAgentsByBlockade, blockade);
+    }
 
-        for (Map.Entry<Pair<EntityID,EntityID>, EntityID> entry : blockedFireAgents.entrySet()) {
-            if (!entry.getValue().equals(blockade)) {
-                continue;
-            }
-            result.add(entry.getKey());
+    /**
+     * Get the <em>(police agent, blockade)</em> pairs where the agent is
+     * blocked from reaching the target blockade by the given blockade.
+     *
+     * @param blockade blockade to consider
+     * @return unmodifiable collection of pairs blocked by the given blockade.
+     */
+    public Collection<Pair<EntityID, EntityID>> getPoliceAgentsBlockedByBlockade(EntityID blockade) {
+        return getBlockedByBlockade(policeAgentsByBlockade, blockade);
+    }
+
+    private static Collection<Pair<EntityID, EntityID>> getBlockedByBlockade(
+            Map<EntityID, List<Pair<EntityID, EntityID>>> index, EntityID blockade) {
+        List<Pair<EntityID, EntityID>> result = index.get(blockade);
+        if (result == null) {
+            return Collections.emptyList();
         }
+        return Collections.unmodifiableList(result);
+    }
 
-        return result;
+    private static void addBlocked(Map<Pair<EntityID, EntityID>, EntityID> blocked,
+            Map<EntityID, List<Pair<EntityID, EntityID>>> index,
+            Pair<EntityID, EntityID> pair, EntityID blockade) {
+        blocked.put(pair, blockade);
+        List<Pair<EntityID, EntityID>> pairs = index.get(blockade);
+        if (pairs == null) {
+            pairs = new ArrayList<>();
+            index.put(blockade, pairs);
+        }
+        pairs.add(pair);
     }
 
-    private void computeBlockedFireAgents() {
+    /**
+     * Compute the fire agents blocked from reaching each fire.
+     *
+     * When a previous problem is given, the blocked pairs of agents that did
+     * not move towards fires that were already burning are taken from it.
+     */
+    private void computeBlockedFireAgents(ProblemDefinition previous, Set<EntityID> movedAgents) {
         Logger.debug("Computing blocked fire agents...");
-        for (EntityID agent : getFireAgents()) {
-            Human hagent = (Human)world.getEntity(agent);
-            EntityID position = hagent.getPosition();
+        List<EntityID> newFires = fires;
+        if (previous != null) {
+            Set<EntityID> knownFires = new HashSet<>(previous.fires);
+            knownFires.retainAll(fires);
+            for (Map.Entry<Pair<EntityID,EntityID>, EntityID> entry : previous.blockedFireAgents.entrySet()) {
+                final Pair<EntityID, EntityID> pair = entry.getKey();
+                if (!movedAgents.contains(pair.first()) && knownFires.contains(pair.second())) {
+                    addBlocked(blockedFireAgents, fireAgentsByBlockade, pair, entry.getValue());
+                }
+            }
+
+            newFires = new ArrayList<>();
+            for (EntityID fire : fires) {
+                if (!knownFires.contains(fire)) {
+                    newFires.add(fire);
+                }
+            }
+        }
 
-            for (EntityID target: getFires()) {
+        searchBlockedAgents(fireAgents, previous == null ? null : movedAgents, fires, newFires,
+                blockedFireAgents, fireAgentsByBlockade, new BlockedPathSearch() {
+            @Override
+            public EntityID search(EntityID agent, EntityID position, EntityID target) {
                 SearchResults results = pathDB.search(position, target);
                 List<Blockade> pathBlockades = results.getPathBlocks();
                 if (!pathBlockades.isEmpty()) {
                     Logger.trace("Firefighter {} blocked from reaching fire {} by {}", agent, target, pathBlockades.get(0).getID());
-                    blockedFireAgents.put(new Pair<>(agent, target), pathBlockades.get(0).getID());
+                    return pathBlockades.get(0).getID();
                 }
+                return null;
             }
-        }
+        });
         Logger.debug("Done computing blocked fire agents.");
     }
 
-    private void computeBlockedPoliceAgents() {
+    /**
+     * Compute the police agents blocked from reaching each blockade.
+     *
+     * When a previous problem is given, the blocked pairs of agents that did
+     * not move are taken from it.
+     */
+    private void computeBlockedPoliceAgents(ProblemDefinition previous, Set<EntityID> movedAgents) {
         Logger.debug("Computing blocked police agents...");
-        for (EntityID agent : getPoliceAgents()) {
-            Human hagent = (Human)world.getEntity(agent);
-            EntityID agentPosition = hagent.getPosition();
+        if (previous != null) {
+            for (Map.Entry<Pair<EntityID,EntityID>, EntityID> entry : previous.blockedPoliceAgents.entrySet()) {
+                if (!movedAgents.contains(entry.getKey().first())) {
+                    addBlocked(blockedPoliceAgents, policeAgentsByBlockade, entry.getKey(), entry.getValue());
+                }
+            }
+        }
 
-            for (EntityID target: getBlockades()) {
+        final List<EntityID> noBlockades = Collections.emptyList();
+        searchBlockedAgents(policeAgents, previous == null ? null : movedAgents, blockades, noBlockades,
+                blockedPoliceAgents, policeAgentsByBlockade, new BlockedPathSearch() {
+            @Override
+            public EntityID search(EntityID agent, EntityID position, EntityID target) {
                 Blockade blockade = (Blockade)world.getEntity(target);
                 EntityID targetPosition = blockade.getPosition();
-                SearchResults results = pathDB.search(agentPosition, targetPosition);
+                SearchResults results = pathDB.search(position, targetPosition);
                 List<Blockade> pathBlockades = results.getPathBlocks();
                 if (!pathBlockades.isEmpty() && !pathBlockades.get(0).getID().equals(target)) {
                     Logger.trace("Police agent {} blocked from reaching blockade {} by {}", agent, target, pathBlockades.get(0).getID());
-                    blockedPoliceAgents.put(new Pair<>(agent, target), pathBlockades.get(0).getID());
+                    return pathBlockades.get(0).getID();
                 }
+                return null;
             }
-        }
+        });
         Logger.debug("Done computing blocked police agents.");
     }
 
+    /**
+     * Search for the blockade that prevents an agent from reaching a target.
+     */
+    private interface BlockedPathSearch {
+
+        /**
+         * Get the blockade that prevents the given agent from reaching the
+         * given target.
+         *
+         * @param agent agent trying to reach the target.
+         * @param position current position of the agent.
+         * @param target target that the agent wants to reach.
+         * @return blockade blocking the agent, or <em>null</em> if the agent
+         * is not blocked.
+         */
+        public EntityID search(EntityID agent, EntityID position, EntityID target);
+
+    }
+
+    /**
+     * Search the targets that each agent is blocked from reaching, storing
+     * the results in the given map and index.
+     *
+     * Moved agents (or all of them if <em>movedAgents</em> is <em>null</em>)
+     * are searched against all targets, whereas the other agents are only
+     * searched against the new targets. The searches are split among
+     * {@link Constants#KEY_PROBLEM_THREADS} threads, and their results are
+     * stored in the same order as if they were run sequentially.
+     */
+    private void searchBlockedAgents(List<EntityID> agents, Set<EntityID> movedAgents,
+            List<EntityID> allTargets, List<EntityID> newTargets,
+            Map<Pair<EntityID, EntityID>, EntityID> blocked,
+            Map<EntityID, List<Pair<EntityID, EntityID>>> index,
+            BlockedPathSearch search) {
+        final int nAgents = agents.size();
+        final int nThreads = config.getIntValue(Constants.KEY_PROBLEM_THREADS, 1);
+        final int nChunks = Math.max(1, Math.min(nThreads, nAgents));
+
+        List<BlockedSearchChunk> chunks = new ArrayList<>(nChunks);
+        for (int c = 0; c < nChunks; c++) {
+            chunks.add(new BlockedSearchChunk(agents, movedAgents, allTargets, newTargets, search,
+                    (int)((long)nAgents * c / nChunks), (int)((long)nAgents * (c + 1) / nChunks)));
+        }
+
+        if (nChunks == 1) {
+            addBlocked(blocked, index, chunks.get(0).call());
+            return;
+        }
+
+        for (List<BlockedPair> pairs : Parallel.invokeAll(getSearchExecutor(nThreads), chunks)) {
+            addBlocked(blocked, index, pairs);
+        }
+    }
+
+    /**
+     * Searches the blocked targets of a contiguous range of agents.
+     */
+    private class BlockedSearchChunk implements Callable<List<BlockedPair>> {
+        private final List<EntityID> agents;
+        private final Set<EntityID> movedAgents;
+        private final List<EntityID> allTargets;
+        private final List<EntityID> newTargets;
+        private final BlockedPathSearch search;
+        private final int start;
+        private final int end;
+
+        public BlockedSearchChunk(List<EntityID> agents, Set<EntityID> movedAgents,
+                List<EntityID> allTargets, List<EntityID> newTargets,
+                BlockedPathSearch search, int start, int end) {
+            this.agents = agents;
+            this.movedAgents = movedAgents;
+            this.allTargets = allTargets;
+            this.newTargets = newTargets;
+            this.search = search;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public List<BlockedPair> call() {
+            List<BlockedPair> result = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                final EntityID agent = agents.get(i);
+                final List<EntityID> targets = movedAgents == null
+                        || movedAgents.contains(agent) ? allTargets : newTargets;
+                if (targets.isEmpty()) {
+                    continue;
+                }
+
+                final EntityID position = ((Human)world.getEntity(agent)).getPosition();
+                for (EntityID target : targets) {
+                    final EntityID blockade = search.search(agent, position, target);
+                    if (blockade != null) {
+                        result.add(new BlockedPair(new Pair<>(agent, target), blockade));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private static void addBlocked(Map<Pair<EntityID, EntityID>, EntityID> blocked,
+            Map<EntityID, List<Pair<EntityID, EntityID>>> index, List<BlockedPair> pairs) {
+        for (BlockedPair pair : pairs) {
+            addBlocked(blocked, index, pair.pair, pair.blockade);
+        }
+    }
+
+    /**
+     * Result of a blocked path search: an <em>(agent, target)</em> pair and
+     * the blockade preventing the agent from reaching the target.
+     */
+    private static class BlockedPair {
+        public final Pair<EntityID, EntityID> pair;
+        public final EntityID blockade;
+
+        public BlockedPair(Pair<EntityID, EntityID> pair, EntityID blockade) {
+            this.pair = pair;
+            this.blockade = blockade;
+        }
+    }
+
+    /** Seconds that the threads of the search pool are kept while idle */
+    private static final long SEARCH_KEEP_ALIVE = 60;
+
+    /**
+     * Pool of threads used to search for blocked agents, shared by all
+     * problems. Its threads end after being idle for a while, and the pool
+     * itself is ended by {@link #shutdownSearchExecutor()}.
+     */
+    private static ThreadPoolExecutor searchExecutor;
+
+    private static synchronized ExecutorService getSearchExecutor(int nThreads) {
+        if (searchExecutor == null || searchExecutor.getMaximumPoolSize() != nThreads) {
+            shutdownSearchExecutor();
+            searchExecutor = new ThreadPoolExecutor(nThreads, nThreads,
+                    SEARCH_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    Parallel.daemonThreads("problem-search-"));
+            searchExecutor.allowCoreThreadTimeOut(true);
+        }
+        return searchExecutor;
+    }
+
+    /**
+     * Stop the threads used to search for blocked agents.
+     * <p/>
+     * Searches already running are completed. Problems built afterwards
+     * start a new pool if they need it.
+     */
+    public static synchronized void shutdownSearchExecutor() {
+        if (searchExecutor != null) {
+            searchExecutor.shutdown();
+            searchExecutor = null;
+        }
+    }
+
     /**
      * Reads the utility value for the specified fire brigade and target fire.
      *
@@ -270,6 +949,50 @@ public class ProblemDefinition {
         return policeUtilityMatrix[i][j];
     }
 
+    /**
+     * Get the index of the given agent or target, which is its position in
+     * the list of entities of its kind (fire agents, fires, police agents or
+     * blockades).
+     *
+     * @param id id of the agent or target
+     * @return index of that entity, or <em>-1</em> if it is not part of this
+     * problem.
+     */
+    public int getIndex(EntityID id) {
+        final Integer index = id2idx.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Get the utilities of the given fire brigade for all fires, indexed as
+     * in {@link #getFires()}.
+     * <p/>
+     * The returned row is shared with this problem, so it must not be
+     * modified.
+     *
+     * @param fireAgent index of the fire brigade
+     * @return utilities of that agent for all fires.
+     * @see #getIndex(EntityID)
+     */
+    public double[] getFireUtilities(int fireAgent) {
+        return fireUtilityMatrix[fireAgent];
+    }
+
+    /**
+     * Get the utilities of the given police agent for all blockades, indexed
+     * as in {@link #getBlockades()}.
+     * <p/>
+     * The returned row is shared with this problem, so it must not be
+     * modified.
+     *
+     * @param policeAgent index of the police agent
+     * @return utilities of that agent for all blockades.
+     * @see #getIndex(EntityID)
+     */
+    public double[] getPoliceUtilities(int policeAgent) {
+        return policeUtilityMatrix[policeAgent];
+    }
+
     /**
      * Check if the given agent is blocked from reaching the given target.
      *
@@ -586,8 +1309,7 @@ public class ProblemDefinition {
         if (maxAgents >= nAgents) {
             return 0;
         }
-        return config.getFloatValue(Constants.KEY_UTIL_K) *
-                Math.pow(nAgents-maxAgents, config.getFloatValue(Constants.KEY_UTIL_ALPHA));
+        return settings.getUtilK() * Math.pow(nAgents-maxAgents, settings.getUtilAlpha());
     }
 
     /**
@@ -0,0 +1,873 @@
+package RSLBench.Helpers.Utility;
+
+import RSLBench.Assignment.Assignment;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.FireBrigade;
+import rescuecore2.standard.entities.PoliceForce;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityFactory;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Everything that solvers read from a {@link ProblemDefinition}, detached from
+ * the world it was computed from.
+ * <p/>
+ * A snapshot holds the agents and targets of both teams, the utilities
+ * reported by the problem (after hysteresis), the number of agents required
+ * by each fire, the blocked <em>(agent, target)</em> pairs, the
+ * assignment of the previous step and the state of the buildings (from which
+ * solvers report the fire statistics and the score of each step). It can be
+ * saved to a text or binary file
+ * and loaded back without any loss, and then turned into an equivalent problem
+ * through
+ * {@link ProblemDefinition#ProblemDefinition(rescuecore2.config.Config, ProblemSnapshot, StandardWorldModel)}.
+ *
+ * @see RSLBench.Helpers.ProblemReplay
+ */
+public class ProblemSnapshot {
+
+    /** First line of the text snapshot files */
+    private static final String MAGIC = "RSLBench-problem 2";
+
+    /** First four bytes of the binary snapshot files ("RSLP" in little-endian) */
+    private static final int BINARY_MAGIC = 0x504C5352;
+
+    /** Version of the binary snapshot files */
+    private static final int BINARY_VERSION = 2;
+
+    /** Size of the buffer used to write binary snapshots */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int time;
+    private final List<EntityID> fireAgents;
+    private final List<EntityID> fires;
+    private final List<EntityID> policeAgents;
+    private final List<EntityID> blockades;
+    private final double[][] fireUtilities;
+    private final double[][] policeUtilities;
+    private final int[] fireRequired;
+    private final List<EntityID[]> blockedFireAgents;
+    private final List<EntityID[]> blockedPoliceAgents;
+    private final Assignment lastAssignment;
+    private final List<BuildingState> buildings;
+
+    /**
+     * Build a new snapshot.
+     *
+     * @param time simulation timestep of the problem.
+     * @param fireAgents fire brigades of the problem.
+     * @param fires fires of the problem.
+     * @param policeAgents police agents of the problem.
+     * @param blockades blockades of the problem.
+     * @param fireUtilities utility of each fire brigade (rows) for each fire (columns).
+     * @param policeUtilities utility of each police agent (rows) for each blockade (columns).
+     * @param fireRequired number of agents required by each fire.
+     * @param blockedFireAgents <em>(fire brigade, fire, blockade)</em> triplets
+     * of fire brigades that can not reach a fire because of a blockade.
+     * @param blockedPoliceAgents <em>(police agent, target, blockade)</em> triplets
+     * of police agents that can not reach a blockade because of another one.
+     * @param lastAssignment assignment chosen in the previous step.
+     * @param buildings state of the buildings of the world.
+     */
+    public ProblemSnapshot(int time, List<EntityID> fireAgents, List<EntityID> fires,
+            List<EntityID> policeAgents, List<EntityID> blockades,
+            double[][] fireUtilities, double[][] policeUtilities,
+            int[] fireRequired,
+            List<EntityID[]> blockedFireAgents, List<EntityID[]> blockedPoliceAgents,
+            Assignment lastAssignment, List<BuildingState> buildings) {
+        this.time = time;
+        this.fireAgents = Collections.unmodifiableList(fireAgents);
+        this.fires = Collections.unmodifiableList(fires);
+        this.policeAgents = Collections.unmodifiableList(policeAgents);
+        this.blockades = Collections.unmodifiableList(blockades);
+        this.fireUtilities = fireUtilities;
+        this.policeUtilities = policeUtilities;
+        this.fireRequired = fireRequired;
+        this.blockedFireAgents = Collections.unmodifiableList(blockedFireAgents);
+        this.blockedPoliceAgents = Collections.unmodifiableList(blockedPoliceAgents);
+        this.lastAssignment = lastAssignment;
+        this.buildings = Collections.unmodifiableList(buildings);
+    }
+
+    /**
+     * Take a snapshot of the given problem.
+     * <p/>
+     * The utility matrices are not copied, but shared with the problem (which
+     * never modifies them), so taking a snapshot is cheap.
+     *
+     * @param problem problem to take the snapshot of.
+     * @return snapshot of that problem.
+     */
+    public static ProblemSnapshot of(ProblemDefinition problem) {
+        final List<EntityID> fireAgents = new ArrayList<>(problem.getFireAgents());
+        final List<EntityID> fires = new ArrayList<>(problem.getFires());
+        final List<EntityID> policeAgents = new ArrayList<>(problem.getPoliceAgents());
+        final List<EntityID> blockades = new ArrayList<>(problem.getBlockades());
+
+        final int[] fireRequired = new int[fires.size()];
+        for (int j = 0; j < fireRequired.length; j++) {
+            fireRequired[j] = problem.getRequiredAgentCount(fires.get(j));
+        }
+
+        final double[][] fireUtilities = new double[fireAgents.size()][];
+        final List<EntityID[]> blockedFireAgents = new ArrayList<>();
+        for (int i = 0; i < fireUtilities.length; i++) {
+            fireUtilities[i] = problem.getFireUtilities(i);
+            final EntityID agent = fireAgents.get(i);
+            for (EntityID fire : fires) {
+                EntityID blockade = problem.getBlockadeBlockingFireAgent(agent, fire);
+                if (blockade != null) {
+                    blockedFireAgents.add(new EntityID[]{agent, fire, blockade});
+                }
+            }
+        }
+
+        final double[][] policeUtilities = new double[policeAgents.size()][];
+        final List<EntityID[]> blockedPoliceAgents = new ArrayList<>();
+        for (int i = 0; i < policeUtilities.length; i++) {
+            policeUtilities[i] = problem.getPoliceUtilities(i);
+            final EntityID agent = policeAgents.get(i);
+            for (EntityID target : blockades) {
+                EntityID blockade = problem.getBlockadeBlockingPoliceAgent(agent, target);
+                if (blockade != null) {
+                    blockedPoliceAgents.add(new EntityID[]{agent, target, blockade});
+                }
+            }
+        }
+
+        final List<BuildingState> buildings = new ArrayList<>();
+        for (StandardEntity entity : problem.getWorld()) {
+            if (entity instanceof Building) {
+                buildings.add(new BuildingState((Building)entity));
+            }
+        }
+
+        return new ProblemSnapshot(problem.getTime(), fireAgents, fires, policeAgents,
+                blockades, fireUtilities, policeUtilities,
+                fireRequired, blockedFireAgents, blockedPoliceAgents,
+                new Assignment(problem.getLastAssignment()), buildings);
+    }
+
+    /**
+     * Get the simulation timestep of the problem.
+     * @return simulation timestep.
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * Get the fire brigades of the problem.
+     * @return unmodifiable list of fire brigades.
+     */
+    public List<EntityID> getFireAgents() {
+        return fireAgents;
+    }
+
+    /**
+     * Get the fires of the problem.
+     * @return unmodifiable list of fires.
+     */
+    public List<EntityID> getFires() {
+        return fires;
+    }
+
+    /**
+     * Get the police agents of the problem.
+     * @return unmodifiable list of police agents.
+     */
+    public List<EntityID> getPoliceAgents() {
+        return policeAgents;
+    }
+
+    /**
+     * Get the blockades of the problem.
+     * @return unmodifiable list of blockades.
+     */
+    public List<EntityID> getBlockades() {
+        return blockades;
+    }
+
+    /**
+     * Get the utilities of the fire brigades, indexed as in
+     * {@link #getFireAgents()} and {@link #getFires()}.
+     * <p/>
+     * The returned matrix is shared with this snapshot, so it must not be
+     * modified.
+     *
+     * @return fire utility matrix.
+     */
+    public double[][] getFireUtilities() {
+        return fireUtilities;
+    }
+
+    /**
+     * Get the utilities of the police agents, indexed as in
+     * {@link #getPoliceAgents()} and {@link #getBlockades()}.
+     * <p/>
+     * The returned matrix is shared with this snapshot, so it must not be
+     * modified.
+     *
+     * @return police utility matrix.
+     */
+    public double[][] getPoliceUtilities() {
+        return policeUtilities;
+    }
+
+    /**
+     * Get the number of agents required by each fire, indexed as in
+     * {@link #getFires()}.
+     * @return required agents of each fire.
+     */
+    public int[] getFireRequired() {
+        return fireRequired;
+    }
+
+    /**
+     * Get the fire brigades that can not reach a fire because of a blockade.
+     * @return unmodifiable list of <em>(fire brigade, fire, blockade)</em> triplets.
+     */
+    public List<EntityID[]> getBlockedFireAgents() {
+        return blockedFireAgents;
+    }
+
+    /**
+     * Get the police agents that can not reach a blockade because of another one.
+     * @return unmodifiable list of <em>(police agent, target, blockade)</em> triplets.
+     */
+    public List<EntityID[]> getBlockedPoliceAgents() {
+        return blockedPoliceAgents;
+    }
+
+    /**
+     * Get the assignment chosen in the previous step.
+     * @return previous assignment.
+     */
+    public Assignment getLastAssignment() {
+        return lastAssignment;
+    }
+
+    /**
+     * Get the state of the buildings of the world.
+     * @return unmodifiable list of building states.
+     */
+    public List<BuildingState> getBuildings() {
+        return buildings;
+    }
+
+    /**
+     * Build a world that holds the agents and buildings of the given
+     * snapshots, which is what solvers need to tell fire brigades from police
+     * agents and to report the fire statistics and score of each step.
+     * <p/>
+     * The agents have no position, the buildings have no shape and there are
+     * no roads, so solvers that look at the map can not run on it. The
+     * buildings are left in the state of the first snapshot, and must be
+     * {@link #restoreBuildings(StandardWorldModel) restored} to the state of
+     * each snapshot before solving it.
+     *
+     * @param snapshots snapshots whose agents and buildings to add.
+     * @return world with the agents and buildings of those snapshots.
+     */
+    public static StandardWorldModel buildWorld(Collection<ProblemSnapshot> snapshots) {
+        StandardWorldModel world = new StandardWorldModel();
+        for (ProblemSnapshot snapshot : snapshots) {
+            for (BuildingState building : snapshot.buildings) {
+                if (world.getEntity(building.id) == null) {
+                    StandardEntity entity = StandardEntityFactory.INSTANCE.makeEntity(
+                            building.type, building.id);
+                    building.restore((Building)entity);
+                    world.addEntity(entity);
+                }
+            }
+            for (EntityID agent : snapshot.fireAgents) {
+                if (world.getEntity(agent) == null) {
+                    world.addEntity(new FireBrigade(agent));
+                }
+            }
+            for (EntityID agent : snapshot.policeAgents) {
+                if (world.getEntity(agent) == null) {
+                    world.addEntity(new PoliceForce(agent));
+                }
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Set the buildings of the given world to their state in this snapshot.
+     *
+     * @param world world built by {@link #buildWorld(Collection)}.
+     */
+    public void restoreBuildings(StandardWorldModel world) {
+        for (BuildingState building : buildings) {
+            building.restore((Building)world.getEntity(building.id));
+        }
+    }
+
+    /**
+     * Save this snapshot to the given file as text.
+     *
+     * @param file file to write.
+     * @throws IOException if the file can not be written.
+     */
+    public void write(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file, false))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Write this snapshot as text.
+     * <p/>
+     * Utilities are written with {@link Double#toString(double)}, so reading
+     * them back yields exactly the same values.
+     *
+     * @param out writer to write to.
+     * @throws IOException if the snapshot can not be written.
+     */
+    public void write(Writer out) throws IOException {
+        out.write(MAGIC);
+        out.write("\ntime " + time + "\n");
+        writeIds(out, "fire_agents", fireAgents);
+        writeIds(out, "fires", fires);
+        writeIds(out, "police_agents", policeAgents);
+        writeIds(out, "blockades", blockades);
+        writeInts(out, "fire_required", fireRequired);
+        writeMatrix(out, "fire_utilities", fireUtilities);
+        writeMatrix(out, "police_utilities", policeUtilities);
+        writeTriplets(out, "blocked_fire_agents", blockedFireAgents);
+        writeTriplets(out, "blocked_police_agents", blockedPoliceAgents);
+
+        out.write("last_assignment " + lastAssignment.getAgents().size() + "\n");
+        for (EntityID agent : lastAssignment.getAgents()) {
+            out.write(agent.getValue() + " " + lastAssignment.getAssignment(agent).getValue() + "\n");
+        }
+
+        out.write("buildings " + buildings.size() + "\n");
+        for (BuildingState b : buildings) {
+            out.write(b.id.getValue() + " " + b.type + " " + b.fieryness + " "
+                    + b.totalArea + " " + b.importance + "\n");
+        }
+    }
+
+    private static void writeIds(Writer out, String name, List<EntityID> ids) throws IOException {
+        StringBuilder line = new StringBuilder(name).append(' ').append(ids.size());
+        for (EntityID id : ids) {
+            line.append(' ').append(id.getValue());
+        }
+        out.write(line.append('\n').toString());
+    }
+
+    private static void writeInts(Writer out, String name, int[] values) throws IOException {
+        StringBuilder line = new StringBuilder(name).append(' ').append(values.length);
+        for (int value : values) {
+            line.append(' ').append(value);
+        }
+        out.write(line.append('\n').toString());
+    }
+
+    private static void writeMatrix(Writer out, String name, double[][] matrix) throws IOException {
+        out.write(name + " " + matrix.length + " " + (matrix.length == 0 ? 0 : matrix[0].length) + "\n");
+        StringBuilder line = new StringBuilder();
+        for (double[] row : matrix) {
+            line.setLength(0);
+            String separator = "";
+            for (double value : row) {
+                line.append(separator).append(Double.toString(value));
+                separator = " ";
+            }
+            out.write(line.append('\n').toString());
+        }
+    }
+
+    private static void writeTriplets(Writer out, String name, List<EntityID[]> triplets) throws IOException {
+        out.write(name + " " + triplets.size() + "\n");
+        for (EntityID[] t : triplets) {
+            out.write(t[0].getValue() + " " + t[1].getValue() + " " + t[2].getValue() + "\n");
+        }
+    }
+
+    /**
+     * Save this snapshot to the given file in binary.
+     *
+     * @param file file to write.
+     * @throws IOException if the file can not be written.
+     * @see #writeBinary(WritableByteChannel)
+     */
+    public void writeBinary(File file) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, false)) {
+            writeBinary(out.getChannel());
+        }
+    }
+
+    /**
+     * Write this snapshot in binary.
+     * <p/>
+     * All values are little-endian. The file starts with the magic number
+     * and version, followed by the timestep and the size of the four entity
+     * tables. Then come the id tables (fire agents, fires, police agents and
+     * blockades), the required agents of each fire, both utility matrices as
+     * raw doubles (row by row), the blocked fire and police triplets, the
+     * previous assignment and the buildings (id, type ordinal, fieryness,
+     * total area and importance). Lists of triplets, assignments and buildings
+     * are preceded by their length.
+     *
+     * @param out channel to write to.
+     * @throws IOException if the snapshot can not be written.
+     */
+    public void writeBinary(WritableByteChannel out) throws IOException {
+        ChannelOutput o = new ChannelOutput(out);
+        o.putInt(BINARY_MAGIC);
+        o.putInt(BINARY_VERSION);
+        o.putInt(time);
+        o.putInt(fireAgents.size());
+        o.putInt(fires.size());
+        o.putInt(policeAgents.size());
+        o.putInt(blockades.size());
+        o.putIds(fireAgents);
+        o.putIds(fires);
+        o.putIds(policeAgents);
+        o.putIds(blockades);
+        for (int count : fireRequired) {
+            o.putInt(count);
+        }
+        for (double[] row : fireUtilities) {
+            o.putDoubles(row);
+        }
+        for (double[] row : policeUtilities) {
+            o.putDoubles(row);
+        }
+        o.putTriplets(blockedFireAgents);
+        o.putTriplets(blockedPoliceAgents);
+        o.putInt(lastAssignment.getAgents().size());
+        for (EntityID agent : lastAssignment.getAgents()) {
+            o.putInt(agent.getValue());
+            o.putInt(lastAssignment.getAssignment(agent).getValue());
+        }
+        o.putInt(buildings.size());
+        for (BuildingState b : buildings) {
+            o.putInt(b.id.getValue());
+            o.putInt(b.type.ordinal());
+            o.putInt(b.fieryness);
+            o.putInt(b.totalArea);
+            o.putInt(b.importance);
+        }
+        o.flush();
+    }
+
+    /**
+     * Load a snapshot from the given file, written either as text or in
+     * binary.
+     *
+     * @param file file to read.
+     * @return snapshot read.
+     * @throws IOException if the file can not be read or is not a snapshot.
+     */
+    public static ProblemSnapshot read(File file) throws IOException {
+        if (isBinary(file)) {
+            return readBinary(file);
+        }
+        try (Reader in = new FileReader(file)) {
+            return read(in);
+        }
+    }
+
+    private static boolean isBinary(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] header = new byte[4];
+            if (in.read(header) < header.length) {
+                return false;
+            }
+            return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt() == BINARY_MAGIC;
+        }
+    }
+
+    /**
+     * Read a snapshot written by {@link #write(Writer)}.
+     *
+     * @param in reader to read from.
+     * @return snapshot read.
+     * @throws IOException if the snapshot can not be read or is malformed.
+     */
+    public static ProblemSnapshot read(Reader in) throws IOException {
+        Tokens tokens = new Tokens(new BufferedReader(in));
+        String magic = tokens.line();
+        if (!MAGIC.equals(magic)) {
+            throw new IOException("Not a problem snapshot (header \"" + magic + "\").");
+        }
+
+        tokens.expect("time");
+        final int time = tokens.nextInt();
+        final List<EntityID> fireAgents = readIds(tokens, "fire_agents");
+        final List<EntityID> fires = readIds(tokens, "fires");
+        final List<EntityID> policeAgents = readIds(tokens, "police_agents");
+        final List<EntityID> blockades = readIds(tokens, "blockades");
+        final int[] fireRequired = readInts(tokens, "fire_required", fires.size());
+        final double[][] fireUtilities = readMatrix(tokens, "fire_utilities",
+                fireAgents.size(), fires.size());
+        final double[][] policeUtilities = readMatrix(tokens, "police_utilities",
+                policeAgents.size(), blockades.size());
+        final List<EntityID[]> blockedFireAgents = readTriplets(tokens, "blocked_fire_agents");
+        final List<EntityID[]> blockedPoliceAgents = readTriplets(tokens, "blocked_police_agents");
+
+        tokens.expect("last_assignment");
+        final int nAssigned = tokens.nextInt();
+        final Assignment lastAssignment = new Assignment();
+        for (int i = 0; i < nAssigned; i++) {
+            lastAssignment.assign(new EntityID(tokens.nextInt()), new EntityID(tokens.nextInt()));
+        }
+
+        tokens.expect("buildings");
+        final int nBuildings = tokens.nextInt();
+        final List<BuildingState> buildings = new ArrayList<>(nBuildings);
+        for (int i = 0; i < nBuildings; i++) {
+            final EntityID id = new EntityID(tokens.nextInt());
+            final String type = tokens.next();
+            try {
+                buildings.add(new BuildingState(id, StandardEntityURN.fromString(type),
+                        tokens.nextInt(), tokens.nextInt(), tokens.nextInt()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Expected a building type, found \"" + type + "\".", e);
+            }
+        }
+
+        return new ProblemSnapshot(time, fireAgents, fires, policeAgents, blockades,
+                fireUtilities, policeUtilities, fireRequired,
+                blockedFireAgents, blockedPoliceAgents, lastAssignment, buildings);
+    }
+
+    /**
+     * Load a snapshot written by {@link #writeBinary(WritableByteChannel)}.
+     *
+     * @param file file to read.
+     * @return snapshot read.
+     * @throws IOException if the file can not be read or is malformed.
+     */
+    public static ProblemSnapshot readBinary(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            final FileChannel channel = in.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return readBinary(buffer);
+        } catch (RuntimeException e) {
+            // Buffer underflows and negative sizes of malformed files
+            throw new IOException("Malformed binary problem snapshot " + file + ".", e);
+        }
+    }
+
+    private static ProblemSnapshot readBinary(ByteBuffer in) throws IOException {
+        final int magic = in.getInt();
+        if (magic != BINARY_MAGIC) {
+            throw new IOException("Not a binary problem snapshot.");
+        }
+        final int version = in.getInt();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported binary problem snapshot version " + version + ".");
+        }
+
+        final int time = in.getInt();
+        final int nFireAgents = in.getInt();
+        final int nFires = in.getInt();
+        final int nPoliceAgents = in.getInt();
+        final int nBlockades = in.getInt();
+        final List<EntityID> fireAgents = getIds(in, nFireAgents);
+        final List<EntityID> fires = getIds(in, nFires);
+        final List<EntityID> policeAgents = getIds(in, nPoliceAgents);
+        final List<EntityID> blockades = getIds(in, nBlockades);
+        final int[] fireRequired = new int[nFires];
+        in.asIntBuffer().get(fireRequired);
+        in.position(in.position() + nFires * 4);
+        final double[][] fireUtilities = getMatrix(in, nFireAgents, nFires);
+        final double[][] policeUtilities = getMatrix(in, nPoliceAgents, nBlockades);
+        final List<EntityID[]> blockedFireAgents = getTriplets(in);
+        final List<EntityID[]> blockedPoliceAgents = getTriplets(in);
+
+        final int nAssigned = in.getInt();
+        final Assignment lastAssignment = new Assignment();
+        for (int i = 0; i < nAssigned; i++) {
+            lastAssignment.assign(new EntityID(in.getInt()), new EntityID(in.getInt()));
+        }
+
+        final int nBuildings = in.getInt();
+        final StandardEntityURN[] types = StandardEntityURN.values();
+        final List<BuildingState> buildings = new ArrayList<>(nBuildings);
+        for (int i = 0; i < nBuildings; i++) {
+            buildings.add(new BuildingState(new EntityID(in.getInt()), types[in.getInt()],
+                    in.getInt(), in.getInt(), in.getInt()));
+        }
+
+        return new ProblemSnapshot(time, fireAgents, fires, policeAgents, blockades,
+                fireUtilities, policeUtilities, fireRequired,
+                blockedFireAgents, blockedPoliceAgents, lastAssignment, buildings);
+    }
+
+    private static List<EntityID> getIds(ByteBuffer in, int n) {
+        List<EntityID> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(new EntityID(in.getInt()));
+        }
+        return result;
+    }
+
+    private static double[][] getMatrix(ByteBuffer in, int rows, int columns) {
+        double[][] result = new double[rows][columns];
+        final DoubleBuffer values = in.asDoubleBuffer();
+        for (double[] row : result) {
+            values.get(row);
+        }
+        in.position(in.position() + rows * columns * 8);
+        return result;
+    }
+
+    private static List<EntityID[]> getTriplets(ByteBuffer in) {
+        final int n = in.getInt();
+        List<EntityID[]> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(new EntityID[]{new EntityID(in.getInt()),
+                new EntityID(in.getInt()), new EntityID(in.getInt())});
+        }
+        return result;
+    }
+
+    private static List<EntityID> readIds(Tokens tokens, String name) throws IOException {
+        tokens.expect(name);
+        final int n = tokens.nextInt();
+        List<EntityID> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(new EntityID(tokens.nextInt()));
+        }
+        return result;
+    }
+
+    private static int[] readInts(Tokens tokens, String name, int expected) throws IOException {
+        tokens.expect(name);
+        final int n = tokens.nextInt();
+        if (n != expected) {
+            throw new IOException("Expected " + expected + " values in " + name + ", found " + n + ".");
+        }
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = tokens.nextInt();
+        }
+        return result;
+    }
+
+    private static double[][] readMatrix(Tokens tokens, String name, int rows, int columns)
+            throws IOException {
+        tokens.expect(name);
+        final int nRows = tokens.nextInt();
+        final int nColumns = tokens.nextInt();
+        if (nRows != rows || (rows > 0 && nColumns != columns)) {
+            throw new IOException("Expected a " + rows + "x" + columns + " " + name
+                    + " matrix, found " + nRows + "x" + nColumns + ".");
+        }
+        double[][] result = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                result[i][j] = tokens.nextDouble();
+            }
+        }
+        return result;
+    }
+
+    private static List<EntityID[]> readTriplets(Tokens tokens, String name) throws IOException {
+        tokens.expect(name);
+        final int n = tokens.nextInt();
+        List<EntityID[]> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(new EntityID[]{new EntityID(tokens.nextInt()),
+                new EntityID(tokens.nextInt()), new EntityID(tokens.nextInt())});
+        }
+        return result;
+    }
+
+    /**
+     * State of a building, as needed to report the fire statistics and the
+     * score of a step.
+     * <p/>
+     * Properties that are not defined in the building are
+     * {@link #UNDEFINED}.
+     */
+    public static final class BuildingState {
+        /** Value of the properties that are not defined */
+        public static final int UNDEFINED = -1;
+
+        public final EntityID id;
+        public final StandardEntityURN type;
+        public final int fieryness;
+        public final int totalArea;
+        public final int importance;
+
+        public BuildingState(EntityID id, StandardEntityURN type, int fieryness,
+                int totalArea, int importance) {
+            this.id = id;
+            this.type = type;
+            this.fieryness = fieryness;
+            this.totalArea = totalArea;
+            this.importance = importance;
+        }
+
+        private BuildingState(Building building) {
+            this(building.getID(), building.getStandardURN(),
+                    building.isFierynessDefined() ? building.getFieryness() : UNDEFINED,
+                    building.isTotalAreaDefined() ? building.getTotalArea() : UNDEFINED,
+                    building.isImportanceDefined() ? building.getImportance() : UNDEFINED);
+        }
+
+        private void restore(Building building) {
+            if (fieryness == UNDEFINED) {
+                building.undefineFieryness();
+            } else {
+                building.setFieryness(fieryness);
+            }
+            if (totalArea == UNDEFINED) {
+                building.undefineTotalArea();
+            } else {
+                building.setTotalArea(totalArea);
+            }
+            if (importance == UNDEFINED) {
+                building.undefineImportance();
+            } else {
+                building.setImportance(importance);
+            }
+        }
+    }
+
+    /**
+     * Writes little-endian values to a channel through a fixed buffer.
+     */
+    private static final class ChannelOutput {
+        private final WritableByteChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        private ChannelOutput(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void putInt(int value) throws IOException {
+            require(4);
+            buffer.putInt(value);
+        }
+
+        private void putIds(List<EntityID> ids) throws IOException {
+            for (EntityID id : ids) {
+                putInt(id.getValue());
+            }
+        }
+
+        private void putTriplets(List<EntityID[]> triplets) throws IOException {
+            putInt(triplets.size());
+            for (EntityID[] t : triplets) {
+                putInt(t[0].getValue());
+                putInt(t[1].getValue());
+                putInt(t[2].getValue());
+            }
+        }
+
+        private void putDoubles(double[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                require(8);
+                final int n = Math.min(buffer.remaining() / 8, values.length - offset);
+                buffer.asDoubleBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + n * 8);
+                offset += n;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Splits the lines of a reader into whitespace-separated tokens.
+     */
+    private static final class Tokens {
+        private final BufferedReader in;
+        private String[] current = new String[0];
+        private int next = 0;
+
+        private Tokens(BufferedReader in) {
+            this.in = in;
+        }
+
+        private String line() throws IOException {
+            next = current.length;
+            return in.readLine();
+        }
+
+        private String next() throws IOException {
+            while (next >= current.length) {
+                String line = in.readLine();
+                if (line == null) {
+                    throw new IOException("Unexpected end of the problem snapshot.");
+                }
+                line = line.trim();
+                current = line.isEmpty() ? new String[0] : line.split("\\s+");
+                next = 0;
+            }
+            return current[next++];
+        }
+
+        private void expect(String name) throws IOException {
+            String token = next();
+            if (!name.equals(token)) {
+                throw new IOException("Expected section " + name + ", found \"" + token + "\".");
+            }
+        }
+
+        private int nextInt() throws IOException {
+            String token = next();
+            try {
+                return Integer.parseInt(token);
+            } catch (NumberFormatException e) {
+                throw new IOException("Expected an integer, found \"" + token + "\".", e);
+            }
+        }
+
+        private double nextDouble() throws IOException {
+            String token = next();
+            try {
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw new IOException("Expected a number, found \"" + token + "\".", e);
+            }
+        }
+    }
+
+}
@@ -4,10 +4,7 @@
  */
 package RSLBench.Helpers.Utility;
 
-import RSLBench.Constants;
 import RSLBench.Helpers.Distance;
-import RSLBench.PlatoonFireAgent;
-import RSLBench.PlatoonPoliceAgent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import rescuecore2.misc.Pair;
@@ -42,7 +39,7 @@ public class SecondUtilityFunction extends AbstractUtilityFunction {
         }
 
         double distance = Distance.humanToBuilding(agent, target, world);
-        double threshold = config.getFloatValue(PlatoonFireAgent.MAX_DISTANCE_KEY);
+        double threshold = settings.getFireMaxDistance();
         if (distance < threshold) {
             distance = 0;
         }
@@ -50,9 +47,9 @@ public class SecondUtilityFunction extends AbstractUtilityFunction {
         factor = Math.pow(factor, 2);
 
         // Add some noise to break ties
-        factor += config.getRandom().nextDouble()/10000;
+        factor += random.getNoise(agent, target)/10000;
 
-        double tradeoff = config.getFloatValue(Constants.KEY_UTIL_TRADEOFF);
+        double tradeoff = settings.getUtilTradeoff();
         utility = utility - factor * tradeoff;
 
         //Logger.warn("Distance {}, factor {}, utility {}", distance, factor, utility);
@@ -65,14 +62,14 @@ public class SecondUtilityFunction extends AbstractUtilityFunction {
             maxDistance = getMaxDistance();
         }
 
-        double threshold = config.getFloatValue(PlatoonPoliceAgent.DISTANCE_KEY);
+        double threshold = settings.getPoliceRepairDistance();
         double distance = Distance.humanToBlockade(policeAgent, blockade, world, threshold);
         Logger.debug("Distance from police {} to blockade {}: {}", policeAgent, blockade, distance);
         double utility = distance/maxDistance;
         utility = 1-Math.pow(utility, 2);
 
         // Add some noise to break ties
-        utility += config.getRandom().nextDouble()/10000;
+        utility += random.getNoise(policeAgent, blockade)/10000;
 
         // Downscale police utilities to subjugate them to fire agents
         utility /= 1000;
@@ -97,7 +94,7 @@ public class SecondUtilityFunction extends AbstractUtilityFunction {
         Building b = (Building) world.getEntity(target);
 
         int area = b.getTotalArea();
-        double neededAgents = Math.ceil(area / config.getFloatValue(Constants.KEY_AREA_COVERED_BY_FIRE_BRIGADE));
+        double neededAgents = Math.ceil(area / settings.getFireBrigadeArea());
 
         if (b.getFieryness() == 1) {
             neededAgents *= 1.5;
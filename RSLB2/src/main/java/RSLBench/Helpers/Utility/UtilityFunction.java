@@ -4,6 +4,7 @@
  */
 package RSLBench.Helpers.Utility;
 
+import RSLBench.Settings;
 import java.util.HashMap;
 import rescuecore2.config.Config;
 import rescuecore2.standard.entities.StandardWorldModel;
@@ -22,6 +23,12 @@ public interface UtilityFunction {
      * @param config configuration being used.
      */
     public void setConfig(Config config);
+
+    /**
+     * Set the snapshot of the configuration values of the run.
+     * @param settings configuration snapshot of the run.
+     */
+    public void setSettings(Settings settings);
     
     /**
      * Set the world model being evaluated.
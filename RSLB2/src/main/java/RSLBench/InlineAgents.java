@@ -0,0 +1,37 @@
+package RSLBench;
+
+import kernel.InlineComponentGroup;
+import kernel.KernelConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import rescuecore2.components.ComponentLauncher;
+import rescuecore2.config.Config;
+import rescuecore2.connection.ConnectionException;
+
+/**
+ * Launches the RSLB2 agents inside the kernel JVM.
+ * <p/>
+ * List this class in <em>kernel.inline.groups</em> to run the whole experiment
+ * in a single process (see <em>boot/start.sh --inline</em>). The kernel must be
+ * given the experiment configuration, because the agents read it from the
+ * kernel's configuration. As with {@link Launcher}, all the fire brigades and
+ * police forces of the scenario are connected, followed by the center and the
+ * dummy agents.
+ * <p/>
+ * With <em>kernel.inline.in-memory: true</em>, messages are handed over
+ * without encoding them, so the agents connect right away and do not wait
+ * between connections.
+ */
+public class InlineAgents implements InlineComponentGroup {
+    private static final Logger Logger = LogManager.getLogger(InlineAgents.class);
+
+    @Override
+    public void launch(ComponentLauncher launcher, Config config) throws InterruptedException, ConnectionException {
+        Logger.info("RSLB2 Started inline!");
+        final boolean inMemory = config.getBooleanValue(
+                KernelConstants.INLINE_IN_MEMORY_KEY, false);
+        Launcher.connect(launcher, -1, -1, -1, config,
+                inMemory ? 0 : Launcher.CONNECT_DELAY);
+    }
+
+}
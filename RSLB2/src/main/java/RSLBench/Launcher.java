@@ -33,6 +33,9 @@ public final class Launcher {
     private static final String AMBULANCE_TEAM_FLAG = "-at";
   //  private static final String CIVILIAN_FLAG = "-cv";
 
+    /** Time to wait after connecting each platoon agent (in milliseconds) */
+    static final long CONNECT_DELAY = 100;
+
     private Launcher() {}
 
 
@@ -76,7 +79,7 @@ public final class Launcher {
 
             // CHECKSTYLE:ON:ModifiedControlVariable
             ComponentLauncher launcher = new TCPComponentLauncher(host, port, config);
-            connect(launcher, fb, pf, at, config);
+            connect(launcher, fb, pf, at, config, CONNECT_DELAY);
         }
         catch (IOException | ConnectionException | InterruptedException e) {
             Logger.error("Error connecting agents", e);
@@ -97,10 +100,11 @@ public final class Launcher {
      * @param pf: number of police forces
      * @param at: number of ambulances
      * @param config: configuration file
+     * @param delay: time to wait after connecting each platoon agent, in milliseconds
      * @throws InterruptedException
      * @throws ConnectionException
      */
-    private static void connect(ComponentLauncher launcher, int fb, int pf, int at, Config config) throws InterruptedException, ConnectionException {
+    static void connect(ComponentLauncher launcher, int fb, int pf, int at, Config config, long delay) throws InterruptedException, ConnectionException {
         List<PlatoonFireAgent> fireAgents = new ArrayList<>();
         List<PlatoonPoliceAgent> policeAgents = new ArrayList<>();
 
@@ -116,9 +120,11 @@ public final class Launcher {
                 // so. This is added because it seems that multiple agents
                 // initializing at the same time increases the memory requirements
                 // of the kernel substantially.
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ex) {}
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ex) {}
+                }
             }
         }
         catch (ComponentConnectionException e) {
@@ -135,9 +141,11 @@ public final class Launcher {
                 // so. This is added because it seems that multiple agents
                 // initializing at the same time increases the memory requirements
                 // of the kernel substantially.
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ex) {}
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ex) {}
+                }
             }
         }
         catch (ComponentConnectionException e) {
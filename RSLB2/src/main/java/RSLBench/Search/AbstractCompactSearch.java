@@ -0,0 +1,143 @@
+package RSLBench.Search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import rescuecore2.standard.entities.Area;
+
+/**
+ * Skeletal implementation of the search algorithms that run over the
+ * compact form of the connectivity graph.
+ *
+ * Each thread reuses the same primitive buffers for all its searches, which
+ * are sized for the largest graph it has searched. The buffers are
+ * invalidated between searches by bumping a stamp instead of clearing them,
+ * so a search only touches the areas that it visits.
+ */
+public abstract class AbstractCompactSearch extends AbstractSearchAlgorithm
+{
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<>();
+
+    /**
+     * Buffers of the searches run by a thread.
+     */
+    protected static class Workspace
+    {
+        /** Graph of the current search */
+        public CompactGraph graph;
+        /** Parent of each visited area */
+        public int[] parent;
+        /** Cost of reaching each visited area */
+        public double[] cost;
+        /** Stamp of the last search that reached each area */
+        public int[] visited;
+        /** Stamp of the last search that closed each area */
+        public int[] closed;
+        /** Stamp of the last search that had each area as a goal */
+        public int[] goal;
+        /** Goals of the current search */
+        public int[] goals;
+        public int nGoals;
+        /** Queue of areas (or path being reconstructed) */
+        public int[] queue;
+        public IndexedHeap heap;
+        public int stamp;
+
+        public Workspace(int capacity)
+        {
+            allocate(capacity);
+        }
+
+        private void allocate(int n)
+        {
+            parent = new int[n];
+            cost = new double[n];
+            visited = new int[n];
+            closed = new int[n];
+            goal = new int[n];
+            goals = new int[n];
+            queue = new int[n];
+            heap = new IndexedHeap(n);
+        }
+
+        private void newSearch(CompactGraph graph)
+        {
+            this.graph = graph;
+            if (graph.getNumAreas() > parent.length) {
+                allocate(graph.getNumAreas());
+            }
+            stamp++;
+            if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                Arrays.fill(closed, 0);
+                Arrays.fill(goal, 0);
+                stamp = 1;
+            }
+            heap.clear();
+            nGoals = 0;
+        }
+
+        public boolean isVisited(int area)
+        {
+            return visited[area] == stamp;
+        }
+
+        public boolean isClosed(int area)
+        {
+            return closed[area] == stamp;
+        }
+
+        public boolean isGoal(int area)
+        {
+            return goal[area] == stamp;
+        }
+    }
+
+    @Override
+    public SearchResults search(Area start, Collection<Area> goals, Graph graph,
+            DistanceInterface distanceMatrix)
+    {
+        final CompactGraph compact = CompactGraph.getInstance(graph);
+        Workspace workspace = workspaces.get();
+        if (workspace == null) {
+            workspace = new Workspace(compact.getNumAreas());
+            workspaces.set(workspace);
+        }
+
+        workspace.newSearch(compact);
+        final int origin = compact.indexOf(start.getID());
+        for (Area goal : goals) {
+            final int index = compact.indexOf(goal.getID());
+            if (!workspace.isGoal(index)) {
+                workspace.goal[index] = workspace.stamp;
+                workspace.goals[workspace.nGoals++] = index;
+            }
+        }
+
+        final int length = search(workspace, origin);
+        if (length < 0) {
+            return null;
+        }
+
+        List<Area> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(compact.getArea(workspace.queue[i]));
+        }
+        return SearchResults.build(start, path, graph.getWorld());
+    }
+
+    /**
+     * Search for a path from the origin to the closest goal.
+     *
+     * On success, the path must be left in the workspace's queue, excluding
+     * the origin and including the goal (or holding just the origin if it is
+     * a goal itself).
+     *
+     * @param workspace buffers of the search, with the goals already marked.
+     * @param origin index of the area where the path starts.
+     * @return length of the path, or -1 if no goal is reachable.
+     */
+    protected abstract int search(Workspace workspace, int origin);
+
+}
@@ -0,0 +1,81 @@
+package RSLBench.Search;
+
+/**
+ * A* search over the compact form of the connectivity graph.
+ *
+ * Like {@link AStar}, the search runs backwards from the goals towards the
+ * origin, using the straight distance to the origin as heuristic, so that
+ * it supports several goals. Edge lengths and area centers are taken from
+ * the compact graph instead of being computed on every expansion, and the
+ * open list is an indexed heap that updates the entries of areas reached
+ * again through shorter paths.
+ *
+ * The path starts next to the origin and ends at the goal, the same as the
+ * paths returned by {@link BreadthFirstSearch}.
+ */
+public class CompactAStar extends AbstractCompactSearch
+{
+
+    @Override
+    protected int search(Workspace workspace, int origin)
+    {
+        final CompactGraph graph = workspace.graph.getReverse();
+        final int[] offsets = graph.getOffsets();
+        final int[] sources = graph.getTargets();
+        final int[] lengths = graph.getDistances();
+        final int[] parent = workspace.parent;
+        final double[] cost = workspace.cost;
+        final int[] queue = workspace.queue;
+        final IndexedHeap open = workspace.heap;
+
+        if (workspace.isGoal(origin)) {
+            queue[0] = origin;
+            return 1;
+        }
+
+        for (int i = 0; i < workspace.nGoals; i++) {
+            final int goal = workspace.goals[i];
+            workspace.visited[goal] = workspace.stamp;
+            cost[goal] = 0;
+            parent[goal] = -1;
+            open.offer(goal, graph.getCenterDistance(goal, origin));
+        }
+
+        boolean found = false;
+        while (!open.isEmpty()) {
+            final int current = open.poll();
+            if (current == origin) {
+                found = true;
+                break;
+            }
+            workspace.closed[current] = workspace.stamp;
+
+            // Expand the areas that lead to the current one
+            for (int k = offsets[current]; k < offsets[current + 1]; k++) {
+                final int previous = sources[k];
+                if (workspace.isClosed(previous)) {
+                    continue;
+                }
+                final double pathCost = cost[current] + lengths[k];
+                if (!workspace.isVisited(previous) || pathCost < cost[previous]) {
+                    workspace.visited[previous] = workspace.stamp;
+                    cost[previous] = pathCost;
+                    parent[previous] = current;
+                    open.offer(previous, pathCost + graph.getCenterDistance(previous, origin));
+                }
+            }
+        }
+
+        if (!found) {
+            return -1;
+        }
+
+        // Parents lead from the origin towards the goal
+        int length = 0;
+        for (int current = parent[origin]; current >= 0; current = parent[current]) {
+            queue[length++] = current;
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,64 @@
+package RSLBench.Search;
+
+/**
+ * Breadth first search over the compact form of the connectivity graph.
+ *
+ * Finds the same paths as {@link BreadthFirstSearch} (in number of hops),
+ * using a plain array as queue instead of linked lists and hash maps.
+ */
+public class CompactBreadthFirstSearch extends AbstractCompactSearch
+{
+
+    @Override
+    protected int search(Workspace workspace, int origin)
+    {
+        final CompactGraph graph = workspace.graph;
+        final int[] offsets = graph.getOffsets();
+        final int[] targets = graph.getTargets();
+        final int[] parent = workspace.parent;
+        final int[] queue = workspace.queue;
+
+        if (workspace.isGoal(origin)) {
+            queue[0] = origin;
+            return 1;
+        }
+
+        int head = 0, tail = 0;
+        queue[tail++] = origin;
+        workspace.visited[origin] = workspace.stamp;
+        int found = -1;
+        while (head < tail && found < 0) {
+            final int current = queue[head++];
+            for (int k = offsets[current]; k < offsets[current + 1]; k++) {
+                final int neighbor = targets[k];
+                if (workspace.isVisited(neighbor)) {
+                    continue;
+                }
+                workspace.visited[neighbor] = workspace.stamp;
+                parent[neighbor] = current;
+                if (workspace.isGoal(neighbor)) {
+                    found = neighbor;
+                    break;
+                }
+                queue[tail++] = neighbor;
+            }
+        }
+
+        if (found < 0) {
+            return -1;
+        }
+
+        // Walk back from the goal, and then put the path in order
+        int length = 0;
+        for (int current = found; current != origin; current = parent[current]) {
+            queue[length++] = current;
+        }
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            final int tmp = queue[i];
+            queue[i] = queue[j];
+            queue[j] = tmp;
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,267 @@
+package RSLBench.Search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import rescuecore2.standard.entities.Area;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.Entity;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Connectivity graph of the areas of a map in compressed sparse row form.
+ *
+ * Areas are identified by dense indices, given by the position of their ids
+ * in ascending order. The neighbors of area <em>i</em> are
+ * <code>getTargets()[k]</code> for <code>k</code> between
+ * <code>getOffsets()[i]</code> (inclusive) and <code>getOffsets()[i+1]</code>
+ * (exclusive), and <code>getDistances()[k]</code> holds the distance between
+ * the centers of both areas.
+ *
+ * @see CompactAStar
+ * @see CompactBreadthFirstSearch
+ */
+public final class CompactGraph
+{
+    private final StandardWorldModel world;
+    private final int[] ids;
+    private final Area[] areas;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] distances;
+    private final int[] xs;
+    private final int[] ys;
+    private CompactGraph reversed;
+
+    private CompactGraph(StandardWorldModel world, int[] ids, Area[] areas,
+            int[] offsets, int[] targets, int[] distances, int[] xs, int[] ys)
+    {
+        this.world = world;
+        this.ids = ids;
+        this.areas = areas;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.distances = distances;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Get the (shared) compact form of the given graph.
+     *
+     * The compact form is kept by the graph itself, so it lives as long as
+     * the graph does.
+     *
+     * @param graph connectivity graph of the areas.
+     * @return the compact graph.
+     */
+    public static CompactGraph getInstance(Graph graph)
+    {
+        return graph.getCompact();
+    }
+
+    /**
+     * Build the compact form of the given graph.
+     *
+     * @param graph connectivity graph of the areas.
+     * @return the compact graph.
+     */
+    public static CompactGraph build(Graph graph)
+    {
+        final StandardWorldModel world = graph.getWorld();
+        List<Area> areaList = new ArrayList<>();
+        for (Entity next : world) {
+            if (next instanceof Area) {
+                areaList.add((Area)next);
+            }
+        }
+
+        final int n = areaList.size();
+        final int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = areaList.get(i).getID().getValue();
+        }
+        Arrays.sort(ids);
+
+        final Area[] areas = new Area[n];
+        final int[] offsets = new int[n + 1];
+        final int[] xs = new int[n];
+        final int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            areas[i] = (Area)world.getEntity(new EntityID(ids[i]));
+            xs[i] = areas[i].getX();
+            ys[i] = areas[i].getY();
+            int nNeighbors = 0;
+            for (Area neighbor : graph.getNeighbors(areas[i])) {
+                if (neighbor != null) {
+                    nNeighbors++;
+                }
+            }
+            offsets[i + 1] = offsets[i] + nNeighbors;
+        }
+
+        final int[] targets = new int[offsets[n]];
+        final int[] distances = new int[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            Set<Area> neighbors = graph.getNeighbors(areas[i]);
+            int k = offsets[i];
+            for (Area neighbor : neighbors) {
+                if (neighbor != null) {
+                    targets[k++] = Arrays.binarySearch(ids, neighbor.getID().getValue());
+                }
+            }
+            // Sort the neighbors to get the same graph on every build
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+            for (k = offsets[i]; k < offsets[i + 1]; k++) {
+                distances[k] = world.getDistance(areas[i].getID(), areas[targets[k]].getID());
+            }
+        }
+
+        return new CompactGraph(world, ids, areas, offsets, targets, distances, xs, ys);
+    }
+
+    /**
+     * Get the graph with the same areas and all edges reversed, building it
+     * the first time it is requested.
+     *
+     * @return the reversed graph.
+     */
+    public synchronized CompactGraph getReverse()
+    {
+        if (reversed == null) {
+            reversed = reverse();
+            reversed.reversed = this;
+        }
+        return reversed;
+    }
+
+    /**
+     * Build the graph with the same areas and all edges reversed.
+     *
+     * @return the reversed graph.
+     */
+    public CompactGraph reverse()
+    {
+        final int n = ids.length;
+        final int[] rOffsets = new int[n + 1];
+        for (int k = 0; k < targets.length; k++) {
+            rOffsets[targets[k] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            rOffsets[i + 1] += rOffsets[i];
+        }
+
+        // Sources are visited in ascending order, so each row ends up sorted
+        final int[] fill = Arrays.copyOf(rOffsets, n);
+        final int[] rTargets = new int[targets.length];
+        final int[] rDistances = new int[targets.length];
+        for (int i = 0; i < n; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                final int slot = fill[targets[k]]++;
+                rTargets[slot] = i;
+                rDistances[slot] = distances[k];
+            }
+        }
+
+        return new CompactGraph(world, ids, areas, rOffsets, rTargets, rDistances, xs, ys);
+    }
+
+    /**
+     * Get the number of areas in this graph.
+     *
+     * @return number of areas.
+     */
+    public int getNumAreas()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Get the dense index of the given area.
+     *
+     * @param id id of the area to look for.
+     * @return index of the area, or -1 if it is not in this graph.
+     */
+    public int indexOf(EntityID id)
+    {
+        final int index = Arrays.binarySearch(ids, id.getValue());
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Get the ids of all areas, sorted in ascending order.
+     *
+     * @return array of area ids, indexed by area index.
+     */
+    public int[] getIds()
+    {
+        return ids;
+    }
+
+    /**
+     * Get the area with the given index.
+     *
+     * @param index index of the area.
+     * @return the area.
+     */
+    public Area getArea(int index)
+    {
+        return areas[index];
+    }
+
+    /**
+     * Get the offsets of each area's neighbors.
+     *
+     * @return array of <em>n+1</em> offsets within the targets array.
+     */
+    public int[] getOffsets()
+    {
+        return offsets;
+    }
+
+    /**
+     * Get the targets of all edges.
+     *
+     * @return array of area indices.
+     */
+    public int[] getTargets()
+    {
+        return targets;
+    }
+
+    /**
+     * Get the length of all edges.
+     *
+     * @return array of distances between the centers of the connected areas.
+     */
+    public int[] getDistances()
+    {
+        return distances;
+    }
+
+    /**
+     * Get the distance between the centers of two areas.
+     *
+     * The distance is truncated to an integer the same as the edge lengths
+     * (see {@link StandardWorldModel#getDistance(EntityID, EntityID)}), so it
+     * is the same heuristic that {@link AStar} uses.
+     *
+     * @param i index of the first area.
+     * @param j index of the second area.
+     * @return distance between both areas.
+     */
+    public int getCenterDistance(int i, int j)
+    {
+        final double dx = xs[i] - xs[j];
+        final double dy = ys[i] - ys[j];
+        return (int)Math.hypot(dx, dy);
+    }
+
+    public StandardWorldModel getWorld()
+    {
+        return world;
+    }
+
+}
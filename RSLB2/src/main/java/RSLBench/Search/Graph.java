@@ -16,6 +16,7 @@ public final class Graph
 {
     private Map<Area, Set<Area>> graph;
     private StandardWorldModel world;
+    private CompactGraph compact;
 
     private static final Map<StandardWorldModel, Graph> instanceMap = new HashMap<>();
 
@@ -75,4 +76,17 @@ public final class Graph
         return world;
     }
 
+    /**
+     * Get the compact form of this graph, building it on first use.
+     *
+     * @return compact form of this graph.
+     * @see CompactGraph#getInstance(Graph)
+     */
+    synchronized CompactGraph getCompact() {
+        if (compact == null) {
+            compact = CompactGraph.build(this);
+        }
+        return compact;
+    }
+
 }
@@ -0,0 +1,165 @@
+package RSLBench.Search;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of integer items in <em>[0, capacity)</em>, each with a
+ * <em>double</em> key.
+ *
+ * The heap keeps the position of each item, so that the key of an item
+ * already in the heap can be decreased in logarithmic time instead of
+ * inserting it again. Items with the same key are polled in ascending order.
+ */
+public final class IndexedHeap
+{
+    private final int[] heap;
+    private final int[] position;
+    private final double[] keys;
+    private int size;
+
+    /**
+     * Build a new empty heap.
+     *
+     * @param capacity number of different items that can be in the heap.
+     */
+    public IndexedHeap(int capacity)
+    {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Get the number of different items that can be in this heap.
+     *
+     * @return capacity of this heap.
+     */
+    public int getCapacity()
+    {
+        return heap.length;
+    }
+
+    /**
+     * Remove all items, in time proportional to the number of items.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Check if the given item is in the heap.
+     *
+     * @param item item to check.
+     * @return <em>true</em> if the item is in the heap.
+     */
+    public boolean contains(int item)
+    {
+        return position[item] >= 0;
+    }
+
+    /**
+     * Get the key of an item in the heap.
+     *
+     * @param item item in the heap.
+     * @return key of the item.
+     */
+    public double getKey(int item)
+    {
+        return keys[item];
+    }
+
+    /**
+     * Insert the given item, or decrease its key if it is already in the
+     * heap with a larger key.
+     *
+     * @param item item to insert.
+     * @param key key of the item.
+     * @return <em>true</em> if the heap has changed.
+     */
+    public boolean offer(int item, double key)
+    {
+        int index = position[item];
+        if (index < 0) {
+            index = size++;
+        } else if (key >= keys[item]) {
+            return false;
+        }
+        keys[item] = key;
+        siftUp(index, item);
+        return true;
+    }
+
+    /**
+     * Remove the item with the smallest key.
+     *
+     * @return the removed item.
+     */
+    public int poll()
+    {
+        final int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, heap[size]);
+        }
+        return top;
+    }
+
+    private boolean less(int item1, int item2)
+    {
+        final int result = Double.compare(keys[item1], keys[item2]);
+        return result < 0 || (result == 0 && item1 < item2);
+    }
+
+    private void siftUp(int index, int item)
+    {
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (!less(item, heap[parent])) {
+                break;
+            }
+            heap[index] = heap[parent];
+            position[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = item;
+        position[item] = index;
+    }
+
+    private void siftDown(int index, int item)
+    {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], item)) {
+                break;
+            }
+            heap[index] = heap[child];
+            position[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = item;
+        position[item] = index;
+    }
+
+}
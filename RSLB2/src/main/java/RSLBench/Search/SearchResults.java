@@ -45,16 +45,18 @@ public class SearchResults {
             if (!(e instanceof Area)) {
                 continue;
             }
+            addBlocks((Area)e, model);
+        }
+    }
 
-            // Find blockades and add them if their cost is > 0 (removed blockades may remain here
-            // with a cost of 0)
-            Area area = (Area)e;
-            if (area.isBlockadesDefined()) {
-                for (EntityID blockadeID : area.getBlockades()) {
-                    Blockade blockade = (Blockade)model.getEntity(blockadeID);
-                    if (blockade.getRepairCost() > 0) {
-                        pathBlocks.add(blockade);
-                    }
+    private void addBlocks(Area area, StandardWorldModel model) {
+        // Find blockades and add them if their cost is > 0 (removed blockades may remain here
+        // with a cost of 0)
+        if (area.isBlockadesDefined()) {
+            for (EntityID blockadeID : area.getBlockades()) {
+                Blockade blockade = (Blockade)model.getEntity(blockadeID);
+                if (blockade.getRepairCost() > 0) {
+                    pathBlocks.add(blockade);
                 }
             }
         }
@@ -77,4 +79,39 @@ public class SearchResults {
         return result;
     }
 
+    /**
+     * Build the results of a search from the areas in the path.
+     *
+     * @param path areas in the path, in order.
+     * @param model world model where the areas are.
+     * @return search results with the path and the blockades found on it.
+     */
+    public static SearchResults build(List<Area> path, StandardWorldModel model) {
+        return build(null, path, model);
+    }
+
+    /**
+     * Build the results of a search from the areas in the path, also
+     * reporting the blockades found in the area where the path starts.
+     *
+     * @param origin area where the path starts (not included in the path),
+     * or <em>null</em> to report only the blockades found in the path.
+     * @param path areas in the path, in order.
+     * @param model world model where the areas are.
+     * @return search results with the path and the blockades found on it.
+     */
+    public static SearchResults build(Area origin, List<Area> path, StandardWorldModel model) {
+        SearchResults result = new SearchResults();
+        if (origin != null) {
+            result.addBlocks(origin, model);
+        }
+        ArrayList<EntityID> pathIds = new ArrayList<>(path.size());
+        for (Area area : path) {
+            pathIds.add(area.getID());
+            result.addBlocks(area, model);
+        }
+        result.setPathIds(pathIds);
+        return result;
+    }
+
 }
@@ -0,0 +1,179 @@
+package RSLBench;
+
+import RSLBench.Algorithms.FGMD.FGMDBinaryMaxSum;
+import RSLBench.Helpers.RandomStreams;
+import rescuecore2.config.Config;
+import rescuecore2.config.NoSuchConfigOptionException;
+
+/**
+ * Immutable snapshot of the configuration values read in hot paths.
+ * <p/>
+ * Reading a value from a {@link Config} takes several hash lookups (and is
+ * not safe while other threads are reading it, because the config caches
+ * parsed values on the fly). Solvers and utility functions read these values
+ * for every evaluation, so they get them from this snapshot instead. The
+ * center agent builds it once per run and hands it to the problems it builds,
+ * which pass it on to their utility function and solvers.
+ * <p/>
+ * The values are frozen when the snapshot is built: later changes to the
+ * config are not seen by it, so a new snapshot must be built to apply them.
+ * <p/>
+ * Values that are not defined in the config only fail when they are
+ * requested, as they did when read from the config itself.
+ */
+public final class Settings {
+
+    private final double utilTradeoff;
+    private final double utilK;
+    private final double utilAlpha;
+    private final double utilHysteresis;
+    private final double fireBrigadeArea;
+    private final double blockedFirePenalty;
+    private final double blockedPolicePenalty;
+    private final double policeEta;
+    private final double workload;
+    private final double selfishPenalty;
+    private final double fireMaxDistance;
+    private final double policeRepairDistance;
+    private final Boolean interteamCoordination;
+    private final RandomStreams randomStreams;
+
+    /**
+     * Build a snapshot of the given configuration.
+     *
+     * @param config configuration of the run.
+     */
+    public Settings(Config config) {
+        utilTradeoff = read(config, Constants.KEY_UTIL_TRADEOFF);
+        utilK = read(config, Constants.KEY_UTIL_K);
+        utilAlpha = read(config, Constants.KEY_UTIL_ALPHA);
+        utilHysteresis = read(config, Constants.KEY_UTIL_HYSTERESIS);
+        fireBrigadeArea = read(config, Constants.KEY_AREA_COVERED_BY_FIRE_BRIGADE);
+        blockedFirePenalty = read(config, Constants.KEY_BLOCKED_FIRE_PENALTY);
+        blockedPolicePenalty = read(config, Constants.KEY_BLOCKED_POLICE_PENALTY);
+        policeEta = read(config, Constants.KEY_POLICE_ETA);
+        workload = read(config, FGMDBinaryMaxSum.FGMD_WORKLOAD);
+        selfishPenalty = read(config, FGMDBinaryMaxSum.FGMD_SELFISH_PENALTY);
+        fireMaxDistance = read(config, PlatoonFireAgent.MAX_DISTANCE_KEY);
+        policeRepairDistance = read(config, PlatoonPoliceAgent.DISTANCE_KEY);
+        interteamCoordination = config.isDefined(Constants.KEY_INTERTEAM_COORDINATION)
+                ? config.getBooleanValue(Constants.KEY_INTERTEAM_COORDINATION) : null;
+        randomStreams = RandomStreams.fromConfig(config);
+    }
+
+    /**
+     * Reads all the configuration values in all the ways that solvers may
+     * access them.
+     * <p/>
+     * The {@link Config} object lazily caches parsed values in non-synchronized
+     * maps, so these must be populated before several threads start reading
+     * them concurrently. All the defined keys are read, because agents read
+     * keys of their own (and of their algorithm) while they are initialized.
+     * Undefined keys are never cached, so they are safe to read anyway.
+     *
+     * @param config configuration of the run.
+     */
+    public static void warmConfigurationCache(Config config) {
+        for (String key : config.getAllKeys()) {
+            if (!config.isDefined(key)) {
+                continue;
+            }
+            config.getBooleanValue(key);
+            try {
+                config.getFloatValue(key);
+                config.getIntValue(key);
+            } catch (NumberFormatException ex) {
+                // Not a number, so nobody will read it as such
+            }
+        }
+    }
+
+    private static double read(Config config, String key) {
+        return config.isDefined(key) ? config.getFloatValue(key) : Double.NaN;
+    }
+
+    private static double check(double value, String key) {
+        if (Double.isNaN(value)) {
+            throw new NoSuchConfigOptionException(key);
+        }
+        return value;
+    }
+
+    /** @see Constants#KEY_UTIL_TRADEOFF */
+    public double getUtilTradeoff() {
+        return check(utilTradeoff, Constants.KEY_UTIL_TRADEOFF);
+    }
+
+    /** @see Constants#KEY_UTIL_K */
+    public double getUtilK() {
+        return check(utilK, Constants.KEY_UTIL_K);
+    }
+
+    /** @see Constants#KEY_UTIL_ALPHA */
+    public double getUtilAlpha() {
+        return check(utilAlpha, Constants.KEY_UTIL_ALPHA);
+    }
+
+    /** @see Constants#KEY_UTIL_HYSTERESIS */
+    public double getUtilHysteresis() {
+        return check(utilHysteresis, Constants.KEY_UTIL_HYSTERESIS);
+    }
+
+    /** @see Constants#KEY_AREA_COVERED_BY_FIRE_BRIGADE */
+    public double getFireBrigadeArea() {
+        return check(fireBrigadeArea, Constants.KEY_AREA_COVERED_BY_FIRE_BRIGADE);
+    }
+
+    /** @see Constants#KEY_BLOCKED_FIRE_PENALTY */
+    public double getBlockedFirePenalty() {
+        return check(blockedFirePenalty, Constants.KEY_BLOCKED_FIRE_PENALTY);
+    }
+
+    /** @see Constants#KEY_BLOCKED_POLICE_PENALTY */
+    public double getBlockedPolicePenalty() {
+        return check(blockedPolicePenalty, Constants.KEY_BLOCKED_POLICE_PENALTY);
+    }
+
+    /** @see Constants#KEY_POLICE_ETA */
+    public double getPoliceEta() {
+        return check(policeEta, Constants.KEY_POLICE_ETA);
+    }
+
+    /** @see FGMDBinaryMaxSum#FGMD_WORKLOAD */
+    public double getWorkload() {
+        return check(workload, FGMDBinaryMaxSum.FGMD_WORKLOAD);
+    }
+
+    /** @see FGMDBinaryMaxSum#FGMD_SELFISH_PENALTY */
+    public double getSelfishPenalty() {
+        return check(selfishPenalty, FGMDBinaryMaxSum.FGMD_SELFISH_PENALTY);
+    }
+
+    /** @see PlatoonFireAgent#MAX_DISTANCE_KEY */
+    public double getFireMaxDistance() {
+        return check(fireMaxDistance, PlatoonFireAgent.MAX_DISTANCE_KEY);
+    }
+
+    /** @see PlatoonPoliceAgent#DISTANCE_KEY */
+    public double getPoliceRepairDistance() {
+        return check(policeRepairDistance, PlatoonPoliceAgent.DISTANCE_KEY);
+    }
+
+    /** @see Constants#KEY_INTERTEAM_COORDINATION */
+    public boolean isInterteamCoordination() {
+        if (interteamCoordination == null) {
+            throw new NoSuchConfigOptionException(Constants.KEY_INTERTEAM_COORDINATION);
+        }
+        return interteamCoordination;
+    }
+
+    /**
+     * Get the random streams of the run.
+     *
+     * @return random streams of the run.
+     */
+    public RandomStreams getRandomStreams() {
+        return randomStreams;
+    }
+
+}
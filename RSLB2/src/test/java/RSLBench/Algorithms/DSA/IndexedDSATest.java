@@ -0,0 +1,96 @@
+package RSLBench.Algorithms.DSA;
+
+import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.DCOP.DCOPSolver;
+import RSLBench.Constants;
+import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Helpers.Utility.SyntheticProblem;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import rescuecore2.config.Config;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Checks that {@link IndexedDSA} takes the same decisions as {@link DSA}.
+ * <p/>
+ * The problems only have fire agents, because police agents need blockades,
+ * and the paths blocked by them can not be searched without a map.
+ */
+public class IndexedDSATest {
+
+    private static final int N_AGENTS = 12;
+    private static final int N_FIRES = 5;
+
+    private static final int N_SEEDS = 5;
+
+    /**
+     * Build a new problem for each run, so that its configuration snapshot
+     * holds the seed and initial target of that run.
+     */
+    private static SyntheticProblem buildProblem(long seed, String initialTarget) {
+        SyntheticProblem synthetic = new SyntheticProblem(N_AGENTS, N_FIRES);
+        Config config = synthetic.getConfig();
+        config.setValue(Constants.KEY_RANDOM_SEED, Long.toHexString(seed));
+        config.setValue(DSA.KEY_DSA_INITIAL_TARGET, initialTarget);
+        config.setValue(Constants.KEY_RESULTS_PATH, System.getProperty("java.io.tmpdir") + "/");
+        config.setValue(Constants.KEY_RUN_ID, "IndexedDSATest");
+        config.setIntValue(DCOPSolver.KEY_DCOP_ITERATIONS, 20);
+        config.setBooleanValue(DCOPSolver.KEY_ANYTIME, false);
+        config.setBooleanValue(DCOPSolver.KEY_GREEDY_CORRECTION, false);
+        config.setFloatValue(DSA.KEY_DSA_PROBABILITY, 0.6);
+        for (String factor : new String[]{"heating", "burning", "inferno", "water-damage",
+                "minor-damage", "moderate-damage", "severe-damage", "burnt-out"}) {
+            config.setFloatValue("score.standard.building-fire." + factor, 1);
+        }
+        return synthetic;
+    }
+
+    private static Assignment solve(DSA solver, SyntheticProblem synthetic) {
+        ProblemDefinition problem = synthetic.build();
+        solver.setMaxTime(Integer.MAX_VALUE);
+        solver.initialize(synthetic.getWorld(), synthetic.getConfig());
+        return solver.compute(problem);
+    }
+
+    private static void checkSameAssignments(String initialTarget) {
+        Set<Long> draws = new HashSet<>();
+        for (long seed = 1; seed <= N_SEEDS; seed++) {
+            SyntheticProblem synthetic = buildProblem(seed, initialTarget);
+            final String context = "seed " + seed + ", initial target " + initialTarget;
+
+            // Each seed must really drive the random streams of its problem
+            ProblemDefinition problem = synthetic.build();
+            assertEquals(context, seed, problem.getSettings().getRandomStreams().getSeed());
+            draws.add(problem.getRandom(synthetic.getAgents().get(0)).nextLong());
+
+            DSA baseline = new DSA();
+            IndexedDSA indexed = new IndexedDSA();
+            Assignment expected = solve(baseline, synthetic);
+            Assignment actual = solve(indexed, synthetic);
+
+            for (EntityID agent : synthetic.getAgents()) {
+                assertFalse(Assignment.UNKNOWN_TARGET_ID.equals(expected.getAssignment(agent)));
+                assertEquals(context + ", agent " + agent,
+                        expected.getAssignment(agent), actual.getAssignment(agent));
+            }
+            assertEquals(context, baseline.getStats().getValue("NCCCs"),
+                    indexed.getStats().getValue("NCCCs"));
+            assertEquals(context, baseline.getStats().getValue("iterations"),
+                    indexed.getStats().getValue("iterations"));
+        }
+        assertEquals("different seeds draw different numbers", N_SEEDS, draws.size());
+    }
+
+    @Test
+    public void testRandomInitialTargets() {
+        checkSameAssignments(DSA.TARGET_RANDOM);
+    }
+
+    @Test
+    public void testBestInitialTargets() {
+        checkSameAssignments(DSA.TARGET_BEST);
+    }
+
+}
@@ -0,0 +1,50 @@
+package RSLBench.Assignment.DCOP;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks when deadlines expire and how their overrun is measured.
+ */
+public class DeadlineTest {
+
+    private static final long SLEEP = 50;
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        Deadline deadline = new Deadline(SLEEP);
+        assertFalse(deadline.isExpired());
+        Thread.sleep(2 * SLEEP);
+        assertTrue(deadline.isExpired());
+        assertTrue(deadline.getElapsed() >= 2 * SLEEP);
+    }
+
+    @Test
+    public void testZeroExpiresAtOnce() {
+        assertTrue(new Deadline(0).isExpired());
+    }
+
+    @Test
+    public void testOverrun() throws InterruptedException {
+        Deadline deadline = new Deadline(SLEEP);
+        assertEquals(0, deadline.getOverrun());
+        Thread.sleep(3 * SLEEP);
+        final long overrun = deadline.getOverrun();
+        assertTrue("overrun " + overrun, overrun >= 2 * SLEEP);
+        assertTrue(overrun <= deadline.getElapsed() - SLEEP);
+    }
+
+    @Test
+    public void testNoneNeverExpires() throws InterruptedException {
+        assertFalse(Deadline.NONE.isExpired());
+        assertEquals(0, Deadline.NONE.getOverrun());
+
+        // A long budget must not overflow into an expired deadline
+        Deadline deadline = new Deadline(Long.MAX_VALUE);
+        Thread.sleep(1);
+        assertFalse(deadline.isExpired());
+        assertEquals(0, deadline.getOverrun());
+        assertTrue(deadline.getElapsed() >= 1);
+    }
+
+}
@@ -0,0 +1,84 @@
+package RSLBench.Assignment;
+
+import RSLBench.Algorithms.FGMD.FGMDBinaryMaxSum;
+import RSLBench.Helpers.Utility.ProblemDefinition;
+import RSLBench.Helpers.Utility.SyntheticProblem;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Checks that the incremental changes computed by the evaluator match the
+ * difference between the full utilities of both assignments.
+ */
+public class UtilityEvaluatorTest {
+
+    private static final int N_AGENTS = 6;
+    private static final int N_FIRES = 3;
+    private static final int N_MOVES = 200;
+    private static final double DELTA = 1e-9;
+
+    private ProblemDefinition problem;
+    private ArrayList<EntityID> agents;
+    private ArrayList<EntityID> fires;
+    private Random random;
+
+    @Before
+    public void setUp() {
+        SyntheticProblem synthetic = new SyntheticProblem(N_AGENTS, N_FIRES);
+        // Fires attended by a single agent pay the selfish penalty
+        synthetic.getConfig().setFloatValue(FGMDBinaryMaxSum.FGMD_WORKLOAD, 2);
+        synthetic.getConfig().setFloatValue(FGMDBinaryMaxSum.FGMD_SELFISH_PENALTY, 0.5);
+        agents = synthetic.getAgents();
+        fires = synthetic.getFires();
+        problem = synthetic.build();
+        random = new Random(0);
+    }
+
+    private Assignment randomAssignment() {
+        Assignment solution = new Assignment();
+        for (EntityID agent : agents) {
+            solution.assign(agent, fires.get(random.nextInt(N_FIRES)));
+        }
+        return solution;
+    }
+
+    private double getUtility(Assignment solution) {
+        return new UtilityEvaluator(problem, solution).getUtility();
+    }
+
+    @Test
+    public void testDeltasMatchUtilityDifferences() {
+        Assignment solution = randomAssignment();
+        UtilityEvaluator evaluator = new UtilityEvaluator(problem, solution);
+        assertEquals(getUtility(solution), evaluator.getUtility(), DELTA);
+
+        for (int move = 0; move < N_MOVES; move++) {
+            final EntityID agent = agents.get(random.nextInt(N_AGENTS));
+            final EntityID target = fires.get(random.nextInt(N_FIRES));
+            final double before = getUtility(solution);
+            final double delta = evaluator.getDelta(agent, target);
+
+            solution.assign(agent, target);
+            final double after = getUtility(solution);
+            assertEquals("move " + move, after - before, delta, DELTA);
+
+            evaluator.assign(agent, target);
+            assertEquals("move " + move, after, evaluator.getUtility(), DELTA);
+        }
+    }
+
+    @Test
+    public void testUpdateMatchesNewEvaluator() {
+        UtilityEvaluator evaluator = new UtilityEvaluator(problem, randomAssignment());
+        for (int step = 0; step < N_MOVES / N_AGENTS; step++) {
+            Assignment solution = randomAssignment();
+            evaluator.update(solution);
+            assertEquals("step " + step, getUtility(solution), evaluator.getUtility(), DELTA);
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+package RSLBench.Helpers.PathCache;
+
+import RSLBench.Search.AStar;
+import RSLBench.Search.BreadthFirstSearch;
+import RSLBench.Search.CompactAStar;
+import RSLBench.Search.CompactBreadthFirstSearch;
+import RSLBench.Search.CompactGraph;
+import RSLBench.Search.DistanceInterface;
+import RSLBench.Search.Graph;
+import RSLBench.Search.SearchAlgorithm;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rescuecore2.standard.entities.Edge;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Checks that the precomputed paths are the ones that the configured search
+ * algorithm finds.
+ */
+public class PathPrecomputationTest {
+
+    /** Roads in the ring, odd so that no two paths have the same hops */
+    private static final int N_RING = 7;
+
+    /** Side of the grid, where many shortest paths are tied */
+    private static final int N_GRID = 4;
+
+    private StandardWorldModel world;
+    private List<Road> roads;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        world = new StandardWorldModel();
+        roads = new ArrayList<>();
+        file = File.createTempFile("paths", ".nexthop");
+        file.delete();
+    }
+
+    /**
+     * Build a ring of roads with two more roads hanging from it, placed at
+     * random so that no two paths have the same length either.
+     */
+    private void buildRing() {
+        Random random = new Random(0);
+        for (int i = 0; i < N_RING + 2; i++) {
+            addRoad(random.nextInt(100000), random.nextInt(100000));
+        }
+        for (int i = 0; i < N_RING; i++) {
+            connect(i, (i + 1) % N_RING);
+        }
+        connect(2, N_RING);
+        connect(N_RING, N_RING + 1);
+        indexWorld();
+    }
+
+    /**
+     * Build a grid of evenly spaced roads, where most pairs are joined by
+     * several paths with the same hops and the same length.
+     */
+    private void buildGrid() {
+        for (int row = 0; row < N_GRID; row++) {
+            for (int col = 0; col < N_GRID; col++) {
+                addRoad(col * 1000, row * 1000);
+            }
+        }
+        for (int row = 0; row < N_GRID; row++) {
+            for (int col = 0; col < N_GRID; col++) {
+                final int i = row * N_GRID + col;
+                if (col + 1 < N_GRID) {
+                    connect(i, i + 1);
+                }
+                if (row + 1 < N_GRID) {
+                    connect(i, i + N_GRID);
+                }
+            }
+        }
+        indexWorld();
+    }
+
+    private void addRoad(int x, int y) {
+        Road road = new Road(new EntityID(10 + roads.size()));
+        road.setX(x);
+        road.setY(y);
+        roads.add(road);
+    }
+
+    private void indexWorld() {
+        for (Road road : roads) {
+            world.addEntity(road);
+        }
+        world.index();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private void connect(int a, int b) {
+        addEdge(roads.get(a), roads.get(b));
+        addEdge(roads.get(b), roads.get(a));
+    }
+
+    private static void addEdge(Road from, Road to) {
+        List<Edge> edges = from.isEdgesDefined() ? new ArrayList<>(from.getEdges())
+                : new ArrayList<Edge>();
+        edges.add(new Edge(from.getX(), from.getY(), to.getX(), to.getY(), to.getID()));
+        from.setEdges(edges);
+    }
+
+    private MappedPathTable computeTable(SearchAlgorithm search) {
+        new PathPrecomputation(CompactGraph.build(Graph.getInstance(world)),
+                PathDB.minimizesHops(search), 2).computeTable(file);
+        return MappedPathTable.open(file, world, PathDB.listsFromGoal(search));
+    }
+
+    private void assertSamePaths(SearchAlgorithm search) {
+        final Graph graph = Graph.getInstance(world);
+        final MappedPathTable table = computeTable(search);
+        final DistanceInterface distances = new DistanceInterface(world);
+
+        for (Road from : roads) {
+            for (Road to : roads) {
+                List<EntityID> expected = search.search(from.getID(), to.getID(),
+                        graph, distances).getPathIds();
+                assertEquals("Path from " + from + " to " + to, expected,
+                        table.search(from.getID(), to.getID()).getPathIds());
+            }
+        }
+    }
+
+    /**
+     * Checks that the precomputed paths are as short as the ones found by the
+     * search, and listed in the same way, even if they are not the same.
+     * <p/>
+     * When several shortest paths join two areas, the search picks one of
+     * them by the order in which it expands the areas from the origin, but
+     * the table keeps the one found by the backwards search from the goal,
+     * so both may pick different paths.
+     */
+    private void assertEquivalentPaths(SearchAlgorithm search) {
+        final Graph graph = Graph.getInstance(world);
+        final MappedPathTable table = computeTable(search);
+        final DistanceInterface distances = new DistanceInterface(world);
+
+        for (Road from : roads) {
+            for (Road to : roads) {
+                final String context = "Path from " + from + " to " + to;
+                List<EntityID> expected = search.search(from.getID(), to.getID(),
+                        graph, distances).getPathIds();
+                List<EntityID> actual = table.search(from.getID(), to.getID()).getPathIds();
+                assertEquals(context, expected.size(), actual.size());
+                assertEquals(context, expected.contains(from.getID()),
+                        actual.contains(from.getID()));
+                assertEquals(context, expected.contains(to.getID()),
+                        actual.contains(to.getID()));
+                for (int i = 1; i < actual.size(); i++) {
+                    assertTrue(context, graph.getNeighbors(actual.get(i - 1))
+                            .contains(world.getEntity(actual.get(i))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBreadthFirstSearch() {
+        buildRing();
+        assertSamePaths(new BreadthFirstSearch());
+    }
+
+    @Test
+    public void testBreadthFirstSearchTies() {
+        buildGrid();
+        assertEquivalentPaths(new BreadthFirstSearch());
+    }
+
+    @Test
+    public void testCompactBreadthFirstSearch() {
+        buildRing();
+        assertSamePaths(new CompactBreadthFirstSearch());
+    }
+
+    @Test
+    public void testCompactBreadthFirstSearchTies() {
+        buildGrid();
+        assertEquivalentPaths(new CompactBreadthFirstSearch());
+    }
+
+    @Test
+    public void testAStar() {
+        buildRing();
+        assertSamePaths(new AStar());
+    }
+
+    @Test
+    public void testAStarTies() {
+        buildGrid();
+        assertEquivalentPaths(new AStar());
+    }
+
+    @Test
+    public void testCompactAStar() {
+        buildRing();
+        assertSamePaths(new CompactAStar());
+    }
+
+    @Test
+    public void testCompactAStarTies() {
+        buildGrid();
+        assertEquivalentPaths(new CompactAStar());
+    }
+
+}
@@ -0,0 +1,89 @@
+package RSLBench.Helpers;
+
+import RSLBench.Constants;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import rescuecore2.config.Config;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Checks that random streams only depend on the seed of the run, the
+ * timestep and the agent that draws them.
+ */
+public class RandomStreamsTest {
+
+    private static final long SEED = 0x1234abcdL;
+    private static final int TIME = 7;
+    private static final EntityID AGENT = new EntityID(42);
+    private static final int DRAWS = 20;
+
+    private static long[] draw(Random random) {
+        long[] values = new long[DRAWS];
+        for (int i = 0; i < DRAWS; i++) {
+            switch (i % 4) {
+                case 0: values[i] = random.nextLong(); break;
+                case 1: values[i] = random.nextInt(1000); break;
+                case 2: values[i] = Double.doubleToLongBits(random.nextDouble()); break;
+                default: values[i] = random.nextBoolean() ? 1 : 0;
+            }
+        }
+        return values;
+    }
+
+    private static long[] draw(long seed, int time, EntityID agent) {
+        return draw(new RandomStreams(seed).getStream(time, agent));
+    }
+
+    @Test
+    public void testSameKeySameStream() {
+        final long[] expected = draw(SEED, TIME, AGENT);
+        assertArrayEquals(expected, draw(SEED, TIME, AGENT));
+
+        // Drawing from other streams in between does not change it
+        RandomStreams streams = new RandomStreams(SEED);
+        Random first = streams.getStream(TIME, AGENT);
+        draw(streams.getStream(TIME, new EntityID(43)));
+        draw(streams.getStream(TIME + 1, AGENT));
+        assertArrayEquals(expected, draw(first));
+    }
+
+    @Test
+    public void testDifferentKeysDifferentStreams() {
+        final long[] expected = draw(SEED, TIME, AGENT);
+        assertFalse(Arrays.equals(expected, draw(SEED + 1, TIME, AGENT)));
+        assertFalse(Arrays.equals(expected, draw(SEED, TIME + 1, AGENT)));
+        assertFalse(Arrays.equals(expected, draw(SEED, TIME, new EntityID(43))));
+    }
+
+    @Test
+    public void testNoiseIsAFunctionOfItsArguments() {
+        RandomStreams streams = new RandomStreams(SEED);
+        final EntityID target = new EntityID(100);
+        final double noise = streams.getNoise(AGENT, target);
+        assertTrue(noise >= 0 && noise < 1);
+        streams.getNoise(AGENT, new EntityID(101));
+        assertEquals(noise, new RandomStreams(SEED).getNoise(AGENT, target), 0);
+        assertTrue(noise != streams.getNoise(target, AGENT));
+        assertTrue(noise != new RandomStreams(SEED + 1).getNoise(AGENT, target));
+    }
+
+    @Test
+    public void testSeedFromConfig() {
+        Config config = new Config();
+        config.setValue(Constants.KEY_RANDOM_SEED, Long.toHexString(SEED));
+        assertEquals(SEED, RandomStreams.fromConfig(config).getSeed());
+
+        // Seeds above Long.MAX_VALUE are read as their two's complement
+        config.setValue(Constants.KEY_RANDOM_SEED, "ffffffffffffffff");
+        assertEquals(-1L, RandomStreams.fromConfig(config).getSeed());
+
+        // A drawn seed is stored, so the whole run uses it
+        Config undefined = new Config();
+        final long drawn = RandomStreams.fromConfig(undefined).getSeed();
+        assertTrue(undefined.isDefined(Constants.KEY_RANDOM_SEED));
+        assertEquals(drawn, RandomStreams.fromConfig(undefined).getSeed());
+    }
+
+}
@@ -0,0 +1,95 @@
+package RSLBench.Helpers.Utility;
+
+import RSLBench.Settings;
+import java.util.ArrayList;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.FireBrigade;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+import rescuecore2.worldmodel.EntityID;
+import rescuecore2.worldmodel.Property;
+
+/**
+ * Checks that problems built incrementally match the ones built from scratch.
+ */
+public class ProblemDefinitionTest {
+
+    private static final int N_AGENTS = 4;
+    private static final int N_FIRES = 3;
+
+    private SyntheticProblem synthetic;
+    private Settings settings;
+    private StandardWorldModel world;
+    private ArrayList<EntityID> agents;
+    private ArrayList<EntityID> fires;
+
+    @Before
+    public void setUp() {
+        synthetic = new SyntheticProblem(N_AGENTS, N_FIRES);
+        settings = new Settings(synthetic.getConfig());
+        world = synthetic.getWorld();
+        agents = synthetic.getAgents();
+        fires = synthetic.getFires();
+    }
+
+    private ProblemDefinition build(ProblemDefinition previous, ChangeSet changes) {
+        return synthetic.build(settings, previous, changes);
+    }
+
+    /**
+     * Build a change set that sends again all the properties of the agents
+     * and fires, as the kernel does at each step.
+     */
+    private ChangeSet resendAll() {
+        ChangeSet changes = new ChangeSet();
+        for (StandardEntity entity : world) {
+            for (Property property : entity.getProperties()) {
+                if (property.isDefined()) {
+                    changes.addChange(entity, property);
+                }
+            }
+        }
+        return changes;
+    }
+
+    private static void assertSameUtilities(ProblemDefinition expected,
+            ProblemDefinition actual) {
+        assertEquals(expected.getNumFireAgents(), actual.getNumFireAgents());
+        for (int i=0; i<expected.getNumFireAgents(); i++) {
+            for (int j=0; j<expected.getNumFires(); j++) {
+                assertEquals(expected.getFireUtilities(i)[j], actual.getFireUtilities(i)[j], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testUnchangedPropertiesAreNotEvaluated() {
+        ProblemDefinition previous = build(null, null);
+        assertEquals(N_AGENTS * N_FIRES, previous.getUtilityEvaluations());
+
+        ProblemDefinition incremental = build(previous, resendAll());
+        assertEquals(0, incremental.getUtilityEvaluations());
+        assertSameUtilities(build(null, null), incremental);
+    }
+
+    @Test
+    public void testChangedPropertiesAreEvaluated() {
+        ProblemDefinition previous = build(null, null);
+
+        FireBrigade agent = (FireBrigade)world.getEntity(agents.get(1));
+        agent.setX(agent.getX() + 500);
+        Building fire = (Building)world.getEntity(fires.get(2));
+        fire.setFieryness(1);
+        ChangeSet changes = resendAll();
+
+        ProblemDefinition incremental = build(previous, changes);
+        // The moved agent towards all fires, plus all other agents towards the changed fire
+        assertEquals(N_FIRES + N_AGENTS - 1, incremental.getUtilityEvaluations());
+        assertSameUtilities(build(null, null), incremental);
+    }
+
+}
@@ -0,0 +1,121 @@
+package RSLBench.Helpers.Utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.Refuge;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Checks that problem snapshots are read back as they were written, and that
+ * replay worlds get the buildings of each snapshot.
+ */
+public class ProblemSnapshotTest {
+
+    private static final int N_AGENTS = 3;
+    private static final int N_FIRES = 2;
+
+    private SyntheticProblem synthetic;
+    private StandardWorldModel world;
+    private ArrayList<EntityID> fires;
+
+    @Before
+    public void setUp() {
+        synthetic = new SyntheticProblem(N_AGENTS, N_FIRES);
+        world = synthetic.getWorld();
+        fires = synthetic.getFires();
+        for (int j=0; j<N_FIRES; j++) {
+            Building fire = (Building)world.getEntity(fires.get(j));
+            fire.setTotalArea(50 + j);
+            fire.setImportance(1);
+        }
+        Building burnt = new Building(new EntityID(200));
+        burnt.setFieryness(8);
+        burnt.setTotalArea(70);
+        world.addEntity(burnt);
+        Refuge refuge = new Refuge(new EntityID(201));
+        refuge.setFieryness(0);
+        world.addEntity(refuge);
+    }
+
+    private ProblemSnapshot snapshot() {
+        return ProblemSnapshot.of(synthetic.build());
+    }
+
+    private static void assertSameSnapshot(ProblemSnapshot expected, ProblemSnapshot actual) {
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getFireAgents(), actual.getFireAgents());
+        assertEquals(expected.getFires(), actual.getFires());
+        assertArrayEquals(expected.getFireRequired(), actual.getFireRequired());
+        for (int i=0; i<expected.getFireAgents().size(); i++) {
+            for (int j=0; j<expected.getFires().size(); j++) {
+                assertEquals(expected.getFireUtilities()[i][j], actual.getFireUtilities()[i][j], 0);
+            }
+        }
+        assertEquals(expected.getBuildings().size(), actual.getBuildings().size());
+        for (int i=0; i<expected.getBuildings().size(); i++) {
+            ProblemSnapshot.BuildingState e = expected.getBuildings().get(i);
+            ProblemSnapshot.BuildingState a = actual.getBuildings().get(i);
+            assertEquals(e.id, a.id);
+            assertEquals(e.type, a.type);
+            assertEquals(e.fieryness, a.fieryness);
+            assertEquals(e.totalArea, a.totalArea);
+            assertEquals(e.importance, a.importance);
+        }
+    }
+
+    @Test
+    public void testTextRoundTrip() throws IOException {
+        ProblemSnapshot snapshot = snapshot();
+        assertEquals(N_FIRES + 2, snapshot.getBuildings().size());
+
+        StringWriter out = new StringWriter();
+        snapshot.write(out);
+        assertSameSnapshot(snapshot, ProblemSnapshot.read(new StringReader(out.toString())));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        ProblemSnapshot snapshot = snapshot();
+        File file = File.createTempFile("problem", ".bin");
+        try {
+            snapshot.writeBinary(file);
+            assertSameSnapshot(snapshot, ProblemSnapshot.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRestoreBuildings() {
+        ProblemSnapshot first = snapshot();
+        Building fire = (Building)world.getEntity(fires.get(0));
+        fire.setFieryness(5);
+        ProblemSnapshot second = snapshot();
+
+        StandardWorldModel replay = ProblemSnapshot.buildWorld(Arrays.asList(first, second));
+        assertEquals(StandardEntityURN.REFUGE,
+                replay.getEntity(new EntityID(201)).getStandardURN());
+        Building burnt = (Building)replay.getEntity(new EntityID(200));
+        assertEquals(8, burnt.getFieryness());
+        assertEquals(70, burnt.getTotalArea());
+        assertFalse(burnt.isImportanceDefined());
+
+        Building replayed = (Building)replay.getEntity(fires.get(0));
+        assertEquals(1, replayed.getFieryness());
+        second.restoreBuildings(replay);
+        assertEquals(5, replayed.getFieryness());
+        first.restoreBuildings(replay);
+        assertEquals(1, replayed.getFieryness());
+    }
+
+}
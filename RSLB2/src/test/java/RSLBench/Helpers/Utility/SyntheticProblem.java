@@ -0,0 +1,102 @@
+package RSLBench.Helpers.Utility;
+
+import RSLBench.Algorithms.FGMD.FGMDBinaryMaxSum;
+import RSLBench.Assignment.Assignment;
+import RSLBench.Constants;
+import RSLBench.Settings;
+import java.util.ArrayList;
+import rescuecore2.config.Config;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.FireBrigade;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Problem of fire agents and fires with synthetic utilities, so that tests can
+ * build problem definitions without a map.
+ * <p/>
+ * Fires are buildings with ids 100, 101, ... and agents are fire brigades with
+ * ids 1, 2, ..., each one standing on a fire. The config holds the keys needed
+ * to build problems, which tests can change before building them.
+ */
+public class SyntheticProblem {
+
+    private final Config config = new Config();
+    private final StandardWorldModel world = new StandardWorldModel();
+    private final ArrayList<EntityID> agents = new ArrayList<>();
+    private final ArrayList<EntityID> fires = new ArrayList<>();
+
+    public SyntheticProblem(int nAgents, int nFires) {
+        config.setBooleanValue(Constants.KEY_PROBLEM_PRUNE, false);
+        config.setBooleanValue(Constants.KEY_INTERTEAM_COORDINATION, false);
+        config.setValue(Constants.KEY_RANDOM_SEED, "1");
+        config.setFloatValue(Constants.KEY_UTIL_K, 2);
+        config.setFloatValue(Constants.KEY_UTIL_ALPHA, 2);
+        config.setFloatValue(Constants.KEY_UTIL_HYSTERESIS, 1);
+        config.setFloatValue(Constants.KEY_UTIL_TRADEOFF, 1);
+        config.setFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY, 2);
+        config.setFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY, 2);
+        config.setFloatValue(FGMDBinaryMaxSum.FGMD_WORKLOAD, 0);
+        config.setFloatValue(FGMDBinaryMaxSum.FGMD_SELFISH_PENALTY, 0);
+        UtilityFactory.setClass(SyntheticUtilityFunction.class.getName());
+
+        for (int j=0; j<nFires; j++) {
+            Building fire = new Building(new EntityID(100 + j));
+            fire.setFieryness(1 + j % 3);
+            world.addEntity(fire);
+            fires.add(fire.getID());
+        }
+        for (int i=0; i<nAgents; i++) {
+            FireBrigade agent = new FireBrigade(new EntityID(1 + i));
+            agent.setX(1000 * i);
+            agent.setY(2000 * i);
+            agent.setPosition(fires.get(i % nFires));
+            world.addEntity(agent);
+            agents.add(agent.getID());
+        }
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    public StandardWorldModel getWorld() {
+        return world;
+    }
+
+    public ArrayList<EntityID> getAgents() {
+        return agents;
+    }
+
+    public ArrayList<EntityID> getFires() {
+        return fires;
+    }
+
+    /**
+     * Build the problem of the current world, with a snapshot of the
+     * current config.
+     *
+     * @return new problem definition.
+     */
+    public ProblemDefinition build() {
+        return build(new Settings(config), null, null);
+    }
+
+    /**
+     * Build the problem of the current world, updating the previous one.
+     *
+     * @param settings configuration snapshot of the run.
+     * @param previous problem built in the previous step, or <em>null</em>
+     * @param changes changes applied to the world since the previous problem
+     * was built, or <em>null</em>
+     * @return new problem definition.
+     */
+    public ProblemDefinition build(Settings settings, ProblemDefinition previous,
+            ChangeSet changes) {
+        return new ProblemDefinition(config, settings, 1, agents, new ArrayList<>(fires),
+                new ArrayList<EntityID>(), new ArrayList<EntityID>(), new Assignment(),
+                world, previous, changes);
+    }
+
+}
@@ -0,0 +1,25 @@
+package RSLBench.Helpers.Utility;
+
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Utility function with pseudo-random utilities, that does not look at the
+ * world.
+ */
+public class SyntheticUtilityFunction extends AbstractUtilityFunction {
+
+    @Override
+    public double getFireUtility(EntityID fireAgent, EntityID fire) {
+        return random.getNoise(fireAgent, fire);
+    }
+
+    @Override
+    public double getPoliceUtility(EntityID policeAgent, EntityID blockade) {
+        return random.getNoise(policeAgent, blockade);
+    }
+
+    @Override
+    public int getRequiredAgentCount(EntityID target) {
+        return 1 + target.getValue() % 4;
+    }
+}
@@ -0,0 +1,149 @@
+package RSLBench.Helpers.Utility;
+
+import RSLBench.Algorithms.FGMD.FGMDBinaryMaxSum;
+import RSLBench.Assignment.Assignment;
+import RSLBench.Assignment.UtilityEvaluator;
+import RSLBench.Constants;
+import RSLBench.Settings;
+import java.util.ArrayList;
+import java.util.Random;
+import rescuecore2.config.Config;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Measures the throughput of evaluating the utility of an assignment, and the
+ * cost of reading the configuration values it needs from the config instead of
+ * the {@link Settings} snapshot.
+ * <p/>
+ * The problem is synthetic (fire agents and fires with hash-based utilities and
+ * no blockades), so no map nor simulator are needed. Run it with the RSLB2
+ * test classpath:
+ * <pre>
+ * java -cp build/test/classes:build/classes:lib/*:../roborescue/lib/* \
+ *     RSLBench.Helpers.Utility.UtilityBenchmark [agents] [fires] [seconds]
+ * </pre>
+ */
+public final class UtilityBenchmark {
+
+    private UtilityBenchmark() {}
+
+    public static void main(String[] args) {
+        final int nAgents = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        final int nFires = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        final double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 2;
+
+        final Config config = buildConfig();
+        UtilityFactory.setClass(SyntheticUtilityFunction.class.getName());
+
+        ArrayList<EntityID> agents = new ArrayList<>();
+        for (int i = 0; i < nAgents; i++) {
+            agents.add(new EntityID(i + 1));
+        }
+        ArrayList<EntityID> fires = new ArrayList<>();
+        for (int i = 0; i < nFires; i++) {
+            fires.add(new EntityID(nAgents + i + 1));
+        }
+        final ProblemDefinition problem = new ProblemDefinition(config, 0, agents, fires,
+                new ArrayList<EntityID>(), new ArrayList<EntityID>(), new Assignment(),
+                new StandardWorldModel());
+
+        final Random random = new Random(0);
+        final Assignment solution = new Assignment();
+        for (EntityID agent : agents) {
+            solution.assign(agent, fires.get(random.nextInt(nFires)));
+        }
+
+        System.out.printf("%d fire agents, %d fires%n", nAgents, nFires);
+
+        // Warm up, then measure
+        for (int round = 0; round < 2; round++) {
+            final boolean report = round > 0;
+            final double utility = run("getUtility", report, seconds, new Task() {
+                @Override
+                public double run() {
+                    return new UtilityEvaluator(problem, solution).getUtility();
+                }
+            });
+            if (report) {
+                System.out.printf("  (utility %f)%n", utility);
+            }
+
+            // Values read by each evaluation: the four evaluator parameters,
+            // plus the two penalty parameters for each fire.
+            run("config reads", report, seconds, new Task() {
+                @Override
+                public double run() {
+                    double sum = config.getFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY)
+                            + config.getFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY)
+                            + config.getFloatValue(FGMDBinaryMaxSum.FGMD_WORKLOAD)
+                            + config.getFloatValue(FGMDBinaryMaxSum.FGMD_SELFISH_PENALTY);
+                    for (int i = 0; i < nFires; i++) {
+                        sum += config.getFloatValue(Constants.KEY_UTIL_K)
+                                + config.getFloatValue(Constants.KEY_UTIL_ALPHA);
+                    }
+                    return sum;
+                }
+            });
+            run("snapshot reads", report, seconds, new Task() {
+                @Override
+                public double run() {
+                    final Settings settings = problem.getSettings();
+                    double sum = settings.getBlockedPolicePenalty()
+                            + settings.getBlockedFirePenalty()
+                            + settings.getWorkload()
+                            + settings.getSelfishPenalty();
+                    for (int i = 0; i < nFires; i++) {
+                        sum += settings.getUtilK() + settings.getUtilAlpha();
+                    }
+                    return sum;
+                }
+            });
+        }
+    }
+
+    private static Config buildConfig() {
+        Config config = new Config();
+        config.setBooleanValue(Constants.KEY_PROBLEM_PRUNE, false);
+        config.setBooleanValue(Constants.KEY_INTERTEAM_COORDINATION, false);
+        config.setValue(Constants.KEY_RANDOM_SEED, "1");
+        config.setFloatValue(Constants.KEY_UTIL_K, 2);
+        config.setFloatValue(Constants.KEY_UTIL_ALPHA, 2);
+        config.setFloatValue(Constants.KEY_UTIL_HYSTERESIS, 0);
+        config.setFloatValue(Constants.KEY_UTIL_TRADEOFF, 1);
+        config.setFloatValue(Constants.KEY_BLOCKED_FIRE_PENALTY, 2);
+        config.setFloatValue(Constants.KEY_BLOCKED_POLICE_PENALTY, 2);
+        config.setFloatValue(FGMDBinaryMaxSum.FGMD_WORKLOAD, 0);
+        config.setFloatValue(FGMDBinaryMaxSum.FGMD_SELFISH_PENALTY, 0);
+        return config;
+    }
+
+    /**
+     * Run the given task repeatedly for the given time.
+     *
+     * @return last result of the task, so that its work can not be optimized away.
+     */
+    private static double run(String name, boolean report, double seconds, Task task) {
+        final long limit = (long)(seconds * 1e9);
+        final long start = System.nanoTime();
+        long elapsed;
+        long calls = 0;
+        double result;
+        do {
+            result = task.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < limit);
+
+        if (report) {
+            System.out.printf("%-15s %12.1f calls/s %10.1f ns/call%n", name,
+                    calls / (elapsed / 1e9), (double)elapsed / calls);
+        }
+        return result;
+    }
+
+    private interface Task {
+        double run();
+    }
+
+}
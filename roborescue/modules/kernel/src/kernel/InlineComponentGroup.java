@@ -0,0 +1,20 @@
+package kernel;
+
+import rescuecore2.config.Config;
+import rescuecore2.components.ComponentLauncher;
+import rescuecore2.connection.ConnectionException;
+
+/**
+   A set of components that are launched together in the kernel JVM, for components that must be built by code rather than by class name (for example, agents that share a coordinator).
+   Implementations must have a no-arg constructor. They are listed in the {@link KernelConstants#INLINE_GROUPS_KEY} config key.
+ */
+public interface InlineComponentGroup {
+    /**
+       Connect the components of this group to the kernel.
+       @param launcher The launcher that connects the components.
+       @param config The kernel configuration. This is a copy that the group may modify.
+       @throws InterruptedException If the thread is interrupted while connecting.
+       @throws ConnectionException If there is a problem communicating with the kernel.
+    */
+    void launch(ComponentLauncher launcher, Config config) throws InterruptedException, ConnectionException;
+}
@@ -4,14 +4,16 @@ import rescuecore2.config.Config;
 import rescuecore2.components.ComponentLauncher;
 import rescuecore2.connection.Connection;
 import rescuecore2.connection.StreamConnection;
+import rescuecore2.connection.InMemoryConnection;
 import rescuecore2.connection.ConnectionException;
 import rescuecore2.misc.Pair;
 
 /**
-   A class that knows how to connect components to the kernel using inline streams.
+   A class that knows how to connect components to the kernel using inline streams or in-memory connections.
  */
 public class InlineComponentLauncher extends ComponentLauncher {
     private ComponentManager manager;
+    private boolean inMemory;
 
     /**
        Construct a new InlineComponentLauncher.
@@ -19,13 +21,24 @@ public class InlineComponentLauncher extends ComponentLauncher {
        @param config The system configuration.
     */
     public InlineComponentLauncher(ComponentManager manager, Config config) {
+        this(manager, config, false);
+    }
+
+    /**
+       Construct a new InlineComponentLauncher.
+       @param manager The component manager.
+       @param config The system configuration.
+       @param inMemory Whether to connect components with an {@link InMemoryConnection} instead of piped streams.
+    */
+    public InlineComponentLauncher(ComponentManager manager, Config config, boolean inMemory) {
         super(config);
         this.manager = manager;
+        this.inMemory = inMemory;
     }
 
     @Override
     protected Connection makeConnection() throws ConnectionException {
-        Pair<Connection, Connection> connections = StreamConnection.createConnectionPair();
+        Pair<Connection, Connection> connections = inMemory ? InMemoryConnection.createConnectionPair() : StreamConnection.createConnectionPair();
         connections.first().setRegistry(getDefaultRegistry());
         connections.first().startup();
         manager.newConnection(connections.first());
@@ -28,6 +28,12 @@ public final class KernelConstants {
     /** Whether to run the kernel in inline-only mode. */
     public static final String INLINE_ONLY_KEY = "kernel.inline-only";
 
+    /** Whether inline components exchange messages in memory instead of through streams. */
+    public static final String INLINE_IN_MEMORY_KEY = "kernel.inline.in-memory";
+
+    /** The config key for groups of components to launch inline. */
+    public static final String INLINE_GROUPS_KEY = "kernel.inline.groups";
+
     /** The config key for ignoring agent commands at the start of the simulation. */
     public static final String IGNORE_AGENT_COMMANDS_KEY = "kernel.agents.ignoreuntil";
 
@@ -219,6 +219,11 @@ public final class StartKernel {
 					kernel.timestep();
 				}
 				kernel.shutdown();
+				if (config.getBooleanValue(KernelConstants.INLINE_ONLY_KEY,
+						false)) {
+					// Inline components share this JVM, so stop them too
+					System.exit(0);
+				}
 			}
 		} catch (ConfigException e) {
 			Logger.fatal("Couldn't start kernel", e);
@@ -379,13 +384,20 @@ public final class StartKernel {
 		Config launchConfig = new Config(config);
 		launchConfig.removeExcept(Constants.RANDOM_SEED_KEY,
 				Constants.RANDOM_CLASS_KEY);
+		boolean inMemory = config.getBooleanValue(
+				KernelConstants.INLINE_IN_MEMORY_KEY, false);
 		for (Pair<String, Integer> next : options.getInlineComponents()) {
 			if (next.second() > 0) {
 				all.add(new ComponentStarter(next.first(),
 						info.componentManager, next.second(), registry, gui,
-						launchConfig));
+						launchConfig, inMemory));
 			}
 		}
+		for (String next : config.getArrayValue(
+				KernelConstants.INLINE_GROUPS_KEY, "")) {
+			all.add(new GroupStarter(next, info.componentManager, registry,
+					new Config(config), inMemory));
+		}
 		ExecutorService service = Executors.newFixedThreadPool(Runtime
 				.getRuntime().availableProcessors());
 		service.invokeAll(all);
@@ -494,16 +506,19 @@ public final class StartKernel {
 		private Registry registry;
 		private KernelGUI gui;
 		private Config config;
+		private boolean inMemory;
 
 		public ComponentStarter(String className,
 				ComponentManager componentManager, int count,
-				Registry registry, KernelGUI gui, Config config) {
+				Registry registry, KernelGUI gui, Config config,
+				boolean inMemory) {
 			this.className = className;
 			this.componentManager = componentManager;
 			this.count = count;
 			this.registry = registry;
 			this.gui = gui;
 			this.config = config;
+			this.inMemory = inMemory;
 			Logger.debug("New ComponentStarter: " + className + " * " + count);
 		}
 
@@ -511,7 +526,7 @@ public final class StartKernel {
 			Logger.debug("ComponentStarter running: " + className + " * "
 					+ count);
 			ComponentLauncher launcher = new InlineComponentLauncher(
-					componentManager, config);
+					componentManager, config, inMemory);
 			launcher.setDefaultRegistry(registry);
 			Logger.info("Launching " + count + " instances of component '"
 					+ className + "'...");
@@ -546,6 +561,44 @@ public final class StartKernel {
 		}
 	}
 
+	private static class GroupStarter implements Callable<Void> {
+		private String className;
+		private ComponentManager componentManager;
+		private Registry registry;
+		private Config config;
+		private boolean inMemory;
+
+		public GroupStarter(String className,
+				ComponentManager componentManager, Registry registry,
+				Config config, boolean inMemory) {
+			this.className = className;
+			this.componentManager = componentManager;
+			this.registry = registry;
+			this.config = config;
+			this.inMemory = inMemory;
+			Logger.debug("New GroupStarter: " + className);
+		}
+
+		public Void call() throws InterruptedException {
+			InlineComponentGroup group = instantiate(className,
+					InlineComponentGroup.class);
+			if (group == null) {
+				return null;
+			}
+			ComponentLauncher launcher = new InlineComponentLauncher(
+					componentManager, config, inMemory);
+			launcher.setDefaultRegistry(registry);
+			Logger.info("Launching component group '" + className + "'...");
+			try {
+				group.launch(launcher, config);
+				Logger.info(className + " launched successfully");
+			} catch (ConnectionException e) {
+				Logger.info(className + " failed", e);
+			}
+			return null;
+		}
+	}
+
 	private static class KernelInfo {
 		Kernel kernel;
 		KernelStartupOptions options;
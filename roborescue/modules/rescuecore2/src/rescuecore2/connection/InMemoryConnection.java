@@ -0,0 +1,130 @@
+package rescuecore2.connection;
+
+import static rescuecore2.misc.EncodingTools.writeInt32;
+import static rescuecore2.misc.EncodingTools.writeMessage;
+
+import rescuecore2.messages.AbstractMessage;
+import rescuecore2.messages.Message;
+import rescuecore2.messages.MessageComponent;
+import rescuecore2.messages.components.ConfigComponent;
+import rescuecore2.messages.components.EntityComponent;
+import rescuecore2.messages.components.EntityListComponent;
+import rescuecore2.misc.Pair;
+import rescuecore2.registry.Registry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+   Connection implementation that hands messages directly to the other end of the connection, without encoding them.
+   Both ends must live in the same JVM. Messages are delivered in order by the broadcast thread of the receiving end, as in the other connections.
+   <p>
+   Messages that carry entities or configurations (such as the connect messages) are still encoded and decoded, because the receiver keeps and modifies those objects.
+   The remaining messages are immutable once sent (change sets copy the properties they hold), so they are shared by both ends.
+ */
+public class InMemoryConnection extends AbstractConnection {
+    private InMemoryConnection peer;
+    private volatile boolean closed;
+
+    /**
+       Create an InMemoryConnection. Use {@link #createConnectionPair()} to obtain connected instances.
+    */
+    protected InMemoryConnection() {
+        super();
+        closed = false;
+    }
+
+    @Override
+    protected void startupImpl() {
+    }
+
+    @Override
+    public boolean isAlive() {
+        return super.isAlive() && !closed && !peer.closed;
+    }
+
+    @Override
+    protected void shutdownImpl() {
+        closed = true;
+    }
+
+    @Override
+    public void sendMessages(Collection<? extends Message> messages) throws ConnectionException {
+        if (messages == null) {
+            throw new IllegalArgumentException("Messages cannot be null");
+        }
+        if (!isAlive()) {
+            throw new ConnectionException("Connection is dead");
+        }
+        for (Message next : messages) {
+            if (mustCopy(next)) {
+                copy(next);
+            }
+            else {
+                peer.fireMessageReceived(next);
+            }
+        }
+    }
+
+    @Override
+    protected void sendBytes(byte[] b) throws IOException {
+        Registry old = Registry.getCurrentRegistry();
+        Registry.setCurrentRegistry(peer.getRegistry());
+        try {
+            peer.bytesReceived(b);
+        }
+        finally {
+            Registry.setCurrentRegistry(old);
+        }
+    }
+
+    /**
+       Deliver a copy of a message to the other end, by encoding and decoding it.
+       @param msg The message to copy.
+       @throws ConnectionException If the message cannot be encoded.
+    */
+    private void copy(Message msg) throws ConnectionException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeMessage(msg, out);
+            // Add a zero to indicate no more messages
+            writeInt32(0, out);
+            sendBytes(out.toByteArray());
+        }
+        catch (IOException e) {
+            throw new ConnectionException(e);
+        }
+    }
+
+    /**
+       Check if a message must be copied before handing it to the other end.
+       @param msg The message to check.
+       @return True if the message holds mutable objects, or if its contents are unknown.
+    */
+    private static boolean mustCopy(Message msg) {
+        if (!(msg instanceof AbstractMessage)) {
+            return true;
+        }
+        for (MessageComponent next : ((AbstractMessage)msg).getComponents()) {
+            if (next instanceof EntityComponent
+                || next instanceof EntityListComponent
+                || next instanceof ConfigComponent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+       Create a pair of connections that hand messages to each other.
+       @return A pair of connections.
+    */
+    public static Pair<Connection, Connection> createConnectionPair() {
+        InMemoryConnection c1 = new InMemoryConnection();
+        InMemoryConnection c2 = new InMemoryConnection();
+        c1.peer = c2;
+        c2.peer = c1;
+        return new Pair<Connection, Connection>(c1, c2);
+    }
+}
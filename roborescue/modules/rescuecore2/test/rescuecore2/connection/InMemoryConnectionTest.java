@@ -0,0 +1,65 @@
+package rescuecore2.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import rescuecore2.config.Config;
+import rescuecore2.messages.Message;
+import rescuecore2.messages.control.ControlMessageFactory;
+import rescuecore2.messages.control.KSConnectOK;
+import rescuecore2.messages.control.Shutdown;
+import rescuecore2.misc.Pair;
+import rescuecore2.worldmodel.Entity;
+
+public class InMemoryConnectionTest extends ConnectionTestCommon {
+    private static final String CONFIG_KEY = "test.key";
+    private static final String CONFIG_VALUE = "value";
+
+    @Override
+    protected Pair<Connection, Connection> makeConnectionPair() throws IOException {
+        return InMemoryConnection.createConnectionPair();
+    }
+
+    @Test
+    public void testMessageShared() throws InterruptedException, ConnectionException {
+        Pair<Connection, Connection> connections = InMemoryConnection.createConnectionPair();
+        TestConnectionListener l = new TestConnectionListener();
+        connections.second().addConnectionListener(l);
+        connections.first().startup();
+        connections.second().startup();
+        Message m = new Shutdown();
+        connections.first().sendMessage(m);
+        l.waitForMessages(1, TIMEOUT);
+        assertEquals(1, l.getMessageCount());
+        assertSame(m, l.getMessage(0));
+    }
+
+    @Test
+    public void testConfigCopied() throws InterruptedException, ConnectionException {
+        registry.registerMessageFactory(ControlMessageFactory.INSTANCE);
+        Pair<Connection, Connection> connections = InMemoryConnection.createConnectionPair();
+        connections.second().setRegistry(registry);
+        TestConnectionListener l = new TestConnectionListener();
+        connections.second().addConnectionListener(l);
+        connections.first().startup();
+        connections.second().startup();
+        Config config = new Config();
+        config.setValue(CONFIG_KEY, CONFIG_VALUE);
+        KSConnectOK m = new KSConnectOK(1, 2, new ArrayList<Entity>(), config);
+        connections.first().sendMessage(m);
+        l.waitForMessages(1, TIMEOUT);
+        assertEquals(1, l.getMessageCount());
+        assertTrue(l.getMessage(0) instanceof KSConnectOK);
+        KSConnectOK received = (KSConnectOK)l.getMessage(0);
+        assertNotSame(m, received);
+        assertNotSame(config, received.getConfig());
+        assertEquals(CONFIG_VALUE, received.getConfig().getValue(CONFIG_KEY));
+    }
+}